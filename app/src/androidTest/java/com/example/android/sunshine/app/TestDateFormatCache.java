@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.core.DateFormatCache;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class TestDateFormatCache extends AndroidTestCase {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final long TEST_DATE = 1419033600000L;  // December 20th, 2014
+
+    private Locale mDefaultLocale;
+    private TimeZone mDefaultTimeZone;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDefaultLocale = Locale.getDefault();
+        mDefaultTimeZone = TimeZone.getDefault();
+        DateFormatCache.invalidate();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Locale.setDefault(mDefaultLocale);
+        TimeZone.setDefault(mDefaultTimeZone);
+        DateFormatCache.invalidate();
+        super.tearDown();
+    }
+
+    public void testMatchesSimpleDateFormat() {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
+        SimpleDateFormat monthDayFormat = new SimpleDateFormat("MMMM dd");
+        SimpleDateFormat shortFormat = new SimpleDateFormat("EEE MMM dd");
+        DateFormatCache cache = DateFormatCache.get();
+        for (int i = 0; i < 60; i++) {
+            long date = TEST_DATE + i * DAY_IN_MILLIS;
+            // Ask twice so that the second answer comes out of the cache
+            for (int pass = 0; pass < 2; pass++) {
+                assertEquals(dayFormat.format(date),
+                        cache.format(DateFormatCache.PATTERN_DAY_NAME, date));
+                assertEquals(monthDayFormat.format(date),
+                        cache.format(DateFormatCache.PATTERN_MONTH_DAY, date));
+                assertEquals(shortFormat.format(date),
+                        cache.format(DateFormatCache.PATTERN_SHORT_DATE, date));
+            }
+        }
+    }
+
+    public void testLocalDayMatchesJulianDay() {
+        String[] zones = {"UTC", "America/Los_Angeles", "Asia/Kolkata", "Pacific/Kiritimati"};
+        for (String zone : zones) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            DateFormatCache.invalidate();
+            DateFormatCache cache = DateFormatCache.get();
+            Time time = new Time();
+            for (long date = TEST_DATE; date < TEST_DATE + 400 * DAY_IN_MILLIS;
+                 date += DAY_IN_MILLIS / 5) {
+                time.set(date);
+                int julianDay = Time.getJulianDay(date, time.gmtoff);
+                assertEquals("Local day mismatch in " + zone + " at " + date,
+                        julianDay - Time.EPOCH_JULIAN_DAY, cache.getLocalDay(date));
+            }
+        }
+    }
+
+    public void testLocaleChangeInvalidates() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        DateFormatCache.invalidate();
+        Locale.setDefault(Locale.US);
+        assertEquals("Saturday",
+                DateFormatCache.get().format(DateFormatCache.PATTERN_DAY_NAME, TEST_DATE));
+        Locale.setDefault(Locale.GERMANY);
+        assertEquals("Samstag",
+                DateFormatCache.get().format(DateFormatCache.PATTERN_DAY_NAME, TEST_DATE));
+    }
+
+    public void testTimeZoneBroadcastInvalidates() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        DateFormatCache.invalidate();
+        DateFormatCache before = DateFormatCache.get();
+        TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Kiritimati"));
+        new DateFormatCacheReceiver().onReceive(getContext(), null);
+        DateFormatCache after = DateFormatCache.get();
+        assertNotSame(before, after);
+        assertEquals("Pacific/Kiritimati", after.getTimeZone().getID());
+    }
+}
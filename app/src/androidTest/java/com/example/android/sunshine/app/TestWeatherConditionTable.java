@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.core.WeatherConditions;
+
+import java.util.Locale;
+
+/*
+    Runs every condition id through the Utility helpers and compares the answers with the
+    if/else chains that WeatherConditionTable replaced.
+ */
+public class TestWeatherConditionTable extends AndroidTestCase {
+
+    private static final int FIRST_ID = -10;
+    private static final int LAST_ID = 1100;
+
+    public void testIconResourceMatchesLegacyChain() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            assertEquals("Icon mismatch for " + id, legacyIconResource(id),
+                    Utility.getIconResourceForWeatherCondition(id));
+        }
+    }
+
+    public void testArtResourceMatchesLegacyChain() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            assertEquals("Art mismatch for " + id, legacyArtResource(id),
+                    Utility.getArtResourceForWeatherCondition(id));
+        }
+    }
+
+    public void testStringMatchesConditionResources() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            String expected;
+            if (id >= 200 && id <= 232) {
+                expected = mContext.getString(R.string.condition_2xx);
+            } else if (id >= 300 && id <= 321) {
+                expected = mContext.getString(R.string.condition_3xx);
+            } else if (WeatherConditions.hasDescription(id)) {
+                // Every other described condition has a string named after its id.
+                // (521 and 522 have strings too, but were never looked up.)
+                int stringId = mContext.getResources().getIdentifier("condition_" + id,
+                        "string", mContext.getPackageName());
+                expected = mContext.getString(stringId);
+            } else {
+                expected = mContext.getString(R.string.condition_unknown, id);
+            }
+            assertEquals("String mismatch for " + id, expected,
+                    Utility.getStringForWeatherCondition(mContext, id));
+        }
+    }
+
+    public void testArtUrlFollowsArtPack() {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(mContext);
+        String key = mContext.getString(R.string.pref_art_pack_key);
+        String original = prefs.getString(key, null);
+        String[] packs = {
+                mContext.getString(R.string.pref_art_pack_sunshine),
+                mContext.getString(R.string.pref_art_pack_cute_dogs)
+        };
+        try {
+            for (String pack : packs) {
+                prefs.edit().putString(key, pack).commit();
+                for (int id = FIRST_ID; id <= LAST_ID; id++) {
+                    String artName = legacyArtName(id);
+                    String expected = (artName == null)
+                            ? null : String.format(Locale.US, pack, artName);
+                    assertEquals("Art url mismatch for " + id, expected,
+                            Utility.getArtUrlForWeatherCondition(mContext, id));
+                }
+            }
+        } finally {
+            prefs.edit().putString(key, original).commit();
+        }
+    }
+
+    private static int legacyIconResource(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return R.drawable.ic_storm;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return R.drawable.ic_light_rain;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return R.drawable.ic_rain;
+        } else if (weatherId == 511) {
+            return R.drawable.ic_snow;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return R.drawable.ic_rain;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return R.drawable.ic_snow;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return R.drawable.ic_fog;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return R.drawable.ic_storm;
+        } else if (weatherId == 800) {
+            return R.drawable.ic_clear;
+        } else if (weatherId == 801) {
+            return R.drawable.ic_light_clouds;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return R.drawable.ic_cloudy;
+        }
+        return -1;
+    }
+
+    private static int legacyArtResource(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return R.drawable.art_storm;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return R.drawable.art_light_rain;
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return R.drawable.art_rain;
+        } else if (weatherId == 511) {
+            return R.drawable.art_snow;
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return R.drawable.art_rain;
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return R.drawable.art_snow;
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return R.drawable.art_fog;
+        } else if (weatherId == 761 || weatherId == 781) {
+            return R.drawable.art_storm;
+        } else if (weatherId == 800) {
+            return R.drawable.art_clear;
+        } else if (weatherId == 801) {
+            return R.drawable.art_light_clouds;
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return R.drawable.art_clouds;
+        }
+        return -1;
+    }
+
+    private static String legacyArtName(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "storm";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "light_rain";
+        } else if (weatherId >= 500 && weatherId <= 504 || weatherId >= 520 && weatherId <= 531) {
+            return "rain";
+        } else if (weatherId == 511 || weatherId >= 600 && weatherId <= 622) {
+            return "snow";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "fog";
+        } else if (weatherId == 781) {
+            return "storm";
+        } else if (weatherId == 800) {
+            return "clear";
+        } else if (weatherId == 801) {
+            return "light_clouds";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "clouds";
+        }
+        return null;
+    }
+}
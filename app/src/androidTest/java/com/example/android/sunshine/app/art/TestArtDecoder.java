@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.art;
+
+import android.graphics.Bitmap;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+
+public class TestArtDecoder extends AndroidTestCase {
+
+    public void testInSampleSize() {
+        assertEquals(1, ArtDecoder.calculateInSampleSize(100, 100, 100, 100));
+        assertEquals(1, ArtDecoder.calculateInSampleSize(100, 100, 200, 200));
+        assertEquals(1, ArtDecoder.calculateInSampleSize(199, 199, 100, 100));
+        assertEquals(2, ArtDecoder.calculateInSampleSize(200, 200, 100, 100));
+        assertEquals(4, ArtDecoder.calculateInSampleSize(512, 512, 96, 96));
+        assertEquals("Error: Subsampled below the target in one dimension",
+                2, ArtDecoder.calculateInSampleSize(512, 256, 96, 96));
+    }
+
+    public void testDecodeFitsTarget() {
+        int width = ArtSizes.getNotificationIconWidth(mContext);
+        int height = ArtSizes.getNotificationIconHeight(mContext);
+        Bitmap bitmap = ArtDecoder.decodeResource(mContext.getResources(), R.drawable.art_storm,
+                width, height);
+        assertNotNull(bitmap);
+        assertTrue("Error: Decoded art is wider than the notification icon",
+                bitmap.getWidth() <= width);
+        assertTrue("Error: Decoded art is taller than the notification icon",
+                bitmap.getHeight() <= height);
+        assertTrue("Error: Decoded art doesn't fill the notification icon",
+                bitmap.getWidth() == width || bitmap.getHeight() == height);
+
+        assertSame("Error: A second decode at the same size missed the cache", bitmap,
+                ArtDecoder.decodeResource(mContext.getResources(), R.drawable.art_storm,
+                        width, height));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.benchmark;
+
+import android.test.AndroidTestCase;
+import android.text.format.Time;
+import android.util.Log;
+
+import com.example.android.sunshine.app.Utility;
+
+import java.text.SimpleDateFormat;
+
+/*
+    Compares the date helpers in Utility against the way they used to be written, where every
+    call built new Time and SimpleDateFormat objects.  Run it on a device and look for the
+    "DateFormatBenchmark" lines in logcat; the assertion only guards against the cached version
+    becoming slower than the original.
+ */
+public class DateFormatBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = DateFormatBenchmark.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int DAYS = 14;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 500;
+
+    public void testFriendlyDayStringThroughput() {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            runLegacy(start);
+            runCached(start);
+        }
+
+        long legacyNanos = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            runLegacy(start);
+        }
+        legacyNanos = System.nanoTime() - legacyNanos;
+
+        long cachedNanos = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            runCached(start);
+        }
+        cachedNanos = System.nanoTime() - cachedNanos;
+
+        long calls = (long) ROUNDS * DAYS;
+        Log.i(LOG_TAG, "legacy: " + (calls * 1000000000L / legacyNanos) + " calls/s, "
+                + "cached: " + (calls * 1000000000L / cachedNanos) + " calls/s");
+        assertTrue("Cached formatting is slower than the original implementation",
+                cachedNanos <= legacyNanos);
+    }
+
+    private void runCached(long start) {
+        for (int day = 0; day < DAYS; day++) {
+            Utility.getFriendlyDayString(mContext, start + day * DAY_IN_MILLIS, day == 0);
+        }
+    }
+
+    private void runLegacy(long start) {
+        for (int day = 0; day < DAYS; day++) {
+            legacyFriendlyDayString(start + day * DAY_IN_MILLIS, day == 0);
+        }
+    }
+
+    // The original Utility.getFriendlyDayString, minus the resource lookups for "Today"
+    private static String legacyFriendlyDayString(long dateInMillis, boolean displayLongToday) {
+        Time time = new Time();
+        time.setToNow();
+        long currentTime = System.currentTimeMillis();
+        int julianDay = Time.getJulianDay(dateInMillis, time.gmtoff);
+        int currentJulianDay = Time.getJulianDay(currentTime, time.gmtoff);
+
+        if (displayLongToday && julianDay == currentJulianDay) {
+            return new SimpleDateFormat("MMMM dd").format(dateInMillis);
+        } else if (julianDay < currentJulianDay + 7) {
+            Time t = new Time();
+            t.setToNow();
+            julianDay = Time.getJulianDay(dateInMillis, t.gmtoff);
+            currentJulianDay = Time.getJulianDay(System.currentTimeMillis(), t.gmtoff);
+            return new SimpleDateFormat("EEEE").format(dateInMillis);
+        } else {
+            return new SimpleDateFormat("EEE MMM dd").format(dateInMillis);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.benchmark;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.app.sync.HourlyForecastIngest;
+
+import java.io.ByteArrayInputStream;
+
+/*
+    Streams 5 days of 3-hourly forecasts for a growing number of locations through
+    HourlyForecastIngest and into the provider.  Run it on a device and look for the
+    "HourlyIngestBenchmark" lines in logcat; the assertions only check that every row landed.
+ */
+public class HourlyIngestBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = HourlyIngestBenchmark.class.getSimpleName();
+
+    private static final int SLOTS = 5 * 8;
+    private static final int[] LOCATION_COUNTS = {1, 10, 50};
+    // December 20th, 2014 at midnight UTC, in seconds
+    private static final long START = 1419033600L;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAll();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAll();
+        super.tearDown();
+    }
+
+    private void deleteAll() {
+        ContentResolver resolver = mContext.getContentResolver();
+        resolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        resolver.delete(HourlyEntry.CONTENT_URI, null, null);
+        resolver.delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testIngestThroughput() throws Exception {
+        ContentResolver resolver = mContext.getContentResolver();
+        byte[] response = createResponse().getBytes("UTF-8");
+        HourlyForecastIngest ingest = new HourlyForecastIngest(resolver);
+
+        // warm up the parser and the database
+        long warmupLocation = insertLocation("warmup");
+        ingest.ingest(new ByteArrayInputStream(response), warmupLocation);
+        resolver.delete(HourlyEntry.CONTENT_URI, null, null);
+
+        for (int locations : LOCATION_COUNTS) {
+            long[] locationIds = new long[locations];
+            for (int i = 0; i < locations; i++) {
+                locationIds[i] = insertLocation("bench-" + locations + "-" + i);
+            }
+
+            int rows = 0;
+            long nanos = System.nanoTime();
+            for (long locationId : locationIds) {
+                rows += ingest.ingest(new ByteArrayInputStream(response), locationId);
+            }
+            nanos = System.nanoTime() - nanos;
+
+            Log.i(LOG_TAG, locations + " locations: " + rows + " rows in "
+                    + (nanos / 1000000) + " ms, " + (rows * 1000000000L / nanos) + " rows/s");
+            assertEquals("Error: Not every hourly row was ingested", locations * SLOTS, rows);
+
+            Cursor cursor = resolver.query(HourlyEntry.CONTENT_URI, null, null, null, null);
+            assertNotNull(cursor);
+            assertEquals("Error: Not every hourly row was stored", locations * SLOTS,
+                    cursor.getCount());
+            cursor.close();
+            resolver.delete(HourlyEntry.CONTENT_URI, null, null);
+        }
+    }
+
+    private long insertLocation(String locationSetting) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, locationSetting);
+        values.put(LocationEntry.COLUMN_COORD_LAT, 51.5085);
+        values.put(LocationEntry.COLUMN_COORD_LONG, -0.1258);
+        return ContentUris.parseId(
+                mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values));
+    }
+
+    private static String createResponse() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"city\":{\"id\":2643743,\"name\":\"London\",")
+                .append("\"coord\":{\"lon\":-0.1258,\"lat\":51.5085},\"country\":\"GB\"},")
+                .append("\"cod\":\"200\",\"message\":0.0036,\"cnt\":").append(SLOTS)
+                .append(",\"list\":[");
+        for (int i = 0; i < SLOTS; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"dt\":").append(START + i * 3 * 60 * 60)
+                    .append(",\"main\":{\"temp\":").append(7.5 + (i % 8) * 0.75)
+                    .append(",\"temp_min\":6.2,\"temp_max\":9.1,\"pressure\":1018.41,")
+                    .append("\"sea_level\":1026.3,\"grnd_level\":1018.41,\"humidity\":")
+                    .append(70 + i % 25).append(",\"temp_kf\":0}")
+                    .append(",\"weather\":[{\"id\":500,\"main\":\"Rain\",")
+                    .append("\"description\":\"light rain\",\"icon\":\"10d\"}]")
+                    .append(",\"clouds\":{\"all\":76},\"wind\":{\"speed\":5.61,\"deg\":236.0}")
+                    .append(",\"rain\":{\"3h\":0.26},\"sys\":{\"pod\":\"d\"},")
+                    .append("\"dt_txt\":\"2014-12-20 00:00:00\"}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.benchmark;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+
+/*
+    Compares a location's forecast read through the weather/location join with the same rows
+    read with a weather-only projection, which WeatherProvider answers from the weather table
+    alone.  Run it on a device and look for the "WeatherQueryBenchmark" lines in logcat; the
+    assertion only guards against the join-free query becoming slower than the join.
+ */
+public class WeatherQueryBenchmark extends AndroidTestCase {
+    private static final String LOG_TAG = WeatherQueryBenchmark.class.getSimpleName();
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int LOCATIONS = 20;
+    private static final int DAYS = 14;
+    private static final int WARMUP_ROUNDS = 50;
+    private static final int ROUNDS = 500;
+
+    // What TodayWidgetIntentService asks for
+    private static final String[] WEATHER_ONLY = {
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP
+    };
+
+    // The same, plus a location column so that the provider has to join
+    private static final String[] JOINED = {
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            LocationEntry.COLUMN_LOCATION_SETTING
+    };
+
+    private Uri mDayUri;
+    private Uri mRangeUri;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        deleteAll();
+
+        long today = WeatherContract.normalizeDate(System.currentTimeMillis());
+        ContentResolver resolver = mContext.getContentResolver();
+        for (int location = 0; location < LOCATIONS; location++) {
+            ContentValues locationValues = new ContentValues();
+            locationValues.put(LocationEntry.COLUMN_LOCATION_SETTING, "bench-" + location);
+            locationValues.put(LocationEntry.COLUMN_CITY_NAME, "Bench " + location);
+            locationValues.put(LocationEntry.COLUMN_COORD_LAT, 37.4);
+            locationValues.put(LocationEntry.COLUMN_COORD_LONG, -122.1);
+            long locationId = ContentUris.parseId(
+                    resolver.insert(LocationEntry.CONTENT_URI, locationValues));
+
+            ContentValues[] days = new ContentValues[DAYS];
+            for (int day = 0; day < DAYS; day++) {
+                ContentValues values = new ContentValues();
+                values.put(WeatherEntry.COLUMN_LOC_KEY, locationId);
+                values.put(WeatherEntry.COLUMN_DATE, today + day * DAY_IN_MILLIS);
+                values.put(WeatherEntry.COLUMN_DEGREES, 210.0);
+                values.put(WeatherEntry.COLUMN_HUMIDITY, 74.0);
+                values.put(WeatherEntry.COLUMN_PRESSURE, 1013.2);
+                values.put(WeatherEntry.COLUMN_MAX_TEMP, 21.0 + day);
+                values.put(WeatherEntry.COLUMN_MIN_TEMP, 11.0 - day);
+                values.put(WeatherEntry.COLUMN_SHORT_DESC, "Clouds");
+                values.put(WeatherEntry.COLUMN_WIND_SPEED, 3.1);
+                values.put(WeatherEntry.COLUMN_WEATHER_ID, 803);
+                days[day] = values;
+            }
+            resolver.bulkInsert(WeatherEntry.CONTENT_URI, days);
+        }
+
+        String locationSetting = "bench-" + (LOCATIONS / 2);
+        mDayUri = WeatherEntry.buildWeatherLocationWithDate(locationSetting, today);
+        mRangeUri = WeatherEntry.buildWeatherLocationWithStartDate(locationSetting, today);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteAll();
+        super.tearDown();
+    }
+
+    private void deleteAll() {
+        ContentResolver resolver = mContext.getContentResolver();
+        resolver.delete(WeatherEntry.CONTENT_URI, null, null);
+        resolver.delete(WeatherContract.HourlyEntry.CONTENT_URI, null, null);
+        resolver.delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    public void testSingleDayQuery() {
+        compare("single day", mDayUri, 1);
+    }
+
+    public void testRangeQuery() {
+        compare("14 days", mRangeUri, DAYS);
+    }
+
+    private void compare(String name, Uri uri, int expectedRows) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            run(uri, JOINED, expectedRows);
+            run(uri, WEATHER_ONLY, expectedRows);
+        }
+
+        long joinedNanos = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            run(uri, JOINED, expectedRows);
+        }
+        joinedNanos = System.nanoTime() - joinedNanos;
+
+        long weatherOnlyNanos = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            run(uri, WEATHER_ONLY, expectedRows);
+        }
+        weatherOnlyNanos = System.nanoTime() - weatherOnlyNanos;
+
+        Log.i(LOG_TAG, name + ": joined " + (joinedNanos / ROUNDS / 1000) + " us/query, "
+                + "join-free " + (weatherOnlyNanos / ROUNDS / 1000) + " us/query");
+        assertTrue("Join-free query is slower than the join",
+                weatherOnlyNanos <= joinedNanos);
+    }
+
+    private void run(Uri uri, String[] projection, int expectedRows) {
+        Cursor cursor = mContext.getContentResolver().query(uri, projection, null, null, null);
+        assertNotNull(cursor);
+        assertEquals(expectedRows, cursor.getCount());
+        cursor.close();
+    }
+}
@@ -16,8 +16,11 @@
 package com.example.android.sunshine.app.data;
 
 import android.content.ComponentName;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
 import android.database.Cursor;
@@ -27,9 +30,12 @@ import android.os.Build;
 import android.test.AndroidTestCase;
 import android.util.Log;
 
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
+import java.util.ArrayList;
+
 /*
     Note: This is not a complete set of tests of the Sunshine ContentProvider, but it does test
     that at least the basic functionality has been implemented correctly.
@@ -56,6 +62,11 @@ public class TestProvider extends AndroidTestCase {
                 null,
                 null
         );
+        mContext.getContentResolver().delete(
+                HourlyEntry.CONTENT_URI,
+                null,
+                null
+        );
         mContext.getContentResolver().delete(
                 LocationEntry.CONTENT_URI,
                 null,
@@ -512,4 +523,202 @@ public class TestProvider extends AndroidTestCase {
         }
         cursor.close();
     }
+
+    // Reads the bulk inserted days back three at a time, each page starting after the last
+    // date of the one before, and checks they come back once each and in order.
+    public void testPagedWeatherQuery() {
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        long locationRowId = ContentUris.parseId(locationUri);
+        ContentValues[] bulkInsertContentValues = createBulkInsertWeatherValues(locationRowId);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, bulkInsertContentValues);
+
+        final int pageSize = 3;
+        long after = WeatherContract.normalizeDate(TestUtilities.TEST_DATE) - 1;
+        int seen = 0;
+        int pages = 0;
+        while (true) {
+            Cursor cursor = mContext.getContentResolver().query(
+                    WeatherEntry.buildWeatherLocationPage(TestUtilities.TEST_LOCATION, after, pageSize),
+                    new String[]{WeatherEntry.COLUMN_DATE},
+                    null,
+                    null,
+                    null
+            );
+            assertNotNull(cursor);
+            int count = cursor.getCount();
+            assertTrue("Error: A page held more rows than its limit", count <= pageSize);
+            while (cursor.moveToNext()) {
+                long date = cursor.getLong(0);
+                assertTrue("Error: A page returned a row it had already seen", date > after);
+                assertEquals("Error: Paged rows came back out of order",
+                        (long) bulkInsertContentValues[seen].getAsLong(WeatherEntry.COLUMN_DATE), date);
+                after = date;
+                seen++;
+            }
+            cursor.close();
+            pages++;
+            if (count < pageSize) {
+                break;
+            }
+        }
+
+        assertEquals("Error: Paging did not return every row", BULK_INSERT_RECORDS_TO_INSERT, seen);
+        assertEquals("Error: Wrong number of pages", BULK_INSERT_RECORDS_TO_INSERT / pageSize + 1, pages);
+    }
+
+    public void testWeatherOnlyProjection() {
+        assertTrue(WeatherProvider.isWeatherOnly(new String[]{
+                WeatherEntry.TABLE_NAME + "." + WeatherEntry._ID,
+                WeatherEntry.COLUMN_DATE,
+                WeatherEntry.COLUMN_MAX_TEMP}));
+        assertFalse("Error: A location column was answered without the join",
+                WeatherProvider.isWeatherOnly(new String[]{
+                        WeatherEntry.COLUMN_DATE,
+                        LocationEntry.COLUMN_LOCATION_SETTING}));
+        assertFalse("Error: A null projection must return the location columns too",
+                WeatherProvider.isWeatherOnly(null));
+        // location has an _id as well, so an unqualified one would be ambiguous in the join
+        // but is fine on its own
+        assertTrue(WeatherProvider.isWeatherOnly(new String[]{WeatherEntry._ID}));
+    }
+
+    // The join-free path has to return exactly what the join returns, and nothing once the
+    // location is gone.
+    public void testWeatherOnlyQueryMatchesJoin() {
+        Uri locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        long locationRowId = ContentUris.parseId(locationUri);
+        mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI,
+                createBulkInsertWeatherValues(locationRowId));
+
+        String[] weatherOnly = {WeatherEntry.COLUMN_DATE, WeatherEntry.COLUMN_MAX_TEMP};
+        String[] joined = {WeatherEntry.COLUMN_DATE, WeatherEntry.COLUMN_MAX_TEMP,
+                LocationEntry.COLUMN_CITY_NAME};
+        Uri[] uris = {
+                WeatherEntry.buildWeatherLocation(TestUtilities.TEST_LOCATION),
+                WeatherEntry.buildWeatherLocationWithStartDate(TestUtilities.TEST_LOCATION,
+                        TestUtilities.TEST_DATE + 2 * 1000 * 60 * 60 * 24),
+                WeatherEntry.buildWeatherLocationWithDate(TestUtilities.TEST_LOCATION,
+                        TestUtilities.TEST_DATE),
+                WeatherEntry.buildWeatherLocationPage(TestUtilities.TEST_LOCATION,
+                        WeatherContract.normalizeDate(TestUtilities.TEST_DATE), 4)
+        };
+        for (Uri uri : uris) {
+            Cursor fast = mContext.getContentResolver().query(uri, weatherOnly, null, null,
+                    WeatherEntry.COLUMN_DATE + " ASC");
+            Cursor join = mContext.getContentResolver().query(uri, joined, null, null,
+                    WeatherEntry.COLUMN_DATE + " ASC");
+            assertNotNull(fast);
+            assertNotNull(join);
+            assertTrue("Error: No rows for " + uri, join.getCount() > 0);
+            assertEquals("Error: Join-free query returned a different count for " + uri,
+                    join.getCount(), fast.getCount());
+            while (fast.moveToNext() && join.moveToNext()) {
+                assertEquals(join.getLong(0), fast.getLong(0));
+                assertEquals(join.getDouble(1), fast.getDouble(1));
+            }
+            fast.close();
+            join.close();
+        }
+
+        // Deleting the location has to drop its cached id
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        locationUri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        long newLocationRowId = ContentUris.parseId(locationUri);
+        ContentValues weatherValues = TestUtilities.createWeatherValues(newLocationRowId);
+        mContext.getContentResolver().insert(WeatherEntry.CONTENT_URI, weatherValues);
+
+        Cursor cursor = mContext.getContentResolver().query(uris[0], weatherOnly, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: Join-free query used a stale location id", 1, cursor.getCount());
+        cursor.close();
+    }
+
+    // The same batch the sync adapter sends: a new location, days that point at it through a
+    // back reference, and the delete of the days that have gone by.
+    public void testApplyBatch() throws Exception {
+        ContentValues[] weatherValues = createBulkInsertWeatherValues(-1);
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(LocationEntry.CONTENT_URI)
+                .withValues(TestUtilities.createNorthPoleLocationValues())
+                .build());
+        for (ContentValues values : weatherValues) {
+            operations.add(ContentProviderOperation.newInsert(WeatherEntry.CONTENT_URI)
+                    .withValues(values)
+                    .withValueBackReference(WeatherEntry.COLUMN_LOC_KEY, 0)
+                    .build());
+        }
+        operations.add(ContentProviderOperation.newDelete(WeatherEntry.CONTENT_URI)
+                .withSelection(WeatherEntry.COLUMN_DATE + " <= ?", new String[]{
+                        weatherValues[0].getAsString(WeatherEntry.COLUMN_DATE)})
+                .build());
+
+        TestUtilities.TestContentObserver observer = TestUtilities.getTestContentObserver();
+        mContext.getContentResolver().registerContentObserver(WeatherContract.BASE_CONTENT_URI,
+                true, observer);
+
+        ContentProviderResult[] results = mContext.getContentResolver().applyBatch(
+                WeatherContract.CONTENT_AUTHORITY, operations);
+
+        observer.waitForNotificationOrFail();
+        mContext.getContentResolver().unregisterContentObserver(observer);
+
+        assertEquals(operations.size(), results.length);
+        long locationRowId = ContentUris.parseId(results[0].uri);
+        assertTrue("Error: The batch did not insert the location", locationRowId != -1);
+        assertEquals("Error: The batch delete removed the wrong number of days",
+                1, (int) results[results.length - 1].count);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                WeatherEntry.CONTENT_URI,
+                null,
+                WeatherEntry.COLUMN_LOC_KEY + " = ?",
+                new String[]{Long.toString(locationRowId)},
+                WeatherEntry.COLUMN_DATE + " ASC"
+        );
+        assertNotNull(cursor);
+        assertEquals("Error: The back reference did not reach every day",
+                BULK_INSERT_RECORDS_TO_INSERT - 1, cursor.getCount());
+        cursor.close();
+    }
+
+    // A failing operation has to take the whole batch with it.
+    public void testApplyBatchRollsBack() {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation.newInsert(LocationEntry.CONTENT_URI)
+                .withValues(TestUtilities.createNorthPoleLocationValues())
+                .build());
+        operations.add(ContentProviderOperation.newInsert(WeatherEntry.CONTENT_URI)
+                .withValues(TestUtilities.createWeatherValues(-1))
+                .withValueBackReference(WeatherEntry.COLUMN_LOC_KEY, 0)
+                .build());
+        // There is one day, not two
+        operations.add(ContentProviderOperation.newAssertQuery(WeatherEntry.CONTENT_URI)
+                .withExpectedCount(2)
+                .build());
+
+        try {
+            mContext.getContentResolver().applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+            fail("Error: The assert in the batch should have failed");
+        } catch (OperationApplicationException e) {
+            // expected
+        } catch (Exception e) {
+            fail("Error: Unexpected exception " + e);
+        }
+
+        Cursor cursor = mContext.getContentResolver().query(LocationEntry.CONTENT_URI,
+                null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: A failed batch left its location behind", 0, cursor.getCount());
+        cursor.close();
+
+        cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI,
+                null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: A failed batch left its weather behind", 0, cursor.getCount());
+        cursor.close();
+    }
 }
@@ -36,6 +36,12 @@ public class TestUriMatcher extends AndroidTestCase {
     private static final Uri TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(LOCATION_QUERY, TEST_DATE);
     // content://com.example.android.sunshine.app/location"
     private static final Uri TEST_LOCATION_DIR = WeatherContract.LocationEntry.CONTENT_URI;
+    // content://com.example.android.sunshine.app/hourly"
+    private static final Uri TEST_HOURLY_DIR = WeatherContract.HourlyEntry.CONTENT_URI;
+    private static final Uri TEST_HOURLY_WITH_LOCATION_DIR = WeatherContract.HourlyEntry.buildHourlyLocation(LOCATION_QUERY);
+    private static final Uri TEST_HOURLY_WITH_LOCATION_AND_HOUR_DIR = WeatherContract.HourlyEntry.buildHourlyLocationWithStartTime(LOCATION_QUERY, TEST_DATE);
+    private static final Uri TEST_HISTORY_WITH_LOCATION_DIR = WeatherContract.HistoryEntry.buildHistoryLocationWithRange(LOCATION_QUERY, TEST_DATE, TEST_DATE);
+    private static final Uri TEST_SUMMARY_WITH_LOCATION_DIR = WeatherContract.SummaryEntry.buildSummaryLocation(LOCATION_QUERY);
 
     /*
         Students: This function tests that your UriMatcher returns the correct integer value
@@ -53,5 +59,15 @@ public class TestUriMatcher extends AndroidTestCase {
                 testMatcher.match(TEST_WEATHER_WITH_LOCATION_AND_DATE_DIR), WeatherProvider.WEATHER_WITH_LOCATION_AND_DATE);
         assertEquals("Error: The LOCATION URI was matched incorrectly.",
                 testMatcher.match(TEST_LOCATION_DIR), WeatherProvider.LOCATION);
+        assertEquals("Error: The HOURLY URI was matched incorrectly.",
+                testMatcher.match(TEST_HOURLY_DIR), WeatherProvider.HOURLY);
+        assertEquals("Error: The HOURLY WITH LOCATION URI was matched incorrectly.",
+                testMatcher.match(TEST_HOURLY_WITH_LOCATION_DIR), WeatherProvider.HOURLY_WITH_LOCATION);
+        assertEquals("Error: The HOURLY WITH LOCATION AND HOUR URI was matched incorrectly.",
+                testMatcher.match(TEST_HOURLY_WITH_LOCATION_AND_HOUR_DIR), WeatherProvider.HOURLY_WITH_LOCATION);
+        assertEquals("Error: The HISTORY WITH LOCATION URI was matched incorrectly.",
+                testMatcher.match(TEST_HISTORY_WITH_LOCATION_DIR), WeatherProvider.HISTORY_WITH_LOCATION);
+        assertEquals("Error: The SUMMARY WITH LOCATION URI was matched incorrectly.",
+                testMatcher.match(TEST_SUMMARY_WITH_LOCATION_DIR), WeatherProvider.SUMMARY_WITH_LOCATION);
     }
 }
@@ -17,6 +17,11 @@ package com.example.android.sunshine.app.data;
 
 import android.net.Uri;
 import android.test.AndroidTestCase;
+import android.text.format.Time;
+
+import com.example.android.sunshine.core.DayNormalizer;
+
+import java.util.TimeZone;
 
 /*
     Students: This is NOT a complete test for the WeatherContract --- just for the functions
@@ -28,6 +33,80 @@ public class TestWeatherContract extends AndroidTestCase {
     private static final String TEST_WEATHER_LOCATION = "/North Pole";
     private static final long TEST_WEATHER_DATE = 1419033600L;  // December 20th, 2014
 
+    private static final long HOUR_IN_MILLIS = 1000 * 60 * 60;
+    private static final long NORMALIZE_START = 1388534400000L;  // January 1st, 2014
+    private static final long NORMALIZE_END = NORMALIZE_START + 2 * 365 * 24 * HOUR_IN_MILLIS;
+
+    // Half and quarter hour offsets, half hour daylight saving, the date line, and zones
+    // whose clocks change at or close to midnight.
+    private static final String[] NORMALIZE_ZONES = {
+            "UTC", "America/Los_Angeles", "Europe/London", "Asia/Kolkata", "Asia/Kathmandu",
+            "Australia/Lord_Howe", "Pacific/Chatham", "Pacific/Kiritimati", "America/St_Johns",
+            "America/Sao_Paulo", "America/Santiago", "America/Havana", "Asia/Beirut",
+            "Asia/Tehran", "Asia/Amman"
+    };
+
+    private TimeZone mDefaultTimeZone;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDefaultTimeZone = TimeZone.getDefault();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TimeZone.setDefault(mDefaultTimeZone);
+        DayNormalizer.invalidate();
+        super.tearDown();
+    }
+
+    // WeatherContract.normalizeDate before DayNormalizer
+    private static long legacyNormalizeDate(long startDate) {
+        Time time = new Time();
+        time.set(startDate);
+        int julianDay = Time.getJulianDay(startDate, time.gmtoff);
+        return time.setJulianDay(julianDay);
+    }
+
+    /*
+        normalizeDate has to keep giving exactly what Time gave, or rows written before an
+        upgrade would stop matching the dates we query for.
+     */
+    public void testNormalizeDateMatchesTime() {
+        for (String zone : NORMALIZE_ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            DayNormalizer.invalidate();
+            // Five hours, so that every hour of the day comes up
+            for (long date = NORMALIZE_START; date < NORMALIZE_END; date += 5 * HOUR_IN_MILLIS) {
+                assertEquals("Error: normalizeDate differs from Time in " + zone + " at " + date,
+                        legacyNormalizeDate(date), WeatherContract.normalizeDate(date));
+            }
+        }
+    }
+
+    public void testNormalizeDateAroundDaylightSaving() {
+        for (String zone : NORMALIZE_ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            TimeZone.setDefault(timeZone);
+            DayNormalizer.invalidate();
+            for (long date = NORMALIZE_START; date < NORMALIZE_END; date += HOUR_IN_MILLIS) {
+                if (timeZone.getOffset(date) == timeZone.getOffset(date + HOUR_IN_MILLIS)) {
+                    continue;
+                }
+                // Every ten minutes of the day either side of the change
+                for (long near = date - 24 * HOUR_IN_MILLIS; near < date + 24 * HOUR_IN_MILLIS;
+                     near += 10 * 60 * 1000) {
+                    long normalized = WeatherContract.normalizeDate(near);
+                    String message = "Error: normalizeDate wrong in " + zone + " at " + near;
+                    assertEquals(message, normalized, WeatherContract.normalizeDate(normalized));
+                    assertEquals(message, DayNormalizer.get().getLocalDay(near),
+                            DayNormalizer.get().getLocalDay(normalized));
+                }
+            }
+        }
+    }
+
     /*
         Students: Uncomment this out to test your weather location function.
      */
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.HistoryEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SummaryEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.DayNormalizer;
+import com.example.android.sunshine.core.HistoryPartitions;
+
+public class TestWeatherHistory extends AndroidTestCase {
+    // October 1st 2014 through January 8th 2015
+    private static final int FIRST_MONTH = 201410;
+    private static final int DAYS = 100;
+
+    private DayNormalizer mNormalizer;
+    private long mFirstDay;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mNormalizer = DayNormalizer.get();
+        mFirstDay = HistoryPartitions.firstDayOf(FIRST_MONTH);
+        // Compacting from far in the future drops every history table and summary
+        compact(mNormalizer.startOfLocalDay(HistoryPartitions.firstDayOf(210001)));
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(WeatherContract.HourlyEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+    }
+
+    private long date(int day) {
+        return mNormalizer.startOfLocalDay(mFirstDay + day);
+    }
+
+    private void insertDays(long locationRowId) {
+        ContentValues[] values = new ContentValues[DAYS];
+        for (int day = 0; day < DAYS; day++) {
+            values[day] = TestUtilities.createWeatherValues(locationRowId);
+            values[day].put(WeatherEntry.COLUMN_DATE, date(day));
+            values[day].put(WeatherEntry.COLUMN_MIN_TEMP, day);
+            values[day].put(WeatherEntry.COLUMN_MAX_TEMP, day + 10);
+        }
+        assertEquals(DAYS, mContext.getContentResolver().bulkInsert(WeatherEntry.CONTENT_URI, values));
+    }
+
+    private long insertLocation() {
+        Uri uri = mContext.getContentResolver().insert(LocationEntry.CONTENT_URI,
+                TestUtilities.createNorthPoleLocationValues());
+        return ContentUris.parseId(uri);
+    }
+
+    private int archive(long lastDate) {
+        Bundle result = mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                HistoryEntry.METHOD_ARCHIVE, Long.toString(lastDate), null);
+        return result.getInt(HistoryEntry.EXTRA_COUNT);
+    }
+
+    private int compact(long today) {
+        Bundle result = mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                HistoryEntry.METHOD_COMPACT, Long.toString(today), null);
+        return result.getInt(HistoryEntry.EXTRA_COUNT);
+    }
+
+    private int countHistory(long startDate, long endDate) {
+        Cursor cursor = mContext.getContentResolver().query(
+                HistoryEntry.buildHistoryLocationWithRange(TestUtilities.TEST_LOCATION,
+                        startDate, endDate),
+                new String[]{HistoryEntry.TABLE_NAME + "." + HistoryEntry._ID,
+                        WeatherEntry.COLUMN_DATE, LocationEntry.COLUMN_CITY_NAME},
+                null, null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertNotNull(cursor);
+        try {
+            long previous = Long.MIN_VALUE;
+            while (cursor.moveToNext()) {
+                long date = cursor.getLong(1);
+                assertTrue("Error: History row outside of the requested range",
+                        date >= startDate && date <= endDate);
+                assertTrue("Error: History rows are not in date order", date > previous);
+                assertEquals("North Pole", cursor.getString(2));
+                previous = date;
+            }
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testArchiveSpansMonths() {
+        insertDays(insertLocation());
+
+        assertEquals("Error: Wrong number of days archived", DAYS, archive(date(DAYS - 1)));
+        assertEquals("Error: Not every archived day came back", DAYS,
+                countHistory(date(0), date(DAYS - 1)));
+
+        // November 15th to December 15th crosses one month boundary
+        long start = mNormalizer.startOfLocalDay(HistoryPartitions.firstDayOf(201411) + 14);
+        long end = mNormalizer.startOfLocalDay(HistoryPartitions.firstDayOf(201412) + 14);
+        assertEquals("Error: Wrong number of days in a range across months", 31,
+                countHistory(start, end));
+
+        // Archiving the same days again replaces them rather than adding copies
+        archive(date(DAYS - 1));
+        assertEquals(DAYS, countHistory(date(0), date(DAYS - 1)));
+    }
+
+    public void testArchiveOnlyCopiesOldDays() {
+        insertDays(insertLocation());
+
+        assertEquals(10, archive(date(9)));
+        assertEquals(10, countHistory(date(0), date(DAYS - 1)));
+    }
+
+    public void testQueryWithoutHistory() {
+        insertLocation();
+        assertEquals(0, countHistory(date(0), date(DAYS - 1)));
+    }
+
+    public void testQueryUnknownLocation() {
+        insertDays(insertLocation());
+        archive(date(DAYS - 1));
+
+        Cursor cursor = mContext.getContentResolver().query(
+                HistoryEntry.buildHistoryLocationWithRange("nowhere", date(0), date(DAYS - 1)),
+                null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: History of another location was returned", 0, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testCallChecksMethodBeforeDate() {
+        assertNull("Error: An unknown method was answered",
+                mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                        "unknown", null, null));
+        try {
+            mContext.getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                    HistoryEntry.METHOD_ARCHIVE, null, null);
+            fail("Error: Archiving without a date was accepted");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testCompactFoldsOldMonths() {
+        insertDays(insertLocation());
+        archive(date(DAYS - 1));
+
+        // In March 2015 the raw history only goes back to January
+        long today = mNormalizer.startOfLocalDay(HistoryPartitions.firstDayOf(201503) + 9);
+        assertEquals("Error: Wrong number of months compacted", 3, compact(today));
+        assertEquals("Error: Compacting was not idempotent", 0, compact(today));
+
+        assertEquals("Error: Compacted months are still queryable day by day", 8,
+                countHistory(date(0), date(DAYS - 1)));
+
+        Cursor cursor = mContext.getContentResolver().query(
+                SummaryEntry.buildSummaryLocation(TestUtilities.TEST_LOCATION),
+                new String[]{SummaryEntry.COLUMN_MONTH, SummaryEntry.COLUMN_DAYS,
+                        SummaryEntry.COLUMN_MIN_TEMP, SummaryEntry.COLUMN_MAX_TEMP},
+                null, null, SummaryEntry.COLUMN_MONTH + " ASC");
+        assertNotNull(cursor);
+        try {
+            assertEquals("Error: Expected one summary per compacted month", 3, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals(201410, cursor.getInt(0));
+            assertEquals(31, cursor.getInt(1));
+            assertEquals(0.0, cursor.getDouble(2));
+            assertEquals(40.0, cursor.getDouble(3));
+            cursor.moveToLast();
+            assertEquals(201412, cursor.getInt(0));
+            assertEquals(31, cursor.getInt(1));
+        } finally {
+            cursor.close();
+        }
+
+        // Far enough ahead, the summaries expire as well
+        long later = mNormalizer.startOfLocalDay(HistoryPartitions.firstDayOf(
+                HistoryPartitions.addMonths(201412, WeatherHistory.SUMMARY_MONTHS + 1)));
+        compact(later);
+        cursor = mContext.getContentResolver().query(
+                SummaryEntry.buildSummaryLocation(TestUtilities.TEST_LOCATION),
+                null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: Expired summaries were not deleted", 0, cursor.getCount());
+        cursor.close();
+    }
+}
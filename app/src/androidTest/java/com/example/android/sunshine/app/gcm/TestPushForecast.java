@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.DayNormalizer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+public class TestPushForecast extends AndroidTestCase {
+    static final String TEST_LOCATION = "99705";
+    // December 20th, 2014 as days since the epoch
+    static final long TEST_DAY = 16424;
+
+    private long mLocationId;
+
+    /**
+     * Stands in for the server, building the "forecast" field of a push message.
+     */
+    static class FakePushSender {
+        private final JSONObject mMessage = new JSONObject();
+        private final JSONArray mDays = new JSONArray();
+
+        FakePushSender(String locationSetting) throws JSONException {
+            mMessage.put(PushForecast.PUSH_LOCATION, locationSetting);
+            mMessage.put(PushForecast.PUSH_DAYS, mDays);
+        }
+
+        FakePushSender addDay(long day, int weatherId, String description, int maxTenths,
+                              int minTenths) throws JSONException {
+            mDays.put(new JSONObject()
+                    .put(PushForecast.PUSH_DAY, day)
+                    .put(PushForecast.PUSH_WEATHER_ID, weatherId)
+                    .put(PushForecast.PUSH_DESCRIPTION, description)
+                    .put(PushForecast.PUSH_MAX, maxTenths)
+                    .put(PushForecast.PUSH_MIN, minTenths)
+                    .put(PushForecast.PUSH_HUMIDITY, 81)
+                    .put(PushForecast.PUSH_PRESSURE, 10132)
+                    .put(PushForecast.PUSH_WIND_SPEED, 46)
+                    .put(PushForecast.PUSH_WIND_DIRECTION, 270));
+            return this;
+        }
+
+        String send() {
+            return mMessage.toString();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, TEST_LOCATION);
+        values.put(LocationEntry.COLUMN_CITY_NAME, "North Pole");
+        values.put(LocationEntry.COLUMN_COORD_LAT, 64.7488);
+        values.put(LocationEntry.COLUMN_COORD_LONG, -147.353);
+        mLocationId = ContentUris.parseId(
+                mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        super.tearDown();
+    }
+
+    public void testParse() throws JSONException {
+        PushForecast forecast = PushForecast.parse(new FakePushSender(TEST_LOCATION)
+                .addDay(TEST_DAY, 800, "Clear", 215, -102)
+                .send());
+
+        assertEquals(TEST_LOCATION, forecast.getLocationSetting());
+        assertEquals(1, forecast.days.size());
+        ContentValues day = forecast.days.get(0);
+        assertEquals(DayNormalizer.get().startOfLocalDay(TEST_DAY),
+                (long) day.getAsLong(WeatherEntry.COLUMN_DATE));
+        assertEquals(21.5, day.getAsDouble(WeatherEntry.COLUMN_MAX_TEMP));
+        assertEquals(-10.2, day.getAsDouble(WeatherEntry.COLUMN_MIN_TEMP));
+        assertEquals(1013.2, day.getAsDouble(WeatherEntry.COLUMN_PRESSURE));
+        assertEquals(4.6, day.getAsDouble(WeatherEntry.COLUMN_WIND_SPEED));
+    }
+
+    // A push replaces the days it carries and leaves the others alone
+    public void testApplyReplacesDays() throws JSONException {
+        assertEquals(PushForecast.RESULT_APPLIED, PushForecast.parse(
+                new FakePushSender(TEST_LOCATION)
+                        .addDay(TEST_DAY, 800, "Clear", 215, 102)
+                        .addDay(TEST_DAY + 1, 500, "Rain", 180, 95)
+                        .send()).apply(mContext));
+        assertEquals(PushForecast.RESULT_APPLIED, PushForecast.parse(
+                new FakePushSender(TEST_LOCATION)
+                        .addDay(TEST_DAY + 1, 600, "Snow", 10, -35)
+                        .send()).apply(mContext));
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI,
+                new String[]{WeatherEntry.COLUMN_LOC_KEY, WeatherEntry.COLUMN_WEATHER_ID,
+                        WeatherEntry.COLUMN_SHORT_DESC},
+                null, null, WeatherEntry.COLUMN_DATE + " ASC");
+        assertNotNull(cursor);
+        assertEquals("Error: A pushed day was added instead of replaced", 2, cursor.getCount());
+        cursor.moveToFirst();
+        assertEquals(mLocationId, cursor.getLong(0));
+        assertEquals("Error: A day missing from the push was changed", 800, cursor.getInt(1));
+        cursor.moveToNext();
+        assertEquals("Error: The pushed day was not replaced", 600, cursor.getInt(1));
+        assertEquals("Snow", cursor.getString(2));
+        cursor.close();
+    }
+
+    public void testUnknownLocationNeedsSync() throws JSONException {
+        assertEquals(PushForecast.RESULT_NEEDS_SYNC, PushForecast.parse(
+                new FakePushSender("10001")
+                        .addDay(TEST_DAY, 800, "Clear", 215, 102)
+                        .send()).apply(mContext));
+
+        Cursor cursor = mContext.getContentResolver().query(WeatherEntry.CONTENT_URI,
+                null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: A push for an unknown location was written", 0, cursor.getCount());
+        cursor.close();
+    }
+}
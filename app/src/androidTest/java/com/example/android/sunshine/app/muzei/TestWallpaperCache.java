@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.muzei;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.Utility;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class TestWallpaperCache extends AndroidTestCase {
+
+    private static final String CLEAR_URL = Utility.getImageUrlForWeatherCondition(800);
+    private static final String SNOW_URL = Utility.getImageUrlForWeatherCondition(600);
+
+    public void testFileNames() {
+        String name = WallpaperCache.getFileName(CLEAR_URL);
+        assertTrue("Error: " + name + " isn't recognized as a wallpaper",
+                WallpaperCache.isFileName(name));
+        assertFalse("Error: Different images share a file",
+                name.equals(WallpaperCache.getFileName(SNOW_URL)));
+        assertFalse("Error: A path was accepted as a wallpaper",
+                WallpaperCache.isFileName("../databases/weather.db"));
+    }
+
+    public void testRetainDeletesOtherImages() throws Exception {
+        File directory = WallpaperCache.getDirectory(getContext());
+        assertTrue("Error: Couldn't create " + directory,
+                directory.isDirectory() || directory.mkdirs());
+        File snow = new File(directory, WallpaperCache.getFileName(SNOW_URL));
+        new FileOutputStream(snow).close();
+
+        // Nothing to download, so this is safe on any network
+        WallpaperCache.retain(getContext(), Collections.<String>singletonList(null));
+        assertFalse("Error: An image no longer in use was kept", snow.exists());
+        assertNull("Error: A deleted image was returned",
+                WallpaperCache.get(getContext(), SNOW_URL));
+    }
+
+    public void testToken() {
+        String token = WeatherMuzeiSource.getToken(800, CLEAR_URL, "94043");
+        assertEquals("Error: The same artwork has a different token", token,
+                WeatherMuzeiSource.getToken(800, CLEAR_URL, "94043"));
+        for (String other : Arrays.asList(
+                WeatherMuzeiSource.getToken(801, CLEAR_URL, "94043"),
+                WeatherMuzeiSource.getToken(600, SNOW_URL, "94043"),
+                WeatherMuzeiSource.getToken(800, CLEAR_URL, "London"))) {
+            assertFalse("Error: Different artwork has the same token", token.equals(other));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.net;
+
+import android.test.AndroidTestCase;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Dns;
+
+public class TestCachingDns extends AndroidTestCase {
+
+    private static class FakeDns implements Dns {
+        int lookups;
+        boolean failing;
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            lookups++;
+            if (failing) {
+                throw new UnknownHostException(hostname);
+            }
+            return Collections.singletonList(
+                    InetAddress.getByAddress(hostname, new byte[] {127, 0, 0, (byte) lookups}));
+        }
+    }
+
+    public void testCachesUntilExpired() throws Exception {
+        FakeDns fake = new FakeDns();
+        CachingDns dns = new CachingDns(fake, 60 * 1000);
+        List<InetAddress> first = dns.lookup("api.openweathermap.org");
+        assertEquals("Error: Second lookup should come from the cache",
+                first, dns.lookup("api.openweathermap.org"));
+        assertEquals("Error: Wrong number of lookups", 1, fake.lookups);
+
+        dns.lookup("upload.wikimedia.org");
+        assertEquals("Error: Each host needs its own lookup", 2, fake.lookups);
+
+        CachingDns expired = new CachingDns(fake, 0);
+        expired.lookup("api.openweathermap.org");
+        expired.lookup("api.openweathermap.org");
+        assertEquals("Error: Expired entries should be looked up again", 4, fake.lookups);
+    }
+
+    public void testStaleEntryOnFailure() throws Exception {
+        FakeDns fake = new FakeDns();
+        CachingDns dns = new CachingDns(fake, 0);
+        List<InetAddress> first = dns.lookup("api.openweathermap.org");
+
+        fake.failing = true;
+        assertEquals("Error: A failed lookup should fall back to the stale entry",
+                first, dns.lookup("api.openweathermap.org"));
+        try {
+            dns.lookup("unknown.example.com");
+            fail("Error: A failed lookup without an entry should throw");
+        } catch (UnknownHostException expected) {
+        }
+    }
+}
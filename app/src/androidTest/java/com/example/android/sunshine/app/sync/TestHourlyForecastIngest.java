@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.CompactUnits;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+public class TestHourlyForecastIngest extends AndroidTestCase {
+    static final String TEST_LOCATION = "99705";
+    // December 20th, 2014 at midnight UTC, in seconds
+    static final long TEST_START = 1419033600L;
+    static final int SLOTS_PER_DAY = 8;
+    static final int DAYS = 5;
+
+    private long mLocationId;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(WeatherEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(HourlyEntry.CONTENT_URI, null, null);
+        mContext.getContentResolver().delete(LocationEntry.CONTENT_URI, null, null);
+        mLocationId = insertLocation(TEST_LOCATION);
+    }
+
+    long insertLocation(String locationSetting) {
+        ContentValues values = new ContentValues();
+        values.put(LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        values.put(LocationEntry.COLUMN_CITY_NAME, "North Pole");
+        values.put(LocationEntry.COLUMN_COORD_LAT, 64.7488);
+        values.put(LocationEntry.COLUMN_COORD_LONG, -147.353);
+        return ContentUris.parseId(
+                mContext.getContentResolver().insert(LocationEntry.CONTENT_URI, values));
+    }
+
+    /**
+     * Builds a response shaped like the one from /data/2.5/forecast, including the fields the
+     * ingest is expected to skip.
+     */
+    static String createForecastJson(int slots) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"city\":{\"id\":5870133,\"name\":\"North Pole\",")
+                .append("\"coord\":{\"lon\":-147.353,\"lat\":64.7488},\"country\":\"US\"},")
+                .append("\"cod\":\"200\",\"message\":0.0078,\"cnt\":").append(slots)
+                .append(",\"list\":[");
+        for (int i = 0; i < slots; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"dt\":").append(TEST_START + i * 3 * 60 * 60)
+                    .append(",\"main\":{\"temp\":").append(-20.26 + i)
+                    .append(",\"temp_min\":-21,\"temp_max\":-19,\"pressure\":1002.37,")
+                    .append("\"sea_level\":1031.2,\"grnd_level\":1002.37,\"humidity\":")
+                    .append(60 + i % 40).append(",\"temp_kf\":0}")
+                    .append(",\"weather\":[{\"id\":600,\"main\":\"Snow\",")
+                    .append("\"description\":\"light snow\",\"icon\":\"13n\"}]")
+                    .append(",\"clouds\":{\"all\":92}")
+                    .append(",\"wind\":{\"speed\":4.36,\"deg\":302.5}")
+                    .append(",\"snow\":{\"3h\":0.1}")
+                    .append(",\"sys\":{\"pod\":\"n\"},\"dt_txt\":\"2014-12-20 00:00:00\"}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    static InputStream toStream(String json) throws Exception {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+
+    public void testIngestFiveDays() throws Exception {
+        int slots = DAYS * SLOTS_PER_DAY;
+        int inserted = new HourlyForecastIngest(mContext.getContentResolver())
+                .ingest(toStream(createForecastJson(slots)), mLocationId);
+        assertEquals("Error: Wrong number of hourly rows reported", slots, inserted);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                HourlyEntry.buildHourlyLocation(TEST_LOCATION),
+                null, null, null, HourlyEntry.COLUMN_HOUR + " ASC");
+        assertNotNull(cursor);
+        try {
+            assertEquals("Error: Wrong number of hourly rows stored", slots, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Error: Hour was not stored as an epoch hour",
+                    CompactUnits.toEpochHour(TEST_START * 1000),
+                    cursor.getLong(cursor.getColumnIndex(HourlyEntry.COLUMN_HOUR)));
+            assertEquals("Error: Temperature was not stored in tenths",
+                    -203, cursor.getInt(cursor.getColumnIndex(HourlyEntry.COLUMN_TEMP)));
+            assertEquals("Error: Pressure was not stored in tenths",
+                    10024, cursor.getInt(cursor.getColumnIndex(HourlyEntry.COLUMN_PRESSURE)));
+            assertEquals("Error: Wind speed was not stored in tenths",
+                    44, cursor.getInt(cursor.getColumnIndex(HourlyEntry.COLUMN_WIND_SPEED)));
+            assertEquals(303, cursor.getInt(cursor.getColumnIndex(HourlyEntry.COLUMN_DEGREES)));
+            assertEquals(60, cursor.getInt(cursor.getColumnIndex(HourlyEntry.COLUMN_HUMIDITY)));
+            assertEquals(600, cursor.getInt(cursor.getColumnIndex(HourlyEntry.COLUMN_WEATHER_ID)));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public void testStartHourFiltersRows() throws Exception {
+        new HourlyForecastIngest(mContext.getContentResolver())
+                .ingest(toStream(createForecastJson(DAYS * SLOTS_PER_DAY)), mLocationId);
+
+        // skip the first day
+        long startTime = (TEST_START + 24 * 60 * 60) * 1000;
+        Cursor cursor = mContext.getContentResolver().query(
+                HourlyEntry.buildHourlyLocationWithStartTime(TEST_LOCATION, startTime),
+                null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: Start hour did not filter the hourly rows",
+                (DAYS - 1) * SLOTS_PER_DAY, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testBatchBoundaries() throws Exception {
+        HourlyForecastIngest ingest = new HourlyForecastIngest(mContext.getContentResolver());
+        int[] sizes = {0, 1, HourlyForecastIngest.BATCH_SIZE, HourlyForecastIngest.BATCH_SIZE + 1};
+        for (int size : sizes) {
+            mContext.getContentResolver().delete(HourlyEntry.CONTENT_URI, null, null);
+            assertEquals("Error: Wrong row count for " + size + " slots",
+                    size, ingest.ingest(toStream(createForecastJson(size)), mLocationId));
+        }
+    }
+
+    public void testReingestReplacesRows() throws Exception {
+        HourlyForecastIngest ingest = new HourlyForecastIngest(mContext.getContentResolver());
+        ingest.ingest(toStream(createForecastJson(SLOTS_PER_DAY)), mLocationId);
+        ingest.ingest(toStream(createForecastJson(SLOTS_PER_DAY)), mLocationId);
+
+        Cursor cursor = mContext.getContentResolver().query(
+                HourlyEntry.CONTENT_URI, null, null, null, null);
+        assertNotNull(cursor);
+        assertEquals("Error: Ingesting the same hours twice duplicated rows",
+                SLOTS_PER_DAY, cursor.getCount());
+        cursor.close();
+    }
+
+    public void testErrorResponseInsertsNothing() throws Exception {
+        String json = "{\"cod\":\"404\",\"message\":\"Error: Not found city\"}";
+        int inserted = new HourlyForecastIngest(mContext.getContentResolver())
+                .ingest(toStream(json), mLocationId);
+        assertEquals("Error: Rows were inserted for an error response", 0, inserted);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.OpenWeatherMapParser;
+import com.example.android.sunshine.core.WeatherSource;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+
+public class TestOpenWeatherMapSource extends AndroidTestCase {
+
+    static final String DAILY_JSON = "{\"city\":{\"id\":5870133,\"name\":\"North Pole\","
+            + "\"coord\":{\"lon\":-147.353,\"lat\":64.7488},\"country\":\"US\"},"
+            + "\"cod\":\"200\",\"message\":0.0078,\"cnt\":2,\"list\":["
+            + "{\"dt\":1419033600,\"temp\":{\"day\":-10,\"min\":-14.5,\"max\":-8.25},"
+            + "\"pressure\":1021.5,\"humidity\":85,"
+            + "\"weather\":[{\"id\":600,\"main\":\"Snow\",\"description\":\"light snow\"}],"
+            + "\"speed\":2.1,\"deg\":310},"
+            + "{\"dt\":1419120000,\"temp\":{\"day\":-5,\"min\":-9,\"max\":-3},"
+            + "\"pressure\":1018,\"humidity\":70,"
+            + "\"weather\":[{\"id\":800,\"main\":\"Clear\",\"description\":\"sky is clear\"}],"
+            + "\"speed\":4.5,\"deg\":90}]}";
+
+    public void testParse() throws JSONException, IOException {
+        Forecast forecast = OpenWeatherMapParser.parse("test", DAILY_JSON);
+        assertEquals("Error: Wrong source", "test", forecast.source);
+        assertEquals("Error: Wrong city", "North Pole", forecast.cityName);
+        assertEquals("Error: Wrong latitude", 64.7488, forecast.latitude, 1e-9);
+        assertEquals("Error: Wrong number of days", 2, forecast.days.size());
+
+        Forecast.Day today = forecast.days.get(0);
+        assertEquals("Error: Wrong condition", 600, today.weatherId);
+        assertEquals("Error: Wrong description", "Snow", today.description);
+        assertEquals("Error: Wrong high", -8.25, today.high, 1e-9);
+        assertEquals("Error: Wrong low", -14.5, today.low, 1e-9);
+        assertEquals("Error: Wrong humidity", 85, today.humidity);
+        assertEquals("Error: Wrong pressure", 1021.5, today.pressure, 1e-9);
+        assertEquals("Error: Wrong wind speed", 2.1, today.windSpeed, 1e-9);
+        assertEquals("Error: Wrong wind direction", 310, today.windDirection, 1e-9);
+    }
+
+    public void testUnknownLocation() throws JSONException, IOException {
+        try {
+            OpenWeatherMapParser.parse("test", "{\"cod\":\"404\",\"message\":\"Error\"}");
+            fail("Error: An unknown location should throw LocationNotFoundException");
+        } catch (WeatherSource.LocationNotFoundException expected) {
+        }
+    }
+
+    public void testServerError() throws JSONException {
+        try {
+            OpenWeatherMapParser.parse("test", "{\"cod\":\"500\"}");
+            fail("Error: A server error should throw IOException");
+        } catch (WeatherSource.LocationNotFoundException e) {
+            fail("Error: A server error isn't an unknown location");
+        } catch (IOException expected) {
+        }
+    }
+}
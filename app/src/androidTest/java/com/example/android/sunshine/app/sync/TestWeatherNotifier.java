@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.test.AndroidTestCase;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.core.DayNormalizer;
+import com.example.android.sunshine.core.Forecast;
+
+public class TestWeatherNotifier extends AndroidTestCase {
+
+    private static final Forecast.Day SNOW = new Forecast.Day(600, "Snow", -8, -14, 85, 1021,
+            2.1, 310);
+    private static final Forecast.Day CLEAR = new Forecast.Day(800, "Clear", -3, -9, 70, 1018,
+            4.5, 90);
+
+    private SharedPreferences mPrefs;
+    private boolean mEnabled;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPrefs = PreferenceManager.getDefaultSharedPreferences(getContext());
+        mEnabled = mPrefs.getBoolean(getKey(R.string.pref_enable_notifications_key), true);
+        mPrefs.edit()
+                .putBoolean(getKey(R.string.pref_enable_notifications_key), true)
+                .remove(getKey(R.string.pref_last_notification))
+                .commit();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPrefs.edit()
+                .putBoolean(getKey(R.string.pref_enable_notifications_key), mEnabled)
+                .commit();
+        super.tearDown();
+    }
+
+    public void testSameForecastNextDay() {
+        long now = System.currentTimeMillis();
+        assertEquals("Error: The first notification wasn't posted",
+                WeatherNotifier.RESULT_POSTED, WeatherNotifier.notify(getContext(), SNOW, now));
+
+        // The weather holds, but it is a new day
+        assertEquals("Error: The same forecast wasn't posted the next day",
+                WeatherNotifier.RESULT_POSTED, WeatherNotifier.notify(getContext(), SNOW,
+                        now + DayNormalizer.DAY_IN_MILLIS));
+    }
+
+    public void testOncePerDay() {
+        assertEquals("Error: The first notification wasn't posted",
+                WeatherNotifier.RESULT_POSTED, WeatherNotifier.notify(getContext(), SNOW));
+        assertEquals("Error: A second notification was posted the same day",
+                WeatherNotifier.RESULT_TOO_SOON, WeatherNotifier.notify(getContext(), CLEAR));
+    }
+
+    public void testDisabled() {
+        mPrefs.edit().putBoolean(getKey(R.string.pref_enable_notifications_key), false).commit();
+        assertEquals("Error: A notification was posted while they are turned off",
+                WeatherNotifier.RESULT_DISABLED, WeatherNotifier.notify(getContext(), SNOW));
+    }
+
+    private String getKey(int resId) {
+        return getContext().getString(resId);
+    }
+}
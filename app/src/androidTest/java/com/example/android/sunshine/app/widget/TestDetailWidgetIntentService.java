@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.test.AndroidTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TestDetailWidgetIntentService extends AndroidTestCase {
+
+    public void testCountChangedRows() {
+        List<String> rows = Arrays.asList("a", "b", "c");
+
+        assertEquals("Error: Identical rows were counted as changed",
+                0, DetailWidgetIntentService.countChangedRows(rows, Arrays.asList("a", "b", "c")));
+        assertEquals(1, DetailWidgetIntentService.countChangedRows(rows,
+                Arrays.asList("a", "x", "c")));
+        assertEquals("Error: Added rows were not counted",
+                2, DetailWidgetIntentService.countChangedRows(rows,
+                        Arrays.asList("a", "b", "c", "d", "e")));
+        assertEquals("Error: Removed rows were not counted",
+                1, DetailWidgetIntentService.countChangedRows(rows, Arrays.asList("a", "b")));
+        assertTrue("Error: The first update has to reload the list",
+                DetailWidgetIntentService.countChangedRows(null,
+                        Collections.<String>emptyList()) > 0);
+    }
+}
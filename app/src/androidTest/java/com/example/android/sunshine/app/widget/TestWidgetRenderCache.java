@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.test.AndroidTestCase;
+import android.widget.RemoteViews;
+
+import com.example.android.sunshine.app.R;
+
+public class TestWidgetRenderCache extends AndroidTestCase {
+
+    public void testKeys() {
+        String state = "7|94043|16800|true|en_US";
+        assertEquals(WidgetRenderCache.key(R.layout.widget_today, true, state),
+                WidgetRenderCache.key(R.layout.widget_today, true, state));
+        assertFalse("Error: Two layouts shared a key",
+                WidgetRenderCache.key(R.layout.widget_today, true, state).equals(
+                        WidgetRenderCache.key(R.layout.widget_today_large, true, state)));
+        assertFalse("Error: Full and partial renders shared a key",
+                WidgetRenderCache.key(R.layout.widget_today, true, state).equals(
+                        WidgetRenderCache.key(R.layout.widget_today, false, state)));
+        assertFalse("Error: Two forecast versions shared a key",
+                WidgetRenderCache.key(R.layout.widget_today, true, state).equals(
+                        WidgetRenderCache.key(R.layout.widget_today, true,
+                                "8|94043|16800|true|en_US")));
+    }
+
+    public void testHitRate() {
+        WidgetRenderCache cache = new WidgetRenderCache();
+        assertEquals(0f, cache.getHitRate());
+
+        String key = WidgetRenderCache.key(R.layout.widget_today, true, "1");
+        assertNull(cache.get(key));
+        WidgetRenderCache.Render render = new WidgetRenderCache.Render(
+                new RemoteViews(mContext.getPackageName(), R.layout.widget_today), "values");
+        cache.put(key, render, 1000000);
+        assertSame("Error: The cache returned a different render", render, cache.get(key));
+        assertSame(render, cache.get(key));
+        assertNull(cache.get(WidgetRenderCache.key(R.layout.widget_today, true, "2")));
+
+        assertEquals(0.5f, cache.getHitRate());
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.example.android.sunshine.core.DateFormatCache;
+import com.example.android.sunshine.core.DayNormalizer;
+
+/**
+ * Throws away the {@link DateFormatCache} and the default {@link DayNormalizer} whenever the
+ * locale, time zone or clock changes, so that the next date picks up the new settings.
+ */
+public class DateFormatCacheReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        DateFormatCache.invalidate();
+        DayNormalizer.invalidate();
+    }
+}
@@ -38,6 +38,8 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.art.ArtRequests;
+import com.example.android.sunshine.app.art.ArtSizes;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
@@ -204,8 +206,9 @@ public class DetailFragment extends Fragment implements LoaderManager.LoaderCall
                 mIconView.setImageResource(Utility.getArtResourceForWeatherCondition(weatherId));
             } else {
                 // Use weather art image
-                Glide.with(this)
-                        .load(Utility.getArtUrlForWeatherCondition(getActivity(), weatherId))
+                ArtRequests.forView(Glide.with(this),
+                        Utility.getArtUrlForWeatherCondition(getActivity(), weatherId),
+                        ArtSizes.getTodayArtSize(getActivity()))
                         .error(Utility.getArtResourceForWeatherCondition(weatherId))
                         .crossFade()
                         .into(mIconView);
@@ -30,11 +30,19 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.bumptech.glide.Glide;
+import com.example.android.sunshine.app.art.ArtRequests;
+import com.example.android.sunshine.app.art.ArtSizes;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.core.SortedDiff;
+
+import java.util.List;
 
 /**
  * {@link ForecastAdapter} exposes a list of weather forecasts
  * from a {@link android.database.Cursor} to a {@link android.support.v7.widget.RecyclerView}.
+ * The cursor handed to {@link #swapCursor} is the first page; {@link ForecastPager} loads the
+ * rest as the list is scrolled.  Only the rows {@link ForecastRepository} found changed are
+ * rebound.
  */
 public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.ForecastAdapterViewHolder> {
 
@@ -44,7 +52,7 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
     // Flag to determine if we want to use a separate view for "today".
     private boolean mUseTodayLayout = true;
 
-    private Cursor mCursor;
+    private final ForecastPager mPager;
     final private Context mContext;
     final private ForecastAdapterOnClickHandler mClickHandler;
     final private View mEmptyView;
@@ -73,9 +81,13 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         @Override
         public void onClick(View v) {
             int adapterPosition = getAdapterPosition();
-            mCursor.moveToPosition(adapterPosition);
-            int dateColumnIndex = mCursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
-            mClickHandler.onClick(mCursor.getLong(dateColumnIndex), this);
+            Cursor cursor = mPager.moveToPosition(adapterPosition);
+            if (cursor == null) {
+                // The page is still loading
+                return;
+            }
+            int dateColumnIndex = cursor.getColumnIndex(WeatherContract.WeatherEntry.COLUMN_DATE);
+            mClickHandler.onClick(cursor.getLong(dateColumnIndex), this);
             mICM.onClick(this);
         }
     }
@@ -90,6 +102,17 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         mEmptyView = emptyView;
         mICM = new ItemChoiceManager(this);
         mICM.setChoiceMode(choiceMode);
+        mPager = new ForecastPager(context.getContentResolver(), ForecastFragment.FORECAST_COLUMNS,
+                ForecastFragment.COL_WEATHER_DATE, new ForecastPager.Listener() {
+            @Override
+            public void onPageLoaded(int firstPosition, int count, boolean appended) {
+                if (appended) {
+                    notifyItemRangeInserted(firstPosition, count);
+                } else {
+                    notifyItemRangeChanged(firstPosition, count);
+                }
+            }
+        });
     }
 
     /*
@@ -124,26 +147,38 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     @Override
     public void onBindViewHolder(ForecastAdapterViewHolder forecastAdapterViewHolder, int position) {
-        mCursor.moveToPosition(position);
-        int weatherId = mCursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+        Cursor cursor = mPager.moveToPosition(position);
+        if (cursor == null) {
+            // The page was closed while scrolled away; it is rebound once it has been read again
+            forecastAdapterViewHolder.mIconView.setImageDrawable(null);
+            forecastAdapterViewHolder.mDateView.setText(null);
+            forecastAdapterViewHolder.mDescriptionView.setText(null);
+            forecastAdapterViewHolder.mHighTempView.setText(null);
+            forecastAdapterViewHolder.mLowTempView.setText(null);
+            return;
+        }
+        int weatherId = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
         int defaultImage;
+        int artSize;
         boolean useLongToday;
 
         switch (getItemViewType(position)) {
             case VIEW_TYPE_TODAY:
                 defaultImage = Utility.getArtResourceForWeatherCondition(weatherId);
+                artSize = ArtSizes.getTodayArtSize(mContext);
                 useLongToday = true;
                 break;
             default:
                 defaultImage = Utility.getIconResourceForWeatherCondition(weatherId);
+                artSize = ArtSizes.getListIconSize(mContext);
                 useLongToday = false;
         }
 
         if ( Utility.usingLocalGraphics(mContext) ) {
             forecastAdapterViewHolder.mIconView.setImageResource(defaultImage);
         } else {
-            Glide.with(mContext)
-                    .load(Utility.getArtUrlForWeatherCondition(mContext, weatherId))
+            ArtRequests.forView(Glide.with(mContext),
+                    Utility.getArtUrlForWeatherCondition(mContext, weatherId), artSize)
                     .error(defaultImage)
                     .crossFade()
                     .into(forecastAdapterViewHolder.mIconView);
@@ -154,7 +189,7 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         ViewCompat.setTransitionName(forecastAdapterViewHolder.mIconView, "iconView" + position);
 
         // Read date from cursor
-        long dateInMillis = mCursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+        long dateInMillis = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
 
         // Find TextView and set formatted date on it
         forecastAdapterViewHolder.mDateView.setText(Utility.getFriendlyDayString(mContext, dateInMillis, useLongToday));
@@ -171,13 +206,13 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
         // is not individually selectable
 
         // Read high temperature from cursor
-        double high = mCursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
+        double high = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
         String highString = Utility.formatTemperature(mContext, high);
         forecastAdapterViewHolder.mHighTempView.setText(highString);
         forecastAdapterViewHolder.mHighTempView.setContentDescription(mContext.getString(R.string.a11y_high_temp, highString));
 
         // Read low temperature from cursor
-        double low = mCursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+        double low = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
         String lowString = Utility.formatTemperature(mContext, low);
         forecastAdapterViewHolder.mLowTempView.setText(lowString);
         forecastAdapterViewHolder.mLowTempView.setContentDescription(mContext.getString(R.string.a11y_low_temp, lowString));
@@ -208,18 +243,50 @@ public class ForecastAdapter extends RecyclerView.Adapter<ForecastAdapter.Foreca
 
     @Override
     public int getItemCount() {
-        if ( null == mCursor ) return 0;
-        return mCursor.getCount();
+        return mPager.getCount();
     }
 
-    public void swapCursor(Cursor newCursor) {
-        mCursor = newCursor;
-        notifyDataSetChanged();
+    /**
+     * @param newCursor the first page of the forecast, loaded from
+     *                  {@link WeatherContract.WeatherEntry#buildWeatherLocationPage} with
+     *                  {@link ForecastPager#PAGE_SIZE} rows after pageAfter
+     * @param changes   what turned the previous first page into this one, or null to rebind
+     *                  everything
+     */
+    public void swapCursor(Cursor newCursor, String locationSetting, long pageAfter,
+                           List<SortedDiff.Change> changes) {
+        Cursor oldFirstPage = mPager.getFirstPage();
+        int oldFirstCount = oldFirstPage != null ? oldFirstPage.getCount() : 0;
+        int oldCount = getItemCount();
+        mPager.setFirstPage(newCursor, locationSetting, pageAfter);
+        if (changes == null) {
+            notifyDataSetChanged();
+        } else {
+            // The rows after the first page are paged in again as the list scrolls to them
+            if (oldCount > oldFirstCount) {
+                notifyItemRangeRemoved(oldFirstCount, oldCount - oldFirstCount);
+            }
+            for (SortedDiff.Change change : changes) {
+                switch (change.type) {
+                    case SortedDiff.Change.INSERT:
+                        notifyItemRangeInserted(change.position, change.count);
+                        break;
+                    case SortedDiff.Change.REMOVE:
+                        notifyItemRangeRemoved(change.position, change.count);
+                        break;
+                    default:
+                        notifyItemRangeChanged(change.position, change.count);
+                }
+            }
+        }
         mEmptyView.setVisibility(getItemCount() == 0 ? View.VISIBLE : View.GONE);
     }
 
+    /**
+     * @return the first page of the forecast.
+     */
     public Cursor getCursor() {
-        return mCursor;
+        return mPager.getFirstPage();
     }
 
     public void selectView(RecyclerView.ViewHolder viewHolder) {
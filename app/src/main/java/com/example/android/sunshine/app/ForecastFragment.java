@@ -27,9 +27,6 @@ import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.support.design.widget.AppBarLayout;
 import android.support.v4.app.Fragment;
-import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
-import android.support.v4.content.Loader;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
@@ -47,25 +44,30 @@ import android.widget.TextView;
 
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
+import com.example.android.sunshine.core.SortedDiff;
+
+import java.util.List;
 
 /**
  * Encapsulates fetching the forecast and displaying it as a {@link android.support.v7.widget.RecyclerView} layout.
  */
-public class ForecastFragment extends Fragment implements LoaderManager.LoaderCallbacks<Cursor>, SharedPreferences.OnSharedPreferenceChangeListener {
+public class ForecastFragment extends Fragment implements ForecastRepository.Listener, SharedPreferences.OnSharedPreferenceChangeListener {
     public static final String LOG_TAG = ForecastFragment.class.getSimpleName();
     private ForecastAdapter mForecastAdapter;
+    private ForecastRepository mRepository;
     private RecyclerView mRecyclerView;
     private boolean mUseTodayLayout, mAutoSelectView;
     private int mChoiceMode;
     private boolean mHoldForTransition;
     private long mInitialSelectedDate = -1;
+    // Whether the list has been shown since the view was created
+    private boolean mShown;
 
     private static final String SELECTED_KEY = "selected_position";
 
-    private static final int FORECAST_LOADER = 0;
     // For the forecast view we're showing only a small subset of the stored data.
     // Specify the columns we need.
-    private static final String[] FORECAST_COLUMNS = {
+    static final String[] FORECAST_COLUMNS = {
             // In this case the id needs to be fully qualified with a table name, since
             // the content provider joins the location & weather tables in the background
             // (both have an _id column)
@@ -117,6 +119,18 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         setHasOptionsMenu(true);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        mRepository.start();
+    }
+
+    @Override
+    public void onStop() {
+        mRepository.stop();
+        super.onStop();
+    }
+
     @Override
     public void onResume() {
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(getActivity());
@@ -199,6 +213,8 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
         // specify an adapter (see also next example)
         mRecyclerView.setAdapter(mForecastAdapter);
+        mRepository = new ForecastRepository(getActivity(), FORECAST_COLUMNS, this);
+        mShown = false;
 
         final View parallaxView = rootView.findViewById(R.id.parallax_bar);
         if (null != parallaxView) {
@@ -259,13 +275,14 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         if ( mHoldForTransition ) {
             getActivity().supportPostponeEnterTransition();
         }
-        getLoaderManager().initLoader(FORECAST_LOADER, null, this);
         super.onActivityCreated(savedInstanceState);
     }
 
-    // since we read the location when we create the loader, all we need to do is restart things
+    // the repository reads the location each time, so all we need to do is read again
     void onLocationChanged() {
-        getLoaderManager().restartLoader(FORECAST_LOADER, null, this);
+        if (null != mRepository) {
+            mRepository.reload();
+        }
     }
 
     private void openPreferredLocationInMap() {
@@ -302,33 +319,19 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
 
     @Override
-    public Loader<Cursor> onCreateLoader(int i, Bundle bundle) {
-        // This is called when a new Loader needs to be created.  This
-        // fragment only uses one loader, so we don't care about checking the id.
-
-        // To only show current and future dates, filter the query to return weather only for
-        // dates after or including today.
-
-        // Sort order:  Ascending, by date.
-        String sortOrder = WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
-
-        String locationSetting = Utility.getPreferredLocation(getActivity());
-        Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
-                locationSetting, System.currentTimeMillis());
-
-        return new CursorLoader(getActivity(),
-                weatherForLocationUri,
-                FORECAST_COLUMNS,
-                null,
-                null,
-                sortOrder);
-    }
-
-    @Override
-    public void onLoadFinished(Loader<Cursor> loader, Cursor data) {
-        mForecastAdapter.swapCursor(data);
+    public void onForecastChanged(Cursor firstPage, String locationSetting, long firstPageAfter,
+                                  List<SortedDiff.Change> changes) {
+        // To only show current and future dates, the repository reads the days after today,
+        // and only the first page of them; the adapter pages in the rest as the list scrolls,
+        // so a long history never lands in one cursor.
+        mForecastAdapter.swapCursor(firstPage, locationSetting, firstPageAfter, changes);
         updateEmptyView();
-        if ( data.getCount() == 0 ) {
+        // Only the first time the list is shown does it scroll to the selection
+        if ( mShown ) {
+            return;
+        }
+        mShown = true;
+        if ( mForecastAdapter.getItemCount() == 0 ) {
             getActivity().supportStartPostponedEnterTransition();
         } else {
             mRecyclerView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
@@ -374,6 +377,14 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
 
 
 
+    @Override
+    public void onDestroyView() {
+        // The repository closes the page the adapter has been showing
+        mForecastAdapter.swapCursor(null, null, 0, null);
+        mRepository.release();
+        super.onDestroyView();
+    }
+
     @Override
     public void onDestroy() {
         super.onDestroy();
@@ -382,11 +393,6 @@ public class ForecastFragment extends Fragment implements LoaderManager.LoaderCa
         }
     }
 
-    @Override
-    public void onLoaderReset(Loader<Cursor> loader) {
-        mForecastAdapter.swapCursor(null);
-    }
-
     public void setUseTodayLayout(boolean useTodayLayout) {
         mUseTodayLayout = useTodayLayout;
         if (mForecastAdapter != null) {
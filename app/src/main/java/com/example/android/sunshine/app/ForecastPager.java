@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.Arrays;
+
+/**
+ * Reads a location's forecast a page at a time, for {@link ForecastAdapter}.
+ *
+ * Pages are fetched with keyset queries (the rows after the last date of the previous page) on
+ * a background thread, as the list gets within {@link #PREFETCH_DISTANCE} rows of the end of what
+ * has been loaded.  Only the pages around the one being shown stay open, so however long the
+ * forecast gets the cursors held stay the same size; a page that was closed is fetched again from
+ * its remembered starting date if the user scrolls back to it.
+ *
+ * The first page comes from {@link ForecastRepository}, which also owns it and tells us when the
+ * data changes.  All methods must be called on the main thread.
+ */
+class ForecastPager {
+
+    static final int PAGE_SIZE = 30;
+    static final int PREFETCH_DISTANCE = PAGE_SIZE / 3;
+    // Pages further than this from the one being bound are closed
+    static final int RESIDENT_DISTANCE = 1;
+
+    interface Listener {
+        /**
+         * A page has been loaded.  If appended, its rows are new at the end of the list; otherwise
+         * they replace rows that were evicted.
+         */
+        void onPageLoaded(int firstPosition, int count, boolean appended);
+    }
+
+    private final ContentResolver mResolver;
+    private final String[] mProjection;
+    private final int mDateColumn;
+    private final Listener mListener;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final SparseArray<Cursor> mPages = new SparseArray<>();
+    // Page p holds the rows after mPageAfter[p]; only the first mPageCount entries are valid
+    private long[] mPageAfter = new long[4];
+    private int mPageCount;
+    private final SparseArray<Boolean> mPending = new SparseArray<>();
+
+    private String mLocationSetting;
+    private int mCount;
+    private boolean mComplete = true;
+    // Bumped whenever the first page is replaced, so that stale loads are thrown away
+    private int mGeneration;
+
+    ForecastPager(ContentResolver resolver, String[] projection, int dateColumn,
+                  Listener listener) {
+        mResolver = resolver;
+        mProjection = projection;
+        mDateColumn = dateColumn;
+        mListener = listener;
+    }
+
+    /**
+     * @return the date a first page for today starts after.
+     */
+    static long firstPageAfter(long now) {
+        return WeatherContract.normalizeDate(now) - 1;
+    }
+
+    /**
+     * Starts over from a new first page, as loaded from
+     * {@link WeatherContract.WeatherEntry#buildWeatherLocationPage} with {@link #PAGE_SIZE} rows.
+     *
+     * @param firstPage the page, or null to close everything
+     */
+    void setFirstPage(Cursor firstPage, String locationSetting, long firstPageAfter) {
+        mGeneration++;
+        for (int i = 0; i < mPages.size(); i++) {
+            if (mPages.keyAt(i) != 0) {
+                mPages.valueAt(i).close();
+            }
+        }
+        mPages.clear();
+        mPending.clear();
+        mPageCount = 0;
+        mCount = 0;
+        mComplete = true;
+        mLocationSetting = locationSetting;
+        if (firstPage == null) {
+            return;
+        }
+
+        mPages.put(0, firstPage);
+        addPageStart(firstPageAfter);
+        onPageCounted(0, firstPage);
+    }
+
+    Cursor getFirstPage() {
+        return mPages.get(0);
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Moves to a row of the forecast, loading pages as needed.
+     *
+     * @return the cursor positioned on the row, or null if its page is still being loaded.
+     */
+    Cursor moveToPosition(int position) {
+        int page = position / PAGE_SIZE;
+        evictAround(page);
+        if (!mComplete && position >= mCount - PREFETCH_DISTANCE) {
+            requestPage(mPageCount - 1);
+        }
+
+        Cursor cursor = mPages.get(page);
+        if (cursor == null) {
+            requestPage(page);
+            return null;
+        }
+        cursor.moveToPosition(position - page * PAGE_SIZE);
+        return cursor;
+    }
+
+    private void addPageStart(long after) {
+        if (mPageCount == mPageAfter.length) {
+            mPageAfter = Arrays.copyOf(mPageAfter, mPageCount * 2);
+        }
+        mPageAfter[mPageCount++] = after;
+    }
+
+    // Counts the rows of a page that has just been loaded for the first time
+    private void onPageCounted(int page, Cursor cursor) {
+        int count = cursor.getCount();
+        mCount += count;
+        mComplete = count < PAGE_SIZE;
+        if (!mComplete && cursor.moveToLast()) {
+            addPageStart(cursor.getLong(mDateColumn));
+        }
+    }
+
+    private void evictAround(int page) {
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            int resident = mPages.keyAt(i);
+            // The repository owns the first page
+            if (resident != 0 && Math.abs(resident - page) > RESIDENT_DISTANCE) {
+                mPages.valueAt(i).close();
+                mPages.removeAt(i);
+            }
+        }
+    }
+
+    private void requestPage(final int page) {
+        if (page >= mPageCount || mPages.get(page) != null || mPending.get(page) != null) {
+            return;
+        }
+        mPending.put(page, Boolean.TRUE);
+
+        final int generation = mGeneration;
+        final Uri uri = WeatherContract.WeatherEntry.buildWeatherLocationPage(
+                mLocationSetting, mPageAfter[page], PAGE_SIZE);
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Cursor cursor = mResolver.query(uri, mProjection, null, null, null);
+                if (cursor != null) {
+                    // Fill the window here rather than on the main thread
+                    cursor.getCount();
+                }
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(generation, page, cursor);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int generation, int page, Cursor cursor) {
+        if (generation != mGeneration) {
+            if (cursor != null) {
+                cursor.close();
+            }
+            return;
+        }
+        mPending.remove(page);
+        if (cursor == null) {
+            return;
+        }
+
+        mPages.put(page, cursor);
+        int firstPosition = page * PAGE_SIZE;
+        if (page == mPageCount - 1 && firstPosition == mCount) {
+            onPageCounted(page, cursor);
+            mListener.onPageLoaded(firstPosition, cursor.getCount(), true);
+        } else {
+            mListener.onPageLoaded(firstPosition, cursor.getCount(), false);
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.core.SortedDiff;
+
+import java.util.List;
+
+/**
+ * Keeps the first page of the forecast for {@link ForecastFragment}, and works out what changed
+ * each time it is read again.
+ *
+ * The page is read again whenever the weather data changes.  The query and the comparison with
+ * the page before run on a background thread, and the listener only hears about the new page
+ * if a row the list shows is different, so a sync that brings the same forecast rebinds
+ * nothing.  Rows are matched up by date.  A change of units or art pack, or a new day, changes
+ * every row; so does moving into or out of the first position, which has a layout of its own.
+ *
+ * The repository owns the pages it hands out, and closes each one once the next has been
+ * delivered.  All methods must be called on the main thread.
+ */
+class ForecastRepository {
+
+    interface Listener {
+        /**
+         * The forecast has changed.  The changes turn the previous page into this one.
+         *
+         * @param firstPage the new first page, or null if it couldn't be read
+         */
+        void onForecastChanged(Cursor firstPage, String locationSetting, long firstPageAfter,
+                               List<SortedDiff.Change> changes);
+    }
+
+    // What the list shows of a page, read on the background thread
+    private static final class Snapshot {
+        final Cursor cursor;
+        final String locationSetting;
+        final long pageAfter;
+        // Everything besides the rows that changes how they are shown
+        final String display;
+        final long[] dates;
+        final int[] weatherIds;
+        final String[] descriptions;
+        final double[] highs;
+        final double[] lows;
+
+        Snapshot(Cursor cursor, String locationSetting, long pageAfter, String display) {
+            this.cursor = cursor;
+            this.locationSetting = locationSetting;
+            this.pageAfter = pageAfter;
+            this.display = display;
+            int count = cursor != null ? cursor.getCount() : 0;
+            dates = new long[count];
+            weatherIds = new int[count];
+            descriptions = new String[count];
+            highs = new double[count];
+            lows = new double[count];
+            for (int i = 0; i < count && cursor.moveToPosition(i); i++) {
+                dates[i] = cursor.getLong(ForecastFragment.COL_WEATHER_DATE);
+                weatherIds[i] = cursor.getInt(ForecastFragment.COL_WEATHER_CONDITION_ID);
+                descriptions[i] = cursor.getString(ForecastFragment.COL_WEATHER_DESC);
+                highs[i] = cursor.getDouble(ForecastFragment.COL_WEATHER_MAX_TEMP);
+                lows[i] = cursor.getDouble(ForecastFragment.COL_WEATHER_MIN_TEMP);
+            }
+        }
+
+        boolean isShownLike(Snapshot other) {
+            return pageAfter == other.pageAfter && display.equals(other.display);
+        }
+    }
+
+    private static final Snapshot EMPTY = new Snapshot(null, null, 0, "");
+
+    private final Context mContext;
+    private final String[] mProjection;
+    private final Listener mListener;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final ContentObserver mObserver = new ContentObserver(mHandler) {
+        @Override
+        public void onChange(boolean selfChange) {
+            load();
+        }
+    };
+
+    private Snapshot mSnapshot;
+    private boolean mStarted;
+    private boolean mLoading;
+    // Another load was asked for while one was running
+    private boolean mDirty;
+    // Bumped by release(), so that a load still running is thrown away
+    private int mGeneration;
+
+    ForecastRepository(Context context, String[] projection, Listener listener) {
+        mContext = context.getApplicationContext();
+        mProjection = projection;
+        mListener = listener;
+    }
+
+    /**
+     * Reads the forecast, and again whenever it changes until {@link #stop}.
+     */
+    void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        // The rows join the location, whose changes are notified on a uri of their own
+        mContext.getContentResolver().registerContentObserver(
+                WeatherContract.WeatherEntry.CONTENT_URI, true, mObserver);
+        mContext.getContentResolver().registerContentObserver(
+                WeatherContract.LocationEntry.CONTENT_URI, true, mObserver);
+        // Whatever happened while we were stopped
+        load();
+    }
+
+    void stop() {
+        if (!mStarted) {
+            return;
+        }
+        mStarted = false;
+        mContext.getContentResolver().unregisterContentObserver(mObserver);
+    }
+
+    /**
+     * Reads the forecast again, for a new location.
+     */
+    void reload() {
+        if (mStarted) {
+            load();
+        }
+    }
+
+    /**
+     * Stops and closes the page last delivered, once the listener has let go of it.
+     */
+    void release() {
+        stop();
+        mGeneration++;
+        mLoading = false;
+        mDirty = false;
+        if (mSnapshot != null && mSnapshot.cursor != null) {
+            mSnapshot.cursor.close();
+        }
+        mSnapshot = null;
+    }
+
+    private void load() {
+        if (mLoading) {
+            mDirty = true;
+            return;
+        }
+        mLoading = true;
+
+        final int generation = mGeneration;
+        final Snapshot previous = mSnapshot;
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                String locationSetting = Utility.getPreferredLocation(mContext);
+                String display = Utility.isMetric(mContext) + "|" + PreferenceManager
+                        .getDefaultSharedPreferences(mContext)
+                        .getString(mContext.getString(R.string.pref_art_pack_key), "");
+                long pageAfter = ForecastPager.firstPageAfter(System.currentTimeMillis());
+                Uri uri = WeatherContract.WeatherEntry.buildWeatherLocationPage(
+                        locationSetting, pageAfter, ForecastPager.PAGE_SIZE);
+                Cursor cursor = mContext.getContentResolver().query(uri, mProjection, null, null,
+                        WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+                // Reading the rows also fills the window here rather than on the main thread
+                final Snapshot snapshot =
+                        new Snapshot(cursor, locationSetting, pageAfter, display);
+                final List<SortedDiff.Change> changes = compare(
+                        previous != null ? previous : EMPTY, snapshot);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(generation, previous, snapshot, changes);
+                    }
+                });
+            }
+        });
+    }
+
+    private static List<SortedDiff.Change> compare(final Snapshot before, final Snapshot after) {
+        final boolean shownAlike = before.isShownLike(after);
+        return SortedDiff.compute(before.dates, after.dates, new SortedDiff.Contents() {
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return shownAlike
+                        && (oldPosition == newPosition || (oldPosition != 0 && newPosition != 0))
+                        && before.weatherIds[oldPosition] == after.weatherIds[newPosition]
+                        && before.highs[oldPosition] == after.highs[newPosition]
+                        && before.lows[oldPosition] == after.lows[newPosition]
+                        && equals(before.descriptions[oldPosition],
+                        after.descriptions[newPosition]);
+            }
+
+            private boolean equals(String a, String b) {
+                return a == null ? b == null : a.equals(b);
+            }
+        });
+    }
+
+    private void onLoaded(int generation, Snapshot previous, Snapshot snapshot,
+                          List<SortedDiff.Change> changes) {
+        if (generation != mGeneration) {
+            if (snapshot.cursor != null) {
+                snapshot.cursor.close();
+            }
+            return;
+        }
+        mLoading = false;
+
+        // The location is in the rows the map is opened from, even if the weather is the same
+        boolean deliver = previous == null || !changes.isEmpty()
+                || !snapshot.locationSetting.equals(previous.locationSetting)
+                || (snapshot.cursor == null) != (previous.cursor == null);
+        if (deliver) {
+            mSnapshot = snapshot;
+            mListener.onForecastChanged(snapshot.cursor, snapshot.locationSetting,
+                    snapshot.pageAfter, changes);
+            if (previous != null && previous.cursor != null) {
+                previous.cursor.close();
+            }
+        } else if (snapshot.cursor != null) {
+            snapshot.cursor.close();
+        }
+
+        if (mDirty) {
+            mDirty = false;
+            load();
+        }
+    }
+}
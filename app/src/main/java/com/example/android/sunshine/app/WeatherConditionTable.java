@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app;
+
+import com.example.android.sunshine.core.WeatherConditions;
+
+import java.util.Locale;
+
+/**
+ * Resources for every OpenWeatherMap condition id, in a dense array indexed by the id.
+ *
+ * {@link WeatherConditions} decides which group a condition belongs to; this class attaches the
+ * app's icons, artwork and strings to those groups so that {@link Utility} can answer any of its
+ * getXForWeatherCondition calls with a single array read.
+ */
+final class WeatherConditionTable {
+
+    /**
+     * Everything Sunshine shows for one condition id.
+     */
+    static final class Entry {
+        final int iconResourceId;
+        final int artResourceId;
+        // 0 if the condition has no description of its own
+        final int stringResourceId;
+        final String artName;
+        final String imageUrl;
+
+        // The last art url we built, together with the art pack format it was built from.
+        private volatile String[] mArtUrl;
+
+        Entry(int iconResourceId, int artResourceId, int stringResourceId, String artName,
+              String imageUrl) {
+            this.iconResourceId = iconResourceId;
+            this.artResourceId = artResourceId;
+            this.stringResourceId = stringResourceId;
+            this.artName = artName;
+            this.imageUrl = imageUrl;
+        }
+
+        String getArtUrl(String formatArtUrl) {
+            if (artName == null) {
+                return null;
+            }
+            String[] artUrl = mArtUrl;
+            if (artUrl == null || !artUrl[0].equals(formatArtUrl)) {
+                artUrl = new String[]{formatArtUrl,
+                        String.format(Locale.US, formatArtUrl, artName)};
+                mArtUrl = artUrl;
+            }
+            return artUrl[1];
+        }
+    }
+
+    // Indexed by WeatherConditions.ART_ constant
+    private static final int[] ICONS = {
+            -1,
+            R.drawable.ic_storm,
+            R.drawable.ic_light_rain,
+            R.drawable.ic_rain,
+            R.drawable.ic_snow,
+            R.drawable.ic_fog,
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy
+    };
+
+    private static final int[] ART = {
+            -1,
+            R.drawable.art_storm,
+            R.drawable.art_light_rain,
+            R.drawable.art_rain,
+            R.drawable.art_snow,
+            R.drawable.art_fog,
+            R.drawable.art_clear,
+            R.drawable.art_light_clouds,
+            R.drawable.art_clouds
+    };
+
+    // Pairs of (condition id, string resource) for the conditions with their own description.
+    // The thunderstorm and drizzle groups are handled separately.
+    private static final int[] STRINGS = {
+            500, R.string.condition_500,
+            501, R.string.condition_501,
+            502, R.string.condition_502,
+            503, R.string.condition_503,
+            504, R.string.condition_504,
+            511, R.string.condition_511,
+            520, R.string.condition_520,
+            531, R.string.condition_531,
+            600, R.string.condition_600,
+            601, R.string.condition_601,
+            602, R.string.condition_602,
+            611, R.string.condition_611,
+            612, R.string.condition_612,
+            615, R.string.condition_615,
+            616, R.string.condition_616,
+            620, R.string.condition_620,
+            621, R.string.condition_621,
+            622, R.string.condition_622,
+            701, R.string.condition_701,
+            711, R.string.condition_711,
+            721, R.string.condition_721,
+            731, R.string.condition_731,
+            741, R.string.condition_741,
+            751, R.string.condition_751,
+            761, R.string.condition_761,
+            762, R.string.condition_762,
+            771, R.string.condition_771,
+            781, R.string.condition_781,
+            800, R.string.condition_800,
+            801, R.string.condition_801,
+            802, R.string.condition_802,
+            803, R.string.condition_803,
+            804, R.string.condition_804,
+            900, R.string.condition_900,
+            901, R.string.condition_901,
+            902, R.string.condition_902,
+            903, R.string.condition_903,
+            904, R.string.condition_904,
+            905, R.string.condition_905,
+            906, R.string.condition_906,
+            951, R.string.condition_951,
+            952, R.string.condition_952,
+            953, R.string.condition_953,
+            954, R.string.condition_954,
+            955, R.string.condition_955,
+            956, R.string.condition_956,
+            957, R.string.condition_957,
+            958, R.string.condition_958,
+            959, R.string.condition_959,
+            960, R.string.condition_960,
+            961, R.string.condition_961,
+            962, R.string.condition_962
+    };
+
+    static final Entry UNKNOWN = new Entry(-1, -1, 0, null, null);
+
+    private static final Entry[] TABLE =
+            new Entry[WeatherConditions.MAX_ID - WeatherConditions.MIN_ID + 1];
+
+    static {
+        int[] stringIds = new int[TABLE.length];
+        for (int id = 200; id <= 232; id++) {
+            stringIds[id - WeatherConditions.MIN_ID] = R.string.condition_2xx;
+        }
+        for (int id = 300; id <= 321; id++) {
+            stringIds[id - WeatherConditions.MIN_ID] = R.string.condition_3xx;
+        }
+        for (int i = 0; i < STRINGS.length; i += 2) {
+            stringIds[STRINGS[i] - WeatherConditions.MIN_ID] = STRINGS[i + 1];
+        }
+
+        for (int i = 0; i < TABLE.length; i++) {
+            int weatherId = WeatherConditions.MIN_ID + i;
+            int artType = WeatherConditions.getArtType(weatherId);
+            if (artType == WeatherConditions.ART_NONE && stringIds[i] == 0) {
+                TABLE[i] = UNKNOWN;
+            } else {
+                TABLE[i] = new Entry(ICONS[artType], ART[artType], stringIds[i],
+                        WeatherConditions.getArtName(weatherId),
+                        WeatherConditions.getImageUrl(weatherId));
+            }
+        }
+    }
+
+    private WeatherConditionTable() {
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return the resources for the condition, {@link #UNKNOWN} if no relation is found.
+     */
+    static Entry get(int weatherId) {
+        if (weatherId < WeatherConditions.MIN_ID || weatherId > WeatherConditions.MAX_ID) {
+            return UNKNOWN;
+        }
+        return TABLE[weatherId - WeatherConditions.MIN_ID];
+    }
+}
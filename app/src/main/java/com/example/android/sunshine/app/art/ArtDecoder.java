@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.art;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.support.v4.util.LruCache;
+
+/**
+ * Decodes the bundled weather art at the size a surface draws it at.
+ *
+ * Notifications and widgets send their bitmaps to another process, so a full size decode of the
+ * art costs memory here and binder bandwidth there.  The art is subsampled while it is decoded,
+ * scaled the rest of the way to fit, and kept so that the next notification can reuse it.
+ */
+public final class ArtDecoder {
+
+    // Room for a couple of dozen notification icons
+    private static final int CACHE_BYTES = 1024 * 1024;
+
+    private static final LruCache<String, Bitmap> sCache =
+            new LruCache<String, Bitmap>(CACHE_BYTES) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+
+    private ArtDecoder() {
+    }
+
+    /**
+     * @return the drawable scaled to fit within width by height, keeping its aspect ratio, or
+     * null if it can't be decoded.  The bitmap is shared, so don't recycle or change it.
+     */
+    public static Bitmap decodeResource(Resources resources, int resId, int width, int height) {
+        String key = resId + ":" + width + "x" + height;
+        Bitmap bitmap = sCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+
+        // Leave the density scaling to us, so that the bounds are the pixels in the file
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                width, height);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = BitmapFactory.decodeResource(resources, resId, options);
+        if (decoded == null) {
+            return null;
+        }
+
+        bitmap = scaleToFit(decoded, width, height);
+        if (bitmap != decoded) {
+            decoded.recycle();
+        }
+        sCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * @return the largest power of two that shrinks the source no smaller than the target in
+     * either dimension.
+     */
+    static int calculateInSampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+        int inSampleSize = 1;
+        while (sourceWidth / (inSampleSize * 2) >= width
+                && sourceHeight / (inSampleSize * 2) >= height) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static Bitmap scaleToFit(Bitmap bitmap, int width, int height) {
+        float scale = Math.min((float) width / bitmap.getWidth(),
+                (float) height / bitmap.getHeight());
+        if (scale >= 1) {
+            return bitmap;
+        }
+        int scaledWidth = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int scaledHeight = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        return Bitmap.createScaledBitmap(bitmap, scaledWidth, scaledHeight, true);
+    }
+}
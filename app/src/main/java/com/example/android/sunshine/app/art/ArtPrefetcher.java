@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.FutureTarget;
+import com.example.android.sunshine.app.Utility;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downloads and decodes the art for the forecast after a sync, at every size it is drawn at, so
+ * that the list, the detail view, the widgets and the notification find it in Glide's caches
+ * instead of fetching it while they bind.  Today's notification icon also goes into
+ * {@link NotificationArt}.
+ */
+public final class ArtPrefetcher {
+    private static final String LOG_TAG = ArtPrefetcher.class.getSimpleName();
+
+    // How long to wait for all of the art before giving up on what hasn't arrived
+    private static final long TIMEOUT_SECONDS = 15;
+
+    private ArtPrefetcher() {
+    }
+
+    /**
+     * Blocks until the art is cached, so call it from a background thread.
+     *
+     * @param weatherIds the conditions of the upcoming days, today's first
+     */
+    public static void prefetch(Context context, int[] weatherIds) {
+        if (weatherIds.length == 0 || Utility.usingLocalGraphics(context)) {
+            return;
+        }
+
+        // The days share a handful of pictures
+        Set<String> artUrls = new LinkedHashSet<>();
+        for (int weatherId : weatherIds) {
+            String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
+            if (artUrl != null) {
+                artUrls.add(artUrl);
+            }
+        }
+        if (artUrls.isEmpty()) {
+            return;
+        }
+
+        RequestManager glide = Glide.with(context);
+        int listIconSize = ArtSizes.getListIconSize(context);
+        int todayArtSize = ArtSizes.getTodayArtSize(context);
+
+        List<FutureTarget<?>> targets = new ArrayList<>();
+        for (String artUrl : artUrls) {
+            // The detail view can show any day at the large size
+            targets.add(ArtRequests.forView(glide, artUrl, todayArtSize)
+                    .into(todayArtSize, todayArtSize));
+            targets.add(ArtRequests.forView(glide, artUrl, listIconSize)
+                    .into(listIconSize, listIconSize));
+            targets.add(ArtRequests.forBitmap(glide, artUrl)
+                    .into(listIconSize, listIconSize));
+        }
+        // Only today makes it into the notification, which keeps its own copy
+        String todayArtUrl = Utility.getArtUrlForWeatherCondition(context, weatherIds[0]);
+        int notificationWidth = ArtSizes.getNotificationIconWidth(context);
+        int notificationHeight = ArtSizes.getNotificationIconHeight(context);
+        FutureTarget<Bitmap> notificationTarget = null;
+        if (todayArtUrl != null) {
+            notificationTarget = ArtRequests.forBitmap(glide, todayArtUrl)
+                    .into(notificationWidth, notificationHeight);
+            targets.add(notificationTarget);
+        }
+
+        // The requests run in parallel on Glide's own pools; wait for all of them, then let
+        // go of the results so they move into the memory cache.  The timeout covers the lot, so
+        // a stalled network holds up the sync once rather than once per target.
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        for (FutureTarget<?> target : targets) {
+            try {
+                long remaining = Math.max(deadline - System.nanoTime(), 0);
+                Object result = target.get(remaining, TimeUnit.NANOSECONDS);
+                if (target == notificationTarget) {
+                    NotificationArt.put(todayArtUrl, notificationWidth, notificationHeight,
+                            (Bitmap) result);
+                }
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                Log.w(LOG_TAG, "Error prefetching weather art", e);
+            }
+            Glide.clear(target);
+        }
+        Log.d(LOG_TAG, "Prefetched " + artUrls.size() + " pictures");
+    }
+}
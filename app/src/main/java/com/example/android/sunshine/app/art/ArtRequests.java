@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.art;
+
+import android.graphics.Bitmap;
+
+import com.bumptech.glide.BitmapRequestBuilder;
+import com.bumptech.glide.DrawableRequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+
+/**
+ * Builds the Glide requests for weather art.
+ *
+ * Glide caches a decoded image under its url, size, transformation and type, so the binds and
+ * {@link ArtPrefetcher} must build their requests the same way to share results.  Both the
+ * download and the sized results are kept on disk, so a bind that misses the memory cache reads
+ * a small file instead of decoding the whole image again.
+ */
+public final class ArtRequests {
+
+    private ArtRequests() {
+    }
+
+    /**
+     * @return a request for art shown in an ImageView, scaled to fit a square of the given size.
+     */
+    public static DrawableRequestBuilder<String> forView(RequestManager glide, String artUrl,
+                                                         int size) {
+        return glide.load(artUrl)
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .override(size, size)
+                .fitCenter();
+    }
+
+    /**
+     * @return a request for art handed to another process as a Bitmap, in a widget or
+     * notification.  Pass the size to into().
+     */
+    public static BitmapRequestBuilder<String, Bitmap> forBitmap(RequestManager glide,
+                                                                 String artUrl) {
+        return glide.load(artUrl)
+                .asBitmap()
+                .diskCacheStrategy(DiskCacheStrategy.ALL)
+                .fitCenter();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.art;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+
+import com.example.android.sunshine.app.R;
+
+/**
+ * The pixel sizes each surface draws weather art at.  Binding and prefetching both ask Glide for
+ * exactly these sizes, so the prefetched results are the ones the binds look up.
+ */
+public final class ArtSizes {
+
+    private ArtSizes() {
+    }
+
+    /**
+     * @return the size of the icons in the forecast list and the detail widget.
+     */
+    public static int getListIconSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.list_icon);
+    }
+
+    /**
+     * @return the size of the art for today's row in the forecast list and in the detail view.
+     */
+    public static int getTodayArtSize(Context context) {
+        return context.getResources().getDimensionPixelSize(R.dimen.today_icon);
+    }
+
+    @SuppressLint("InlinedApi")
+    public static int getNotificationIconWidth(Context context) {
+        // On Honeycomb and higher devices, we can retrieve the size of the large icon
+        // Prior to that, we use a fixed size
+        Resources resources = context.getResources();
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    }
+
+    @SuppressLint("InlinedApi")
+    public static int getNotificationIconHeight(Context context) {
+        Resources resources = context.getResources();
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+                ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
+                : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
+    }
+}
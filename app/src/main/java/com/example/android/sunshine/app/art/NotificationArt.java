@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.art;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.request.FutureTarget;
+import com.example.android.sunshine.app.Utility;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Large icons for the weather notification, already scaled to the size the notification draws
+ * them at.
+ *
+ * {@link ArtPrefetcher} puts today's art here after a sync, so the notification that follows
+ * doesn't wait on Glide.  The bitmaps are copies of Glide's, which goes on to reuse its own;
+ * the bundled art comes from {@link ArtDecoder}, which keeps its own.
+ */
+public final class NotificationArt {
+    private static final String LOG_TAG = NotificationArt.class.getSimpleName();
+
+    // A few days' worth of notification icons
+    private static final int CACHE_BYTES = 1024 * 1024;
+
+    private static final LruCache<String, Bitmap> sCache =
+            new LruCache<String, Bitmap>(CACHE_BYTES) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+
+    private NotificationArt() {
+    }
+
+    /**
+     * Keeps a copy of art Glide has loaded at the notification size.
+     */
+    static void put(String artUrl, int width, int height, Bitmap bitmap) {
+        Bitmap.Config config = bitmap.getConfig();
+        Bitmap copy = bitmap.copy(config != null ? config : Bitmap.Config.ARGB_8888, false);
+        if (copy != null) {
+            sCache.put(key(artUrl, width, height), copy);
+        }
+    }
+
+    /**
+     * Returns the cached icon straight away; otherwise loads it, waiting no longer than
+     * timeoutMillis for a download before settling for the bundled art.  Call it from a
+     * background thread.
+     *
+     * @return the large icon for the condition, or null if there is none.  The bitmap is
+     * shared, so don't recycle or change it.
+     */
+    public static Bitmap get(Context context, int weatherId, long timeoutMillis) {
+        int width = ArtSizes.getNotificationIconWidth(context);
+        int height = ArtSizes.getNotificationIconHeight(context);
+        int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
+
+        String artUrl = Utility.usingLocalGraphics(context)
+                ? null : Utility.getArtUrlForWeatherCondition(context, weatherId);
+        if (artUrl != null) {
+            Bitmap bitmap = sCache.get(key(artUrl, width, height));
+            if (bitmap != null) {
+                return bitmap;
+            }
+
+            FutureTarget<Bitmap> target = ArtRequests.forBitmap(Glide.with(context), artUrl)
+                    .into(width, height);
+            try {
+                put(artUrl, width, height, target.get(timeoutMillis, TimeUnit.MILLISECONDS));
+                bitmap = sCache.get(key(artUrl, width, height));
+                if (bitmap != null) {
+                    return bitmap;
+                }
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                Log.w(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
+            } finally {
+                Glide.clear(target);
+            }
+        }
+
+        if (artResourceId == -1) {
+            return null;
+        }
+        return ArtDecoder.decodeResource(context.getResources(), artResourceId, width, height);
+    }
+
+    private static String key(String artUrl, int width, int height) {
+        return artUrl + "@" + width + "x" + height;
+    }
+}
@@ -19,7 +19,9 @@ import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
-import android.text.format.Time;
+
+import com.example.android.sunshine.core.CompactUnits;
+import com.example.android.sunshine.core.DayNormalizer;
 
 /**
  * Defines table and column names for the weather database.
@@ -43,15 +45,17 @@ public class WeatherContract {
     // At least, let's hope not.  Don't be that dev, reader.  Don't be that dev.
     public static final String PATH_WEATHER = "weather";
     public static final String PATH_LOCATION = "location";
+    public static final String PATH_HOURLY = "hourly";
+    public static final String PATH_HISTORY = "history";
+    public static final String PATH_SUMMARY = "summary";
 
     // To make it easy to query for the exact date, we normalize all dates that go into
     // the database to the start of the the Julian day at UTC.
     public static long normalizeDate(long startDate) {
-        // normalize the start date to the beginning of the (UTC) day
-        Time time = new Time();
-        time.set(startDate);
-        int julianDay = Time.getJulianDay(startDate, time.gmtoff);
-        return time.setJulianDay(julianDay);
+        // normalize the start date to the beginning of the day.  Despite the comment above this
+        // has always been the day in the default time zone, which is what Time gave us.
+        // DayNormalizer gets the same answer without allocating anything per row.
+        return DayNormalizer.get().startOfDay(startDate);
     }
 
     /* Inner class that defines the table contents of the location table */
@@ -126,6 +130,19 @@ public class WeatherContract {
         // Degrees are meteorological degrees (e.g, 0 is north, 180 is south).  Stored as floats.
         public static final String COLUMN_DEGREES = "degrees";
 
+        // Query parameters for reading a location's forecast a page at a time.  A page is the
+        // first PARAM_LIMIT rows dated strictly after PARAM_AFTER, in date order, so the next
+        // page starts after the last date of the one before it.
+        public static final String PARAM_AFTER = "after";
+        public static final String PARAM_LIMIT = "limit";
+
+        // ContentResolver.call method returning a number that changes whenever the forecast or
+        // the locations do, for caches of things drawn from them.  It starts over with the
+        // process, so it is only good for caches that don't outlive the process either.
+        public static final String METHOD_GET_VERSION = "get_version";
+        // Key of the long in the Bundle returned by METHOD_GET_VERSION
+        public static final String EXTRA_VERSION = "version";
+
         public static Uri buildWeatherUri(long id) {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
@@ -144,6 +161,13 @@ public class WeatherContract {
                     .appendQueryParameter(COLUMN_DATE, Long.toString(normalizedDate)).build();
         }
 
+        public static Uri buildWeatherLocationPage(String locationSetting, long afterDate,
+                                                   int limit) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendQueryParameter(PARAM_AFTER, Long.toString(afterDate))
+                    .appendQueryParameter(PARAM_LIMIT, Integer.toString(limit)).build();
+        }
+
         public static Uri buildWeatherLocationWithDate(String locationSetting, long date) {
             return CONTENT_URI.buildUpon().appendPath(locationSetting)
                     .appendPath(Long.toString(normalizeDate(date))).build();
@@ -164,5 +188,185 @@ public class WeatherContract {
             else
                 return 0;
         }
+
+        /**
+         * @return the date a page starts after, or Long.MIN_VALUE if the uri is not paged.
+         */
+        public static long getAfterDateFromUri(Uri uri) {
+            String dateString = uri.getQueryParameter(PARAM_AFTER);
+            if (null != dateString && dateString.length() > 0)
+                return Long.parseLong(dateString);
+            else
+                return Long.MIN_VALUE;
+        }
+
+        /**
+         * @return the page size as a LIMIT clause, or null if the uri is not paged.
+         */
+        public static String getLimitFromUri(Uri uri) {
+            String limitString = uri.getQueryParameter(PARAM_LIMIT);
+            if (null != limitString && limitString.length() > 0)
+                return Integer.toString(Integer.parseInt(limitString));
+            else
+                return null;
+        }
+    }
+
+    /* Inner class that defines the table contents of the hourly forecast table */
+    public static final class HourlyEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_HOURLY).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_HOURLY;
+        public static final String CONTENT_ITEM_TYPE =
+                ContentResolver.CURSOR_ITEM_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_HOURLY;
+
+        public static final String TABLE_NAME = "hourly";
+
+        // There are eight of these rows for every day, so everything is stored as integers.
+        // See CompactUnits for the encodings.
+
+        // Column with the foreign key into the location table.
+        public static final String COLUMN_LOC_KEY = "location_id";
+        // Start of the forecast slot, in whole hours since the epoch
+        public static final String COLUMN_HOUR = "hour";
+        // Weather id as returned by API, to identify the icon to be used
+        public static final String COLUMN_WEATHER_ID = "weather_id";
+        // Temperature in tenths of a degree Celsius
+        public static final String COLUMN_TEMP = "temp";
+        // Humidity in percent
+        public static final String COLUMN_HUMIDITY = "humidity";
+        // Pressure in tenths of a hPa
+        public static final String COLUMN_PRESSURE = "pressure";
+        // Wind speed in tenths of a meter per second
+        public static final String COLUMN_WIND_SPEED = "wind";
+        // Meteorological degrees (e.g, 0 is north, 180 is south)
+        public static final String COLUMN_DEGREES = "degrees";
+
+        public static Uri buildHourlyUri(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+
+        public static Uri buildHourlyLocation(String locationSetting) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting).build();
+        }
+
+        public static Uri buildHourlyLocationWithStartTime(String locationSetting, long startTime) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendQueryParameter(COLUMN_HOUR,
+                            Long.toString(CompactUnits.toEpochHour(startTime)))
+                    .build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+
+        public static long getStartHourFromUri(Uri uri) {
+            String hourString = uri.getQueryParameter(COLUMN_HOUR);
+            if (null != hourString && hourString.length() > 0)
+                return Long.parseLong(hourString);
+            else
+                return 0;
+        }
+    }
+
+    /*
+        Inner class that describes the weather history.  History is only kept when the user opts
+        in: when forecast days go by they are copied into one table per month (history_201412 and
+        so on, see HistoryPartitions) instead of being thrown away.  The columns are the same as
+        in WeatherEntry.  Only range queries go through the provider; the tables are filled and
+        trimmed with the METHOD_ calls.
+     */
+    public static final class HistoryEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_HISTORY).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_HISTORY;
+
+        // Name the monthly tables are known by in a query, so columns can be qualified
+        // (e.g. "history._id") against the location table they are joined with.
+        public static final String TABLE_NAME = "history";
+
+        // Query parameters, both normalized dates in milliseconds
+        public static final String PARAM_START_DATE = "start";
+        public static final String PARAM_END_DATE = "end";
+
+        // ContentResolver.call methods.  Both take a normalized date in milliseconds as arg.
+        // Copies the weather rows on or before the date into the history tables.
+        public static final String METHOD_ARCHIVE = "archive";
+        // Folds months that are too old into SummaryEntry rows and drops their tables.
+        public static final String METHOD_COMPACT = "compact";
+        // Key of the int in the Bundle returned by both methods
+        public static final String EXTRA_COUNT = "count";
+
+        public static Uri buildHistoryLocationWithRange(String locationSetting,
+                                                        long startDate, long endDate) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting)
+                    .appendQueryParameter(PARAM_START_DATE, Long.toString(normalizeDate(startDate)))
+                    .appendQueryParameter(PARAM_END_DATE, Long.toString(normalizeDate(endDate)))
+                    .build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
+
+        public static long getStartDateFromUri(Uri uri) {
+            String dateString = uri.getQueryParameter(PARAM_START_DATE);
+            if (null != dateString && dateString.length() > 0)
+                return Long.parseLong(dateString);
+            else
+                return 0;
+        }
+
+        public static long getEndDateFromUri(Uri uri) {
+            String dateString = uri.getQueryParameter(PARAM_END_DATE);
+            if (null != dateString && dateString.length() > 0)
+                return Long.parseLong(dateString);
+            else
+                return Long.MAX_VALUE;
+        }
+    }
+
+    /* Inner class that defines the table contents of the compacted history, one row per month */
+    public static final class SummaryEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATH_SUMMARY).build();
+
+        public static final String CONTENT_TYPE =
+                ContentResolver.CURSOR_DIR_BASE_TYPE + "/" + CONTENT_AUTHORITY + "/" + PATH_SUMMARY;
+
+        public static final String TABLE_NAME = "history_summary";
+
+        // Column with the foreign key into the location table.
+        public static final String COLUMN_LOC_KEY = "location_id";
+        // Month as yyyymm, e.g. 201412
+        public static final String COLUMN_MONTH = "month";
+        // Number of days the month had history for
+        public static final String COLUMN_DAYS = "days";
+
+        // Lowest min and highest max temperature of the month
+        public static final String COLUMN_MIN_TEMP = "min";
+        public static final String COLUMN_MAX_TEMP = "max";
+
+        // Averages over the days of the month
+        public static final String COLUMN_MEAN_TEMP = "mean";
+        public static final String COLUMN_HUMIDITY = "humidity";
+        public static final String COLUMN_PRESSURE = "pressure";
+        public static final String COLUMN_WIND_SPEED = "wind";
+
+        public static Uri buildSummaryLocation(String locationSetting) {
+            return CONTENT_URI.buildUpon().appendPath(locationSetting).build();
+        }
+
+        public static String getLocationSettingFromUri(Uri uri) {
+            return uri.getPathSegments().get(1);
+        }
     }
 }
@@ -19,6 +19,7 @@ import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
 import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
 import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 
@@ -28,10 +29,12 @@ import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
 public class WeatherDbHelper extends SQLiteOpenHelper {
 
     // If you change the database schema, you must increment the database version.
-    private static final int DATABASE_VERSION = 2;
+    private static final int DATABASE_VERSION = 5;
 
     static final String DATABASE_NAME = "weather.db";
 
+    static final String WEATHER_LOCATION_INDEX = "weather_location_date";
+
     public WeatherDbHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
@@ -79,8 +82,38 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
                 " UNIQUE (" + WeatherEntry.COLUMN_DATE + ", " +
                 WeatherEntry.COLUMN_LOC_KEY + ") ON CONFLICT REPLACE);";
 
+        // Forecast slots, usually every three hours.  Integers only, to keep the rows small.
+        final String SQL_CREATE_HOURLY_TABLE = "CREATE TABLE " + HourlyEntry.TABLE_NAME + " (" +
+                HourlyEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT," +
+                HourlyEntry.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_HOUR + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_TEMP + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_HUMIDITY + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_PRESSURE + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_WIND_SPEED + " INTEGER NOT NULL, " +
+                HourlyEntry.COLUMN_DEGREES + " INTEGER NOT NULL, " +
+
+                " FOREIGN KEY (" + HourlyEntry.COLUMN_LOC_KEY + ") REFERENCES " +
+                LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + "), " +
+
+                // One row per slot per location; the newest forecast wins.  The constraint's
+                // index also serves the queries, which ask for a location from an hour onwards.
+                " UNIQUE (" + HourlyEntry.COLUMN_LOC_KEY + ", " +
+                HourlyEntry.COLUMN_HOUR + ") ON CONFLICT REPLACE);";
+
         sqLiteDatabase.execSQL(SQL_CREATE_LOCATION_TABLE);
         sqLiteDatabase.execSQL(SQL_CREATE_WEATHER_TABLE);
+        sqLiteDatabase.execSQL(SQL_CREATE_HOURLY_TABLE);
+
+        // The UNIQUE constraint's index leads with the date.  This one serves the queries that
+        // look up a location's weather by id, without the join.
+        sqLiteDatabase.execSQL("CREATE INDEX " + WEATHER_LOCATION_INDEX + " ON " +
+                WeatherEntry.TABLE_NAME + " (" + WeatherEntry.COLUMN_LOC_KEY + ", " +
+                WeatherEntry.COLUMN_DATE + ");");
+
+        // The monthly history tables are created as they are needed, see WeatherHistory.
+        sqLiteDatabase.execSQL(WeatherHistory.createSummaryTableSql());
     }
 
     @Override
@@ -93,6 +126,9 @@ public class WeatherDbHelper extends SQLiteOpenHelper {
         // should be your top priority before modifying this method.
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LocationEntry.TABLE_NAME);
         sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + WeatherEntry.TABLE_NAME);
+        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + HourlyEntry.TABLE_NAME);
+        // The history points at rows of the location table, so it has to go with it.
+        WeatherHistory.dropAll(sqLiteDatabase);
         onCreate(sqLiteDatabase);
     }
 }
@@ -0,0 +1,372 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.data;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+
+import com.example.android.sunshine.app.data.WeatherContract.HistoryEntry;
+import com.example.android.sunshine.app.data.WeatherContract.LocationEntry;
+import com.example.android.sunshine.app.data.WeatherContract.SummaryEntry;
+import com.example.android.sunshine.app.data.WeatherContract.WeatherEntry;
+import com.example.android.sunshine.core.DayNormalizer;
+import com.example.android.sunshine.core.HistoryPartitions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Reads and writes the weather history tables for {@link WeatherProvider}.
+ *
+ * Each calendar month lives in a table of its own.  A range query only touches the months it
+ * covers, and throwing a month away is a single DROP TABLE instead of a DELETE that has to visit
+ * every row.  Months older than {@link #RAW_MONTHS} are folded into one summary row per location
+ * before their table is dropped; summaries older than {@link #SUMMARY_MONTHS} are deleted.
+ */
+final class WeatherHistory {
+
+    // Months of day by day history to keep, counting the current one
+    static final int RAW_MONTHS = 3;
+    // Months of summaries to keep
+    static final int SUMMARY_MONTHS = 5 * 12;
+
+    // Everything but _id, in the same order in the weather table and every history table
+    private static final String COLUMNS =
+            WeatherEntry.COLUMN_LOC_KEY + ", " +
+            WeatherEntry.COLUMN_DATE + ", " +
+            WeatherEntry.COLUMN_SHORT_DESC + ", " +
+            WeatherEntry.COLUMN_WEATHER_ID + ", " +
+            WeatherEntry.COLUMN_MIN_TEMP + ", " +
+            WeatherEntry.COLUMN_MAX_TEMP + ", " +
+            WeatherEntry.COLUMN_HUMIDITY + ", " +
+            WeatherEntry.COLUMN_PRESSURE + ", " +
+            WeatherEntry.COLUMN_WIND_SPEED + ", " +
+            WeatherEntry.COLUMN_DEGREES;
+
+    private static final String[] ALL_COLUMNS = {
+            HistoryEntry._ID,
+            WeatherEntry.COLUMN_LOC_KEY,
+            WeatherEntry.COLUMN_DATE,
+            WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherEntry.COLUMN_MIN_TEMP,
+            WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherEntry.COLUMN_HUMIDITY,
+            WeatherEntry.COLUMN_PRESSURE,
+            WeatherEntry.COLUMN_WIND_SPEED,
+            WeatherEntry.COLUMN_DEGREES
+    };
+
+    //location.location_setting = ?
+    private static final String sLocationSettingSelection =
+            LocationEntry.TABLE_NAME + "." + LocationEntry.COLUMN_LOCATION_SETTING + " = ? ";
+
+    // Months that have a table, loaded from sqlite_master on first use
+    private TreeSet<Integer> mPartitions;
+
+    static String createSummaryTableSql() {
+        return "CREATE TABLE IF NOT EXISTS " + SummaryEntry.TABLE_NAME + " (" +
+                SummaryEntry._ID + " INTEGER PRIMARY KEY," +
+                SummaryEntry.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+                SummaryEntry.COLUMN_MONTH + " INTEGER NOT NULL, " +
+                SummaryEntry.COLUMN_DAYS + " INTEGER NOT NULL, " +
+                SummaryEntry.COLUMN_MIN_TEMP + " REAL NOT NULL, " +
+                SummaryEntry.COLUMN_MAX_TEMP + " REAL NOT NULL, " +
+                SummaryEntry.COLUMN_MEAN_TEMP + " REAL NOT NULL, " +
+                SummaryEntry.COLUMN_HUMIDITY + " REAL NOT NULL, " +
+                SummaryEntry.COLUMN_PRESSURE + " REAL NOT NULL, " +
+                SummaryEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+
+                " FOREIGN KEY (" + SummaryEntry.COLUMN_LOC_KEY + ") REFERENCES " +
+                LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + "), " +
+
+                " UNIQUE (" + SummaryEntry.COLUMN_LOC_KEY + ", " +
+                SummaryEntry.COLUMN_MONTH + ") ON CONFLICT REPLACE);";
+    }
+
+    private static String createPartitionSql(int month) {
+        return "CREATE TABLE IF NOT EXISTS " + HistoryPartitions.tableName(month) + " (" +
+                HistoryEntry._ID + " INTEGER PRIMARY KEY," +
+                WeatherEntry.COLUMN_LOC_KEY + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_DATE + " INTEGER NOT NULL, " +
+                WeatherEntry.COLUMN_SHORT_DESC + " TEXT NOT NULL, " +
+                WeatherEntry.COLUMN_WEATHER_ID + " INTEGER NOT NULL," +
+                WeatherEntry.COLUMN_MIN_TEMP + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_MAX_TEMP + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_HUMIDITY + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_PRESSURE + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_WIND_SPEED + " REAL NOT NULL, " +
+                WeatherEntry.COLUMN_DEGREES + " REAL NOT NULL, " +
+
+                " FOREIGN KEY (" + WeatherEntry.COLUMN_LOC_KEY + ") REFERENCES " +
+                LocationEntry.TABLE_NAME + " (" + LocationEntry._ID + "), " +
+
+                // Location first, so that the constraint's index serves the range queries,
+                // which filter on both in every month
+                " UNIQUE (" + WeatherEntry.COLUMN_LOC_KEY + ", " +
+                WeatherEntry.COLUMN_DATE + ") ON CONFLICT REPLACE);";
+    }
+
+    /**
+     * Drops every history table, summaries included.
+     */
+    static void dropAll(SQLiteDatabase db) {
+        for (int month : loadPartitions(db)) {
+            db.execSQL("DROP TABLE IF EXISTS " + HistoryPartitions.tableName(month));
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + SummaryEntry.TABLE_NAME);
+    }
+
+    private static TreeSet<Integer> loadPartitions(SQLiteDatabase db) {
+        TreeSet<Integer> partitions = new TreeSet<>();
+        Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'table'"
+                + " AND name LIKE '" + HistoryPartitions.TABLE_PREFIX + "%'", null);
+        try {
+            while (cursor.moveToNext()) {
+                int month = HistoryPartitions.monthOfTable(cursor.getString(0));
+                if (month != -1) {
+                    partitions.add(month);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return partitions;
+    }
+
+    private synchronized SortedSet<Integer> partitions(SQLiteDatabase db) {
+        if (mPartitions == null) {
+            mPartitions = loadPartitions(db);
+        }
+        return mPartitions;
+    }
+
+    private static long startOfMonth(DayNormalizer normalizer, int month) {
+        return normalizer.startOfLocalDay(HistoryPartitions.firstDayOf(month));
+    }
+
+    private static int monthOfDate(DayNormalizer normalizer, long date) {
+        return HistoryPartitions.monthOf(normalizer.getLocalDay(date));
+    }
+
+    /**
+     * Copies the forecast rows dated on or before lastDate into the history tables.
+     *
+     * @return the number of rows copied.
+     */
+    int archive(SQLiteDatabase db, long lastDate) {
+        DayNormalizer normalizer = DayNormalizer.get();
+        String lastDateArg = Long.toString(lastDate);
+        int archived = 0;
+
+        db.beginTransaction();
+        try {
+            Cursor range = db.rawQuery("SELECT MIN(" + WeatherEntry.COLUMN_DATE + "), COUNT(*)"
+                    + " FROM " + WeatherEntry.TABLE_NAME
+                    + " WHERE " + WeatherEntry.COLUMN_DATE + " <= ?", new String[]{lastDateArg});
+            long firstDate;
+            try {
+                if (!range.moveToFirst() || range.getInt(1) == 0) {
+                    return 0;
+                }
+                firstDate = range.getLong(0);
+                archived = range.getInt(1);
+            } finally {
+                range.close();
+            }
+
+            SortedSet<Integer> partitions = partitions(db);
+            int lastMonth = monthOfDate(normalizer, lastDate);
+            for (int month = monthOfDate(normalizer, firstDate); month <= lastMonth;
+                 month = HistoryPartitions.nextMonth(month)) {
+                if (!partitions.contains(month)) {
+                    db.execSQL(createPartitionSql(month));
+                }
+                long nextMonthStart = startOfMonth(normalizer, HistoryPartitions.nextMonth(month));
+                db.execSQL("INSERT INTO " + HistoryPartitions.tableName(month)
+                        + " (" + COLUMNS + ") SELECT " + COLUMNS
+                        + " FROM " + WeatherEntry.TABLE_NAME
+                        + " WHERE " + WeatherEntry.COLUMN_DATE + " >= ?"
+                        + " AND " + WeatherEntry.COLUMN_DATE + " < ?"
+                        + " AND " + WeatherEntry.COLUMN_DATE + " <= ?",
+                        new Object[]{startOfMonth(normalizer, month), nextMonthStart, lastDate});
+            }
+            db.setTransactionSuccessful();
+
+            // Only remember the new tables once they are committed
+            for (int month = monthOfDate(normalizer, firstDate); month <= lastMonth;
+                 month = HistoryPartitions.nextMonth(month)) {
+                addPartition(month);
+            }
+        } finally {
+            db.endTransaction();
+        }
+        return archived;
+    }
+
+    private synchronized void addPartition(int month) {
+        if (mPartitions != null) {
+            mPartitions.add(month);
+        }
+    }
+
+    private synchronized void removePartitions(List<Integer> months) {
+        if (mPartitions != null) {
+            mPartitions.removeAll(months);
+        }
+    }
+
+    /**
+     * Summarizes and drops every month older than {@link #RAW_MONTHS} before the month of
+     * today, then deletes the summaries older than {@link #SUMMARY_MONTHS}.
+     *
+     * @return the number of monthly tables dropped.
+     */
+    int compact(SQLiteDatabase db, long today) {
+        int currentMonth = monthOfDate(DayNormalizer.get(), today);
+        int oldestRawMonth = HistoryPartitions.addMonths(currentMonth, 1 - RAW_MONTHS);
+        int oldestSummaryMonth = HistoryPartitions.addMonths(currentMonth, 1 - SUMMARY_MONTHS);
+
+        List<Integer> expired;
+        synchronized (this) {
+            expired = new ArrayList<>(partitions(db).headSet(oldestRawMonth));
+        }
+
+        db.beginTransaction();
+        try {
+            for (int month : expired) {
+                if (month >= oldestSummaryMonth) {
+                    db.execSQL("INSERT INTO " + SummaryEntry.TABLE_NAME + " ("
+                            + SummaryEntry.COLUMN_LOC_KEY + ", "
+                            + SummaryEntry.COLUMN_MONTH + ", "
+                            + SummaryEntry.COLUMN_DAYS + ", "
+                            + SummaryEntry.COLUMN_MIN_TEMP + ", "
+                            + SummaryEntry.COLUMN_MAX_TEMP + ", "
+                            + SummaryEntry.COLUMN_MEAN_TEMP + ", "
+                            + SummaryEntry.COLUMN_HUMIDITY + ", "
+                            + SummaryEntry.COLUMN_PRESSURE + ", "
+                            + SummaryEntry.COLUMN_WIND_SPEED + ") SELECT "
+                            + WeatherEntry.COLUMN_LOC_KEY + ", "
+                            + month + ", "
+                            + "COUNT(*), "
+                            + "MIN(" + WeatherEntry.COLUMN_MIN_TEMP + "), "
+                            + "MAX(" + WeatherEntry.COLUMN_MAX_TEMP + "), "
+                            + "AVG((" + WeatherEntry.COLUMN_MIN_TEMP + " + "
+                            + WeatherEntry.COLUMN_MAX_TEMP + ") / 2), "
+                            + "AVG(" + WeatherEntry.COLUMN_HUMIDITY + "), "
+                            + "AVG(" + WeatherEntry.COLUMN_PRESSURE + "), "
+                            + "AVG(" + WeatherEntry.COLUMN_WIND_SPEED + ")"
+                            + " FROM " + HistoryPartitions.tableName(month)
+                            + " GROUP BY " + WeatherEntry.COLUMN_LOC_KEY);
+                }
+                db.execSQL("DROP TABLE IF EXISTS " + HistoryPartitions.tableName(month));
+            }
+            // A handful of rows per location and month, so a plain delete is fine here
+            db.delete(SummaryEntry.TABLE_NAME, SummaryEntry.COLUMN_MONTH + " < ?",
+                    new String[]{Integer.toString(oldestSummaryMonth)});
+            db.setTransactionSuccessful();
+
+            removePartitions(expired);
+        } finally {
+            db.endTransaction();
+        }
+        return expired.size();
+    }
+
+    /**
+     * Queries the day by day history of a location between two normalized dates, inclusive.
+     * The monthly tables in range are combined with UNION ALL and joined with the location table.
+     * SQLite won't push a filter on the join down into a compound subquery, so the location is
+     * looked up first and each month is read by its (location, date) index.
+     */
+    Cursor query(SQLiteDatabase db, String[] projection, String locationSetting,
+                 long startDate, long endDate, String sortOrder) {
+        DayNormalizer normalizer = DayNormalizer.get();
+        List<Integer> months = new ArrayList<>();
+        synchronized (this) {
+            SortedSet<Integer> partitions = partitions(db);
+            if (!partitions.isEmpty()) {
+                int first = Math.max(partitions.first(), monthOfDate(normalizer, startDate));
+                int last = Math.min(partitions.last(), monthOfDate(normalizer, endDate));
+                if (first <= last) {
+                    months.addAll(partitions.subSet(first, HistoryPartitions.nextMonth(last)));
+                }
+            }
+        }
+        String locationId = months.isEmpty() ? null : getLocationId(db, locationSetting);
+        if (locationId == null) {
+            return new MatrixCursor(projection != null ? projection : ALL_COLUMNS);
+        }
+
+        String start = Long.toString(startDate);
+        String end = Long.toString(endDate);
+        StringBuilder tables = new StringBuilder("(");
+        String[] selectionArgs = new String[months.size() * 3];
+        int arg = 0;
+        for (int month : months) {
+            if (arg > 0) {
+                tables.append(" UNION ALL ");
+            }
+            tables.append("SELECT * FROM ").append(HistoryPartitions.tableName(month))
+                    .append(" WHERE ").append(WeatherEntry.COLUMN_LOC_KEY).append(" = ? AND ")
+                    .append(WeatherEntry.COLUMN_DATE).append(" BETWEEN ? AND ?");
+            selectionArgs[arg++] = locationId;
+            selectionArgs[arg++] = start;
+            selectionArgs[arg++] = end;
+        }
+
+        //(history_201411 UNION ALL ...) AS history INNER JOIN location
+        //    ON history.location_id = location._id
+        tables.append(") AS ").append(HistoryEntry.TABLE_NAME)
+                .append(" INNER JOIN ").append(LocationEntry.TABLE_NAME)
+                .append(" ON ").append(HistoryEntry.TABLE_NAME)
+                .append(".").append(WeatherEntry.COLUMN_LOC_KEY)
+                .append(" = ").append(LocationEntry.TABLE_NAME)
+                .append(".").append(LocationEntry._ID);
+
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(tables.toString());
+        return builder.query(db, projection, null, selectionArgs, null, null, sortOrder);
+    }
+
+    /**
+     * @return the _id of the location, as a query argument, or null if it hasn't been added.
+     */
+    private static String getLocationId(SQLiteDatabase db, String locationSetting) {
+        Cursor cursor = db.query(LocationEntry.TABLE_NAME, new String[]{LocationEntry._ID},
+                LocationEntry.COLUMN_LOCATION_SETTING + " = ?", new String[]{locationSetting},
+                null, null, null);
+        try {
+            return cursor.moveToFirst() ? Long.toString(cursor.getLong(0)) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    Cursor querySummary(SQLiteDatabase db, String[] projection, String locationSetting,
+                        String sortOrder) {
+        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
+        builder.setTables(SummaryEntry.TABLE_NAME + " INNER JOIN " + LocationEntry.TABLE_NAME +
+                " ON " + SummaryEntry.TABLE_NAME + "." + SummaryEntry.COLUMN_LOC_KEY +
+                " = " + LocationEntry.TABLE_NAME + "." + LocationEntry._ID);
+        return builder.query(db, projection, sLocationSettingSelection,
+                new String[]{locationSetting}, null, null, sortOrder);
+    }
+}
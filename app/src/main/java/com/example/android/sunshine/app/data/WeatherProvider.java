@@ -17,25 +17,54 @@ package com.example.android.sunshine.app.data;
 
 import android.annotation.TargetApi;
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentValues;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
+import android.os.Bundle;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.util.LruCache;
+
+import com.example.android.sunshine.app.sync.SyncTraces;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class WeatherProvider extends ContentProvider {
 
     // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
     private WeatherDbHelper mOpenHelper;
+    private final WeatherHistory mHistory = new WeatherHistory();
+    // location_setting -> location._id, for the queries that don't need the join.  Cleared
+    // whenever the location table changes.
+    private final LruCache<String, Long> mLocationIds = new LruCache<>(16);
+    // The uris changed by the batch running on this thread, null outside of applyBatch
+    private final ThreadLocal<Set<Uri>> mBatchChanges = new ThreadLocal<>();
+    // Bumped on every change to the weather or location tables, see METHOD_GET_VERSION
+    private final AtomicLong mForecastVersion = new AtomicLong();
 
     static final int WEATHER = 100;
     static final int WEATHER_WITH_LOCATION = 101;
     static final int WEATHER_WITH_LOCATION_AND_DATE = 102;
     static final int LOCATION = 300;
+    static final int HOURLY = 400;
+    static final int HOURLY_WITH_LOCATION = 401;
+    static final int HISTORY_WITH_LOCATION = 500;
+    static final int SUMMARY_WITH_LOCATION = 501;
 
     private static final SQLiteQueryBuilder sWeatherByLocationSettingQueryBuilder;
+    private static final SQLiteQueryBuilder sHourlyByLocationSettingQueryBuilder;
 
     static{
         sWeatherByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
@@ -49,6 +78,16 @@ public class WeatherProvider extends ContentProvider {
                         "." + WeatherContract.WeatherEntry.COLUMN_LOC_KEY +
                         " = " + WeatherContract.LocationEntry.TABLE_NAME +
                         "." + WeatherContract.LocationEntry._ID);
+
+        //hourly INNER JOIN location ON hourly.location_id = location._id
+        sHourlyByLocationSettingQueryBuilder = new SQLiteQueryBuilder();
+        sHourlyByLocationSettingQueryBuilder.setTables(
+                WeatherContract.HourlyEntry.TABLE_NAME + " INNER JOIN " +
+                        WeatherContract.LocationEntry.TABLE_NAME +
+                        " ON " + WeatherContract.HourlyEntry.TABLE_NAME +
+                        "." + WeatherContract.HourlyEntry.COLUMN_LOC_KEY +
+                        " = " + WeatherContract.LocationEntry.TABLE_NAME +
+                        "." + WeatherContract.LocationEntry._ID);
     }
 
     //location.location_setting = ?
@@ -68,29 +107,173 @@ public class WeatherProvider extends ContentProvider {
                     "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
                     WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
 
+    //location.location_setting = ? AND hour >= ?
+    private static final String sLocationSettingWithStartHourSelection =
+            WeatherContract.LocationEntry.TABLE_NAME+
+                    "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
+                    WeatherContract.HourlyEntry.COLUMN_HOUR + " >= ? ";
+
+    //location.location_setting = ? AND date > ?
+    private static final String sLocationSettingAfterDateSelection =
+            WeatherContract.LocationEntry.TABLE_NAME+
+                    "." + WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " > ? ";
+
+    private static final String sDateAscendingOrder =
+            WeatherContract.WeatherEntry.COLUMN_DATE + " ASC";
+
+    // The same selections against the weather table alone, once the location setting has been
+    // turned into a location id.  The (location_id, date) index answers all of them.
+
+    //location_id = ?
+    private static final String sLocationIdSelection =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? ";
+
+    //location_id = ? AND date >= ?
+    private static final String sLocationIdWithStartDateSelection =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " >= ? ";
+
+    //location_id = ? AND date = ?
+    private static final String sLocationIdAndDaySelection =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " = ? ";
+
+    //location_id = ? AND date > ?
+    private static final String sLocationIdAfterDateSelection =
+            WeatherContract.WeatherEntry.COLUMN_LOC_KEY + " = ? AND " +
+                    WeatherContract.WeatherEntry.COLUMN_DATE + " > ? ";
+
+    // Columns a projection may name, bare or as weather.column, and still be answered from the
+    // weather table alone
+    private static final Set<String> sWeatherColumns = new HashSet<>();
+
+    static {
+        String[] columns = {
+                WeatherContract.WeatherEntry._ID,
+                WeatherContract.WeatherEntry.COLUMN_LOC_KEY,
+                WeatherContract.WeatherEntry.COLUMN_DATE,
+                WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+                WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+                WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+                WeatherContract.WeatherEntry.COLUMN_DEGREES
+        };
+        for (String column : columns) {
+            sWeatherColumns.add(column);
+            sWeatherColumns.add(WeatherContract.WeatherEntry.TABLE_NAME + "." + column);
+        }
+    }
+
+    /**
+     * @return true if every column of the projection comes from the weather table, so the
+     * query can skip the join with location.  A null projection means every column of both.
+     */
+    static boolean isWeatherOnly(String[] projection) {
+        if (projection == null) {
+            return false;
+        }
+        for (String column : projection) {
+            if (!sWeatherColumns.contains(column)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the _id of the location with the given setting, or -1 if there isn't one.
+     */
+    private long getLocationId(SQLiteDatabase db, String locationSetting) {
+        Long cached = mLocationIds.get(locationSetting);
+        if (cached != null) {
+            return cached;
+        }
+        Cursor cursor = db.query(WeatherContract.LocationEntry.TABLE_NAME,
+                new String[]{WeatherContract.LocationEntry._ID},
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{locationSetting},
+                null,
+                null,
+                null);
+        try {
+            if (!cursor.moveToFirst()) {
+                // Not cached: the sync is probably about to add it
+                return -1;
+            }
+            long locationId = cursor.getLong(0);
+            mLocationIds.put(locationSetting, locationId);
+            return locationId;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /*
+        Runs a query for one location's weather.  selectionArgs start with the location setting,
+        which is matched through the join when the projection needs location columns.  Otherwise
+        it is swapped for the location's id and the weather table is queried on its own.
+     */
+    private Cursor queryWeatherForLocation(String[] projection, String joinSelection,
+                                           String idSelection, String[] selectionArgs,
+                                           String sortOrder, String limit) {
+        SQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        if (!isWeatherOnly(projection)) {
+            return sWeatherByLocationSettingQueryBuilder.query(db,
+                    projection,
+                    joinSelection,
+                    selectionArgs,
+                    null,
+                    null,
+                    sortOrder,
+                    limit
+            );
+        }
+
+        selectionArgs[0] = Long.toString(getLocationId(db, selectionArgs[0]));
+        return db.query(WeatherContract.WeatherEntry.TABLE_NAME,
+                projection,
+                idSelection,
+                selectionArgs,
+                null,
+                null,
+                sortOrder,
+                limit
+        );
+    }
+
     private Cursor getWeatherByLocationSetting(Uri uri, String[] projection, String sortOrder) {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long startDate = WeatherContract.WeatherEntry.getStartDateFromUri(uri);
+        long afterDate = WeatherContract.WeatherEntry.getAfterDateFromUri(uri);
+        String limit = WeatherContract.WeatherEntry.getLimitFromUri(uri);
 
         String[] selectionArgs;
         String selection;
-
-        if (startDate == 0) {
+        String idSelection;
+
+        if (afterDate != Long.MIN_VALUE) {
+            // A page: the caller keeps the last date it saw and asks for the rows after it,
+            // which an index on date answers without skipping over earlier rows.
+            selectionArgs = new String[]{locationSetting, Long.toString(afterDate)};
+            selection = sLocationSettingAfterDateSelection;
+            idSelection = sLocationIdAfterDateSelection;
+            sortOrder = sDateAscendingOrder;
+        } else if (startDate == 0) {
             selection = sLocationSettingSelection;
+            idSelection = sLocationIdSelection;
             selectionArgs = new String[]{locationSetting};
         } else {
             selectionArgs = new String[]{locationSetting, Long.toString(startDate)};
             selection = sLocationSettingWithStartDateSelection;
+            idSelection = sLocationIdWithStartDateSelection;
         }
 
-        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
-                selection,
-                selectionArgs,
-                null,
-                null,
-                sortOrder
-        );
+        return queryWeatherForLocation(projection, selection, idSelection, selectionArgs,
+                sortOrder, limit);
     }
 
     private Cursor getWeatherByLocationSettingAndDate(
@@ -98,10 +281,34 @@ public class WeatherProvider extends ContentProvider {
         String locationSetting = WeatherContract.WeatherEntry.getLocationSettingFromUri(uri);
         long date = WeatherContract.WeatherEntry.getDateFromUri(uri);
 
-        return sWeatherByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
-                projection,
+        return queryWeatherForLocation(projection,
                 sLocationSettingAndDaySelection,
+                sLocationIdAndDaySelection,
                 new String[]{locationSetting, Long.toString(date)},
+                sortOrder,
+                null
+        );
+    }
+
+    private Cursor getHourlyByLocationSetting(Uri uri, String[] projection, String sortOrder) {
+        String locationSetting = WeatherContract.HourlyEntry.getLocationSettingFromUri(uri);
+        long startHour = WeatherContract.HourlyEntry.getStartHourFromUri(uri);
+
+        String[] selectionArgs;
+        String selection;
+
+        if (startHour == 0) {
+            selection = sLocationSettingSelection;
+            selectionArgs = new String[]{locationSetting};
+        } else {
+            selectionArgs = new String[]{locationSetting, Long.toString(startHour)};
+            selection = sLocationSettingWithStartHourSelection;
+        }
+
+        return sHourlyByLocationSettingQueryBuilder.query(mOpenHelper.getReadableDatabase(),
+                projection,
+                selection,
+                selectionArgs,
                 null,
                 null,
                 sortOrder
@@ -130,6 +337,12 @@ public class WeatherProvider extends ContentProvider {
         matcher.addURI(authority, WeatherContract.PATH_WEATHER + "/*/#", WEATHER_WITH_LOCATION_AND_DATE);
 
         matcher.addURI(authority, WeatherContract.PATH_LOCATION, LOCATION);
+
+        matcher.addURI(authority, WeatherContract.PATH_HOURLY, HOURLY);
+        matcher.addURI(authority, WeatherContract.PATH_HOURLY + "/*", HOURLY_WITH_LOCATION);
+
+        matcher.addURI(authority, WeatherContract.PATH_HISTORY + "/*", HISTORY_WITH_LOCATION);
+        matcher.addURI(authority, WeatherContract.PATH_SUMMARY + "/*", SUMMARY_WITH_LOCATION);
         return matcher;
     }
 
@@ -164,6 +377,13 @@ public class WeatherProvider extends ContentProvider {
                 return WeatherContract.WeatherEntry.CONTENT_TYPE;
             case LOCATION:
                 return WeatherContract.LocationEntry.CONTENT_TYPE;
+            case HOURLY:
+            case HOURLY_WITH_LOCATION:
+                return WeatherContract.HourlyEntry.CONTENT_TYPE;
+            case HISTORY_WITH_LOCATION:
+                return WeatherContract.HistoryEntry.CONTENT_TYPE;
+            case SUMMARY_WITH_LOCATION:
+                return WeatherContract.SummaryEntry.CONTENT_TYPE;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -213,6 +433,40 @@ public class WeatherProvider extends ContentProvider {
                 );
                 break;
             }
+            // "hourly/*"
+            case HOURLY_WITH_LOCATION: {
+                retCursor = getHourlyByLocationSetting(uri, projection, sortOrder);
+                break;
+            }
+            // "history/*"
+            case HISTORY_WITH_LOCATION: {
+                retCursor = mHistory.query(mOpenHelper.getReadableDatabase(), projection,
+                        WeatherContract.HistoryEntry.getLocationSettingFromUri(uri),
+                        WeatherContract.HistoryEntry.getStartDateFromUri(uri),
+                        WeatherContract.HistoryEntry.getEndDateFromUri(uri),
+                        sortOrder);
+                break;
+            }
+            // "summary/*"
+            case SUMMARY_WITH_LOCATION: {
+                retCursor = mHistory.querySummary(mOpenHelper.getReadableDatabase(), projection,
+                        WeatherContract.SummaryEntry.getLocationSettingFromUri(uri),
+                        sortOrder);
+                break;
+            }
+            // "hourly"
+            case HOURLY: {
+                retCursor = mOpenHelper.getReadableDatabase().query(
+                        WeatherContract.HourlyEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder
+                );
+                break;
+            }
 
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
@@ -242,16 +496,25 @@ public class WeatherProvider extends ContentProvider {
             }
             case LOCATION: {
                 long _id = db.insert(WeatherContract.LocationEntry.TABLE_NAME, null, values);
+                mLocationIds.evictAll();
                 if ( _id > 0 )
                     returnUri = WeatherContract.LocationEntry.buildLocationUri(_id);
                 else
                     throw new android.database.SQLException("Failed to insert row into " + uri);
                 break;
             }
+            case HOURLY: {
+                long _id = db.insert(WeatherContract.HourlyEntry.TABLE_NAME, null, values);
+                if ( _id > 0 )
+                    returnUri = WeatherContract.HourlyEntry.buildHourlyUri(_id);
+                else
+                    throw new android.database.SQLException("Failed to insert row into " + uri);
+                break;
+            }
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return returnUri;
     }
 
@@ -270,13 +533,18 @@ public class WeatherProvider extends ContentProvider {
             case LOCATION:
                 rowsDeleted = db.delete(
                         WeatherContract.LocationEntry.TABLE_NAME, selection, selectionArgs);
+                mLocationIds.evictAll();
+                break;
+            case HOURLY:
+                rowsDeleted = db.delete(
+                        WeatherContract.HourlyEntry.TABLE_NAME, selection, selectionArgs);
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         // Because a null deletes all rows
         if (rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
         return rowsDeleted;
     }
@@ -305,12 +573,17 @@ public class WeatherProvider extends ContentProvider {
             case LOCATION:
                 rowsUpdated = db.update(WeatherContract.LocationEntry.TABLE_NAME, values, selection,
                         selectionArgs);
+                mLocationIds.evictAll();
+                break;
+            case HOURLY:
+                rowsUpdated = db.update(WeatherContract.HourlyEntry.TABLE_NAME, values, selection,
+                        selectionArgs);
                 break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
         if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
         return rowsUpdated;
     }
@@ -335,13 +608,138 @@ public class WeatherProvider extends ContentProvider {
                 } finally {
                     db.endTransaction();
                 }
-                getContext().getContentResolver().notifyChange(uri, null);
+                notifyChange(uri);
                 return returnCount;
+            case HOURLY: {
+                db.beginTransaction();
+                int hourlyCount = 0;
+                try {
+                    for (ContentValues value : values) {
+                        long _id = db.insert(WeatherContract.HourlyEntry.TABLE_NAME, null, value);
+                        if (_id != -1) {
+                            hourlyCount++;
+                        }
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                notifyChange(uri);
+                return hourlyCount;
+            }
             default:
                 return super.bulkInsert(uri, values);
         }
     }
 
+    /*
+        The weather history is kept up to date through call() rather than insert and delete,
+        because archiving moves whole ranges of rows between tables inside the database.
+     */
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (WeatherContract.WeatherEntry.METHOD_GET_VERSION.equals(method)) {
+            Bundle result = new Bundle();
+            result.putLong(WeatherContract.WeatherEntry.EXTRA_VERSION, mForecastVersion.get());
+            return result;
+        }
+
+        int count;
+        if (WeatherContract.HistoryEntry.METHOD_ARCHIVE.equals(method)) {
+            count = mHistory.archive(mOpenHelper.getWritableDatabase(), parseDate(method, arg));
+            if (count > 0) {
+                notifyChange(WeatherContract.HistoryEntry.CONTENT_URI);
+            }
+        } else if (WeatherContract.HistoryEntry.METHOD_COMPACT.equals(method)) {
+            count = mHistory.compact(mOpenHelper.getWritableDatabase(), parseDate(method, arg));
+            if (count > 0) {
+                notifyChange(WeatherContract.HistoryEntry.CONTENT_URI);
+                notifyChange(WeatherContract.SummaryEntry.CONTENT_URI);
+            }
+        } else {
+            return super.call(method, arg, extras);
+        }
+        Bundle result = new Bundle();
+        result.putInt(WeatherContract.HistoryEntry.EXTRA_COUNT, count);
+        return result;
+    }
+
+    private static long parseDate(String method, String arg) {
+        if (arg == null) {
+            throw new IllegalArgumentException(method + " needs a date");
+        }
+        try {
+            return Long.parseLong(arg);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(method + " needs a date, not " + arg, e);
+        }
+    }
+
+    /*
+        Applies the whole batch in one transaction: either every operation is written, with a
+        single sync to disk, or none is.  Observers hear about it once, after the commit.
+     */
+    @Override
+    public ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        Set<Uri> changes = new LinkedHashSet<>();
+        mBatchChanges.set(changes);
+        ContentProviderResult[] results;
+        db.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mBatchChanges.set(null);
+        }
+
+        for (Uri uri : changes) {
+            if (isForecastUri(uri)) {
+                mForecastVersion.incrementAndGet();
+                break;
+            }
+        }
+        if (changes.size() == 1) {
+            getContext().getContentResolver().notifyChange(changes.iterator().next(), null);
+        } else if (!changes.isEmpty()) {
+            // Observers are told about changes below the uri they watch, so one notification
+            // at the root reaches everyone who would have heard about any of the changes.
+            getContext().getContentResolver().notifyChange(WeatherContract.BASE_CONTENT_URI, null);
+        }
+        return results;
+    }
+
+    private void notifyChange(Uri uri) {
+        Set<Uri> changes = mBatchChanges.get();
+        if (changes != null) {
+            // The version moves when the batch is committed, or a reader could cache the old
+            // rows under the new version
+            changes.add(uri);
+        } else {
+            if (isForecastUri(uri)) {
+                mForecastVersion.incrementAndGet();
+            }
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    private static boolean isForecastUri(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        return !segments.isEmpty() && (WeatherContract.PATH_WEATHER.equals(segments.get(0))
+                || WeatherContract.PATH_LOCATION.equals(segments.get(0)));
+    }
+
+    // The provider is up whenever the app's process is, which makes it the place to read the
+    // sync traces from, with
+    // adb shell dumpsys activity provider com.example.android.sunshine.app/.data.WeatherProvider
+    @Override
+    @TargetApi(18)
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        SyncTraces.dump(getContext(), writer);
+    }
+
     // You do not need to call this method. This is a method specifically to assist the testing
     // framework in running smoothly. You can read more at:
     // http://developer.android.com/reference/android/content/ContentProvider.html#shutdown()
@@ -21,7 +21,6 @@ import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Bundle;
 import android.support.v4.app.NotificationCompat;
 import android.util.Log;
@@ -29,6 +28,10 @@ import android.widget.Toast;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.ArtDecoder;
+import com.example.android.sunshine.app.art.ArtSizes;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.gcm.GcmListenerService;
 
 import org.json.JSONException;
@@ -41,6 +44,10 @@ public class MyGcmListenerService extends GcmListenerService {
     private static final String EXTRA_DATA = "data";
     private static final String EXTRA_WEATHER = "weather";
     private static final String EXTRA_LOCATION = "location";
+    // A forecast delta, see PushForecast
+    private static final String EXTRA_FORECAST = "forecast";
+    // Present when the server only knows that the forecast changed
+    private static final String EXTRA_SYNC = "sync";
 
     public static final int NOTIFICATION_ID = 1;
 
@@ -62,6 +69,14 @@ public class MyGcmListenerService extends GcmListenerService {
             }
             // Not a bad idea to check that the message is coming from your server.
             if ((senderId).equals(from)) {
+                if (data.containsKey(EXTRA_FORECAST)) {
+                    applyForecast(data.getString(EXTRA_FORECAST));
+                    return;
+                }
+                if (data.containsKey(EXTRA_SYNC)) {
+                    SunshineSyncAdapter.syncImmediately(this);
+                    return;
+                }
                 // Process message and then post a notification of the received message.
                 try {
                     JSONObject jsonObject = new JSONObject(data.getString(EXTRA_DATA));
@@ -79,6 +94,33 @@ public class MyGcmListenerService extends GcmListenerService {
         }
     }
 
+    /**
+     * Writes a pushed forecast straight into the provider, falling back to a sync if it can't.
+     */
+    private void applyForecast(String json) {
+        PushForecast forecast;
+        try {
+            forecast = PushForecast.parse(json);
+        } catch (JSONException e) {
+            Log.w(TAG, "Unreadable forecast push, syncing instead", e);
+            SunshineSyncAdapter.syncImmediately(this);
+            return;
+        }
+        if (!forecast.getLocationSetting().equals(Utility.getPreferredLocation(this))) {
+            // Sent before the location changed; the sync for the new one is on its way
+            Log.d(TAG, "Ignoring forecast push for " + forecast.getLocationSetting());
+            return;
+        }
+        if (forecast.apply(this) == PushForecast.RESULT_APPLIED) {
+            // Forecasts really are being pushed, so polling can back off
+            SunshineSyncAdapter.onForecastPushed(this);
+            SunshineSyncAdapter.updateWidgets(this);
+            SunshineSyncAdapter.updateMuzei(this);
+        } else {
+            SunshineSyncAdapter.syncImmediately(this);
+        }
+    }
+
     /**
      *  Put the message into a notification and post it.
      *  This is just one simple example of what you might choose to do with a GCM message.
@@ -95,7 +137,8 @@ public class MyGcmListenerService extends GcmListenerService {
         // icon as a bitmap. So we need to create that here from the resource ID, and pass the
         // object along in our notification builder. Generally, you want to use the app icon as the
         // small icon, so that users understand what app is triggering this notification.
-        Bitmap largeIcon = BitmapFactory.decodeResource(this.getResources(), R.drawable.art_storm);
+        Bitmap largeIcon = ArtDecoder.decodeResource(getResources(), R.drawable.art_storm,
+                ArtSizes.getNotificationIconWidth(this), ArtSizes.getNotificationIconHeight(this));
         NotificationCompat.Builder mBuilder =
                 new NotificationCompat.Builder(this)
                         .setSmallIcon(R.drawable.art_clear)
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.gcm;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.RemoteException;
+import android.util.Log;
+
+import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.core.CompactUnits;
+import com.example.android.sunshine.core.DayNormalizer;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A forecast delta pushed through GCM, in the "forecast" field of the message:
+ *
+ * <pre>
+ * {"loc": "94043",
+ *  "days": [{"day": 16800, "id": 800, "desc": "Clear", "hi": 215, "lo": 102,
+ *            "hum": 81, "pres": 10132, "wind": 46, "deg": 270}, ...]}
+ * </pre>
+ *
+ * "day" is the calendar date as days since 1970-01-01, which the phone turns into the start of
+ * that day in its own time zone.  Temperatures, pressure and wind speed are in tenths (see
+ * {@link CompactUnits}).  Only the days in the message are replaced; the others are left alone.
+ */
+public class PushForecast {
+    private static final String LOG_TAG = PushForecast.class.getSimpleName();
+
+    // Values of apply()
+    public static final int RESULT_APPLIED = 0;
+    // The message is for a location we have no row for yet, so it takes a full sync
+    public static final int RESULT_NEEDS_SYNC = 1;
+    public static final int RESULT_FAILED = 2;
+
+    static final String PUSH_LOCATION = "loc";
+    static final String PUSH_DAYS = "days";
+    static final String PUSH_DAY = "day";
+    static final String PUSH_WEATHER_ID = "id";
+    static final String PUSH_DESCRIPTION = "desc";
+    static final String PUSH_MAX = "hi";
+    static final String PUSH_MIN = "lo";
+    static final String PUSH_HUMIDITY = "hum";
+    static final String PUSH_PRESSURE = "pres";
+    static final String PUSH_WIND_SPEED = "wind";
+    static final String PUSH_WIND_DIRECTION = "deg";
+
+    final String locationSetting;
+    // One set of WeatherEntry values per day, without the location
+    final List<ContentValues> days;
+
+    private PushForecast(String locationSetting, List<ContentValues> days) {
+        this.locationSetting = locationSetting;
+        this.days = days;
+    }
+
+    /**
+     * @throws JSONException if the message isn't a forecast delta
+     */
+    public static PushForecast parse(String json) throws JSONException {
+        JSONObject forecast = new JSONObject(json);
+        String locationSetting = forecast.getString(PUSH_LOCATION);
+        JSONArray dayArray = forecast.getJSONArray(PUSH_DAYS);
+
+        DayNormalizer dayTime = DayNormalizer.get();
+        List<ContentValues> days = new ArrayList<>(dayArray.length());
+        for (int i = 0; i < dayArray.length(); i++) {
+            JSONObject day = dayArray.getJSONObject(i);
+            ContentValues values = new ContentValues();
+            values.put(WeatherContract.WeatherEntry.COLUMN_DATE,
+                    dayTime.startOfLocalDay(day.getLong(PUSH_DAY)));
+            values.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+                    day.getInt(PUSH_WEATHER_ID));
+            values.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+                    day.getString(PUSH_DESCRIPTION));
+            values.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+                    CompactUnits.fromTenths(day.getInt(PUSH_MAX)));
+            values.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
+                    CompactUnits.fromTenths(day.getInt(PUSH_MIN)));
+            values.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY,
+                    day.getInt(PUSH_HUMIDITY));
+            values.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE,
+                    CompactUnits.fromTenths(day.getInt(PUSH_PRESSURE)));
+            values.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED,
+                    CompactUnits.fromTenths(day.getInt(PUSH_WIND_SPEED)));
+            values.put(WeatherContract.WeatherEntry.COLUMN_DEGREES,
+                    day.getDouble(PUSH_WIND_DIRECTION));
+            days.add(values);
+        }
+        return new PushForecast(locationSetting, days);
+    }
+
+    public String getLocationSetting() {
+        return locationSetting;
+    }
+
+    /**
+     * Writes the days into the provider in one batch, replacing the days we had for the same
+     * dates.
+     *
+     * @return one of the RESULT_ constants
+     */
+    public int apply(Context context) {
+        Cursor locationCursor = context.getContentResolver().query(
+                WeatherContract.LocationEntry.CONTENT_URI,
+                new String[]{WeatherContract.LocationEntry._ID},
+                WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING + " = ?",
+                new String[]{locationSetting},
+                null);
+        if (locationCursor == null) {
+            return RESULT_FAILED;
+        }
+        long locationId = locationCursor.moveToFirst() ? locationCursor.getLong(0) : -1;
+        locationCursor.close();
+        if (locationId == -1) {
+            // The city name and coordinates only come with the full forecast
+            return RESULT_NEEDS_SYNC;
+        }
+
+        // The weather table replaces rows with the same date and location
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(days.size());
+        for (ContentValues values : days) {
+            operations.add(ContentProviderOperation
+                    .newInsert(WeatherContract.WeatherEntry.CONTENT_URI)
+                    .withValues(values)
+                    .withValue(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId)
+                    .build());
+        }
+        try {
+            context.getContentResolver().applyBatch(WeatherContract.CONTENT_AUTHORITY, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            Log.e(LOG_TAG, "Error saving pushed forecast", e);
+            return RESULT_FAILED;
+        }
+        return RESULT_APPLIED;
+    }
+}
@@ -24,6 +24,7 @@ import android.widget.Toast;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.gms.gcm.GoogleCloudMessaging;
 import com.google.android.gms.iid.InstanceID;
 
@@ -52,6 +53,8 @@ public class RegistrationIntentService extends IntentService {
                 if ( senderId.length() != 0 ) {
                     String token = instanceID.getToken(senderId,
                             GoogleCloudMessaging.INSTANCE_ID_SCOPE, null);
+                    // Polling only backs off once pushed forecasts actually arrive, see
+                    // MyGcmListenerService
                     sendRegistrationToServer(token);
                 }
 
@@ -66,6 +69,7 @@ public class RegistrationIntentService extends IntentService {
             // If an exception happens while fetching the new token or updating our registration data
             // on a third-party server, this ensures that we'll attempt the update at a later time.
             sharedPreferences.edit().putBoolean(MainActivity.SENT_TOKEN_TO_SERVER, false).apply();
+            SunshineSyncAdapter.stopPushSync(this);
         }
     }
 
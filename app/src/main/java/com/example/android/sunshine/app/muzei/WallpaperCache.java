@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.muzei;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.util.Log;
+
+import com.example.android.sunshine.app.net.SunshineHttp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * Keeps the wallpapers Muzei is about to need in the app's cache, so that it can switch to
+ * tomorrow's without waiting on a download.  {@link WallpaperProvider} serves them to Muzei.
+ *
+ * Only the images still in use are kept: there are a handful of them, but the photographs are
+ * full size and can run to several megabytes each.
+ */
+final class WallpaperCache {
+    private static final String LOG_TAG = WallpaperCache.class.getSimpleName();
+
+    private static final String DIRECTORY = "wallpapers";
+    private static final String EXTENSION = ".jpg";
+
+    private WallpaperCache() {
+    }
+
+    static File getDirectory(Context context) {
+        return new File(context.getCacheDir(), DIRECTORY);
+    }
+
+    /**
+     * @return the name the image is stored under, safe to use in a content uri.
+     */
+    static String getFileName(String imageUrl) {
+        return Integer.toHexString(imageUrl.hashCode()) + EXTENSION;
+    }
+
+    static boolean isFileName(String name) {
+        return name != null && name.matches("[0-9a-f]{1,8}\\" + EXTENSION);
+    }
+
+    /**
+     * @return the stored copy of the image, or null if it hasn't been downloaded.
+     */
+    static File get(Context context, String imageUrl) {
+        File file = new File(getDirectory(context), getFileName(imageUrl));
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Downloads the images that aren't stored yet and deletes the ones that aren't listed.
+     * Nothing is downloaded on a metered network, where Muzei would only be spared a download
+     * of its own at the cost of the user's data if the forecast changes.  Call it from a
+     * background thread.
+     *
+     * @param imageUrls the images to keep, null entries ignored
+     */
+    static void retain(Context context, Collection<String> imageUrls) {
+        File directory = getDirectory(context);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(LOG_TAG, "Couldn't create " + directory);
+            return;
+        }
+
+        Set<String> keep = new HashSet<>();
+        for (String imageUrl : imageUrls) {
+            if (imageUrl != null) {
+                keep.add(getFileName(imageUrl));
+            }
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!keep.contains(file.getName()) && !file.delete()) {
+                    Log.w(LOG_TAG, "Couldn't delete " + file);
+                }
+            }
+        }
+
+        ConnectivityManager cm =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm.isActiveNetworkMetered()) {
+            return;
+        }
+        for (String imageUrl : imageUrls) {
+            if (imageUrl != null && get(context, imageUrl) == null) {
+                try {
+                    download(imageUrl, new File(directory, getFileName(imageUrl)));
+                } catch (IOException e) {
+                    Log.w(LOG_TAG, "Error downloading " + imageUrl, e);
+                }
+            }
+        }
+    }
+
+    private static void download(String imageUrl, File file) throws IOException {
+        // Written next to the file and renamed, so Muzei never reads half an image
+        File partial = new File(file.getPath() + ".part");
+        Response response = SunshineHttp.getClient()
+                .newCall(new Request.Builder().url(imageUrl).build())
+                .execute();
+        ResponseBody body = response.body();
+        try {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.code() + " for " + imageUrl);
+            }
+            BufferedSink sink = Okio.buffer(Okio.sink(partial));
+            try {
+                sink.writeAll(body.source());
+            } finally {
+                sink.close();
+            }
+            if (!partial.renameTo(file)) {
+                throw new IOException("Couldn't rename " + partial);
+            }
+        } finally {
+            body.close();
+            if (partial.exists() && !partial.delete()) {
+                Log.w(LOG_TAG, "Couldn't delete " + partial);
+            }
+        }
+        Log.d(LOG_TAG, "Downloaded " + imageUrl + " (" + file.length() + " bytes)");
+    }
+}
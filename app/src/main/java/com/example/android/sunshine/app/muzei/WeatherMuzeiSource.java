@@ -18,6 +18,7 @@ package com.example.android.sunshine.app.muzei;
 import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
+import android.util.Log;
 
 import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.Utility;
@@ -26,10 +27,18 @@ import com.example.android.sunshine.app.sync.SunshineSyncAdapter;
 import com.google.android.apps.muzei.api.Artwork;
 import com.google.android.apps.muzei.api.MuzeiArtSource;
 
+import java.io.File;
+import java.util.Arrays;
+
 /**
- * Muzei source that changes your background based on the current weather conditions
+ * Muzei source that changes your background based on the current weather conditions.
+ *
+ * Artwork is only published when today's condition, picture or location has changed, and the
+ * picture for tomorrow is downloaded ahead of time by {@link WallpaperCache}.
  */
 public class WeatherMuzeiSource extends MuzeiArtSource {
+    private static final String LOG_TAG = WeatherMuzeiSource.class.getSimpleName();
+
     private static final String[] FORECAST_COLUMNS = new String[]{
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
@@ -59,21 +68,56 @@ public class WeatherMuzeiSource extends MuzeiArtSource {
                 location, System.currentTimeMillis());
         Cursor cursor = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
                 null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
-        if (cursor.moveToFirst()) {
-            int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-            String desc = cursor.getString(INDEX_SHORT_DESC);
+        if (cursor == null) {
+            return;
+        }
+        int weatherId;
+        String desc;
+        String nextImageUrl = null;
+        try {
+            if (!cursor.moveToFirst()) {
+                return;
+            }
+            weatherId = cursor.getInt(INDEX_WEATHER_ID);
+            desc = cursor.getString(INDEX_SHORT_DESC);
+            if (cursor.moveToNext()) {
+                nextImageUrl = Utility.getImageUrlForWeatherCondition(
+                        cursor.getInt(INDEX_WEATHER_ID));
+            }
+        } finally {
+            cursor.close();
+        }
 
-            String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
-            // Only publish a new wallpaper if we have a valid image
-            if (imageUrl != null) {
+        String imageUrl = Utility.getImageUrlForWeatherCondition(weatherId);
+        // Only publish a new wallpaper if we have a valid image
+        if (imageUrl != null) {
+            // Most syncs leave the weather as it was, and Muzei would fade to the same picture
+            String token = getToken(weatherId, imageUrl, location);
+            Artwork current = getCurrentArtwork();
+            if (current != null && token.equals(current.getToken())) {
+                Log.d(LOG_TAG, "Artwork unchanged: " + token);
+            } else {
+                File file = WallpaperCache.get(this, imageUrl);
                 publishArtwork(new Artwork.Builder()
-                        .imageUri(Uri.parse(imageUrl))
+                        .imageUri(file != null
+                                ? WallpaperProvider.buildUri(file) : Uri.parse(imageUrl))
                         .title(desc)
                         .byline(location)
+                        .token(token)
                         .viewIntent(new Intent(this, MainActivity.class))
                         .build());
             }
         }
-        cursor.close();
+
+        // Tomorrow's picture is ready for when it becomes today's
+        WallpaperCache.retain(this, Arrays.asList(imageUrl, nextImageUrl));
+    }
+
+    /**
+     * @return what identifies the artwork: the condition, the picture, and the location in
+     * its byline.
+     */
+    static String getToken(int weatherId, String imageUrl, String location) {
+        return weatherId + "|" + imageUrl + "|" + location;
     }
 }
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.net;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.Dns;
+
+/**
+ * Remembers lookups for a few minutes.  Sunshine talks to a handful of hosts in bursts (the
+ * forecast, the hourly forecast, then the art), so without this every burst after the pool
+ * let a connection go starts with a lookup.  A stale answer is still used when a fresh lookup
+ * fails, which is what the flaky networks that make lookups fail usually need.
+ */
+final class CachingDns implements Dns {
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long expiresAt;
+
+        Entry(List<InetAddress> addresses, long expiresAt) {
+            this.addresses = addresses;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Dns mDelegate;
+    private final long mTtlMillis;
+    private final Map<String, Entry> mEntries = new HashMap<>();
+
+    CachingDns(Dns delegate, long ttlMillis) {
+        mDelegate = delegate;
+        mTtlMillis = ttlMillis;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        Entry entry;
+        synchronized (mEntries) {
+            entry = mEntries.get(hostname);
+        }
+        if (entry != null && now < entry.expiresAt) {
+            return entry.addresses;
+        }
+
+        List<InetAddress> addresses;
+        try {
+            addresses = mDelegate.lookup(hostname);
+        } catch (UnknownHostException e) {
+            if (entry != null) {
+                return entry.addresses;
+            }
+            throw e;
+        }
+        synchronized (mEntries) {
+            mEntries.put(hostname, new Entry(addresses, now + mTtlMillis));
+        }
+        return addresses;
+    }
+}
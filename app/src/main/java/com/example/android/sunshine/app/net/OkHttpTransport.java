@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.net;
+
+import com.example.android.sunshine.core.HttpFetcher;
+
+import java.io.IOException;
+import java.net.URL;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Lets {@link HttpFetcher} make its requests through the shared {@link OkHttpClient}.
+ */
+public class OkHttpTransport implements HttpFetcher.Transport {
+
+    private final OkHttpClient mClient;
+
+    public OkHttpTransport(OkHttpClient client) {
+        mClient = client;
+    }
+
+    @Override
+    public <T> T get(URL url, HttpFetcher.BodyReader<T> reader) throws IOException {
+        Call call = mClient.newCall(new Request.Builder().url(url).build());
+        Response response = call.execute();
+        // Closing the body hands the connection back to the pool
+        ResponseBody body = response.body();
+        try {
+            if (response.code() != 200) {
+                throw new HttpFetcher.HttpStatusException(response.code(), response.message());
+            }
+            return reader.read(body.byteStream());
+        } finally {
+            body.close();
+        }
+    }
+}
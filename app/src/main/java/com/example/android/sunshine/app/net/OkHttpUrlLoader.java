@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.net;
+
+import android.content.Context;
+
+import com.bumptech.glide.Priority;
+import com.bumptech.glide.load.data.DataFetcher;
+import com.bumptech.glide.load.model.GenericLoaderFactory;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.load.model.ModelLoader;
+import com.bumptech.glide.load.model.ModelLoaderFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Loads Glide's urls with the shared {@link OkHttpClient} instead of a connection of its own
+ * per image.
+ */
+class OkHttpUrlLoader implements ModelLoader<GlideUrl, InputStream> {
+
+    static class Factory implements ModelLoaderFactory<GlideUrl, InputStream> {
+        @Override
+        public ModelLoader<GlideUrl, InputStream> build(Context context,
+                                                        GenericLoaderFactory factories) {
+            return new OkHttpUrlLoader(SunshineHttp.getClient());
+        }
+
+        @Override
+        public void teardown() {
+        }
+    }
+
+    private final OkHttpClient mClient;
+
+    OkHttpUrlLoader(OkHttpClient client) {
+        mClient = client;
+    }
+
+    @Override
+    public DataFetcher<InputStream> getResourceFetcher(GlideUrl model, int width, int height) {
+        return new Fetcher(mClient, model);
+    }
+
+    private static class Fetcher implements DataFetcher<InputStream> {
+        private final OkHttpClient mClient;
+        private final GlideUrl mUrl;
+        private volatile Call mCall;
+        private ResponseBody mBody;
+
+        Fetcher(OkHttpClient client, GlideUrl url) {
+            mClient = client;
+            mUrl = url;
+        }
+
+        @Override
+        public InputStream loadData(Priority priority) throws Exception {
+            mCall = mClient.newCall(new Request.Builder().url(mUrl.toString()).build());
+            Response response = mCall.execute();
+            mBody = response.body();
+            if (!response.isSuccessful()) {
+                throw new IOException("Request failed with code: " + response.code());
+            }
+            return mBody.byteStream();
+        }
+
+        @Override
+        public void cleanup() {
+            if (mBody != null) {
+                mBody.close();
+            }
+        }
+
+        @Override
+        public String getId() {
+            return mUrl.toString();
+        }
+
+        @Override
+        public void cancel() {
+            Call call = mCall;
+            if (call != null) {
+                call.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.net;
+
+import android.util.Log;
+
+import com.example.android.sunshine.app.sync.SyncTraces;
+import com.example.android.sunshine.core.SyncTrace;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Logs how long each request spent getting a connection and waiting for the first byte of the
+ * response, and whether the connection came from the pool.  During a sync the two timings are
+ * also added to its {@link SyncTrace}.
+ *
+ * The application interceptor sees a request before it has a connection, the network
+ * interceptor once it has one and until the response headers are in.  Both run on the
+ * thread that executes the call, which is how they share a {@link Timing}.
+ */
+final class RequestTimings {
+    private static final String LOG_TAG = "HttpTimings";
+
+    private static final class Timing {
+        long startNanos;
+        long connectedNanos;
+        long headersNanos;
+        boolean reused;
+    }
+
+    private static final ThreadLocal<Timing> sTiming = new ThreadLocal<Timing>() {
+        @Override
+        protected Timing initialValue() {
+            return new Timing();
+        }
+    };
+
+    // Connections that have carried a request already
+    private static final Set<Connection> sSeen =
+            Collections.newSetFromMap(new WeakHashMap<Connection, Boolean>());
+
+    private RequestTimings() {
+    }
+
+    static final Interceptor APPLICATION = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Timing timing = sTiming.get();
+            timing.startNanos = System.nanoTime();
+            timing.connectedNanos = 0;
+
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (timing.connectedNanos != 0) {
+                SyncTrace trace = SyncTraces.current();
+                if (trace != null) {
+                    String host = request.url().host();
+                    trace.recordDuration("connect:" + host,
+                            timing.connectedNanos - timing.startNanos, 0, 0);
+                    trace.recordDuration("ttfb:" + host,
+                            timing.headersNanos - timing.connectedNanos, 0, 0);
+                }
+                Log.d(LOG_TAG, request.url().host() + request.url().encodedPath()
+                        + " " + response.code() + " " + response.protocol()
+                        + " connect " + millis(timing.connectedNanos - timing.startNanos) + "ms"
+                        + " ttfb " + millis(timing.headersNanos - timing.connectedNanos) + "ms"
+                        + (timing.reused ? " (reused)" : ""));
+            }
+            return response;
+        }
+    };
+
+    static final Interceptor NETWORK = new Interceptor() {
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Timing timing = sTiming.get();
+            // Redirects and retries come through here again; the last attempt is reported
+            timing.connectedNanos = System.nanoTime();
+            Connection connection = chain.connection();
+            synchronized (sSeen) {
+                timing.reused = !sSeen.add(connection);
+            }
+            Response response = chain.proceed(chain.request());
+            timing.headersNanos = System.nanoTime();
+            return response;
+        }
+    };
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.net;
+
+import com.example.android.sunshine.core.HttpFetcher;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dns;
+import okhttp3.OkHttpClient;
+
+/**
+ * The one HTTP client of the app, shared by the sync requests and Glide's art loading.
+ *
+ * A sync asks OpenWeatherMap for the daily and then the hourly forecast, and then the art
+ * is fetched; with a shared pool those requests ride on the connections the first one opened
+ * instead of each paying for a handshake.  HTTPS hosts that offer HTTP/2 get their requests
+ * multiplexed over a single connection.
+ */
+public final class SunshineHttp {
+
+    // Idle connections are kept for a while after a sync, for the art that follows it
+    private static final int MAX_IDLE_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    private static final long DNS_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static OkHttpClient sClient;
+
+    private SunshineHttp() {
+    }
+
+    public static synchronized OkHttpClient getClient() {
+        if (sClient == null) {
+            sClient = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES,
+                            TimeUnit.MINUTES))
+                    .dns(new CachingDns(Dns.SYSTEM, DNS_TTL_MILLIS))
+                    .connectTimeout(HttpFetcher.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+                            TimeUnit.MILLISECONDS)
+                    .readTimeout(HttpFetcher.DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                    .addInterceptor(RequestTimings.APPLICATION)
+                    .addNetworkInterceptor(RequestTimings.NETWORK)
+                    .build();
+        }
+        return sClient;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.util.Log;
+
+import com.example.android.sunshine.core.SyncPolicy;
+import com.example.android.sunshine.core.WeatherConditions;
+
+/**
+ * Feeds {@link SyncPolicy} after every sync and reschedules the periodic sync when its answer
+ * changes.  The policy's memory (the last forecast, how many syncs in a row changed nothing,
+ * when a pushed forecast last arrived) lives in its own preferences file.
+ */
+public final class AdaptiveSyncScheduler {
+    private static final String LOG_TAG = AdaptiveSyncScheduler.class.getSimpleName();
+
+    private static final String PREFS_NAME = "sync_policy";
+    private static final String KEY_FINGERPRINT = "fingerprint";
+    private static final String KEY_UNCHANGED_SYNCS = "unchanged_syncs";
+    private static final String KEY_LAST_PUSH = "last_push";
+    private static final String KEY_INTERVAL = "interval";
+    private static final String KEY_FLEX = "flex";
+
+    // Severe weather further out than this doesn't make us poll any faster
+    static final int SEVERE_LOOKAHEAD_DAYS = 2;
+    // Below this percentage the battery counts as low
+    static final int LOW_BATTERY_PERCENT = 15;
+
+    private AdaptiveSyncScheduler() {
+    }
+
+    /**
+     * Decides when to sync next from the forecast just saved, and reschedules if that changed.
+     *
+     * @return the decision, whose deferOptionalWork says whether to skip the optional work
+     * of this sync.
+     */
+    public static synchronized SyncPolicy.Decision onSyncComplete(Context context, long[] dates,
+                                                                   int[] weatherIds,
+                                                                   double[] highs) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String fingerprint = SyncPolicy.fingerprint(dates, weatherIds, highs);
+
+        SyncPolicy.Inputs inputs = readDeviceState(context);
+        SyncPolicy.compare(inputs, prefs.getString(KEY_FINGERPRINT, null), fingerprint,
+                prefs.getInt(KEY_UNCHANGED_SYNCS, 0));
+        for (int i = 0; i < weatherIds.length && i < SEVERE_LOOKAHEAD_DAYS; i++) {
+            inputs.severe |= WeatherConditions.isSevere(weatherIds[i]);
+        }
+        inputs.pushActive = SyncPolicy.isPushActive(prefs.getLong(KEY_LAST_PUSH, 0),
+                System.currentTimeMillis());
+
+        prefs.edit()
+                .putString(KEY_FINGERPRINT, fingerprint)
+                .putInt(KEY_UNCHANGED_SYNCS, inputs.unchangedSyncs)
+                .apply();
+        return apply(context, prefs, inputs);
+    }
+
+    /**
+     * Records that a pushed forecast was applied at the given time, or with 0 that pushes can't
+     * be expected any more, and reschedules for it.
+     */
+    public static synchronized void setLastPush(Context context, long lastPushMillis) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefs.edit().putLong(KEY_LAST_PUSH, lastPushMillis).apply();
+
+        // Nothing about the forecast has changed since the last sync
+        SyncPolicy.Inputs inputs = readDeviceState(context);
+        inputs.unchangedSyncs = prefs.getInt(KEY_UNCHANGED_SYNCS, 0);
+        inputs.pushActive = SyncPolicy.isPushActive(lastPushMillis, System.currentTimeMillis());
+        apply(context, prefs, inputs);
+    }
+
+    private static SyncPolicy.Decision apply(Context context, SharedPreferences prefs,
+                                             SyncPolicy.Inputs inputs) {
+        SyncPolicy.Decision decision = SyncPolicy.decide(inputs);
+        SyncDecisionLog.append(context, System.currentTimeMillis(), inputs, decision);
+
+        if (decision.interval != prefs.getInt(KEY_INTERVAL, SunshineSyncAdapter.SYNC_INTERVAL)
+                || decision.flex != prefs.getInt(KEY_FLEX, SunshineSyncAdapter.SYNC_FLEXTIME)) {
+            Log.d(LOG_TAG, "Syncing every " + decision.interval + "s (" + decision.reason + ")");
+            SunshineSyncAdapter.configurePeriodicSync(context, decision.interval, decision.flex);
+            prefs.edit()
+                    .putInt(KEY_INTERVAL, decision.interval)
+                    .putInt(KEY_FLEX, decision.flex)
+                    .apply();
+        }
+        return decision;
+    }
+
+    private static SyncPolicy.Inputs readDeviceState(Context context) {
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+
+        ConnectivityManager cm =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        inputs.metered = ConnectivityManagerCompat.isActiveNetworkMetered(cm);
+
+        // ACTION_BATTERY_CHANGED is sticky, so this reads the last one without a receiver
+        Intent battery = context.registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery != null) {
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            inputs.batteryLow = level >= 0 && scale > 0
+                    && level * 100 / scale < LOW_BATTERY_PERCENT;
+            inputs.charging = status == BatteryManager.BATTERY_STATUS_CHARGING
+                    || status == BatteryManager.BATTERY_STATUS_FULL;
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.android.sunshine.core.CircuitBreaker;
+
+/**
+ * Keeps a {@link CircuitBreaker} per OpenWeatherMap endpoint in its own preferences file, so
+ * that a breaker opened by one sync is still open for the next one, even in a new process.
+ */
+final class EndpointBreakers {
+
+    static final String DAILY = "daily";
+    static final String HOURLY = "hourly";
+
+    private static final String PREFS_NAME = "circuit_breakers";
+    private static final String KEY_FAILURES = "_failures";
+    private static final String KEY_OPENED_AT = "_opened_at";
+
+    // Failed attempts in a row, across syncs, before we leave the endpoint alone
+    static final int FAILURE_THRESHOLD = 5;
+    static final long OPEN_MILLIS = 1000 * 60 * 30;
+
+    private EndpointBreakers() {
+    }
+
+    static synchronized CircuitBreaker load(Context context, String endpoint) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        return new CircuitBreaker(FAILURE_THRESHOLD, OPEN_MILLIS,
+                prefs.getInt(endpoint + KEY_FAILURES, 0),
+                prefs.getLong(endpoint + KEY_OPENED_AT, 0));
+    }
+
+    static synchronized void save(Context context, String endpoint, CircuitBreaker breaker) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        int failures = breaker.getFailures();
+        long openedAt = breaker.getOpenedAt();
+        if (failures != prefs.getInt(endpoint + KEY_FAILURES, 0)
+                || openedAt != prefs.getLong(endpoint + KEY_OPENED_AT, 0)) {
+            prefs.edit()
+                    .putInt(endpoint + KEY_FAILURES, failures)
+                    .putLong(endpoint + KEY_OPENED_AT, openedAt)
+                    .apply();
+        }
+    }
+}
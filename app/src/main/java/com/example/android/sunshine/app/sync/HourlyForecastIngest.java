@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.android.sunshine.app.data.WeatherContract.HourlyEntry;
+import com.example.android.sunshine.core.CompactUnits;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+
+/**
+ * Streams an OpenWeatherMap 3-hourly forecast into the hourly table.
+ *
+ * The response is never held in memory as a whole: entries are read one at a time with a
+ * {@link JsonReader} and written in batches of {@link #BATCH_SIZE} rows, so the memory used stays
+ * the same whether the response covers one day or five.  The {@link ContentValues} of a batch are
+ * reused from one batch to the next.
+ */
+public class HourlyForecastIngest {
+
+    /** Rows written to the provider in one bulkInsert. */
+    static final int BATCH_SIZE = 32;
+
+    // These are the names of the JSON objects that need to be extracted.
+    private static final String OWM_MESSAGE_CODE = "cod";
+    private static final String OWM_LIST = "list";
+    private static final String OWM_DATE = "dt";
+    private static final String OWM_MAIN = "main";
+    private static final String OWM_TEMPERATURE = "temp";
+    private static final String OWM_PRESSURE = "pressure";
+    private static final String OWM_HUMIDITY = "humidity";
+    private static final String OWM_WEATHER = "weather";
+    private static final String OWM_WEATHER_ID = "id";
+    private static final String OWM_WIND = "wind";
+    private static final String OWM_WINDSPEED = "speed";
+    private static final String OWM_WIND_DIRECTION = "deg";
+
+    private final ContentResolver mResolver;
+    private final ContentValues[] mBatch = new ContentValues[BATCH_SIZE];
+    private int mBatchCount;
+    private int mInserted;
+
+    public HourlyForecastIngest(ContentResolver resolver) {
+        mResolver = resolver;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mBatch[i] = new ContentValues(8);
+        }
+    }
+
+    /**
+     * Reads a forecast response and stores every entry against the given location.
+     *
+     * @param in the response body, closed by the caller
+     * @param locationId the _id of the row in the location table the forecast belongs to
+     * @return the number of rows written, 0 if the response reported an error
+     */
+    public int ingest(InputStream in, long locationId) throws IOException {
+        mBatchCount = 0;
+        mInserted = 0;
+
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(new BufferedInputStream(in), "UTF-8"));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_MESSAGE_CODE.equals(name)) {
+                // OWM sends the code as a string here and as a number in the daily forecast
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.skipValue();
+                } else if (Integer.parseInt(reader.nextString()) != HttpURLConnection.HTTP_OK) {
+                    return 0;
+                }
+            } else if (OWM_LIST.equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readEntry(reader, nextValues(), locationId);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        flush();
+        return mInserted;
+    }
+
+    private ContentValues nextValues() {
+        if (mBatchCount == BATCH_SIZE) {
+            flush();
+        }
+        ContentValues values = mBatch[mBatchCount++];
+        values.clear();
+        return values;
+    }
+
+    private void flush() {
+        if (mBatchCount == 0) {
+            return;
+        }
+        ContentValues[] batch = mBatch;
+        if (mBatchCount < BATCH_SIZE) {
+            batch = new ContentValues[mBatchCount];
+            System.arraycopy(mBatch, 0, batch, 0, mBatchCount);
+        }
+        mInserted += mResolver.bulkInsert(HourlyEntry.CONTENT_URI, batch);
+        mBatchCount = 0;
+    }
+
+    private static void readEntry(JsonReader reader, ContentValues values, long locationId)
+            throws IOException {
+        values.put(HourlyEntry.COLUMN_LOC_KEY, locationId);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_DATE.equals(name)) {
+                // dt is in seconds
+                values.put(HourlyEntry.COLUMN_HOUR,
+                        CompactUnits.toEpochHour(reader.nextLong() * 1000));
+            } else if (OWM_MAIN.equals(name)) {
+                readMain(reader, values);
+            } else if (OWM_WEATHER.equals(name)) {
+                // "weather" is an array which is 1 element long
+                reader.beginArray();
+                if (reader.hasNext()) {
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        if (OWM_WEATHER_ID.equals(reader.nextName())) {
+                            values.put(HourlyEntry.COLUMN_WEATHER_ID, reader.nextInt());
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                }
+                while (reader.hasNext()) {
+                    reader.skipValue();
+                }
+                reader.endArray();
+            } else if (OWM_WIND.equals(name)) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String windName = reader.nextName();
+                    if (OWM_WINDSPEED.equals(windName)) {
+                        values.put(HourlyEntry.COLUMN_WIND_SPEED,
+                                CompactUnits.toTenths(reader.nextDouble()));
+                    } else if (OWM_WIND_DIRECTION.equals(windName)) {
+                        values.put(HourlyEntry.COLUMN_DEGREES,
+                                (int) Math.round(reader.nextDouble()));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readMain(JsonReader reader, ContentValues values) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (OWM_TEMPERATURE.equals(name)) {
+                values.put(HourlyEntry.COLUMN_TEMP, CompactUnits.toTenths(reader.nextDouble()));
+            } else if (OWM_PRESSURE.equals(name)) {
+                values.put(HourlyEntry.COLUMN_PRESSURE,
+                        CompactUnits.toTenths(reader.nextDouble()));
+            } else if (OWM_HUMIDITY.equals(name)) {
+                values.put(HourlyEntry.COLUMN_HUMIDITY, reader.nextInt());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.example.android.sunshine.app.BuildConfig;
+import com.example.android.sunshine.core.CircuitBreaker;
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastQuery;
+import com.example.android.sunshine.core.HttpFetcher;
+import com.example.android.sunshine.core.OpenWeatherMapParser;
+import com.example.android.sunshine.core.SyncTrace;
+import com.example.android.sunshine.core.WeatherSource;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * The OpenWeatherMap daily forecast API, at api.openweathermap.org or at a mirror that speaks
+ * the same protocol.  Each instance keeps its own circuit breaker, so one mirror failing
+ * doesn't stop the others from being asked.
+ */
+public class OpenWeatherMapSource implements WeatherSource {
+
+    private final Context mContext;
+    private final String mName;
+    private final String mBaseUrl;
+    private final HttpFetcher mFetcher;
+
+    /**
+     * @param name also names the circuit breaker, so it should stay the same across releases
+     * @param baseUrl e.g. "http://api.openweathermap.org/data/2.5/forecast/daily?"
+     */
+    public OpenWeatherMapSource(Context context, String name, String baseUrl,
+                                HttpFetcher fetcher) {
+        mContext = context.getApplicationContext();
+        mName = name;
+        mBaseUrl = baseUrl;
+        mFetcher = fetcher;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public Forecast fetch(ForecastQuery query) throws IOException {
+        // Possible parameters are avaiable at OWM's forecast API page, at
+        // http://openweathermap.org/API#forecast
+        final String QUERY_PARAM = "q";
+        final String LAT_PARAM = "lat";
+        final String LON_PARAM = "lon";
+        final String FORMAT_PARAM = "mode";
+        final String UNITS_PARAM = "units";
+        final String DAYS_PARAM = "cnt";
+        final String APPID_PARAM = "APPID";
+
+        // Null outside of a sync, e.g. in the tests
+        SyncTrace trace = SyncTraces.current();
+        long start = System.nanoTime();
+
+        Uri.Builder uriBuilder = Uri.parse(mBaseUrl).buildUpon();
+        if (query.hasCoordinates) {
+            uriBuilder.appendQueryParameter(LAT_PARAM, String.valueOf(query.latitude))
+                    .appendQueryParameter(LON_PARAM, String.valueOf(query.longitude));
+        } else {
+            uriBuilder.appendQueryParameter(QUERY_PARAM, query.location);
+        }
+        Uri builtUri = uriBuilder.appendQueryParameter(FORMAT_PARAM, "json")
+                .appendQueryParameter(UNITS_PARAM, "metric")
+                .appendQueryParameter(DAYS_PARAM, Integer.toString(query.days))
+                .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY)
+                .build();
+
+        URL url = new URL(builtUri.toString());
+        if (trace != null) {
+            trace.record("url:" + mName, start, 0, 0);
+        }
+
+        CircuitBreaker breaker = EndpointBreakers.load(mContext, mName);
+        String forecastJsonStr;
+        start = System.nanoTime();
+        try {
+            forecastJsonStr = mFetcher.fetch(url, breaker);
+        } finally {
+            EndpointBreakers.save(mContext, mName, breaker);
+        }
+        if (trace != null) {
+            // Connecting and waiting for the response are recorded by the HTTP client
+            trace.record("download:" + mName, start, forecastJsonStr.length(), 0);
+        }
+        if (forecastJsonStr.trim().length() == 0) {
+            // Stream was empty.  No point in parsing.
+            throw new IOException(mName + " sent an empty response");
+        }
+
+        try {
+            start = System.nanoTime();
+            Forecast forecast = OpenWeatherMapParser.parse(mName, forecastJsonStr);
+            if (trace != null) {
+                trace.record("parse:" + mName, start, 0, forecast.days.size());
+            }
+            return forecast;
+        } catch (JSONException e) {
+            throw new BadResponseException(mName + " sent a bad forecast", e);
+        }
+    }
+}
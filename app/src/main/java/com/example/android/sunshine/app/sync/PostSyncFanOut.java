@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.example.android.sunshine.core.SyncTrace;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tells everything that shows the forecast about a new one, once it has been committed, without
+ * holding up the sync.
+ *
+ * The consumers run in parallel on a small bounded pool, and a supervisor gives them
+ * {@link #TIMEOUT_MILLIS} between them before interrupting the stragglers.  The sync returns,
+ * and the sync manager lets go of its wake lock, as soon as they have been handed over; a
+ * wake lock of our own, which can't outlive the timeout, keeps the device awake until they
+ * are done.  Each consumer's duration, or its timeout, is added to the sync's trace.
+ */
+final class PostSyncFanOut {
+    private static final String LOG_TAG = PostSyncFanOut.class.getSimpleName();
+
+    static final long TIMEOUT_MILLIS = 15 * 1000;
+    private static final String WAKE_LOCK_TAG = "Sunshine:PostSync";
+
+    // Enough threads for every consumer of one sync; a sync is rarely still fanning out when
+    // the next one is done, and if so the oldest waiting consumer is cancelled, so that its
+    // supervisor stops waiting for it
+    private static final int MAX_THREADS = 4;
+    private static final int MAX_QUEUED = 8;
+    private static final long IDLE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor CONSUMERS = new ThreadPoolExecutor(MAX_THREADS,
+            MAX_THREADS, IDLE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(MAX_QUEUED),
+            new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable consumer, ThreadPoolExecutor executor) {
+                    if (executor.isShutdown()) {
+                        return;
+                    }
+                    Runnable oldest = executor.getQueue().poll();
+                    if (oldest instanceof Future) {
+                        ((Future<?>) oldest).cancel(false);
+                    }
+                    executor.execute(consumer);
+                }
+            });
+    private static final ThreadPoolExecutor SUPERVISOR = new ThreadPoolExecutor(1, 1,
+            IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    static {
+        CONSUMERS.allowCoreThreadTimeOut(true);
+        SUPERVISOR.allowCoreThreadTimeOut(true);
+    }
+
+    private final Context mContext;
+    private final SyncTrace mTrace;
+    private final Map<String, Runnable> mConsumers = new LinkedHashMap<>();
+
+    PostSyncFanOut(Context context, SyncTrace trace) {
+        mContext = context.getApplicationContext();
+        mTrace = trace;
+    }
+
+    PostSyncFanOut add(String name, Runnable consumer) {
+        mConsumers.put(name, consumer);
+        return this;
+    }
+
+    /**
+     * Starts the consumers and returns straight away.
+     */
+    void dispatch() {
+        PowerManager powerManager = (PowerManager) mContext.getSystemService(Context.POWER_SERVICE);
+        final PowerManager.WakeLock wakeLock =
+                powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, WAKE_LOCK_TAG);
+        wakeLock.setReferenceCounted(false);
+        // A second more than the supervisor waits, in case it never gets to run
+        wakeLock.acquire(TIMEOUT_MILLIS + 1000);
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+        final List<String> names = new ArrayList<>(mConsumers.keySet());
+        final List<Future<?>> futures = new ArrayList<>(names.size());
+        for (Map.Entry<String, Runnable> consumer : mConsumers.entrySet()) {
+            futures.add(CONSUMERS.submit(timed(consumer.getKey(), consumer.getValue())));
+        }
+
+        SUPERVISOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < futures.size(); i++) {
+                        await(names.get(i), futures.get(i), deadline);
+                    }
+                } finally {
+                    // The sync has ended, so its saved trace doesn't have these stages yet
+                    SyncTraces.amend(mContext);
+                    wakeLock.release();
+                }
+            }
+        });
+    }
+
+    private Runnable timed(final String name, final Runnable consumer) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                consumer.run();
+                mTrace.record(name, start, 0, 0);
+            }
+        };
+    }
+
+    private void await(String name, Future<?> future, long deadline) {
+        try {
+            future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            Log.w(LOG_TAG, name + " took more than " + TIMEOUT_MILLIS + "ms, interrupting it");
+            future.cancel(true);
+            mTrace.recordDuration(name + ":timeout",
+                    TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS), 0, 0);
+        } catch (CancellationException e) {
+            Log.w(LOG_TAG, name + " was dropped by a later sync");
+            mTrace.recordDuration(name + ":dropped", 0, 0, 0);
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Error in " + name, e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+        }
+    }
+}
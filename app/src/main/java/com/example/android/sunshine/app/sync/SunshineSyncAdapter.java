@@ -2,40 +2,48 @@ package com.example.android.sunshine.app.sync;
 
 import android.accounts.Account;
 import android.accounts.AccountManager;
-import android.annotation.SuppressLint;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.AbstractThreadedSyncAdapter;
 import android.content.ContentProviderClient;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.OperationApplicationException;
 import android.content.SharedPreferences;
 import android.content.SyncRequest;
 import android.content.SyncResult;
-import android.content.res.Resources;
 import android.database.Cursor;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.RemoteException;
 import android.preference.PreferenceManager;
 import android.support.annotation.IntDef;
-import android.support.v4.app.NotificationCompat;
-import android.support.v4.app.TaskStackBuilder;
-import android.text.format.Time;
 import android.util.Log;
 
-import com.bumptech.glide.Glide;
 import com.example.android.sunshine.app.BuildConfig;
-import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.ArtPrefetcher;
 import com.example.android.sunshine.app.data.WeatherContract;
 import com.example.android.sunshine.app.muzei.WeatherMuzeiSource;
+import com.example.android.sunshine.app.net.OkHttpTransport;
+import com.example.android.sunshine.app.net.SunshineHttp;
+import com.example.android.sunshine.core.BackoffPolicy;
+import com.example.android.sunshine.core.CircuitBreaker;
+import com.example.android.sunshine.core.CompactUnits;
+import com.example.android.sunshine.core.DayNormalizer;
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.ForecastQuery;
+import com.example.android.sunshine.core.HedgedWeatherSource;
+import com.example.android.sunshine.core.HttpFetcher;
+import com.example.android.sunshine.core.SyncPolicy;
+import com.example.android.sunshine.core.SyncTrace;
+import com.example.android.sunshine.core.WeatherSource;
+import com.example.android.sunshine.core.WearableProtocol;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
 import com.google.android.gms.wearable.DataApi;
@@ -43,53 +51,26 @@ import com.google.android.gms.wearable.PutDataMapRequest;
 import com.google.android.gms.wearable.PutDataRequest;
 import com.google.android.gms.wearable.Wearable;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
-import java.util.Vector;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public final String LOG_TAG = SunshineSyncAdapter.class.getSimpleName();
     public static final String ACTION_DATA_UPDATED =
             "com.example.android.sunshine.app.ACTION_DATA_UPDATED";
-    // Interval at which to sync with the weather, in seconds.
+    // Interval at which to sync with the weather, in seconds, until AdaptiveSyncScheduler has
+    // something to go on.
     // 60 seconds (1 minute) * 180 = 3 hours
-    public static final int SYNC_INTERVAL = 60 * 180;
+    public static final int SYNC_INTERVAL = SyncPolicy.BASE_INTERVAL;
     public static final int SYNC_FLEXTIME = SYNC_INTERVAL/3;
-    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
-    private static final int WEATHER_NOTIFICATION_ID = 3004;
-
-    //IMPORTANT THAT ALL DATA API STRINGS ARE THE SAME ACROSS CLASSES
-    //AS THEY ARE USED TO RETRIEVE INFO FROM BUNDLES
-    private static final String WEATHER_INFO_PATH = "/weather-info";
-    private static final String KEY_UUID = "uuid"; //used to ensure that our wearble detects "new" info
-    private static final String KEY_HIGH = "high";
-    private static final String KEY_LOW = "low";
-    private static final String KEY_WEATHER_ID = "weatherId";
-
-    private static final String[] NOTIFY_WEATHER_PROJECTION = new String[] {
-            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
-            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP,
-            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC
-    };
-
-    // these indices must match the projection
-    private static final int INDEX_WEATHER_ID = 0;
-    private static final int INDEX_MAX_TEMP = 1;
-    private static final int INDEX_MIN_TEMP = 2;
-    private static final int INDEX_SHORT_DESC = 3;
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LOCATION_STATUS_OK, LOCATION_STATUS_SERVER_DOWN, LOCATION_STATUS_SERVER_INVALID,  LOCATION_STATUS_UNKNOWN, LOCATION_STATUS_INVALID})
@@ -101,7 +82,24 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
     public static final int LOCATION_STATUS_UNKNOWN = 3;
     public static final int LOCATION_STATUS_INVALID = 4;
 
+    // Tries for each OpenWeatherMap request before the sync gives up on it
+    private static final int FETCH_ATTEMPTS = 3;
+    private static final long FETCH_INITIAL_BACKOFF_MILLIS = 2 * 1000;
+    private static final long FETCH_MAX_BACKOFF_MILLIS = 16 * 1000;
+
+    private static final int FORECAST_DAYS = 14;
+    // How long the preferred forecast source gets before the next one is asked as well
+    private static final long HEDGE_DELAY_MILLIS = 4 * 1000;
+    // Runs the forecast sources; idle threads go away after a minute
+    private static final ExecutorService SOURCE_EXECUTOR = Executors.newCachedThreadPool();
+
     private GoogleApiClient mGoogleApiClient;
+    // Shares its connections with the rest of the sync and with Glide
+    private final HttpFetcher mFetcher = new HttpFetcher(
+            new BackoffPolicy(FETCH_ATTEMPTS, FETCH_INITIAL_BACKOFF_MILLIS,
+                    FETCH_MAX_BACKOFF_MILLIS),
+            new OkHttpTransport(SunshineHttp.getClient()));
+    private final WeatherSource mSource;
 
     public SunshineSyncAdapter(Context context, boolean autoInitialize) {
         super(context, autoInitialize);
@@ -112,300 +110,345 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                     .addApi(Wearable.API)
                     .build();
         }
+        mSource = createWeatherSource(context);
+    }
+
+    /**
+     * Builds the forecast source from the urls in R.array.forecast_base_urls, in order of
+     * preference.  More than one url gets hedged requests; the first complete answer wins.
+     */
+    private WeatherSource createWeatherSource(Context context) {
+        String[] baseUrls = context.getResources().getStringArray(R.array.forecast_base_urls);
+        List<WeatherSource> sources = new ArrayList<>(baseUrls.length);
+        for (int i = 0; i < baseUrls.length; i++) {
+            // The first source keeps the name its breaker was saved under before mirrors
+            String name = (i == 0) ? EndpointBreakers.DAILY : EndpointBreakers.DAILY + "_" + i;
+            sources.add(new OpenWeatherMapSource(context, name, baseUrls[i], mFetcher));
+        }
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        return new HedgedWeatherSource(sources, HEDGE_DELAY_MILLIS, SOURCE_EXECUTOR);
     }
 
     @Override
     public void onPerformSync(Account account, Bundle extras, String authority, ContentProviderClient provider, SyncResult syncResult) {
         Log.d(LOG_TAG, "Starting sync");
+        SyncTrace trace = SyncTraces.begin();
+        String result = "ok";
 
         // We no longer need just the location String, but also potentially the latitude and
         // longitude, in case we are syncing based on a new Place Picker API result.
         Context context = getContext();
         String locationQuery = Utility.getPreferredLocation(context);
-        String locationLatitude = String.valueOf(Utility.getLocationLatitude(context));
-        String locationLongitude = String.valueOf(Utility.getLocationLongitude(context));
-
-        // These two need to be declared outside the try/catch
-        // so that they can be closed in the finally block.
-        HttpURLConnection urlConnection = null;
-        BufferedReader reader = null;
 
-        // Will contain the raw JSON response as a string.
-        String forecastJsonStr = null;
-
-        String format = "json";
-        String units = "metric";
-        int numDays = 14;
+        ForecastQuery query = Utility.isLocationLatLonAvailable(context)
+                ? new ForecastQuery(locationQuery, Utility.getLocationLatitude(context),
+                        Utility.getLocationLongitude(context), FORECAST_DAYS)
+                : new ForecastQuery(locationQuery, FORECAST_DAYS);
 
         try {
-            // Construct the URL for the OpenWeatherMap query
-            // Possible parameters are avaiable at OWM's forecast API page, at
-            // http://openweathermap.org/API#forecast
-            final String FORECAST_BASE_URL =
-                    "http://api.openweathermap.org/data/2.5/forecast/daily?";
-            final String QUERY_PARAM = "q";
-            final String LAT_PARAM = "lat";
-            final String LON_PARAM = "lon";
-            final String FORMAT_PARAM = "mode";
-            final String UNITS_PARAM = "units";
-            final String DAYS_PARAM = "cnt";
-            final String APPID_PARAM = "APPID";
-
-            Uri.Builder uriBuilder = Uri.parse(FORECAST_BASE_URL).buildUpon();
-
-            // Instead of always building the query based off of the location string, we want to
-            // potentially build a query using a lat/lon value. This will be the case when we are
-            // syncing based off of a new location from the Place Picker API. So we need to check
-            // if we have a lat/lon to work with, and use those when we do. Otherwise, the weather
-            // service may not understand the location address provided by the Place Picker API
-            // and the user could end up with no weather! The horror!
-            if (Utility.isLocationLatLonAvailable(context)) {
-                uriBuilder.appendQueryParameter(LAT_PARAM, locationLatitude)
-                        .appendQueryParameter(LON_PARAM, locationLongitude);
-            } else {
-                uriBuilder.appendQueryParameter(QUERY_PARAM, locationQuery);
-            }
-
-            Uri builtUri = uriBuilder.appendQueryParameter(FORMAT_PARAM, format)
-                    .appendQueryParameter(UNITS_PARAM, units)
-                    .appendQueryParameter(DAYS_PARAM, Integer.toString(numDays))
-                    .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY)
-                    .build();
-
-            URL url = new URL(builtUri.toString());
-
-            // Create the request to OpenWeatherMap, and open the connection
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
-
-            // Read the input stream into a String
-            InputStream inputStream = urlConnection.getInputStream();
-            StringBuffer buffer = new StringBuffer();
-            if (inputStream == null) {
-                // Nothing to do.
-                return;
-            }
-            reader = new BufferedReader(new InputStreamReader(inputStream));
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Since it's JSON, adding a newline isn't necessary (it won't affect parsing)
-                // But it does make debugging a *lot* easier if you print out the completed
-                // buffer for debugging.
-                buffer.append(line + "\n");
+            long start = System.nanoTime();
+            Forecast forecast = mSource.fetch(query);
+            trace.record("fetch", start, 0, forecast.days.size());
+            Log.d(LOG_TAG, "Forecast from " + forecast.source);
+            if (!saveForecast(forecast, locationQuery, trace)) {
+                result = "save_failed";
+                // A soft error like a failed download, so the sync manager tries again soon
+                syncResult.stats.numIoExceptions++;
             }
-
-            if (buffer.length() == 0) {
-                // Stream was empty.  No point in parsing.
+        } catch (WeatherSource.LocationNotFoundException e) {
+            Log.w(LOG_TAG, e.getMessage());
+            result = "location_invalid";
+            setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
+        } catch (WeatherSource.BadResponseException e) {
+            Log.e(LOG_TAG, e.getMessage(), e);
+            result = "bad_response";
+            syncResult.stats.numParseExceptions++;
+            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
+        } catch (HttpFetcher.CircuitOpenException e) {
+            Log.w(LOG_TAG, "Leaving the forecast server alone: " + e.getMessage());
+            result = "circuit_open";
+            // Nor should the sync manager run us again before the breaker lets a request through
+            syncResult.delayUntil = e.getRetryAt() / 1000;
+            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
+        } catch (HttpFetcher.HttpStatusException e) {
+            Log.e(LOG_TAG, "Error ", e);
+            result = "http_" + e.getStatusCode();
+            if (e.isRetryable()) {
+                syncResult.stats.numIoExceptions++;
                 setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                return;
+            } else {
+                // A hard error, as asking again won't change the server's mind
+                syncResult.stats.numParseExceptions++;
+                setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
             }
-            forecastJsonStr = buffer.toString();
-            getWeatherDataFromJson(forecastJsonStr, locationQuery);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Error ", e);
             // If the code didn't successfully get the weather data, there's no point in attempting
-            // to parse it.
+            // to parse it.  Counting it as a soft error has the sync manager retry the sync, with
+            // its own backoff, once our attempts have run out.
+            result = "io_error";
+            syncResult.stats.numIoExceptions++;
             setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (final IOException e) {
-                    Log.e(LOG_TAG, "Error closing stream", e);
-                }
-            }
+            SyncTraces.end(context, trace, result);
+        }
+    }
+
+    private static void appendLocationParameters(Context context, Uri.Builder uriBuilder) {
+        final String QUERY_PARAM = "q";
+        final String LAT_PARAM = "lat";
+        final String LON_PARAM = "lon";
+
+        // Instead of always building the query based off of the location string, we want to
+        // potentially build a query using a lat/lon value. This will be the case when we are
+        // syncing based off of a new location from the Place Picker API. So we need to check
+        // if we have a lat/lon to work with, and use those when we do. Otherwise, the weather
+        // service may not understand the location address provided by the Place Picker API
+        // and the user could end up with no weather! The horror!
+        if (Utility.isLocationLatLonAvailable(context)) {
+            uriBuilder.appendQueryParameter(LAT_PARAM,
+                    String.valueOf(Utility.getLocationLatitude(context)))
+                    .appendQueryParameter(LON_PARAM,
+                            String.valueOf(Utility.getLocationLongitude(context)));
+        } else {
+            uriBuilder.appendQueryParameter(QUERY_PARAM, Utility.getPreferredLocation(context));
         }
-        return;
     }
 
     /**
-     * Take the String representing the complete forecast in JSON Format and
-     * pull out the data we need to construct the Strings needed for the wireframes.
+     * Fetches the 3-hourly forecast for the next five days and streams it into the hourly table.
+     * The daily forecast is what the rest of the app depends on, so a failure here is only logged.
      *
-     * Fortunately parsing is easy:  constructor takes the JSON string and converts it
-     * into an Object hierarchy for us.
+     * @return the number of hours stored, -1 if the fetch failed
      */
-    private void getWeatherDataFromJson(String forecastJsonStr,
-                                        String locationSetting)
-            throws JSONException {
-
-        // Now we have a String representing the complete forecast in JSON Format.
-        // Fortunately parsing is easy:  constructor takes the JSON string and converts it
-        // into an Object hierarchy for us.
-
-        // These are the names of the JSON objects that need to be extracted.
-
-        // Location information
-        final String OWM_CITY = "city";
-        final String OWM_CITY_NAME = "name";
-        final String OWM_COORD = "coord";
-
-        // Location coordinate
-        final String OWM_LATITUDE = "lat";
-        final String OWM_LONGITUDE = "lon";
-
-        // Weather information.  Each day's forecast info is an element of the "list" array.
-        final String OWM_LIST = "list";
-
-        final String OWM_PRESSURE = "pressure";
-        final String OWM_HUMIDITY = "humidity";
-        final String OWM_WINDSPEED = "speed";
-        final String OWM_WIND_DIRECTION = "deg";
-
-        // All temperatures are children of the "temp" object.
-        final String OWM_TEMPERATURE = "temp";
-        final String OWM_MAX = "max";
-        final String OWM_MIN = "min";
-
-        final String OWM_WEATHER = "weather";
-        final String OWM_DESCRIPTION = "main";
-        final String OWM_WEATHER_ID = "id";
-
-        final String OWM_MESSAGE_CODE = "cod";
+    private int syncHourlyForecast(long locationId) {
+        final String HOURLY_BASE_URL =
+                "http://api.openweathermap.org/data/2.5/forecast?";
+        final String FORMAT_PARAM = "mode";
+        final String UNITS_PARAM = "units";
+        final String COUNT_PARAM = "cnt";
+        final String APPID_PARAM = "APPID";
+        // 5 days of 8 three-hour slots
+        final int numSlots = 40;
 
+        Context context = getContext();
+        Uri.Builder uriBuilder = Uri.parse(HOURLY_BASE_URL).buildUpon();
+        appendLocationParameters(context, uriBuilder);
+        Uri builtUri = uriBuilder.appendQueryParameter(FORMAT_PARAM, "json")
+                .appendQueryParameter(UNITS_PARAM, "metric")
+                .appendQueryParameter(COUNT_PARAM, Integer.toString(numSlots))
+                .appendQueryParameter(APPID_PARAM, BuildConfig.OPEN_WEATHER_MAP_API_KEY)
+                .build();
+
+        final ContentResolver resolver = context.getContentResolver();
+        final long id = locationId;
+        CircuitBreaker breaker = EndpointBreakers.load(context, EndpointBreakers.HOURLY);
         try {
-            JSONObject forecastJson = new JSONObject(forecastJsonStr);
-            Context context = getContext();
-
-            // do we have an error?
-            if ( forecastJson.has(OWM_MESSAGE_CODE) ) {
-                int errorCode = forecastJson.getInt(OWM_MESSAGE_CODE);
-
-                switch (errorCode) {
-                    case HttpURLConnection.HTTP_OK:
-                        break;
-                    case HttpURLConnection.HTTP_NOT_FOUND:
-                        setLocationStatus(getContext(), LOCATION_STATUS_INVALID);
-                        return;
-                    default:
-                        setLocationStatus(getContext(), LOCATION_STATUS_SERVER_DOWN);
-                        return;
-                }
-            }
-
-            JSONArray weatherArray = forecastJson.getJSONArray(OWM_LIST);
-
-            JSONObject cityJson = forecastJson.getJSONObject(OWM_CITY);
-            String cityName = cityJson.getString(OWM_CITY_NAME);
-
-            JSONObject cityCoord = cityJson.getJSONObject(OWM_COORD);
-            double cityLatitude = cityCoord.getDouble(OWM_LATITUDE);
-            double cityLongitude = cityCoord.getDouble(OWM_LONGITUDE);
-
-            long locationId = addLocation(locationSetting, cityName, cityLatitude, cityLongitude);
-
-            // Insert the new weather information into the database
-            Vector<ContentValues> cVVector = new Vector<ContentValues>(weatherArray.length());
-
-            // OWM returns daily forecasts based upon the local time of the city that is being
-            // asked for, which means that we need to know the GMT offset to translate this data
-            // properly.
-
-            // Since this data is also sent in-order and the first day is always the
-            // current day, we're going to take advantage of that to get a nice
-            // normalized UTC date for all of our weather.
-
-            Time dayTime = new Time();
-            dayTime.setToNow();
-
-            // we start at the day returned by local time. Otherwise this is a mess.
-            int julianStartDay = Time.getJulianDay(System.currentTimeMillis(), dayTime.gmtoff);
-
-            // now we work exclusively in UTC
-            dayTime = new Time();
-
-            for(int i = 0; i < weatherArray.length(); i++) {
-                // These are the values that will be collected.
-                long dateTime;
-                double pressure;
-                int humidity;
-                double windSpeed;
-                double windDirection;
+            // Rows are keyed by location and hour, so a retry after a partial read just
+            // replaces what the failed attempt stored.
+            int inserted = mFetcher.fetch(new URL(builtUri.toString()), breaker,
+                    new HttpFetcher.BodyReader<Integer>() {
+                        @Override
+                        public Integer read(InputStream in) throws IOException {
+                            return new HourlyForecastIngest(resolver).ingest(in, id);
+                        }
+                    });
+
+            // drop the hours that have already gone by
+            long currentHour = CompactUnits.toEpochHour(System.currentTimeMillis());
+            resolver.delete(WeatherContract.HourlyEntry.CONTENT_URI,
+                    WeatherContract.HourlyEntry.COLUMN_HOUR + " < ?",
+                    new String[] {Long.toString(currentHour)});
+            Log.d(LOG_TAG, "Hourly sync complete. " + inserted + " Inserted");
+            return inserted;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // JsonReader reports malformed input as IllegalStateException
+            Log.e(LOG_TAG, "Error syncing hourly forecast", e);
+            return -1;
+        } finally {
+            EndpointBreakers.save(context, EndpointBreakers.HOURLY, breaker);
+        }
+    }
 
-                double high;
-                double low;
+    /**
+     * Stores a forecast, whichever source it came from, and tells everything that shows it.
+     *
+     * @return false if the forecast couldn't be stored
+     */
+    private boolean saveForecast(Forecast forecast, String locationSetting,
+                                 final SyncTrace trace) {
+        final Context context = getContext();
+        List<Forecast.Day> forecastDays = forecast.days;
+
+        // Everything this sync writes goes to the provider as a single batch, which it
+        // applies in one transaction: the location if it is new, the days, and the delete
+        // of the days that have gone by.
+        ArrayList<ContentProviderOperation> operations =
+                new ArrayList<>(forecastDays.size() + 2);
+        // The days, for the sync scheduler and the art prefetch
+        long[] dates = new long[forecastDays.size()];
+        int[] weatherIds = new int[forecastDays.size()];
+        double[] highs = new double[forecastDays.size()];
+
+        long locationId = getLocationId(locationSetting);
+        int locationOperation = -1;
+        if (locationId == -1) {
+            locationOperation = operations.size();
+            operations.add(newLocationInsert(locationSetting, forecast.cityName,
+                    forecast.latitude, forecast.longitude));
+        }
 
-                String description;
-                int weatherId;
+        // Sources return daily forecasts based upon the local time of the city that is
+        // being asked for, which means that we need to know the GMT offset to translate this
+        // data properly.
 
-                // Get the JSON object representing the day
-                JSONObject dayForecast = weatherArray.getJSONObject(i);
+        // Since this data is also sent in-order and the first day is always the
+        // current day, we're going to take advantage of that to get a nice
+        // normalized UTC date for all of our weather.
 
-                // Cheating to convert this to UTC time, which is what we want anyhow
-                dateTime = dayTime.setJulianDay(julianStartDay+i);
+        DayNormalizer dayTime = DayNormalizer.get();
 
-                pressure = dayForecast.getDouble(OWM_PRESSURE);
-                humidity = dayForecast.getInt(OWM_HUMIDITY);
-                windSpeed = dayForecast.getDouble(OWM_WINDSPEED);
-                windDirection = dayForecast.getDouble(OWM_WIND_DIRECTION);
+        // we start at the day returned by local time. Otherwise this is a mess.
+        long localStartDay = dayTime.getLocalDay(System.currentTimeMillis());
 
-                // Description is in a child array called "weather", which is 1 element long.
-                // That element also contains a weather code.
-                JSONObject weatherObject =
-                        dayForecast.getJSONArray(OWM_WEATHER).getJSONObject(0);
-                description = weatherObject.getString(OWM_DESCRIPTION);
-                weatherId = weatherObject.getInt(OWM_WEATHER_ID);
+        for(int i = 0; i < forecastDays.size(); i++) {
+            Forecast.Day day = forecastDays.get(i);
 
-                // Temperatures are in a child object called "temp".  Try not to name variables
-                // "temp" when working with temperature.  It confuses everybody.
-                JSONObject temperatureObject = dayForecast.getJSONObject(OWM_TEMPERATURE);
-                high = temperatureObject.getDouble(OWM_MAX);
-                low = temperatureObject.getDouble(OWM_MIN);
+            // Cheating to convert this to UTC time, which is what we want anyhow
+            long dateTime = dayTime.startOfLocalDay(localStartDay+i);
+            weatherIds[i] = day.weatherId;
+            dates[i] = dateTime;
+            highs[i] = day.high;
 
-                ContentValues weatherValues = new ContentValues();
+            ContentValues weatherValues = new ContentValues();
 
+            if (locationOperation == -1) {
                 weatherValues.put(WeatherContract.WeatherEntry.COLUMN_LOC_KEY, locationId);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, humidity);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, pressure);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, windSpeed);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, windDirection);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, high);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, low);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, description);
-                weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, weatherId);
-
-                //update our wearable along with everything else
-                if (i == 0) {
-                    sendWeatherInfoToWearable(high, low, weatherId);
-                }
-
-                cVVector.add(weatherValues);
             }
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DATE, dateTime);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_HUMIDITY, day.humidity);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_PRESSURE, day.pressure);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WIND_SPEED, day.windSpeed);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_DEGREES, day.windDirection);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MAX_TEMP, day.high);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_MIN_TEMP, day.low);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_SHORT_DESC, day.description);
+            weatherValues.put(WeatherContract.WeatherEntry.COLUMN_WEATHER_ID, day.weatherId);
+
+            ContentProviderOperation.Builder insert = ContentProviderOperation
+                    .newInsert(WeatherContract.WeatherEntry.CONTENT_URI)
+                    .withValues(weatherValues);
+            if (locationOperation != -1) {
+                // The location is inserted by this batch, so its id isn't known yet
+                insert.withValueBackReference(WeatherContract.WeatherEntry.COLUMN_LOC_KEY,
+                        locationOperation);
+            }
+            operations.add(insert.build());
+        }
 
-            int inserted = 0;
-            // add to database
-            if ( cVVector.size() > 0 ) {
-                ContentValues[] cvArray = new ContentValues[cVVector.size()];
-                cVVector.toArray(cvArray);
-                getContext().getContentResolver().bulkInsert(WeatherContract.WeatherEntry.CONTENT_URI, cvArray);
-
-                // delete old data so we don't build up an endless history
-                getContext().getContentResolver().delete(WeatherContract.WeatherEntry.CONTENT_URI,
-                        WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
-                        new String[] {Long.toString(dayTime.setJulianDay(julianStartDay-1))});
-
-                updateWidgets();
-                updateMuzei();
-                notifyWeather();
+        int days = forecastDays.size();
+        // add to database
+        if ( days > 0 ) {
+            // delete old data so we don't build up an endless history, unless the user
+            // asked for one, in which case the days are moved into the history tables first
+            String yesterday = Long.toString(dayTime.startOfLocalDay(localStartDay-1));
+            if (Utility.isHistoryEnabled(context)) {
+                long start = System.nanoTime();
+                archiveHistory(yesterday, dayTime.startOfLocalDay(localStartDay));
+                trace.record("history", start, 0, 0);
+            }
+            operations.add(ContentProviderOperation
+                    .newDelete(WeatherContract.WeatherEntry.CONTENT_URI)
+                    .withSelection(WeatherContract.WeatherEntry.COLUMN_DATE + " <= ?",
+                            new String[] {yesterday})
+                    .build());
+
+            ContentProviderResult[] results;
+            long start = System.nanoTime();
+            try {
+                results = context.getContentResolver().applyBatch(
+                        WeatherContract.CONTENT_AUTHORITY, operations);
+            } catch (RemoteException | OperationApplicationException e) {
+                // Nothing was written, so the forecast we already have stays as it was until
+                // the sync manager retries
+                Log.e(LOG_TAG, "Error saving forecast", e);
+                return false;
+            }
+            final long committed = System.nanoTime();
+            // The days, the new location if any, and then the days that have gone by
+            Integer deleted = results[results.length - 1].count;
+            trace.record("save", start, 0,
+                    results.length - 1 + (deleted != null ? deleted : 0));
+            if (locationOperation != -1) {
+                locationId = ContentUris.parseId(results[locationOperation].uri);
             }
-            Log.d(LOG_TAG, "Sync Complete. " + cVVector.size() + " Inserted");
-            setLocationStatus(getContext(), LOCATION_STATUS_OK);
 
-        } catch (JSONException e) {
-            Log.e(LOG_TAG, e.getMessage(), e);
-            e.printStackTrace();
-            setLocationStatus(getContext(), LOCATION_STATUS_SERVER_INVALID);
+            // The hourly forecast and the art can wait for a better moment
+            start = System.nanoTime();
+            SyncPolicy.Decision decision =
+                    AdaptiveSyncScheduler.onSyncComplete(context, dates, weatherIds, highs);
+            trace.record("schedule", start, 0, 0);
+            if (!decision.deferOptionalWork) {
+                start = System.nanoTime();
+                int hours = syncHourlyForecast(locationId);
+                trace.record("hourly", start, 0, Math.max(hours, 0));
+                start = System.nanoTime();
+                ArtPrefetcher.prefetch(context, weatherIds);
+                trace.record("art", start, 0, weatherIds.length);
+            }
+
+            // The forecast is safely stored, so the rest needn't keep the sync going
+            final Forecast.Day today = forecastDays.get(0);
+            new PostSyncFanOut(context, trace)
+                    .add("wear", new Runnable() {
+                        @Override
+                        public void run() {
+                            sendWeatherInfoToWearable(today.high, today.low, today.weatherId);
+                        }
+                    })
+                    .add("widgets", new Runnable() {
+                        @Override
+                        public void run() {
+                            updateWidgets(context);
+                        }
+                    })
+                    .add("muzei", new Runnable() {
+                        @Override
+                        public void run() {
+                            updateMuzei(context);
+                        }
+                    })
+                    .add("notification", new Runnable() {
+                        @Override
+                        public void run() {
+                            // From the commit, so the time it waited for a thread counts too
+                            if (WeatherNotifier.notify(context, today)
+                                    == WeatherNotifier.RESULT_POSTED) {
+                                trace.record("notification:post", committed, 0, 1);
+                            }
+                        }
+                    })
+                    .dispatch();
         }
+        Log.d(LOG_TAG, "Sync Complete. " + days + " Inserted");
+        setLocationStatus(getContext(), LOCATION_STATUS_OK);
+        return true;
+    }
+
+    private void archiveHistory(String lastDate, long today) {
+        ContentResolver resolver = getContext().getContentResolver();
+        Bundle archived = resolver.call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.HistoryEntry.METHOD_ARCHIVE, lastDate, null);
+        // Folding old months into summaries is cheap when there is nothing to fold, so it
+        // simply runs on every sync.
+        Bundle compacted = resolver.call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.HistoryEntry.METHOD_COMPACT, Long.toString(today), null);
+        Log.d(LOG_TAG, "History: " + archived.getInt(WeatherContract.HistoryEntry.EXTRA_COUNT)
+                + " days archived, "
+                + compacted.getInt(WeatherContract.HistoryEntry.EXTRA_COUNT)
+                + " months compacted");
     }
 
     //update our watchface
@@ -418,12 +461,12 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
 
         mGoogleApiClient.connect();
 
-        PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(WEATHER_INFO_PATH);
+        PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(WearableProtocol.WEATHER_INFO_PATH);
 
-        putDataMapRequest.getDataMap().putString(KEY_UUID, UUID.randomUUID().toString());
-        putDataMapRequest.getDataMap().putString(KEY_HIGH, Utility.formatTemperature(getContext(), high));
-        putDataMapRequest.getDataMap().putString(KEY_LOW, Utility.formatTemperature(getContext(), low));
-        putDataMapRequest.getDataMap().putInt(KEY_WEATHER_ID, weatherId);
+        putDataMapRequest.getDataMap().putString(WearableProtocol.KEY_UUID, UUID.randomUUID().toString());
+        putDataMapRequest.getDataMap().putString(WearableProtocol.KEY_HIGH, Utility.formatTemperature(getContext(), high));
+        putDataMapRequest.getDataMap().putString(WearableProtocol.KEY_LOW, Utility.formatTemperature(getContext(), low));
+        putDataMapRequest.getDataMap().putInt(WearableProtocol.KEY_WEATHER_ID, weatherId);
 
         PutDataRequest request = putDataMapRequest.asPutDataRequest();
 
@@ -442,144 +485,35 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
                 });
     }
 
-    private void updateWidgets() {
-        Context context = getContext();
+    /**
+     * Tells the widgets that the forecast has changed.
+     */
+    public static void updateWidgets(Context context) {
         // Setting the package ensures that only components in our app will receive the broadcast
         Intent dataUpdatedIntent = new Intent(ACTION_DATA_UPDATED)
                 .setPackage(context.getPackageName());
         context.sendBroadcast(dataUpdatedIntent);
     }
 
-    private void updateMuzei() {
+    /**
+     * Tells the Muzei source that the forecast has changed.
+     */
+    public static void updateMuzei(Context context) {
         // Muzei is only compatible with Jelly Bean MR1+ devices, so there's no need to update the
         // Muzei background on lower API level devices
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            Context context = getContext();
             context.startService(new Intent(ACTION_DATA_UPDATED)
                     .setClass(context, WeatherMuzeiSource.class));
         }
     }
 
-    private void notifyWeather() {
-        Context context = getContext();
-        //checking the last update and notify if it' the first of the day
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
-        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
-        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
-                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
-
-        if ( displayNotifications ) {
-
-            String lastNotificationKey = context.getString(R.string.pref_last_notification);
-            long lastSync = prefs.getLong(lastNotificationKey, 0);
-
-            if (System.currentTimeMillis() - lastSync >= DAY_IN_MILLIS) {
-                // Last sync was more than 1 day ago, let's send a notification with the weather.
-                String locationQuery = Utility.getPreferredLocation(context);
-
-                Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(locationQuery, System.currentTimeMillis());
-
-                // we'll query our contentProvider, as always
-                Cursor cursor = context.getContentResolver().query(weatherUri, NOTIFY_WEATHER_PROJECTION, null, null, null);
-
-                if (cursor.moveToFirst()) {
-                    int weatherId = cursor.getInt(INDEX_WEATHER_ID);
-                    double high = cursor.getDouble(INDEX_MAX_TEMP);
-                    double low = cursor.getDouble(INDEX_MIN_TEMP);
-                    String desc = cursor.getString(INDEX_SHORT_DESC);
-
-                    int iconId = Utility.getIconResourceForWeatherCondition(weatherId);
-                    Resources resources = context.getResources();
-                    int artResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-                    String artUrl = Utility.getArtUrlForWeatherCondition(context, weatherId);
-
-                    // On Honeycomb and higher devices, we can retrieve the size of the large icon
-                    // Prior to that, we use a fixed size
-                    @SuppressLint("InlinedApi")
-                    int largeIconWidth = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_width)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-                    @SuppressLint("InlinedApi")
-                    int largeIconHeight = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
-                            ? resources.getDimensionPixelSize(android.R.dimen.notification_large_icon_height)
-                            : resources.getDimensionPixelSize(R.dimen.notification_large_icon_default);
-
-                    // Retrieve the large icon
-                    Bitmap largeIcon;
-                    try {
-                        largeIcon = Glide.with(context)
-                                .load(artUrl)
-                                .asBitmap()
-                                .error(artResourceId)
-                                .fitCenter()
-                                .into(largeIconWidth, largeIconHeight).get();
-                    } catch (InterruptedException | ExecutionException e) {
-                        Log.e(LOG_TAG, "Error retrieving large icon from " + artUrl, e);
-                        largeIcon = BitmapFactory.decodeResource(resources, artResourceId);
-                    }
-                    String title = context.getString(R.string.app_name);
-
-                    // Define the text of the forecast.
-                    String contentText = String.format(context.getString(R.string.format_notification),
-                            desc,
-                            Utility.formatTemperature(context, high),
-                            Utility.formatTemperature(context, low));
-
-                    // NotificationCompatBuilder is a very convenient way to build backward-compatible
-                    // notifications.  Just throw in some data.
-                    NotificationCompat.Builder mBuilder =
-                            new NotificationCompat.Builder(getContext())
-                                    .setColor(resources.getColor(R.color.primary_light))
-                                    .setSmallIcon(iconId)
-                                    .setLargeIcon(largeIcon)
-                                    .setContentTitle(title)
-                                    .setContentText(contentText);
-
-                    // Make something interesting happen when the user clicks on the notification.
-                    // In this case, opening the app is sufficient.
-                    Intent resultIntent = new Intent(context, MainActivity.class);
-
-                    // The stack builder object will contain an artificial back stack for the
-                    // started Activity.
-                    // This ensures that navigating backward from the Activity leads out of
-                    // your application to the Home screen.
-                    TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
-                    stackBuilder.addNextIntent(resultIntent);
-                    PendingIntent resultPendingIntent =
-                            stackBuilder.getPendingIntent(
-                                    0,
-                                    PendingIntent.FLAG_UPDATE_CURRENT
-                            );
-                    mBuilder.setContentIntent(resultPendingIntent);
-
-                    NotificationManager mNotificationManager =
-                            (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
-                    // WEATHER_NOTIFICATION_ID allows you to update the notification later on.
-                    mNotificationManager.notify(WEATHER_NOTIFICATION_ID, mBuilder.build());
-
-                    //refreshing last sync
-                    SharedPreferences.Editor editor = prefs.edit();
-                    editor.putLong(lastNotificationKey, System.currentTimeMillis());
-                    editor.commit();
-                }
-                cursor.close();
-            }
-        }
-    }
-
     /**
-     * Helper method to handle insertion of a new location in the weather database.
-     *
-     * @param locationSetting The location string used to request updates from the server.
-     * @param cityName A human-readable city name, e.g "Mountain View"
-     * @param lat the latitude of the city
-     * @param lon the longitude of the city
-     * @return the row ID of the added location.
+     * @return the _id of the location with the given setting, or -1 if it hasn't been added.
      */
-    long addLocation(String locationSetting, String cityName, double lat, double lon) {
-        long locationId;
+    long getLocationId(String locationSetting) {
+        long locationId = -1;
 
-        // First, check if the location with this city name exists in the db
+        // Check if the location with this city name exists in the db
         Cursor locationCursor = getContext().getContentResolver().query(
                 WeatherContract.LocationEntry.CONTENT_URI,
                 new String[]{WeatherContract.LocationEntry._ID},
@@ -590,33 +524,32 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         if (locationCursor.moveToFirst()) {
             int locationIdIndex = locationCursor.getColumnIndex(WeatherContract.LocationEntry._ID);
             locationId = locationCursor.getLong(locationIdIndex);
-        } else {
-            // Now that the content provider is set up, inserting rows of data is pretty simple.
-            // First create a ContentValues object to hold the data you want to insert.
-            ContentValues locationValues = new ContentValues();
-
-            // Then add the data, along with the corresponding name of the data type,
-            // so the content provider knows what kind of value is being inserted.
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
-            locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
-
-            // Finally, insert location data into the database.
-            Uri insertedUri = getContext().getContentResolver().insert(
-                    WeatherContract.LocationEntry.CONTENT_URI,
-                    locationValues
-            );
-
-            // The resulting URI contains the ID for the row.  Extract the locationId from the Uri.
-            locationId = ContentUris.parseId(insertedUri);
         }
 
         locationCursor.close();
-        // Wait, that worked?  Yes!
         return locationId;
     }
 
+    /**
+     * Builds the operation that adds a new location.  The id of the new row is in the uri of
+     * the operation's result.
+     */
+    static ContentProviderOperation newLocationInsert(String locationSetting, String cityName,
+                                                      double lat, double lon) {
+        // Create a ContentValues object to hold the data you want to insert, along with the
+        // corresponding name of the data type, so the content provider knows what kind of value
+        // is being inserted.
+        ContentValues locationValues = new ContentValues();
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_CITY_NAME, cityName);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_LOCATION_SETTING, locationSetting);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LAT, lat);
+        locationValues.put(WeatherContract.LocationEntry.COLUMN_COORD_LONG, lon);
+
+        return ContentProviderOperation.newInsert(WeatherContract.LocationEntry.CONTENT_URI)
+                .withValues(locationValues)
+                .build();
+    }
+
     /**
      * Helper method to schedule the sync adapter periodic execution
      */
@@ -636,6 +569,22 @@ public class SunshineSyncAdapter extends AbstractThreadedSyncAdapter {
         }
     }
 
+    /**
+     * Backs the periodic sync off to the safety interval, because a pushed forecast was just
+     * applied.  Once no push has arrived for a safety interval, syncs go back to normal.
+     */
+    public static void onForecastPushed(Context context) {
+        AdaptiveSyncScheduler.setLastPush(context, System.currentTimeMillis());
+    }
+
+    /**
+     * Brings the periodic sync back straight away, e.g. when the device couldn't register for
+     * pushes.
+     */
+    public static void stopPushSync(Context context) {
+        AdaptiveSyncScheduler.setLastPush(context, 0);
+    }
+
    //Causes mobile to sync when called
     public static void syncImmediately(Context context) {
         Bundle bundle = new Bundle();
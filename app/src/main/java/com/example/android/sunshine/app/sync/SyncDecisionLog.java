@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.sunshine.core.SyncPolicy;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Appends every sync scheduling decision, with what it was based on, to a CSV file in the app's
+ * files directory so the policy can be tuned offline.  Pull it with
+ * adb shell run-as com.example.android.sunshine.app cat files/sync_decisions.csv
+ *
+ * The file is rolled over to sync_decisions.old.csv when it gets past {@link #MAX_BYTES}.
+ */
+final class SyncDecisionLog {
+    private static final String LOG_TAG = SyncDecisionLog.class.getSimpleName();
+
+    static final String FILE_NAME = "sync_decisions.csv";
+    static final String OLD_FILE_NAME = "sync_decisions.old.csv";
+    static final long MAX_BYTES = 64 * 1024;
+
+    // Must match Inputs.toString() and Decision.toString()
+    static final String HEADER = "time,unchanged_syncs,condition_changed,max_temp_change,severe,"
+            + "metered,battery_low,charging,push_active,interval,flex,defer_optional,reason";
+
+    private SyncDecisionLog() {
+    }
+
+    static synchronized void append(Context context, long timeInMillis, SyncPolicy.Inputs inputs,
+                                    SyncPolicy.Decision decision) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (file.length() > MAX_BYTES) {
+            File old = new File(context.getFilesDir(), OLD_FILE_NAME);
+            if (!file.renameTo(old)) {
+                Log.w(LOG_TAG, "Couldn't roll over " + file);
+            }
+        }
+        boolean isNew = !file.exists();
+        Writer writer = null;
+        try {
+            writer = new FileWriter(file, true);
+            if (isNew) {
+                writer.write(HEADER);
+                writer.write('\n');
+            }
+            writer.write(timeInMillis + "," + inputs + "," + decision + "\n");
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error logging sync decision", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing " + file, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.android.sunshine.core.SyncTrace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the {@link SyncTrace}s of the last {@link #CAPACITY} syncs, in memory and in a small
+ * file in the app's files directory, since the system often kills the app's process between
+ * syncs.  Read them, with per-stage statistics, with
+ * adb shell dumpsys activity provider com.example.android.sunshine.app/.data.WeatherProvider
+ * while the app's process is running.
+ */
+public final class SyncTraces {
+    private static final String LOG_TAG = SyncTraces.class.getSimpleName();
+
+    static final String FILE_NAME = "sync_traces.txt";
+    static final int CAPACITY = 20;
+
+    // Null until the file has been read
+    private static ArrayDeque<SyncTrace> sTraces;
+    private static volatile SyncTrace sCurrent;
+
+    private SyncTraces() {
+    }
+
+    /**
+     * @return the trace of the sync in progress, null if there is none.  Lets code that the
+     * sync only reaches indirectly, such as the HTTP client, add its stages.
+     */
+    public static SyncTrace current() {
+        return sCurrent;
+    }
+
+    static SyncTrace begin() {
+        SyncTrace trace = new SyncTrace(System.currentTimeMillis());
+        sCurrent = trace;
+        return trace;
+    }
+
+    static synchronized void end(Context context, SyncTrace trace, String result) {
+        trace.finish(result);
+        if (sCurrent == trace) {
+            sCurrent = null;
+        }
+        ArrayDeque<SyncTrace> traces = load(context);
+        traces.addLast(trace);
+        while (traces.size() > CAPACITY) {
+            traces.removeFirst();
+        }
+        save(context, traces);
+        Log.d(LOG_TAG, trace.toString());
+    }
+
+    /**
+     * Saves the stages added to a trace after its sync ended, by {@link PostSyncFanOut}.
+     */
+    static synchronized void amend(Context context) {
+        save(context, load(context));
+    }
+
+    /**
+     * Prints the kept syncs, oldest first, and the statistics over all of them.
+     */
+    public static synchronized void dump(Context context, PrintWriter writer) {
+        List<SyncTrace> traces = new ArrayList<>(load(context));
+        writer.println("Last " + traces.size() + " syncs:");
+        for (SyncTrace trace : traces) {
+            writer.print(trace);
+        }
+        writer.println();
+        writer.println("Per stage:");
+        writer.print(SyncTrace.summarize(traces));
+    }
+
+    private static ArrayDeque<SyncTrace> load(Context context) {
+        if (sTraces != null) {
+            return sTraces;
+        }
+        sTraces = new ArrayDeque<>(CAPACITY + 1);
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(
+                    new FileReader(new File(context.getFilesDir(), FILE_NAME)));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                SyncTrace trace = SyncTrace.fromLine(line);
+                if (trace != null) {
+                    sTraces.addLast(trace);
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // No sync has finished yet
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error reading sync traces", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing sync traces", e);
+                }
+            }
+        }
+        return sTraces;
+    }
+
+    private static void save(Context context, ArrayDeque<SyncTrace> traces) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        Writer writer = null;
+        try {
+            writer = new FileWriter(file);
+            for (SyncTrace trace : traces) {
+                writer.write(trace.toLine());
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Error saving sync traces", e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Error closing " + file, e);
+                }
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.example.android.sunshine.app.sync;
 
 import android.util.Log;
 
+import com.example.android.sunshine.core.WearableProtocol;
+
 import com.google.android.gms.wearable.DataEvent;
 import com.google.android.gms.wearable.DataEventBuffer;
 import com.google.android.gms.wearable.WearableListenerService;
@@ -12,15 +14,13 @@ public class WearWeatherService extends WearableListenerService {
 
     private static final String TAG = WearWeatherService.class.getSimpleName();
 
-    private static final String WEATHER_PATH = "/weather";
-
     @Override
     public void onDataChanged(DataEventBuffer dataEvents) {
         for (DataEvent dataEvent : dataEvents) {
             if (dataEvent.getType() == DataEvent.TYPE_CHANGED) {
                 String path = dataEvent.getDataItem().getUri().getPath();
                 Log.d(TAG, path);
-                if (path.equals(WEATHER_PATH)) {
+                if (path.equals(WearableProtocol.WEATHER_PATH)) {
                     SunshineSyncAdapter.syncImmediately(this);
                 }
             }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.sync;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.preference.PreferenceManager;
+import android.support.v4.app.NotificationCompat;
+import android.support.v4.app.TaskStackBuilder;
+import android.util.Log;
+
+import com.example.android.sunshine.app.MainActivity;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.NotificationArt;
+import com.example.android.sunshine.core.Forecast;
+
+/**
+ * Posts today's forecast as a notification after a sync, at most once a day.
+ *
+ * It works from the forecast the sync has just stored, rather than reading it back from the
+ * provider, and takes the large icon from {@link NotificationArt}.
+ */
+final class WeatherNotifier {
+    private static final String LOG_TAG = WeatherNotifier.class.getSimpleName();
+
+    static final int RESULT_POSTED = 0;
+    static final int RESULT_DISABLED = 1;
+    static final int RESULT_TOO_SOON = 2;
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+    private static final int WEATHER_NOTIFICATION_ID = 3004;
+
+    // Long enough for a download the prefetch didn't get to, short enough to leave the
+    // fan-out time to spare
+    private static final long ART_TIMEOUT_MILLIS = 5 * 1000;
+
+    private WeatherNotifier() {
+    }
+
+    /**
+     * Blocks while it loads the large icon, so call it from a background thread.
+     *
+     * @return one of the RESULT_ constants
+     */
+    static int notify(Context context, Forecast.Day today) {
+        return notify(context, today, System.currentTimeMillis());
+    }
+
+    static int notify(Context context, Forecast.Day today, long now) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String displayNotificationsKey = context.getString(R.string.pref_enable_notifications_key);
+        boolean displayNotifications = prefs.getBoolean(displayNotificationsKey,
+                Boolean.parseBoolean(context.getString(R.string.pref_enable_notifications_default)));
+        if (!displayNotifications) {
+            return RESULT_DISABLED;
+        }
+
+        String title = context.getString(R.string.app_name);
+        String contentText = String.format(context.getString(R.string.format_notification),
+                today.description,
+                Utility.formatTemperature(context, today.high),
+                Utility.formatTemperature(context, today.low));
+        int iconId = Utility.getIconResourceForWeatherCondition(today.weatherId);
+
+        // Only the first of the day
+        String lastNotificationKey = context.getString(R.string.pref_last_notification);
+        if (now - prefs.getLong(lastNotificationKey, 0) < DAY_IN_MILLIS) {
+            return RESULT_TOO_SOON;
+        }
+
+        Bitmap largeIcon = NotificationArt.get(context, today.weatherId, ART_TIMEOUT_MILLIS);
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context)
+                .setColor(context.getResources().getColor(R.color.primary_light))
+                .setSmallIcon(iconId)
+                .setLargeIcon(largeIcon)
+                .setContentTitle(title)
+                .setContentText(contentText);
+
+        // Opening the app is all a click needs to do; the artificial back stack makes back
+        // lead out of it to the Home screen.
+        TaskStackBuilder stackBuilder = TaskStackBuilder.create(context);
+        stackBuilder.addNextIntent(new Intent(context, MainActivity.class));
+        builder.setContentIntent(
+                stackBuilder.getPendingIntent(0, PendingIntent.FLAG_UPDATE_CURRENT));
+
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        // WEATHER_NOTIFICATION_ID allows us to update the notification later on.
+        notificationManager.notify(WEATHER_NOTIFICATION_ID, builder.build());
+
+        prefs.edit().putLong(lastNotificationKey, now).commit();
+        Log.d(LOG_TAG, "Posted " + contentText);
+        return RESULT_POSTED;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.android.sunshine.app.widget;
+
+import android.annotation.TargetApi;
+import android.app.IntentService;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Intent;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IntentService which checks the rows of the detail widgets against the latest data, and only
+ * asks the widgets to reload their list if one of them changed.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+public class DetailWidgetIntentService extends IntentService {
+    private static final String LOG_TAG = DetailWidgetIntentService.class.getSimpleName();
+
+    // What each row showed the last time the list was reloaded.  Lost with the process, which
+    // only means the next update reloads the list.  Only touched on the service's worker thread.
+    private static List<String> sRows;
+
+    public DetailWidgetIntentService() {
+        super("DetailWidgetIntentService");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(this);
+        int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(this,
+                DetailWidgetProvider.class));
+        if (appWidgetIds.length == 0) {
+            sRows = null;
+            return;
+        }
+
+        // The same rows the widget's RemoteViewsFactory will load
+        String location = Utility.getPreferredLocation(this);
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
+        Cursor data = getContentResolver().query(weatherForLocationUri,
+                DetailWidgetRemoteViewsFactory.FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        if (data == null) {
+            return;
+        }
+        boolean localGraphics = Utility.usingLocalGraphics(this);
+        List<String> rows = new ArrayList<>(data.getCount());
+        while (data.moveToNext()) {
+            rows.add(getRow(data, localGraphics));
+        }
+        data.close();
+
+        int changed = countChangedRows(sRows, rows);
+        if (changed == 0) {
+            Log.d(LOG_TAG, "Detail widget rows unchanged, skipping update");
+            return;
+        }
+        Log.d(LOG_TAG, changed + " of " + rows.size() + " detail widget rows changed");
+        sRows = rows;
+        appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_list);
+    }
+
+    /**
+     * @return everything a row of the widget shows, to tell whether it has changed.
+     */
+    private String getRow(Cursor data, boolean localGraphics) {
+        int weatherId = data.getInt(DetailWidgetRemoteViewsFactory.INDEX_WEATHER_CONDITION_ID);
+        String art = localGraphics
+                ? Integer.toString(Utility.getIconResourceForWeatherCondition(weatherId))
+                : Utility.getArtUrlForWeatherCondition(this, weatherId);
+        return data.getLong(DetailWidgetRemoteViewsFactory.INDEX_WEATHER_DATE) + "|"
+                + Utility.getFriendlyDayString(this,
+                        data.getLong(DetailWidgetRemoteViewsFactory.INDEX_WEATHER_DATE), false) + "|"
+                + art + "|"
+                + data.getString(DetailWidgetRemoteViewsFactory.INDEX_WEATHER_DESC) + "|"
+                + Utility.formatTemperature(this,
+                        data.getDouble(DetailWidgetRemoteViewsFactory.INDEX_WEATHER_MAX_TEMP)) + "|"
+                + Utility.formatTemperature(this,
+                        data.getDouble(DetailWidgetRemoteViewsFactory.INDEX_WEATHER_MIN_TEMP));
+    }
+
+    /**
+     * @return the number of rows that differ, counting rows that were added or removed.  Every
+     * row counts as changed if there's nothing to compare with.
+     */
+    static int countChangedRows(List<String> oldRows, List<String> newRows) {
+        if (oldRows == null) {
+            return Math.max(1, newRows.size());
+        }
+        int changed = Math.abs(oldRows.size() - newRows.size());
+        int common = Math.min(oldRows.size(), newRows.size());
+        for (int i = 0; i < common; i++) {
+            if (!oldRows.get(i).equals(newRows.get(i))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.android.sunshine.app.widget;
+
+import android.annotation.TargetApi;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.AdapterView;
+import android.widget.RemoteViews;
+import android.widget.RemoteViewsService;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.request.animation.GlideAnimation;
+import com.bumptech.glide.request.target.SimpleTarget;
+import com.example.android.sunshine.app.R;
+import com.example.android.sunshine.app.Utility;
+import com.example.android.sunshine.app.art.ArtRequests;
+import com.example.android.sunshine.app.art.ArtSizes;
+import com.example.android.sunshine.app.data.WeatherContract;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills in the rows of the scrollable weather detail widget.
+ *
+ * The art for all of the rows is requested at once when the data set changes, and the rows are
+ * built from whatever has arrived when the pictures are in or {@link #ART_TIMEOUT_MS} runs out,
+ * whichever comes first.  Glide's source pool bounds how many downloads run at a time.  Rows
+ * whose art is late show the bundled icon, and the list is refreshed when the art gets here.
+ */
+@TargetApi(Build.VERSION_CODES.HONEYCOMB)
+class DetailWidgetRemoteViewsFactory implements RemoteViewsService.RemoteViewsFactory {
+    private static final String LOG_TAG = DetailWidgetRemoteViewsFactory.class.getSimpleName();
+
+    // The longest onDataSetChanged waits for art before drawing the rows without it
+    static final long ART_TIMEOUT_MS = 3000;
+
+    static final String[] FORECAST_COLUMNS = {
+            WeatherContract.WeatherEntry.TABLE_NAME + "." + WeatherContract.WeatherEntry._ID,
+            WeatherContract.WeatherEntry.COLUMN_DATE,
+            WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
+            WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
+            WeatherContract.WeatherEntry.COLUMN_MAX_TEMP,
+            WeatherContract.WeatherEntry.COLUMN_MIN_TEMP
+    };
+    // these indices must match the projection
+    static final int INDEX_WEATHER_ID = 0;
+    static final int INDEX_WEATHER_DATE = 1;
+    static final int INDEX_WEATHER_CONDITION_ID = 2;
+    static final int INDEX_WEATHER_DESC = 3;
+    static final int INDEX_WEATHER_MAX_TEMP = 4;
+    static final int INDEX_WEATHER_MIN_TEMP = 5;
+
+    private final Context mContext;
+    // Glide starts and clears its requests on the main thread
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private Cursor data = null;
+
+    // The art that has arrived for the current data set, by url.  Written on the main thread,
+    // read on the binder thread that builds the rows.
+    private final Map<String, Bitmap> mArt = new ConcurrentHashMap<>();
+    // The requests for the current data set.  Only touched on the main thread.
+    private final List<ArtTarget> mTargets = new ArrayList<>();
+    // Bumped for every data set, so that art for an older one is ignored
+    private volatile int mGeneration;
+    // True while onDataSetChanged is waiting; art that arrives afterwards has missed the rows
+    private volatile boolean mWaitingForArt;
+
+    DetailWidgetRemoteViewsFactory(Context context) {
+        mContext = context;
+    }
+
+    @Override
+    public void onCreate() {
+        // Nothing to do
+    }
+
+    @Override
+    public void onDataSetChanged() {
+        if (data != null) {
+            data.close();
+        }
+        // This method is called by the app hosting the widget (e.g., the launcher)
+        // However, our ContentProvider is not exported so it doesn't have access to the
+        // data. Therefore we need to clear (and finally restore) the calling identity so
+        // that calls use our process and permission
+        final long identityToken = Binder.clearCallingIdentity();
+        String location = Utility.getPreferredLocation(mContext);
+        Uri weatherForLocationUri = WeatherContract.WeatherEntry
+                .buildWeatherLocationWithStartDate(location, System.currentTimeMillis());
+        data = mContext.getContentResolver().query(weatherForLocationUri,
+                FORECAST_COLUMNS,
+                null,
+                null,
+                WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
+        Binder.restoreCallingIdentity(identityToken);
+
+        loadArt();
+    }
+
+    /**
+     * Requests the art for every row at once and waits until it is all in, or until the
+     * timeout.
+     */
+    private void loadArt() {
+        final int generation = ++mGeneration;
+        final Set<String> artUrls = new LinkedHashSet<>();
+        if (data != null && !Utility.usingLocalGraphics(mContext)) {
+            for (int i = 0; data.moveToPosition(i); i++) {
+                String artUrl = Utility.getArtUrlForWeatherCondition(mContext,
+                        data.getInt(INDEX_WEATHER_CONDITION_ID));
+                if (artUrl != null) {
+                    artUrls.add(artUrl);
+                }
+            }
+        }
+
+        final CountDownLatch loaded = new CountDownLatch(artUrls.size());
+        mWaitingForArt = true;
+        final int iconSize = ArtSizes.getListIconSize(mContext);
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                clearTargets();
+                mArt.clear();
+                RequestManager glide = Glide.with(mContext);
+                for (String artUrl : artUrls) {
+                    ArtTarget target = new ArtTarget(artUrl, iconSize, generation, loaded);
+                    mTargets.add(target);
+                    ArtRequests.forBitmap(glide, artUrl).into(target);
+                }
+            }
+        });
+
+        try {
+            if (!loaded.await(ART_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.d(LOG_TAG, loaded.getCount() + " of " + artUrls.size()
+                        + " pictures are late, showing icons for now");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            mWaitingForArt = false;
+        }
+    }
+
+    // Called on the main thread
+    private void clearTargets() {
+        for (ArtTarget target : mTargets) {
+            Glide.clear(target);
+        }
+        mTargets.clear();
+    }
+
+    /**
+     * Receives one picture.  If it comes after the rows were drawn without it, asks the widgets
+     * to load the list again, which finds it in Glide's memory cache.
+     */
+    private class ArtTarget extends SimpleTarget<Bitmap> {
+        final String mArtUrl;
+        final int mTargetGeneration;
+        final CountDownLatch mLoaded;
+
+        ArtTarget(String artUrl, int size, int generation, CountDownLatch loaded) {
+            super(size, size);
+            mArtUrl = artUrl;
+            mTargetGeneration = generation;
+            mLoaded = loaded;
+        }
+
+        @Override
+        public void onResourceReady(Bitmap resource,
+                                    GlideAnimation<? super Bitmap> glideAnimation) {
+            if (mTargetGeneration != mGeneration) {
+                return;
+            }
+            mArt.put(mArtUrl, resource);
+            mLoaded.countDown();
+            if (!mWaitingForArt) {
+                AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(mContext);
+                int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
+                        new ComponentName(mContext, DetailWidgetProvider.class));
+                appWidgetManager.notifyAppWidgetViewDataChanged(appWidgetIds, R.id.widget_list);
+            }
+        }
+
+        @Override
+        public void onLoadFailed(Exception e, Drawable errorDrawable) {
+            Log.e(LOG_TAG, "Error retrieving large icon from " + mArtUrl, e);
+            mLoaded.countDown();
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        mGeneration++;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                clearTargets();
+                mArt.clear();
+            }
+        });
+        if (data != null) {
+            data.close();
+            data = null;
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return data == null ? 0 : data.getCount();
+    }
+
+    @Override
+    public RemoteViews getViewAt(int position) {
+        if (position == AdapterView.INVALID_POSITION ||
+                data == null || !data.moveToPosition(position)) {
+            return null;
+        }
+        RemoteViews views = new RemoteViews(mContext.getPackageName(),
+                R.layout.widget_detail_list_item);
+        int weatherId = data.getInt(INDEX_WEATHER_CONDITION_ID);
+        int weatherArtResourceId = Utility.getIconResourceForWeatherCondition(weatherId);
+        Bitmap weatherArtImage = null;
+        if ( !Utility.usingLocalGraphics(mContext) ) {
+            String weatherArtResourceUrl =
+                    Utility.getArtUrlForWeatherCondition(mContext, weatherId);
+            if (weatherArtResourceUrl != null) {
+                weatherArtImage = mArt.get(weatherArtResourceUrl);
+            }
+        }
+        String description = data.getString(INDEX_WEATHER_DESC);
+        long dateInMillis = data.getLong(INDEX_WEATHER_DATE);
+        String formattedDate = Utility.getFriendlyDayString(mContext, dateInMillis, false);
+        double maxTemp = data.getDouble(INDEX_WEATHER_MAX_TEMP);
+        double minTemp = data.getDouble(INDEX_WEATHER_MIN_TEMP);
+        String formattedMaxTemperature = Utility.formatTemperature(mContext, maxTemp);
+        String formattedMinTemperature = Utility.formatTemperature(mContext, minTemp);
+        if (weatherArtImage != null) {
+            views.setImageViewBitmap(R.id.widget_icon, weatherArtImage);
+        } else {
+            views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+            setRemoteContentDescription(views, description);
+        }
+        views.setTextViewText(R.id.widget_date, formattedDate);
+        views.setTextViewText(R.id.widget_description, description);
+        views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
+        views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+
+        final Intent fillInIntent = new Intent();
+        String locationSetting = Utility.getPreferredLocation(mContext);
+        Uri weatherUri = WeatherContract.WeatherEntry.buildWeatherLocationWithDate(
+                locationSetting,
+                dateInMillis);
+        fillInIntent.setData(weatherUri);
+        views.setOnClickFillInIntent(R.id.widget_list_item, fillInIntent);
+        return views;
+    }
+
+    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1)
+    private void setRemoteContentDescription(RemoteViews views, String description) {
+        views.setContentDescription(R.id.widget_icon, description);
+    }
+
+    @Override
+    public RemoteViews getLoadingView() {
+        return new RemoteViews(mContext.getPackageName(), R.layout.widget_detail_list_item);
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return 1;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        // The days are replaced, with new _ids, on every sync; the date is what stays the same
+        if (data.moveToPosition(position))
+            return data.getLong(INDEX_WEATHER_DATE);
+        return position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+}
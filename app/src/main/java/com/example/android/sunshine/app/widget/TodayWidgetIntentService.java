@@ -26,6 +26,9 @@ import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.DisplayMetrics;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.util.TypedValue;
 import android.widget.RemoteViews;
 
@@ -33,11 +36,18 @@ import com.example.android.sunshine.app.MainActivity;
 import com.example.android.sunshine.app.R;
 import com.example.android.sunshine.app.Utility;
 import com.example.android.sunshine.app.data.WeatherContract;
+import com.example.android.sunshine.core.DayNormalizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * IntentService which handles updating all Today widgets with the latest data
  */
 public class TodayWidgetIntentService extends IntentService {
+    private static final String LOG_TAG = TodayWidgetIntentService.class.getSimpleName();
+
     private static final String[] FORECAST_COLUMNS = {
             WeatherContract.WeatherEntry.COLUMN_WEATHER_ID,
             WeatherContract.WeatherEntry.COLUMN_SHORT_DESC,
@@ -50,6 +60,25 @@ public class TodayWidgetIntentService extends IntentService {
     private static final int INDEX_MAX_TEMP = 2;
     private static final int INDEX_MIN_TEMP = 3;
 
+    /**
+     * Set on intents that must redraw the widgets from scratch, e.g. when the host asks for an
+     * update or a widget is resized.  Without it, only widgets whose values changed are touched.
+     */
+    static final String EXTRA_FULL_UPDATE = "full_update";
+
+    // The layout, the forecast state and the values last sent to each widget, so that an update
+    // can send only what changed.  They're lost with the process, which only means the next
+    // update is a full one.  Only touched on the service's worker thread.
+    private static final SparseIntArray sLayouts = new SparseIntArray();
+    private static final SparseArray<String> sStates = new SparseArray<>();
+    private static final SparseArray<String> sValues = new SparseArray<>();
+
+    private static final WidgetRenderCache sRenders = new WidgetRenderCache();
+
+    // Today's forecast, read at most once per intent and only if a render isn't cached
+    private TodayForecast mToday;
+    private boolean mTodayLoaded;
+
     public TodayWidgetIntentService() {
         super("TodayWidgetIntentService");
     }
@@ -61,6 +90,127 @@ public class TodayWidgetIntentService extends IntentService {
         int[] appWidgetIds = appWidgetManager.getAppWidgetIds(new ComponentName(this,
                 TodayWidgetProvider.class));
 
+        if (intent.getBooleanExtra(EXTRA_FULL_UPDATE, false)) {
+            int[] updatedIds = intent.getIntArrayExtra(AppWidgetManager.EXTRA_APPWIDGET_IDS);
+            forget(updatedIds != null ? updatedIds : appWidgetIds);
+        }
+        mToday = null;
+        mTodayLoaded = false;
+
+        String state = getForecastState();
+
+        // Sort the widgets by the layout their width calls for, into those that need the whole
+        // layout and those that may only need their values replaced.  Widgets that were drawn
+        // from this same state are left alone.  A widget's layout only changes when it is
+        // resized, which comes with a full update, so the one we used last time still holds.
+        SparseArray<List<Integer>> fullUpdates = new SparseArray<>();
+        SparseArray<List<Integer>> partialUpdates = new SparseArray<>();
+        for (int appWidgetId : appWidgetIds) {
+            int layoutId = sLayouts.get(appWidgetId);
+            if (layoutId == 0) {
+                add(fullUpdates, getLayoutId(getWidgetWidth(appWidgetManager, appWidgetId)),
+                        appWidgetId);
+            } else if (!state.equals(sStates.get(appWidgetId))) {
+                add(partialUpdates, layoutId, appWidgetId);
+            }
+        }
+
+        // Widgets with the same layout share one RemoteViews and one call
+        for (int i = 0; i < fullUpdates.size(); i++) {
+            int layoutId = fullUpdates.keyAt(i);
+            int[] ids = toArray(fullUpdates.valueAt(i));
+            WidgetRenderCache.Render render = getRender(layoutId, true, state);
+            if (render == null) {
+                return;
+            }
+            // Tell the AppWidgetManager to perform an update on the app widgets
+            appWidgetManager.updateAppWidget(ids, render.views);
+            remember(ids, layoutId, state, render.values);
+        }
+        for (int i = 0; i < partialUpdates.size(); i++) {
+            int layoutId = partialUpdates.keyAt(i);
+            List<Integer> ids = partialUpdates.valueAt(i);
+            WidgetRenderCache.Render render = getRender(layoutId, false, state);
+            if (render == null) {
+                return;
+            }
+            // A new forecast or setting doesn't always change what the widget shows
+            List<Integer> changed = new ArrayList<>(ids.size());
+            for (int appWidgetId : ids) {
+                if (!render.values.equals(sValues.get(appWidgetId))) {
+                    changed.add(appWidgetId);
+                }
+            }
+            if (!changed.isEmpty()) {
+                appWidgetManager.partiallyUpdateAppWidget(toArray(changed), render.views);
+            }
+            remember(toArray(ids), layoutId, state, render.values);
+        }
+
+        if (fullUpdates.size() + partialUpdates.size() > 0) {
+            Log.d(LOG_TAG, "Today widget renders: " + sRenders);
+        }
+    }
+
+    /**
+     * @return everything besides the layout that the widget's RemoteViews depend on.
+     */
+    private String getForecastState() {
+        Bundle version = getContentResolver().call(WeatherContract.BASE_CONTENT_URI,
+                WeatherContract.WeatherEntry.METHOD_GET_VERSION, null, null);
+        return (version != null ? version.getLong(WeatherContract.WeatherEntry.EXTRA_VERSION) : -1)
+                + "|" + Utility.getPreferredLocation(this)
+                + "|" + DayNormalizer.get().getLocalDay(System.currentTimeMillis())
+                + "|" + Utility.isMetric(this)
+                + "|" + Locale.getDefault();
+    }
+
+    /**
+     * @return the cached render for the layout and state, rendering it if needed, or null if
+     * there is no forecast for today.
+     */
+    private WidgetRenderCache.Render getRender(int layoutId, boolean full, String state) {
+        String key = WidgetRenderCache.key(layoutId, full, state);
+        WidgetRenderCache.Render render = sRenders.get(key);
+        if (render != null) {
+            return render;
+        }
+
+        long start = System.nanoTime();
+        if (!mTodayLoaded) {
+            mToday = queryToday();
+            mTodayLoaded = true;
+        }
+        if (mToday == null) {
+            return null;
+        }
+        RemoteViews views = new RemoteViews(getPackageName(), layoutId);
+        setValues(views, mToday.weatherArtResourceId, mToday.description,
+                mToday.formattedMaxTemperature, mToday.formattedMinTemperature);
+        if (full) {
+            // Create an Intent to launch MainActivity
+            Intent launchIntent = new Intent(this, MainActivity.class);
+            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
+            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+        }
+        render = new WidgetRenderCache.Render(views, mToday.values);
+        sRenders.put(key, render, System.nanoTime() - start);
+        return render;
+    }
+
+    /**
+     * What the Today widget shows.
+     */
+    private static final class TodayForecast {
+        int weatherArtResourceId;
+        String description;
+        String formattedMaxTemperature;
+        String formattedMinTemperature;
+        // All of the above, to tell whether it has changed
+        String values;
+    }
+
+    private TodayForecast queryToday() {
         // Get today's data from the ContentProvider
         String location = Utility.getPreferredLocation(this);
         Uri weatherForLocationUri = WeatherContract.WeatherEntry.buildWeatherLocationWithStartDate(
@@ -68,56 +218,86 @@ public class TodayWidgetIntentService extends IntentService {
         Cursor data = getContentResolver().query(weatherForLocationUri, FORECAST_COLUMNS, null,
                 null, WeatherContract.WeatherEntry.COLUMN_DATE + " ASC");
         if (data == null) {
-            return;
+            return null;
         }
         if (!data.moveToFirst()) {
             data.close();
-            return;
+            return null;
         }
 
         // Extract the weather data from the Cursor
+        TodayForecast today = new TodayForecast();
         int weatherId = data.getInt(INDEX_WEATHER_ID);
-        int weatherArtResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
-        String description = data.getString(INDEX_SHORT_DESC);
+        today.weatherArtResourceId = Utility.getArtResourceForWeatherCondition(weatherId);
+        today.description = data.getString(INDEX_SHORT_DESC);
         double maxTemp = data.getDouble(INDEX_MAX_TEMP);
         double minTemp = data.getDouble(INDEX_MIN_TEMP);
-        String formattedMaxTemperature = Utility.formatTemperature(this, maxTemp);
-        String formattedMinTemperature = Utility.formatTemperature(this, minTemp);
+        today.formattedMaxTemperature = Utility.formatTemperature(this, maxTemp);
+        today.formattedMinTemperature = Utility.formatTemperature(this, minTemp);
         data.close();
 
-        // Perform this loop procedure for each Today widget
-        for (int appWidgetId : appWidgetIds) {
-            // Find the correct layout based on the widget's width
-            int widgetWidth = getWidgetWidth(appWidgetManager, appWidgetId);
-            int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
-            int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
-            int layoutId;
-            if (widgetWidth >= largeWidth) {
-                layoutId = R.layout.widget_today_large;
-            } else if (widgetWidth >= defaultWidth) {
-                layoutId = R.layout.widget_today;
-            } else {
-                layoutId = R.layout.widget_today_small;
-            }
-            RemoteViews views = new RemoteViews(getPackageName(), layoutId);
+        today.values = today.weatherArtResourceId + "|" + today.description + "|"
+                + today.formattedMaxTemperature + "|" + today.formattedMinTemperature;
+        return today;
+    }
 
-            // Add the data to the RemoteViews
-            views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
-            // Content Descriptions for RemoteViews were only added in ICS MR1
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
-                setRemoteContentDescription(views, description);
-            }
-            views.setTextViewText(R.id.widget_description, description);
-            views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
-            views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+    private void setValues(RemoteViews views, int weatherArtResourceId, String description,
+                           String formattedMaxTemperature, String formattedMinTemperature) {
+        // Add the data to the RemoteViews
+        views.setImageViewResource(R.id.widget_icon, weatherArtResourceId);
+        // Content Descriptions for RemoteViews were only added in ICS MR1
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH_MR1) {
+            setRemoteContentDescription(views, description);
+        }
+        views.setTextViewText(R.id.widget_description, description);
+        views.setTextViewText(R.id.widget_high_temperature, formattedMaxTemperature);
+        views.setTextViewText(R.id.widget_low_temperature, formattedMinTemperature);
+    }
 
-            // Create an Intent to launch MainActivity
-            Intent launchIntent = new Intent(this, MainActivity.class);
-            PendingIntent pendingIntent = PendingIntent.getActivity(this, 0, launchIntent, 0);
-            views.setOnClickPendingIntent(R.id.widget, pendingIntent);
+    // Find the correct layout based on the widget's width
+    private int getLayoutId(int widgetWidth) {
+        int defaultWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_default_width);
+        int largeWidth = getResources().getDimensionPixelSize(R.dimen.widget_today_large_width);
+        if (widgetWidth >= largeWidth) {
+            return R.layout.widget_today_large;
+        } else if (widgetWidth >= defaultWidth) {
+            return R.layout.widget_today;
+        } else {
+            return R.layout.widget_today_small;
+        }
+    }
 
-            // Tell the AppWidgetManager to perform an update on the current app widget
-            appWidgetManager.updateAppWidget(appWidgetId, views);
+    private static void add(SparseArray<List<Integer>> buckets, int layoutId, int appWidgetId) {
+        List<Integer> ids = buckets.get(layoutId);
+        if (ids == null) {
+            ids = new ArrayList<>();
+            buckets.put(layoutId, ids);
+        }
+        ids.add(appWidgetId);
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static void remember(int[] appWidgetIds, int layoutId, String state,
+                                 String values) {
+        for (int appWidgetId : appWidgetIds) {
+            sLayouts.put(appWidgetId, layoutId);
+            sStates.put(appWidgetId, state);
+            sValues.put(appWidgetId, values);
+        }
+    }
+
+    private static void forget(int[] appWidgetIds) {
+        for (int appWidgetId : appWidgetIds) {
+            sLayouts.delete(appWidgetId);
+            sStates.delete(appWidgetId);
+            sValues.delete(appWidgetId);
         }
     }
 
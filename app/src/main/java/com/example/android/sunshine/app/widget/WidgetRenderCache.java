@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.app.widget;
+
+import android.support.v4.util.LruCache;
+import android.widget.RemoteViews;
+
+import java.util.Locale;
+
+/**
+ * Rendered widget RemoteViews, keyed by everything that goes into them, so that widgets of the
+ * same size share one render and an update with nothing new is a lookup.  Also counts hits and
+ * misses and how long the misses took, for the log.
+ */
+final class WidgetRenderCache {
+
+    /**
+     * A RemoteViews and the values drawn into it.
+     */
+    static final class Render {
+        final RemoteViews views;
+        final String values;
+
+        Render(RemoteViews views, String values) {
+            this.views = views;
+            this.values = values;
+        }
+    }
+
+    // A handful of layouts, full and partial, for the current and the previous forecast
+    private static final int MAX_RENDERS = 12;
+
+    private final LruCache<String, Render> mRenders = new LruCache<>(MAX_RENDERS);
+
+    private int mHits;
+    private int mMisses;
+    private long mRenderNanos;
+
+    /**
+     * @param forecastState the forecast version, units, locale and anything else the values
+     *                      depend on, joined into one string
+     */
+    static String key(int layoutId, boolean full, String forecastState) {
+        return layoutId + (full ? "|full|" : "|partial|") + forecastState;
+    }
+
+    synchronized Render get(String key) {
+        Render render = mRenders.get(key);
+        if (render != null) {
+            mHits++;
+        } else {
+            mMisses++;
+        }
+        return render;
+    }
+
+    /**
+     * @param renderNanos how long it took to produce the render, counted towards the average
+     */
+    synchronized void put(String key, Render render, long renderNanos) {
+        mRenders.put(key, render);
+        mRenderNanos += renderNanos;
+    }
+
+    /**
+     * @return the fraction of lookups that were hits, 0 if there were none.
+     */
+    synchronized float getHitRate() {
+        int lookups = mHits + mMisses;
+        return lookups == 0 ? 0 : (float) mHits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "%d hits, %d misses (%.0f%%), %.2f ms per render",
+                mHits, mMisses, getHitRate() * 100,
+                mMisses == 0 ? 0 : mRenderNanos / 1e6 / mMisses);
+    }
+}
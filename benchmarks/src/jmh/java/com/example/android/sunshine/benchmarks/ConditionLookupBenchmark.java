@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import com.example.android.sunshine.core.WeatherConditions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Condition id lookups, once over the ids of a real forecast and once over every id
+ * OpenWeatherMap defines, where the branch chain's late cases (clouds, extreme weather)
+ * weigh more.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConditionLookupBenchmark {
+
+    private static final String ALL_IDS = "all";
+
+    @Param({Fixtures.LONDON, Fixtures.OSLO, ALL_IDS})
+    public String ids;
+
+    private int[] mIds;
+
+    @Setup
+    public void setUp() throws Exception {
+        if (ALL_IDS.equals(ids)) {
+            mIds = new int[WeatherConditions.MAX_ID - WeatherConditions.MIN_ID + 1];
+            for (int i = 0; i < mIds.length; i++) {
+                mIds[i] = WeatherConditions.MIN_ID + i;
+            }
+        } else {
+            mIds = ForecastArrays.from(Fixtures.load(ids)).weatherIds;
+        }
+    }
+
+    @Benchmark
+    public void branchChain(Blackhole blackhole) {
+        for (int id : mIds) {
+            blackhole.consume(Legacy.getArtName(id));
+        }
+    }
+
+    @Benchmark
+    public void table(Blackhole blackhole) {
+        for (int id : mIds) {
+            blackhole.consume(WeatherConditions.getArtName(id));
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the OpenWeatherMap responses stored under src/jmh/resources/owm.
+ *
+ * They are daily forecast responses (forecast/daily, cnt=14, units=metric), the same request
+ * SunshineSyncAdapter makes.
+ */
+final class Fixtures {
+
+    static final String MOUNTAIN_VIEW = "daily_14_mountain_view";
+    static final String LONDON = "daily_14_london";
+    static final String OSLO = "daily_14_oslo";
+
+    private Fixtures() {
+    }
+
+    static String load(String name) {
+        InputStream in = Fixtures.class.getResourceAsStream("/owm/" + name + ".json");
+        if (in == null) {
+            throw new IllegalArgumentException("No fixture called " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read fixture " + name, e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
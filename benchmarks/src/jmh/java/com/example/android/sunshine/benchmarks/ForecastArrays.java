@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * The values of a fixture that the UI ends up showing, pulled out once during setup.
+ */
+final class ForecastArrays {
+
+    final int size;
+    final double[] highs;
+    final double[] lows;
+    final int[] weatherIds;
+
+    private ForecastArrays(int size) {
+        this.size = size;
+        highs = new double[size];
+        lows = new double[size];
+        weatherIds = new int[size];
+    }
+
+    static ForecastArrays from(String forecastJsonStr) throws JSONException {
+        JSONArray list = new JSONObject(forecastJsonStr).getJSONArray("list");
+        ForecastArrays forecast = new ForecastArrays(list.length());
+        for (int i = 0; i < forecast.size; i++) {
+            JSONObject day = list.getJSONObject(i);
+            JSONObject temperature = day.getJSONObject("temp");
+            forecast.highs[i] = temperature.getDouble("max");
+            forecast.lows[i] = temperature.getDouble("min");
+            forecast.weatherIds[i] = day.getJSONArray("weather").getJSONObject(0).getInt("id");
+        }
+        return forecast;
+    }
+}
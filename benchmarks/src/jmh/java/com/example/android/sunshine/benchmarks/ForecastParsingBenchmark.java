@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import com.example.android.sunshine.core.Forecast;
+import com.example.android.sunshine.core.OpenWeatherMapParser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a daily forecast with OpenWeatherMapParser, and the way
+ * SunshineSyncAdapter.getWeatherDataFromJson used to.
+ *
+ * ContentValues is a thin wrapper around a HashMap, so each old row is a HashMap with the same
+ * keys and boxed values the sync adapter put in.  The database work that follows isn't
+ * included in either.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ForecastParsingBenchmark {
+
+    @Param({Fixtures.MOUNTAIN_VIEW, Fixtures.LONDON, Fixtures.OSLO})
+    public String fixture;
+
+    private String mJson;
+
+    @Setup
+    public void setUp() {
+        mJson = Fixtures.load(fixture);
+    }
+
+    @Benchmark
+    public Vector<Map<String, Object>> contentValues() throws JSONException {
+        return parse(mJson, 1L);
+    }
+
+    @Benchmark
+    public Forecast openWeatherMapParser() throws JSONException, IOException {
+        return OpenWeatherMapParser.parse("benchmark", mJson);
+    }
+
+    static Vector<Map<String, Object>> parse(String forecastJsonStr, long locationId)
+            throws JSONException {
+        JSONObject forecastJson = new JSONObject(forecastJsonStr);
+
+        if (forecastJson.has("cod")) {
+            int errorCode = forecastJson.getInt("cod");
+            if (errorCode != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+        }
+
+        JSONArray weatherArray = forecastJson.getJSONArray("list");
+
+        // The sync adapter hands these to addLocation
+        JSONObject cityJson = forecastJson.getJSONObject("city");
+        cityJson.getString("name");
+        JSONObject cityCoord = cityJson.getJSONObject("coord");
+        cityCoord.getDouble("lat");
+        cityCoord.getDouble("lon");
+
+        Vector<Map<String, Object>> cVVector = new Vector<>(weatherArray.length());
+
+        // Stands in for Time.setJulianDay(julianStartDay + i)
+        Calendar dayTime = Calendar.getInstance();
+        dayTime.setTimeInMillis(Legacy.normalizeDate(System.currentTimeMillis()));
+
+        for (int i = 0; i < weatherArray.length(); i++) {
+            JSONObject dayForecast = weatherArray.getJSONObject(i);
+
+            long dateTime = dayTime.getTimeInMillis();
+            dayTime.add(Calendar.DAY_OF_MONTH, 1);
+
+            double pressure = dayForecast.getDouble("pressure");
+            int humidity = dayForecast.getInt("humidity");
+            double windSpeed = dayForecast.getDouble("speed");
+            double windDirection = dayForecast.getDouble("deg");
+
+            JSONObject weatherObject = dayForecast.getJSONArray("weather").getJSONObject(0);
+            String description = weatherObject.getString("main");
+            int weatherId = weatherObject.getInt("id");
+
+            JSONObject temperatureObject = dayForecast.getJSONObject("temp");
+            double high = temperatureObject.getDouble("max");
+            double low = temperatureObject.getDouble("min");
+
+            Map<String, Object> weatherValues = new HashMap<>(8);
+            weatherValues.put("location_id", locationId);
+            weatherValues.put("date", dateTime);
+            weatherValues.put("humidity", humidity);
+            weatherValues.put("pressure", pressure);
+            weatherValues.put("wind", windSpeed);
+            weatherValues.put("degrees", windDirection);
+            weatherValues.put("max", high);
+            weatherValues.put("min", low);
+            weatherValues.put("short_desc", description);
+            weatherValues.put("weather_id", weatherId);
+
+            cVVector.add(weatherValues);
+        }
+        return cVVector;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import com.example.android.sunshine.core.DateFormatCache;
+import com.example.android.sunshine.core.TemperatureFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Utility helpers that run for every row of the forecast list, the detail widget and the
+ * notification: temperatures and day names.  Each invocation formats one fixture's worth of
+ * highs, lows and dates, like binding the whole list once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FormattingBenchmark {
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    @Param({Fixtures.MOUNTAIN_VIEW, Fixtures.OSLO})
+    public String fixture;
+
+    @Param({"true", "false"})
+    public boolean metric;
+
+    private double[] mHighs;
+    private double[] mLows;
+    private long[] mDates;
+    private final char[] mBuffer = new char[TemperatureFormatter.MAX_LENGTH];
+
+    @Setup
+    public void setUp() throws Exception {
+        ForecastArrays forecast = ForecastArrays.from(Fixtures.load(fixture));
+        mHighs = forecast.highs;
+        mLows = forecast.lows;
+        mDates = new long[forecast.size];
+        long today = System.currentTimeMillis();
+        for (int i = 0; i < mDates.length; i++) {
+            mDates[i] = today + i * DAY_IN_MILLIS;
+        }
+        DateFormatCache.invalidate();
+    }
+
+    @Benchmark
+    public void temperatureStringFormat(Blackhole blackhole) {
+        for (int i = 0; i < mHighs.length; i++) {
+            blackhole.consume(Legacy.formatTemperature(mHighs[i], metric));
+            blackhole.consume(Legacy.formatTemperature(mLows[i], metric));
+        }
+    }
+
+    @Benchmark
+    public void temperatureFormatter(Blackhole blackhole) {
+        for (int i = 0; i < mHighs.length; i++) {
+            blackhole.consume(TemperatureFormatter.format(
+                    TemperatureFormatter.toDisplayUnits(mHighs[i], metric)));
+            blackhole.consume(TemperatureFormatter.format(
+                    TemperatureFormatter.toDisplayUnits(mLows[i], metric)));
+        }
+    }
+
+    @Benchmark
+    public void temperatureFormatterChars(Blackhole blackhole) {
+        for (int i = 0; i < mHighs.length; i++) {
+            blackhole.consume(TemperatureFormatter.format(
+                    TemperatureFormatter.toDisplayUnits(mHighs[i], metric), mBuffer, 0));
+            blackhole.consume(TemperatureFormatter.format(
+                    TemperatureFormatter.toDisplayUnits(mLows[i], metric), mBuffer, 0));
+        }
+    }
+
+    @Benchmark
+    public void dayNamesSimpleDateFormat(Blackhole blackhole) {
+        for (long date : mDates) {
+            blackhole.consume(Legacy.getDayName(date));
+            blackhole.consume(Legacy.getFormattedMonthDay(date));
+        }
+    }
+
+    @Benchmark
+    public void dayNamesDateFormatCache(Blackhole blackhole) {
+        for (long date : mDates) {
+            DateFormatCache cache = DateFormatCache.get();
+            blackhole.consume(cache.format(DateFormatCache.PATTERN_DAY_NAME, date));
+            blackhole.consume(cache.format(DateFormatCache.PATTERN_MONTH_DAY, date));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+
+/**
+ * JVM copies of the code the app used before it was optimized, so every benchmark has a
+ * baseline to compare against.  android.text.format.Time isn't available off device, so the
+ * date code uses Calendar, which allocates about as much.
+ */
+final class Legacy {
+
+    private Legacy() {
+    }
+
+    /**
+     * WeatherContract.normalizeDate: Time.set, Time.getJulianDay, Time.setJulianDay, which
+     * ends up at local midnight.
+     */
+    static long normalizeDate(long startDate) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startDate);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Utility.getDayName for days past tomorrow.
+     */
+    static String getDayName(long dateInMillis) {
+        SimpleDateFormat dayFormat = new SimpleDateFormat("EEEE");
+        return dayFormat.format(dateInMillis);
+    }
+
+    /**
+     * Utility.getFormattedMonthDay.
+     */
+    static String getFormattedMonthDay(long dateInMillis) {
+        SimpleDateFormat monthDayFormat = new SimpleDateFormat("MMMM dd");
+        return monthDayFormat.format(dateInMillis);
+    }
+
+    /**
+     * Utility.formatTemperature with the "format_temperature" string.
+     */
+    static String formatTemperature(double temperature, boolean metric) {
+        if (!metric) {
+            temperature = (temperature * 1.8) + 32;
+        }
+        return String.format("%1.0f\u00B0", temperature);
+    }
+
+    /**
+     * The art name chain from Utility.getArtUrlForWeatherCondition.
+     */
+    static String getArtName(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "storm";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "light_rain";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "rain";
+        } else if (weatherId == 511) {
+            return "snow";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "rain";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "snow";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "fog";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "storm";
+        } else if (weatherId == 800) {
+            return "clear";
+        } else if (weatherId == 801) {
+            return "light_clouds";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "clouds";
+        }
+        return null;
+    }
+
+    /**
+     * The time and temperature text SimpleWatchFaceService.onDraw built every frame.
+     *
+     * @param hour 0-23
+     */
+    static String[] watchFaceText(boolean is24Hour, int hour, int minute, String high,
+                                  String low) {
+        String timeText;
+        if (is24Hour) {
+            timeText = String.format("%02d:%02d", hour, minute);
+        } else {
+            // Calendar.HOUR runs 0-11, and the watch face shows 0 as 12
+            int hour12 = hour % 12;
+            timeText = String.format("%d:%02d", hour12 == 0 ? 12 : hour12, minute);
+        }
+        String tempText = high + " " + low;
+        return new String[]{timeText, tempText};
+    }
+}
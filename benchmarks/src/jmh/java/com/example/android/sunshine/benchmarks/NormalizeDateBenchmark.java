@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import com.example.android.sunshine.core.DayNormalizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeatherContract.normalizeDate runs for every row the sync adapter writes and for every
+ * date-based uri the UI builds.  Each invocation normalizes the fourteen "dt" values of a
+ * forecast, at the hour the sync happened to run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NormalizeDateBenchmark {
+
+    private static final long HOUR_IN_MILLIS = 1000 * 60 * 60;
+    private static final long DAY_IN_MILLIS = HOUR_IN_MILLIS * 24;
+
+    private final long[] mDates = new long[14];
+
+    @Setup
+    public void setUp() {
+        DayNormalizer.invalidate();
+        // The dt of the first day in the fixtures, plus a few hours
+        long start = 1453406400000L + 7 * HOUR_IN_MILLIS;
+        for (int i = 0; i < mDates.length; i++) {
+            mDates[i] = start + i * DAY_IN_MILLIS;
+        }
+    }
+
+    @Benchmark
+    public void calendar(Blackhole blackhole) {
+        for (long date : mDates) {
+            blackhole.consume(Legacy.normalizeDate(date));
+        }
+    }
+
+    @Benchmark
+    public void dayNormalizer(Blackhole blackhole) {
+        DayNormalizer normalizer = DayNormalizer.get();
+        for (long date : mDates) {
+            blackhole.consume(normalizer.startOfDay(date));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.benchmarks;
+
+import com.example.android.sunshine.core.ClockFormatter;
+import com.example.android.sunshine.core.TemperatureFormatter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The text SimpleWatchFaceService draws every second: the time, and today's high and low.
+ * Each invocation is one frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WatchFaceTextBenchmark {
+
+    @Param({"true", "false"})
+    public boolean is24Hour;
+
+    private String mHigh;
+    private String mLow;
+    private int mMinuteOfDay;
+
+    private final char[] mTimeText = new char[ClockFormatter.MAX_TIME_LENGTH];
+    private final char[] mTempText = new char[2 * TemperatureFormatter.MAX_LENGTH + 1];
+    private int mTempTextLength;
+
+    @Setup
+    public void setUp() throws Exception {
+        ForecastArrays forecast = ForecastArrays.from(Fixtures.load(Fixtures.MOUNTAIN_VIEW));
+        mHigh = Legacy.formatTemperature(forecast.highs[0], true);
+        mLow = Legacy.formatTemperature(forecast.lows[0], true);
+
+        // What the watch face now does once, when the data item arrives
+        mHigh.getChars(0, mHigh.length(), mTempText, 0);
+        mTempText[mHigh.length()] = ' ';
+        mLow.getChars(0, mLow.length(), mTempText, mHigh.length() + 1);
+        mTempTextLength = mHigh.length() + 1 + mLow.length();
+    }
+
+    private int nextMinute() {
+        mMinuteOfDay = (mMinuteOfDay + 1) % (24 * 60);
+        return mMinuteOfDay;
+    }
+
+    @Benchmark
+    public void stringFormat(Blackhole blackhole) {
+        int minuteOfDay = nextMinute();
+        blackhole.consume(Legacy.watchFaceText(is24Hour, minuteOfDay / 60, minuteOfDay % 60,
+                mHigh, mLow));
+    }
+
+    @Benchmark
+    public void charBuffers(Blackhole blackhole) {
+        int minuteOfDay = nextMinute();
+        int hour = minuteOfDay / 60;
+        int minute = minuteOfDay % 60;
+        int timeLength;
+        if (is24Hour) {
+            timeLength = ClockFormatter.formatTime(hour, minute, true, mTimeText, 0);
+        } else {
+            timeLength = ClockFormatter.formatTime(hour % 12 == 0 ? 12 : hour % 12, minute,
+                    false, mTimeText, 0);
+        }
+        blackhole.consume(timeLength);
+        blackhole.consume(mTimeText);
+        blackhole.consume(mTempTextLength);
+    }
+}
@@ -38,6 +38,9 @@ import android.text.format.DateFormat;
 import android.util.Log;
 import android.view.SurfaceHolder;
 
+import com.example.android.sunshine.core.ClockFormatter;
+import com.example.android.sunshine.core.TemperatureFormatter;
+import com.example.android.sunshine.core.WearableProtocol;
 import com.google.android.gms.common.ConnectionResult;
 import com.google.android.gms.common.api.GoogleApiClient;
 import com.google.android.gms.common.api.ResultCallback;
@@ -74,13 +77,6 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
     private class Engine extends CanvasWatchFaceService.Engine implements DataApi.DataListener,
             GoogleApiClient.ConnectionCallbacks, GoogleApiClient.OnConnectionFailedListener {
 
-        private static final String WEATHER_PATH = "/weather";
-        private static final String WEATHER_INFO_PATH = "/weather-info";
-        private static final String KEY_UUID = "uuid"; //needed to ensure a unique bundle is detected each time
-        private static final String KEY_HIGH = "high";
-        private static final String KEY_LOW = "low";
-        private static final String KEY_WEATHER_ID = "weatherId";
-
         GoogleApiClient mGoogleApiClient = new GoogleApiClient.Builder(SimpleWatchFaceService.this)
                 .addConnectionCallbacks(this)
                 .addOnConnectionFailedListener(this)
@@ -96,11 +92,17 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
         String mWeatherLow;
         Bitmap mWeatherIcon;
 
+        // onDraw runs every second, so the text it draws lives in reused buffers rather than
+        // new Strings. Only the date is a String, and it is rebuilt once a day.
+        final char[] mTimeText = new char[ClockFormatter.MAX_TIME_LENGTH];
+        char[] mTempText = new char[2 * TemperatureFormatter.MAX_LENGTH + 1];
+        int mTempTextLength;
+        String mDateText;
+        int mDateTextDay = -1;
+        final Rect mTextBounds = new Rect();
+
         private Calendar mCalendar;
         private static final String DATE_FORMAT = "%s, %s %d %d";
-        private static final String BASE_24H_TIME_FORMAT = "%02d:%02d";
-        private static final String BASE_12H_TIME_FORMAT = "%d:%02d";
-        private static final String SECONDS_FORMAT = ":%02d";
 
         boolean mAmbient; // if true device is in ambient mode
         boolean mLowBitAmbient; // controls anti aliasing if lowBitAmbient mode detected. False = no AA.
@@ -165,29 +167,17 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
             mCalendar.setTimeInMillis(currentTimeMillis);
             boolean is24Hour = DateFormat.is24HourFormat(SimpleWatchFaceService.this);
             int minute = mCalendar.get(Calendar.MINUTE);
-            int second = mCalendar.get(Calendar.SECOND);
-            int amPm  = mCalendar.get(Calendar.AM_PM);
-
-            //secondsText String and amPM string are included for optional future addition.
-            String secondsText = String.format(SECONDS_FORMAT, second);
-            String amPmText = SimpleWatchFaceUtil.getAmPmString(resources, amPm);
-
-            String timeText = getTimeTextString(is24Hour, minute, second, amPm);
-
-            // Construct dateText String using data from our Calendar.
-            String dayOfWeekString   = SimpleWatchFaceUtil.getDayString(resources, mCalendar.get(Calendar.DAY_OF_WEEK));
-            int dayOfMonth = mCalendar.get(Calendar.DAY_OF_MONTH);
-            String monthOfYearString = SimpleWatchFaceUtil.getMonthString(resources, mCalendar.get(Calendar.MONTH));
-            int year = mCalendar.get(Calendar.YEAR);
-            String dateText = String.format(DATE_FORMAT, dayOfWeekString, monthOfYearString, dayOfMonth, year);
 
-            Log.d(TAG,"" + timeText + " " + dateText);
+            // Seconds and the AM/PM string can be added here in the future.
+            int timeLength = formatTime(is24Hour, minute);
 
+            // The date String only changes at midnight.
+            String dateText = getDateText(resources);
 
             //Draw timePaint
-            float timeXOffset = computeXOffset(timeText, timePaint, bounds);
-            float timeYOffset = computeTimeYOffset(timeText, timePaint, bounds);
-            canvas.drawText(timeText, timeXOffset, timeYOffset, timePaint);
+            float timeXOffset = computeXOffset(mTimeText, timeLength, timePaint, bounds);
+            float timeYOffset = computeTimeYOffset(mTimeText, timeLength, timePaint, bounds);
+            canvas.drawText(mTimeText, 0, timeLength, timeXOffset, timeYOffset, timePaint);
 
             //Draw datePaint
             float dateXOffset = computeXOffset(dateText, datePaint, bounds);
@@ -196,16 +186,13 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
 
             //Draw temperature data if provided
             if (mWeatherHigh!=null && mWeatherLow !=null) {
-                // Temperature Char = + (char) 0x00B0
-                String tempText = mWeatherHigh + " " + mWeatherLow;
-                float tempXOffset = computeXOffset(tempText, tempPaint, bounds);
-                float tempYOffset = computeTempYOffset(tempText, tempPaint);
+                float tempXOffset = computeXOffset(mTempText, mTempTextLength, tempPaint, bounds);
+                float tempYOffset = computeTempYOffset(mTempText, mTempTextLength, tempPaint);
 
-                canvas.drawText(tempText, tempXOffset + 25, timeYOffset + dateYOffset + tempYOffset, tempPaint);
+                canvas.drawText(mTempText, 0, mTempTextLength, tempXOffset + 25, timeYOffset + dateYOffset + tempYOffset, tempPaint);
 
                 //draw weather icon if not im ambient mode
                 if (mWeatherIcon !=null && !mAmbient){
-                    Log.d(TAG, "mWeatherIcon not null " + mWeatherIcon.getWidth() + " " + mWeatherIcon.getHeight() );
                     float weatherXOffset = tempXOffset - mWeatherIcon.getWidth() + 15;
                     float weatherYOffset = timeYOffset + dateYOffset + (tempYOffset/2) - 5;
                     canvas.drawBitmap(mWeatherIcon, weatherXOffset, weatherYOffset, null);
@@ -214,7 +201,7 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
                 //draw line seperator if not in ambient mode
                 if (!mAmbient) {
                     float startX = tempXOffset;
-                    float stopX = tempXOffset + tempPaint.measureText(tempText);
+                    float stopX = tempXOffset + tempPaint.measureText(mTempText, 0, mTempTextLength);
                     float startY = timeYOffset + dateYOffset + 20;
                     float stopY = startY;
 
@@ -236,6 +223,7 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
                 mCalendar.setTimeZone(TimeZone.getDefault());
                 long currentTimeMillis = System.currentTimeMillis();
                 mCalendar.setTimeInMillis(currentTimeMillis);
+                mDateText = null; //the locale may have changed while we were hidden
             } else {
                 unregisterReceiver();
                 if (mGoogleApiClient != null && mGoogleApiClient.isConnected()) {
@@ -289,26 +277,48 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
             updateTimer();
         }
 
-        public String getTimeTextString(boolean is24Hour, int minute, int second, int amPm){
-            String timeText;
+        //Writes H:MM (or HH:MM on a 24 hour clock) into mTimeText and returns its length.
+        private int formatTime(boolean is24Hour, int minute) {
             if (is24Hour) {
                 int hour = mCalendar.get(Calendar.HOUR_OF_DAY);
+                return ClockFormatter.formatTime(hour, minute, true, mTimeText, 0);
+            }
+            int hour = mCalendar.get(Calendar.HOUR);
+            if (hour == 0) {
+                hour = 12;
+            }
+            //adding seconds text optional.doesn't look good.may be added in future.
+            return ClockFormatter.formatTime(hour, minute, false, mTimeText, 0);
+        }
 
-                timeText = String.format(BASE_24H_TIME_FORMAT, hour, minute);
-            } else {
-                int hour = mCalendar.get(Calendar.HOUR);
-                if (hour == 0) {
-                    hour = 12;
-                }
-                //Can add support for seconds and amPM string in this if/else
-                if(!shouldShowSeconds) {
-                    timeText = String.format(BASE_12H_TIME_FORMAT, hour, minute);
-                }else {
-                    //adding seconds text optional.doesn't look good.may be added in future.
-                    timeText = String.format(BASE_12H_TIME_FORMAT, hour, minute);
-                }
+        //Returns e.g. "Monday, June 8 2015", rebuilding it only when the day changes.
+        private String getDateText(Resources resources) {
+            int day = mCalendar.get(Calendar.YEAR) * 1000 + mCalendar.get(Calendar.DAY_OF_YEAR);
+            if (mDateText == null || day != mDateTextDay) {
+                String dayOfWeekString = SimpleWatchFaceUtil.getDayString(resources, mCalendar.get(Calendar.DAY_OF_WEEK));
+                int dayOfMonth = mCalendar.get(Calendar.DAY_OF_MONTH);
+                String monthOfYearString = SimpleWatchFaceUtil.getMonthString(resources, mCalendar.get(Calendar.MONTH));
+                int year = mCalendar.get(Calendar.YEAR);
+                mDateText = String.format(DATE_FORMAT, dayOfWeekString, monthOfYearString, dayOfMonth, year);
+                mDateTextDay = day;
+            }
+            return mDateText;
+        }
+
+        //Copies "high low" into mTempText once, when new weather arrives.
+        private void updateTempText() {
+            if (mWeatherHigh == null || mWeatherLow == null) {
+                mTempTextLength = 0;
+                return;
             }
-            return timeText;
+            int length = mWeatherHigh.length() + 1 + mWeatherLow.length();
+            if (length > mTempText.length) {
+                mTempText = new char[length];
+            }
+            mWeatherHigh.getChars(0, mWeatherHigh.length(), mTempText, 0);
+            mTempText[mWeatherHigh.length()] = ' ';
+            mWeatherLow.getChars(0, mWeatherLow.length(), mTempText, mWeatherHigh.length() + 1);
+            mTempTextLength = length;
         }
 
         //The Following are methods we can use to manipulate paint objects
@@ -328,24 +338,27 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
             return centerX - (timeLength / 2.0f);
         }
 
-        private float computeTimeYOffset(String timeText, Paint timePaint, Rect watchBounds) {
+        private float computeXOffset(char[] text, int length, Paint paint, Rect watchBounds) {
+            float centerX = watchBounds.exactCenterX();
+            float timeLength = paint.measureText(text, 0, length);
+            return centerX - (timeLength / 2.0f);
+        }
+
+        private float computeTimeYOffset(char[] timeText, int length, Paint timePaint, Rect watchBounds) {
             float centerY = watchBounds.exactCenterY();
-            Rect textBounds = new Rect();
-            timePaint.getTextBounds(timeText, 0, timeText.length(), textBounds);
-            int textHeight = textBounds.height();
+            timePaint.getTextBounds(timeText, 0, length, mTextBounds);
+            int textHeight = mTextBounds.height();
             return centerY + (textHeight / 2.0f)-85.0f;//original 70f
         }
 
         private float computeDateYOffset(String dateText, Paint datePaint) {
-            Rect textBounds = new Rect();
-            datePaint.getTextBounds(dateText, 0, dateText.length(), textBounds);
-            return textBounds.height() + 20.0f;
+            datePaint.getTextBounds(dateText, 0, dateText.length(), mTextBounds);
+            return mTextBounds.height() + 20.0f;
         }
 
-        private float computeTempYOffset(String tempText, Paint tempPaint) {
-            Rect textBounds = new Rect();
-            tempPaint.getTextBounds(tempText, 0, tempText.length(), textBounds);
-            return textBounds.height() + 40.0f;
+        private float computeTempYOffset(char[] tempText, int length, Paint tempPaint) {
+            tempPaint.getTextBounds(tempText, 0, length, mTextBounds);
+            return mTextBounds.height() + 40.0f;
         }
 
         public void setAntiAlias(boolean antiAlias) {
@@ -392,8 +405,8 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
         //The following methods are used to interface with Googles Wearable Data Api
 
         public void requestWeatherInfo() {
-            PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(WEATHER_PATH);
-            putDataMapRequest.getDataMap().putString(KEY_UUID, UUID.randomUUID().toString());
+            PutDataMapRequest putDataMapRequest = PutDataMapRequest.create(WearableProtocol.WEATHER_PATH);
+            putDataMapRequest.getDataMap().putString(WearableProtocol.KEY_UUID, UUID.randomUUID().toString());
             PutDataRequest request = putDataMapRequest.asPutDataRequest();
 
             Wearable.DataApi.putDataItem(mGoogleApiClient, request)
@@ -432,17 +445,18 @@ public class SimpleWatchFaceService extends CanvasWatchFaceService {
                     Log.d(TAG, path);
 
                     //Check if our DataMap Bundle contains the needed info in the path.
-                    if (path.equals(WEATHER_INFO_PATH)) {
-                        if (dataMap.containsKey(KEY_HIGH)) {
-                            mWeatherHigh = dataMap.getString(KEY_HIGH);
+                    if (path.equals(WearableProtocol.WEATHER_INFO_PATH)) {
+                        if (dataMap.containsKey(WearableProtocol.KEY_HIGH)) {
+                            mWeatherHigh = dataMap.getString(WearableProtocol.KEY_HIGH);
                             Log.d(TAG, "Temp High = " + mWeatherHigh);
                         }
-                        if (dataMap.containsKey(KEY_LOW)) {
-                            mWeatherLow = dataMap.getString(KEY_LOW);
+                        if (dataMap.containsKey(WearableProtocol.KEY_LOW)) {
+                            mWeatherLow = dataMap.getString(WearableProtocol.KEY_LOW);
                             Log.d(TAG, "Temp Low = " + mWeatherLow);
                         }
-                        if (dataMap.containsKey(KEY_WEATHER_ID)) {
-                            int weatherId = dataMap.getInt(KEY_WEATHER_ID);
+                        updateTempText();
+                        if (dataMap.containsKey(WearableProtocol.KEY_WEATHER_ID)) {
+                            int weatherId = dataMap.getInt(WearableProtocol.KEY_WEATHER_ID);
                             Log.d(TAG, " weatherID = " + weatherId);
 
                             //Create a bitmap according to retrieved weatherID
@@ -2,6 +2,9 @@ package com.example.android.sunshine.app;
 
 import android.content.res.Resources;
 import android.support.annotation.NonNull;
+
+import com.example.android.sunshine.core.WeatherConditions;
+
 import java.util.Calendar;
 
 
@@ -101,35 +104,23 @@ public final class SimpleWatchFaceUtil {
     }
 
 
+    // Indexed by WeatherConditions.ART_ constant
+    private static final int[] WEATHER_ICONS = {
+            -1,
+            R.drawable.ic_storm,
+            R.drawable.ic_light_rain,
+            R.drawable.ic_rain,
+            R.drawable.ic_snow,
+            R.drawable.ic_fog,
+            R.drawable.ic_clear,
+            R.drawable.ic_light_clouds,
+            R.drawable.ic_cloudy
+    };
+
     //Returns drawable id appropriate for given weather condition
     public static int getWeatherBitmapIconID(int weatherId) {
-
-        // See http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
-        // for info on data ranges used to determine appropriate icon in this switch statement
-        if (weatherId >= 200 && weatherId <= 232) {
-            return R.drawable.ic_storm;
-        } else if (weatherId >= 300 && weatherId <= 321) {
-            return R.drawable.ic_light_rain;
-        } else if (weatherId >= 500 && weatherId <= 504) {
-            return R.drawable.ic_rain;
-        } else if (weatherId == 511) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 520 && weatherId <= 531) {
-            return R.drawable.ic_rain;
-        } else if (weatherId >= 600 && weatherId <= 622) {
-            return R.drawable.ic_snow;
-        } else if (weatherId >= 701 && weatherId <= 761) {
-            return R.drawable.ic_fog;
-        } else if (weatherId == 761 || weatherId == 781) {
-            return R.drawable.ic_storm;
-        } else if (weatherId == 800) {
-            return R.drawable.ic_clear;
-        } else if (weatherId == 801) {
-            return R.drawable.ic_light_clouds;
-        } else if (weatherId >= 802 && weatherId <= 804) {
-            return R.drawable.ic_cloudy;
-        }
-        return -1;
+        // The condition groups are shared with the phone app, see WeatherConditions
+        return WEATHER_ICONS[WeatherConditions.getArtType(weatherId)];
     }
 
 }
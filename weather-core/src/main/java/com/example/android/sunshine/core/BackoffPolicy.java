@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with jitter, for retrying a request to a server that may be struggling.
+ *
+ * The n-th retry waits somewhere between half and all of initialDelay * 2^(n-1), capped at
+ * maxDelay.  The random half keeps clients that failed together from retrying together.
+ */
+public final class BackoffPolicy {
+
+    public final int maxAttempts;
+    public final long initialDelayMillis;
+    public final long maxDelayMillis;
+
+    /**
+     * @param maxAttempts the number of tries in all, including the first
+     */
+    public BackoffPolicy(int maxAttempts, long initialDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1 || initialDelayMillis < 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid backoff " + maxAttempts + ", "
+                    + initialDelayMillis + ", " + maxDelayMillis);
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * @param retry 1 for the wait before the second attempt, 2 before the third and so on
+     * @return how long to wait before that attempt, in milliseconds
+     */
+    public long getDelay(int retry, Random random) {
+        long ceiling = initialDelayMillis;
+        for (int i = 1; i < retry && ceiling < maxDelayMillis; i++) {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, maxDelayMillis);
+        long floor = ceiling / 2;
+        return floor + (long) (random.nextDouble() * (ceiling - floor + 1));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Stops calling an endpoint that keeps failing, so that a server in trouble gets some relief
+ * and the device doesn't spend its radio and battery on requests that won't succeed.
+ *
+ * After {@link #failureThreshold} failures in a row the breaker opens and refuses every call
+ * for {@link #openMillis}.  Once that has passed it lets a single trial call through
+ * (half-open): a success closes it again, a failure opens it for another period.
+ *
+ * The state is two numbers, the failure count and when the breaker opened, so that the app can
+ * keep it across sync runs and process restarts.
+ */
+public final class CircuitBreaker {
+
+    public static final int STATE_CLOSED = 0;
+    public static final int STATE_OPEN = 1;
+    public static final int STATE_HALF_OPEN = 2;
+
+    public final int failureThreshold;
+    public final long openMillis;
+
+    private int mFailures;
+    private long mOpenedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, 0, 0);
+    }
+
+    /**
+     * Restores a breaker from the values of {@link #getFailures()} and {@link #getOpenedAt()}.
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, int failures, long openedAt) {
+        if (failureThreshold < 1 || openMillis < 0) {
+            throw new IllegalArgumentException("Invalid breaker " + failureThreshold + ", "
+                    + openMillis);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        mFailures = Math.max(failures, 0);
+        mOpenedAt = openedAt;
+    }
+
+    public synchronized int getState(long now) {
+        if (mFailures < failureThreshold) {
+            return STATE_CLOSED;
+        }
+        // A clock set backwards shouldn't keep the breaker open for longer than openMillis
+        return (now >= mOpenedAt && now < mOpenedAt + openMillis) ? STATE_OPEN : STATE_HALF_OPEN;
+    }
+
+    /**
+     * @return whether a call may be made now.  A half-open breaker lets the call through as
+     * its trial, and is open again until the call reports back.
+     */
+    public synchronized boolean allowRequest(long now) {
+        switch (getState(now)) {
+            case STATE_OPEN:
+                return false;
+            case STATE_HALF_OPEN:
+                mOpenedAt = now;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        mFailures = 0;
+        mOpenedAt = 0;
+    }
+
+    public synchronized void recordFailure(long now) {
+        if (mFailures < failureThreshold) {
+            mFailures++;
+        }
+        if (mFailures >= failureThreshold) {
+            mOpenedAt = now;
+        }
+    }
+
+    /**
+     * @return when the breaker will let a call through again, or 0 if it does now.
+     */
+    public synchronized long getRetryAt(long now) {
+        return getState(now) == STATE_OPEN ? mOpenedAt + openMillis : 0;
+    }
+
+    public synchronized int getFailures() {
+        return mFailures;
+    }
+
+    public synchronized long getOpenedAt() {
+        return mOpenedAt;
+    }
+}
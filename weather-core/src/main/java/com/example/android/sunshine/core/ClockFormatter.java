@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Writes clock times into a char array without allocating, for code that redraws every second.
+ */
+public final class ClockFormatter {
+
+    /**
+     * "23:59" is the longest thing {@link #formatTime} writes.
+     */
+    public static final int MAX_TIME_LENGTH = 5;
+
+    private ClockFormatter() {
+    }
+
+    /**
+     * Writes hour and minute the way "%02d:%02d" (padHour) or "%d:%02d" would.
+     *
+     * @param hour   0-23 for a 24 hour clock, 1-12 for a 12 hour one
+     * @param minute 0-59
+     * @return the offset just past the last char written
+     */
+    public static int formatTime(int hour, int minute, boolean padHour, char[] dest, int offset) {
+        if (padHour || hour >= 10) {
+            dest[offset++] = (char) ('0' + hour / 10);
+        }
+        dest[offset++] = (char) ('0' + hour % 10);
+        dest[offset++] = ':';
+        return appendTwoDigits(minute, dest, offset);
+    }
+
+    /**
+     * Writes 0-99 as exactly two digits, like "%02d".
+     *
+     * @return the offset just past the last char written
+     */
+    public static int appendTwoDigits(int value, char[] dest, int offset) {
+        dest[offset++] = (char) ('0' + value / 10);
+        dest[offset++] = (char) ('0' + value % 10);
+        return offset;
+    }
+}
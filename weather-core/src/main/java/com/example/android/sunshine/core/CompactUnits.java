@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Integer encodings for the hourly forecast table, which stores several times as many rows as
+ * the daily one.  Tenths are as precise as OpenWeatherMap's numbers get in practice, and times
+ * are whole hours since the epoch.
+ */
+public final class CompactUnits {
+
+    public static final long HOUR_IN_MILLIS = 1000 * 60 * 60;
+
+    private CompactUnits() {
+    }
+
+    /**
+     * @return value in tenths, rounded to the nearest one (e.g. 21.46 becomes 215).
+     */
+    public static int toTenths(double value) {
+        return (int) Math.round(value * 10);
+    }
+
+    public static double fromTenths(int tenths) {
+        return tenths / 10.0;
+    }
+
+    /**
+     * @return the number of whole hours between the epoch and dateInMillis, rounded down.
+     */
+    public static long toEpochHour(long dateInMillis) {
+        long hour = dateInMillis / HOUR_IN_MILLIS;
+        return (dateInMillis % HOUR_IN_MILLIS < 0) ? hour - 1 : hour;
+    }
+
+    public static long fromEpochHour(long epochHour) {
+        return epochHour * HOUR_IN_MILLIS;
+    }
+}
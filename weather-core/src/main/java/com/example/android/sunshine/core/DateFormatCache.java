@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.text.DateFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Caches the formatters and formatted day strings used by the app's Utility class.
+ *
+ * Every date Sunshine displays is the start of a day, and the list, the widgets, the notification
+ * and Muzei all ask for the same couple of weeks over and over again.  So instead of building a
+ * new SimpleDateFormat for every call we keep one per thread (SimpleDateFormat isn't thread safe)
+ * and remember the strings we already produced for each local day.
+ *
+ * Everything is tied to the locale and time zone that were current when the cache was built.
+ * The app's DateFormatCacheReceiver throws it away when either of those changes.
+ */
+public final class DateFormatCache {
+
+    public static final int PATTERN_DAY_NAME = 0;     // "Wednesday"
+    public static final int PATTERN_MONTH_DAY = 1;    // "June 24"
+    public static final int PATTERN_SHORT_DATE = 2;   // "Mon Jun 03"
+    public static final int PATTERN_MEDIUM_DATE = 3;  // DateFormat.getDateInstance()
+    private static final int PATTERN_COUNT = 4;
+
+    private static final String[] PATTERNS = {"EEEE", "MMMM dd", "EEE MMM dd", null};
+
+    private static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    // A little more than the 14 days we sync, times the number of patterns.
+    private static final int MAX_CACHED_STRINGS = 32 * PATTERN_COUNT;
+
+    private static volatile DateFormatCache sInstance;
+
+    private final Locale mLocale;
+    private final TimeZone mTimeZone;
+    private final DayNormalizer mDays;
+    private final boolean mAsciiDigits;
+
+    private final ThreadLocal<DateFormat[]> mFormats = new ThreadLocal<DateFormat[]>() {
+        @Override
+        protected DateFormat[] initialValue() {
+            return new DateFormat[PATTERN_COUNT];
+        }
+    };
+
+    private final Map<Long, String> mStrings =
+            new LinkedHashMap<Long, String>(MAX_CACHED_STRINGS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+                    return size() > MAX_CACHED_STRINGS;
+                }
+            };
+
+    // The local day containing "now", and the instant at which that stops being true.
+    private long mToday;
+    private long mTodayEndsAt = Long.MIN_VALUE;
+
+    private DateFormatCache(Locale locale, TimeZone timeZone) {
+        mLocale = locale;
+        mTimeZone = timeZone;
+        mDays = new DayNormalizer(timeZone);
+        mAsciiDigits = DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0';
+    }
+
+    /**
+     * Returns the cache for the current default locale and time zone.
+     */
+    public static DateFormatCache get() {
+        DateFormatCache cache = sInstance;
+        // Locale.getDefault() is a plain field read, so it is cheap enough to check every time.
+        // The time zone is only checked through invalidate(), since TimeZone.getDefault()
+        // hands back a fresh clone on every call.
+        if (cache == null || !cache.mLocale.equals(Locale.getDefault())) {
+            cache = new DateFormatCache(Locale.getDefault(), TimeZone.getDefault());
+            sInstance = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Drops every cached formatter and string.  Called when the locale or time zone changes.
+     */
+    public static void invalidate() {
+        sInstance = null;
+    }
+
+    /**
+     * @return true if numbers in this locale are written with the digits 0-9, in which case
+     * they can be formatted without going through java.util.Formatter.
+     */
+    public boolean usesAsciiDigits() {
+        return mAsciiDigits;
+    }
+
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * @return the number of local days between the epoch and the day containing dateInMillis.
+     */
+    public long getLocalDay(long dateInMillis) {
+        return mDays.getLocalDay(dateInMillis);
+    }
+
+    /**
+     * @return the local day containing the current time.
+     */
+    public synchronized long getToday() {
+        long now = System.currentTimeMillis();
+        // The second check catches the clock being set backwards.
+        if (now >= mTodayEndsAt || now < mTodayEndsAt - DAY_IN_MILLIS) {
+            mToday = getLocalDay(now);
+            // If the offset changes overnight we end up recomputing a little early or late,
+            // which is fine: the next call simply lands on the right day again.
+            long local = now + mTimeZone.getOffset(now);
+            mTodayEndsAt = now + DAY_IN_MILLIS - (local - (mToday * DAY_IN_MILLIS));
+        }
+        return mToday;
+    }
+
+    /**
+     * Formats the day containing dateInMillis with one of the PATTERN_ constants.
+     */
+    public String format(int pattern, long dateInMillis) {
+        Long key = (getLocalDay(dateInMillis) * PATTERN_COUNT) + pattern;
+        synchronized (mStrings) {
+            String cached = mStrings.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String formatted = getFormat(pattern).format(dateInMillis);
+        synchronized (mStrings) {
+            mStrings.put(key, formatted);
+        }
+        return formatted;
+    }
+
+    private DateFormat getFormat(int pattern) {
+        DateFormat[] formats = mFormats.get();
+        DateFormat format = formats[pattern];
+        if (format == null) {
+            format = (PATTERNS[pattern] == null)
+                    ? DateFormat.getDateInstance(DateFormat.DEFAULT, mLocale)
+                    : new SimpleDateFormat(PATTERNS[pattern], mLocale);
+            format.setTimeZone(mTimeZone);
+            formats[pattern] = format;
+        }
+        return format;
+    }
+}
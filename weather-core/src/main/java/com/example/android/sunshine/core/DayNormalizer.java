@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.TimeZone;
+
+/**
+ * Finds the start of the local day containing a point in time, with nothing but arithmetic
+ * and {@link TimeZone#getOffset(long)}.
+ *
+ * This gives the same answers as the android.text.format.Time dance that
+ * WeatherContract.normalizeDate used to do (set, getJulianDay, setJulianDay), without
+ * allocating a Time, and in practice a Calendar or two, for every row we store.
+ *
+ * Days that start at a daylight saving transition are handled the way Calendar handles them:
+ * when midnight is skipped the day starts when the clocks go forward, and when midnight happens
+ * twice (Cuba turns its clocks back from 1:00 to midnight) the second one wins.
+ */
+public final class DayNormalizer {
+
+    public static final long DAY_IN_MILLIS = 1000 * 60 * 60 * 24;
+
+    // If the offset is the same this far either side of midnight, midnight can't be near a
+    // transition.  Daylight saving moves the clocks by two hours at most.
+    private static final long TRANSITION_WINDOW = DAY_IN_MILLIS / 2;
+
+    private static volatile DayNormalizer sDefault;
+
+    private final TimeZone mTimeZone;
+
+    public DayNormalizer(TimeZone timeZone) {
+        mTimeZone = timeZone;
+    }
+
+    /**
+     * Returns the normalizer for the default time zone.
+     *
+     * TimeZone.getDefault() hands back a fresh clone on every call, so the zone is only looked
+     * up again after {@link #invalidate()}.
+     */
+    public static DayNormalizer get() {
+        DayNormalizer normalizer = sDefault;
+        if (normalizer == null) {
+            normalizer = new DayNormalizer(TimeZone.getDefault());
+            sDefault = normalizer;
+        }
+        return normalizer;
+    }
+
+    /**
+     * Forgets the default time zone.  Called when it changes.
+     */
+    public static void invalidate() {
+        sDefault = null;
+    }
+
+    public TimeZone getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * @return the number of local days between the epoch and the day containing dateInMillis.
+     */
+    public long getLocalDay(long dateInMillis) {
+        long local = dateInMillis + mTimeZone.getOffset(dateInMillis);
+        long day = local / DAY_IN_MILLIS;
+        return (local % DAY_IN_MILLIS < 0) ? day - 1 : day;
+    }
+
+    /**
+     * @return the first instant of the local day containing dateInMillis.
+     */
+    public long startOfDay(long dateInMillis) {
+        return startOfLocalDay(getLocalDay(dateInMillis));
+    }
+
+    /**
+     * @param localDay number of local days since the epoch, as returned by {@link #getLocalDay}
+     * @return the first instant of that day.
+     */
+    public long startOfLocalDay(long localDay) {
+        long midnight = localDay * DAY_IN_MILLIS;
+        long approximate = midnight - mTimeZone.getRawOffset();
+        int early = mTimeZone.getOffset(approximate - TRANSITION_WINDOW);
+        int late = mTimeZone.getOffset(approximate + TRANSITION_WINDOW);
+        if (early == late) {
+            return midnight - early;
+        }
+
+        // The clocks change sometime around midnight.  Prefer midnight after the change,
+        // which also picks the second of two midnights when the clocks go back over it.
+        long startAfterChange = midnight - late;
+        if (mTimeZone.getOffset(startAfterChange) == late) {
+            return startAfterChange;
+        }
+        long start = midnight - early;
+        if (mTimeZone.getOffset(start) == early) {
+            return start;
+        }
+        // Midnight never happened: the clocks went straight past it, so the day starts with
+        // the change.  That lies between the two candidates, which are at most a few hours
+        // apart; the first still has the early offset and the second the late one.
+        long before = startAfterChange;
+        long after = start;
+        while (after - before > 1) {
+            long middle = before + (after - before) / 2;
+            if (mTimeZone.getOffset(middle) == early) {
+                before = middle;
+            } else {
+                after = middle;
+            }
+        }
+        return after;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A daily forecast as any {@link WeatherSource} returns it, in the units the database stores:
+ * degrees C, hPa, percent, m/s and degrees for the wind direction.
+ *
+ * The days are consecutive and the first one is today, local time, at the forecast location.
+ */
+public final class Forecast {
+
+    public static final class Day {
+        // OpenWeatherMap condition id, which other sources map their conditions onto
+        public final int weatherId;
+        public final String description;
+        public final double high;
+        public final double low;
+        public final int humidity;
+        public final double pressure;
+        public final double windSpeed;
+        public final double windDirection;
+
+        public Day(int weatherId, String description, double high, double low, int humidity,
+                   double pressure, double windSpeed, double windDirection) {
+            this.weatherId = weatherId;
+            this.description = description;
+            this.high = high;
+            this.low = low;
+            this.humidity = humidity;
+            this.pressure = pressure;
+            this.windSpeed = windSpeed;
+            this.windDirection = windDirection;
+        }
+    }
+
+    // The name of the source that answered, for the logs
+    public final String source;
+    public final String cityName;
+    public final double latitude;
+    public final double longitude;
+    public final List<Day> days;
+
+    public Forecast(String source, String cityName, double latitude, double longitude,
+                    List<Day> days) {
+        this.source = source;
+        this.cityName = cityName;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.days = Collections.unmodifiableList(days);
+    }
+}
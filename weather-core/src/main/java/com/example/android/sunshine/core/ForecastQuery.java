@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * What to ask a {@link WeatherSource} for.  The location setting is what the user typed or
+ * picked; when the Place Picker gave us coordinates as well, sources should prefer those.
+ */
+public final class ForecastQuery {
+
+    public final String location;
+    public final boolean hasCoordinates;
+    public final double latitude;
+    public final double longitude;
+    public final int days;
+
+    public ForecastQuery(String location, int days) {
+        this(location, false, 0, 0, days);
+    }
+
+    public ForecastQuery(String location, double latitude, double longitude, int days) {
+        this(location, true, latitude, longitude, days);
+    }
+
+    private ForecastQuery(String location, boolean hasCoordinates, double latitude,
+                          double longitude, int days) {
+        this.location = location;
+        this.hasCoordinates = hasCoordinates;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.days = days;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asks several sources for the same forecast and takes the first complete answer.
+ *
+ * The sources are tried in order of preference.  The first is asked straight away; if it
+ * hasn't answered within the hedge delay, or has failed, the next one is asked as well, and so
+ * on.  As soon as one of them returns a forecast the others are cancelled.  A slow response
+ * from the preferred backend therefore costs at most the hedge delay, while a healthy one is
+ * the only backend that gets any traffic.
+ *
+ * If every source fails, the preferred source's failure is thrown, unless one of them said that
+ * the location doesn't exist: that is an answer, not an outage.
+ */
+public final class HedgedWeatherSource implements WeatherSource {
+
+    private final List<WeatherSource> mSources;
+    private final long mHedgeDelayMillis;
+    private final Executor mExecutor;
+
+    /**
+     * @param sources in order of preference
+     * @param executor runs the sources, and needs a thread for each of them to hedge at all
+     */
+    public HedgedWeatherSource(List<WeatherSource> sources, long hedgeDelayMillis,
+                               Executor executor) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("No sources");
+        }
+        mSources = Collections.unmodifiableList(new ArrayList<>(sources));
+        mHedgeDelayMillis = hedgeDelayMillis;
+        mExecutor = executor;
+    }
+
+    @Override
+    public String getName() {
+        StringBuilder name = new StringBuilder("hedged(");
+        for (int i = 0; i < mSources.size(); i++) {
+            if (i > 0) {
+                name.append(',');
+            }
+            name.append(mSources.get(i).getName());
+        }
+        return name.append(')').toString();
+    }
+
+    @Override
+    public Forecast fetch(final ForecastQuery query) throws IOException {
+        int count = mSources.size();
+        CompletionService<Forecast> completion = new ExecutorCompletionService<>(mExecutor);
+        List<Future<Forecast>> futures = new ArrayList<>(count);
+        IOException[] failures = new IOException[count];
+        int finished = 0;
+
+        try {
+            start(completion, futures, query);
+            while (finished < count) {
+                Future<Forecast> done;
+                if (futures.size() < count) {
+                    done = completion.poll(mHedgeDelayMillis, TimeUnit.MILLISECONDS);
+                    if (done == null) {
+                        // Too slow: ask the next source as well
+                        start(completion, futures, query);
+                        continue;
+                    }
+                } else {
+                    done = completion.take();
+                }
+
+                finished++;
+                try {
+                    return done.get();
+                } catch (ExecutionException e) {
+                    failures[futures.indexOf(done)] = asIOException(e.getCause());
+                    if (futures.size() < count) {
+                        start(completion, futures, query);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + getName());
+        } finally {
+            for (Future<Forecast> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+        for (IOException failure : failures) {
+            if (failure instanceof LocationNotFoundException) {
+                throw failure;
+            }
+        }
+        throw failures[0];
+    }
+
+    private void start(CompletionService<Forecast> completion, List<Future<Forecast>> futures,
+                       final ForecastQuery query) {
+        final WeatherSource source = mSources.get(futures.size());
+        futures.add(completion.submit(new Callable<Forecast>() {
+            @Override
+            public Forecast call() throws IOException {
+                return source.fetch(query);
+            }
+        }));
+    }
+
+    private static IOException asIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Source failed", cause);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Month arithmetic for the weather history, which keeps one table per calendar month.
+ *
+ * Months are written as yyyymm integers (201412 for December 2014) so that they sort, compare and
+ * print as table names without a Calendar.  Days are the local day numbers handed out by
+ * {@link DayNormalizer#getLocalDay}.
+ */
+public final class HistoryPartitions {
+
+    public static final String TABLE_PREFIX = "history_";
+
+    private HistoryPartitions() {
+    }
+
+    /**
+     * @param localDay number of local days since the epoch
+     * @return the month containing that day, as yyyymm.
+     */
+    public static int monthOf(long localDay) {
+        // Civil from days, counting in 400 year eras that start on March 1st
+        long z = localDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 100 + month);
+    }
+
+    /**
+     * @param month yyyymm
+     * @return the local day number of the first day of the month.
+     */
+    public static long firstDayOf(int month) {
+        long year = month / 100;
+        int monthOfYear = month % 100;
+        year -= monthOfYear <= 2 ? 1 : 0;
+        long era = (year >= 0 ? year : year - 399) / 400;
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * (monthOfYear > 2 ? monthOfYear - 3 : monthOfYear + 9) + 2) / 5;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    /**
+     * @return the month after the given one, as yyyymm.
+     */
+    public static int nextMonth(int month) {
+        return (month % 100 == 12) ? month + 100 - 11 : month + 1;
+    }
+
+    /**
+     * @return month moved by count months, as yyyymm.  count may be negative.
+     */
+    public static int addMonths(int month, int count) {
+        int index = (month / 100) * 12 + (month % 100 - 1) + count;
+        return (index / 12) * 100 + index % 12 + 1;
+    }
+
+    public static String tableName(int month) {
+        return TABLE_PREFIX + month;
+    }
+
+    /**
+     * @return the month a history table holds, or -1 if name is not a history table.
+     */
+    public static int monthOfTable(String name) {
+        if (name == null || !name.startsWith(TABLE_PREFIX)
+                || name.length() != TABLE_PREFIX.length() + 6) {
+            return -1;
+        }
+        int month = 0;
+        for (int i = TABLE_PREFIX.length(); i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            month = month * 10 + (c - '0');
+        }
+        int monthOfYear = month % 100;
+        return (monthOfYear >= 1 && monthOfYear <= 12) ? month : -1;
+    }
+}
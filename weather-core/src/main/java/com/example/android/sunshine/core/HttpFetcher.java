@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Random;
+
+/**
+ * GETs a url, retrying with {@link BackoffPolicy} and guarded by a {@link CircuitBreaker}.
+ * The requests themselves go through a {@link Transport}, by default an
+ * {@link UrlConnectionTransport}.
+ *
+ * Connection failures, timeouts, 5xx responses and 429 (too many requests) are retried; any
+ * other response is the caller's problem and is thrown straight away as a
+ * {@link HttpStatusException}.  Every failed attempt counts against the breaker, and once it
+ * opens the fetch gives up with a {@link CircuitOpenException}.
+ *
+ * An interrupt means the caller has stopped waiting, not that the endpoint failed: the fetch
+ * gives up straight away, without retrying or counting the attempt against the breaker.
+ */
+public final class HttpFetcher {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 15 * 1000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 20 * 1000;
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * Reads the body of a successful response.  Called again for every attempt, so anything it
+     * stores must be safe to store twice.
+     */
+    public interface BodyReader<T> {
+        T read(InputStream in) throws IOException;
+    }
+
+    /**
+     * Makes a single GET request.  Implementations read the body of a 200 response with the
+     * reader, throw {@link HttpStatusException} for any other response, and leave the
+     * connection ready for reuse where they can.
+     */
+    public interface Transport {
+        <T> T get(URL url, BodyReader<T> reader) throws IOException;
+    }
+
+    // Lets the tests run without waiting out the backoff
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    /**
+     * A response the fetcher didn't retry, or that was still failing after the last attempt.
+     */
+    public static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int mStatusCode;
+
+        public HttpStatusException(int statusCode, String message) {
+            super("HTTP " + statusCode + " " + message);
+            mStatusCode = statusCode;
+        }
+
+        public int getStatusCode() {
+            return mStatusCode;
+        }
+
+        public boolean isRetryable() {
+            return HttpFetcher.isRetryable(mStatusCode);
+        }
+    }
+
+    /**
+     * Thrown instead of calling an endpoint whose breaker is open.
+     */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final long mRetryAt;
+
+        public CircuitOpenException(long retryAt) {
+            super("Circuit open until " + retryAt);
+            mRetryAt = retryAt;
+        }
+
+        /**
+         * @return when the endpoint may be called again, in milliseconds since the epoch
+         */
+        public long getRetryAt() {
+            return mRetryAt;
+        }
+    }
+
+    public static final BodyReader<String> STRING = new BodyReader<String>() {
+        @Override
+        public String read(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        }
+    };
+
+    private static final Sleeper THREAD_SLEEPER = new Sleeper() {
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            Thread.sleep(millis);
+        }
+    };
+
+    private final BackoffPolicy mBackoff;
+    private final Transport mTransport;
+    private final Random mRandom;
+    private final Sleeper mSleeper;
+
+    public HttpFetcher(BackoffPolicy backoff, int connectTimeoutMillis, int readTimeoutMillis) {
+        this(backoff, new UrlConnectionTransport(connectTimeoutMillis, readTimeoutMillis));
+    }
+
+    public HttpFetcher(BackoffPolicy backoff, Transport transport) {
+        this(backoff, transport, new Random(), THREAD_SLEEPER);
+    }
+
+    HttpFetcher(BackoffPolicy backoff, Transport transport, Random random, Sleeper sleeper) {
+        mBackoff = backoff;
+        mTransport = transport;
+        mRandom = random;
+        mSleeper = sleeper;
+    }
+
+    static boolean isRetryable(int statusCode) {
+        return statusCode >= 500 || statusCode == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    public String fetch(URL url, CircuitBreaker breaker) throws IOException {
+        return fetch(url, breaker, STRING);
+    }
+
+    /**
+     * @return whatever reader made of the body of the first successful response
+     * @throws CircuitOpenException if the breaker is open, before or between attempts
+     * @throws HttpStatusException for an unsuccessful response
+     * @throws InterruptedIOException if the thread was interrupted before or between attempts,
+     *         or the transport was interrupted mid-request
+     * @throws IOException from the last attempt, once they have all failed
+     */
+    public <T> T fetch(URL url, CircuitBreaker breaker, BodyReader<T> reader)
+            throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            long now = System.currentTimeMillis();
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted before attempt " + attempt);
+            }
+            if (!breaker.allowRequest(now)) {
+                throw new CircuitOpenException(breaker.getRetryAt(now));
+            }
+            try {
+                T result = mTransport.get(url, reader);
+                breaker.recordSuccess();
+                return result;
+            } catch (HttpStatusException e) {
+                if (!e.isRetryable()) {
+                    // The server answered, so it is up; the request is what's wrong
+                    breaker.recordSuccess();
+                    throw e;
+                }
+                breaker.recordFailure(System.currentTimeMillis());
+                if (attempt >= mBackoff.maxAttempts) {
+                    throw e;
+                }
+            } catch (IOException e) {
+                if (isCancellation(e)) {
+                    // Some clients clear the flag when they throw; the caller still needs it
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                breaker.recordFailure(System.currentTimeMillis());
+                if (attempt >= mBackoff.maxAttempts) {
+                    throw e;
+                }
+            }
+
+            try {
+                mSleeper.sleep(mBackoff.getDelay(attempt, mRandom));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted after attempt " + attempt);
+            }
+        }
+    }
+
+    /**
+     * Whether a failed attempt was the calling thread being interrupted.  A read timeout is an
+     * InterruptedIOException too, but it is the endpoint being slow.
+     */
+    private static boolean isCancellation(IOException e) {
+        return Thread.currentThread().isInterrupted()
+                || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+    }
+
+    /**
+     * Plain {@link HttpURLConnection}s with timeouts.
+     *
+     * The platform keeps idle keep-alive connections in a pool, but only gets a connection back
+     * if its response was read to the end and closed without disconnect(), which would close
+     * the socket.  So bodies, error bodies included, are drained and closed, and a connection
+     * is only disconnected when something went wrong mid-response.
+     */
+    public static class UrlConnectionTransport implements Transport {
+        private final int mConnectTimeoutMillis;
+        private final int mReadTimeoutMillis;
+
+        public UrlConnectionTransport(int connectTimeoutMillis, int readTimeoutMillis) {
+            mConnectTimeoutMillis = connectTimeoutMillis;
+            mReadTimeoutMillis = readTimeoutMillis;
+        }
+
+        @Override
+        public <T> T get(URL url, BodyReader<T> reader) throws IOException {
+            HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+            boolean reusable = false;
+            try {
+                urlConnection.setConnectTimeout(mConnectTimeoutMillis);
+                urlConnection.setReadTimeout(mReadTimeoutMillis);
+                urlConnection.setRequestMethod("GET");
+
+                int statusCode = urlConnection.getResponseCode();
+                if (statusCode != HttpURLConnection.HTTP_OK) {
+                    drainAndClose(urlConnection.getErrorStream());
+                    reusable = true;
+                    throw new HttpStatusException(statusCode,
+                            urlConnection.getResponseMessage());
+                }
+
+                InputStream in = urlConnection.getInputStream();
+                T result;
+                try {
+                    result = reader.read(in);
+                } catch (IOException | RuntimeException e) {
+                    in.close();
+                    throw e;
+                }
+                drainAndClose(in);
+                reusable = true;
+                return result;
+            } finally {
+                if (!reusable) {
+                    urlConnection.disconnect();
+                }
+            }
+        }
+
+        private static void drainAndClose(InputStream in) throws IOException {
+            if (in == null) {
+                return;
+            }
+            try {
+                byte[] buffer = new byte[1024];
+                while (in.read(buffer) != -1) {
+                    // a trailing newline, or the rest of an error page
+                }
+            } finally {
+                in.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Works out how one list of rows became another, when both are sorted by a unique key such as
+ * the forecast's dates.
+ *
+ * Sorted keys can be matched up in a single pass, without the edit distance search a general
+ * list diff needs.  The changes come out as ranges, in the order a RecyclerView adapter expects
+ * them: each position is where the rows are once the changes before it have been applied.
+ */
+public final class SortedDiff {
+
+    /**
+     * Compares the contents of two rows with the same key.
+     */
+    public interface Contents {
+        boolean areContentsTheSame(int oldPosition, int newPosition);
+    }
+
+    public static final class Change {
+        public static final int INSERT = 0;
+        public static final int REMOVE = 1;
+        public static final int CHANGE = 2;
+
+        public final int type;
+        public final int position;
+        public final int count;
+
+        public Change(int type, int position, int count) {
+            this.type = type;
+            this.position = position;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Change)) {
+                return false;
+            }
+            Change other = (Change) o;
+            return type == other.type && position == other.position && count == other.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return (type * 31 + position) * 31 + count;
+        }
+
+        @Override
+        public String toString() {
+            return (type == INSERT ? "insert" : type == REMOVE ? "remove" : "change")
+                    + "(" + position + ", " + count + ")";
+        }
+    }
+
+    private SortedDiff() {
+    }
+
+    /**
+     * @param oldKeys the keys of the old rows, ascending and unique
+     * @param newKeys the keys of the new rows, ascending and unique
+     * @param contents compares rows whose keys match
+     * @return the changes, or an empty list if the rows are the same.
+     */
+    public static List<Change> compute(long[] oldKeys, long[] newKeys, Contents contents) {
+        List<Change> changes = new ArrayList<>();
+        int oldPosition = 0;
+        int newPosition = 0;
+        // Where the next change happens, in the list as changed so far
+        int position = 0;
+        while (oldPosition < oldKeys.length || newPosition < newKeys.length) {
+            if (newPosition == newKeys.length
+                    || (oldPosition < oldKeys.length
+                    && oldKeys[oldPosition] < newKeys[newPosition])) {
+                add(changes, Change.REMOVE, position, false);
+                oldPosition++;
+            } else if (oldPosition == oldKeys.length
+                    || newKeys[newPosition] < oldKeys[oldPosition]) {
+                add(changes, Change.INSERT, position, true);
+                newPosition++;
+                position++;
+            } else {
+                if (!contents.areContentsTheSame(oldPosition, newPosition)) {
+                    add(changes, Change.CHANGE, position, true);
+                }
+                oldPosition++;
+                newPosition++;
+                position++;
+            }
+        }
+        return changes.isEmpty() ? Collections.<Change>emptyList() : changes;
+    }
+
+    // Grows the last change if this one carries on from it
+    private static void add(List<Change> changes, int type, int position, boolean advances) {
+        if (!changes.isEmpty()) {
+            Change last = changes.get(changes.size() - 1);
+            // Removed rows all go from the same position; the others follow each other
+            int next = advances ? last.position + last.count : last.position;
+            if (last.type == type && next == position) {
+                changes.set(changes.size() - 1, new Change(type, last.position, last.count + 1));
+                return;
+            }
+        }
+        changes.add(new Change(type, position, 1));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides how often to sync from how the forecast has been behaving and the state of the
+ * device.
+ *
+ * A forecast that comes back the same sync after sync is polled less and less often; one that
+ * moves, or holds severe weather, is polled more often.  On a metered network or a low battery
+ * the optional work (hourly forecast, art) is put off, and a low battery also stretches the
+ * interval.  The flex window grows with the interval, which gives the system room to line the
+ * sync up with other network traffic.
+ */
+public final class SyncPolicy {
+
+    // All intervals are in seconds
+    public static final int BASE_INTERVAL = 60 * 180;
+    public static final int MIN_INTERVAL = 60 * 60;
+    public static final int MAX_INTERVAL = 60 * 60 * 12;
+    // While forecasts are pushed, polling is a safety net, see PushForecast
+    public static final int PUSH_INTERVAL = 60 * 60 * 24;
+
+    // A change in the high temperature this big, in degrees C, counts as a moving forecast
+    static final double VOLATILE_TEMPERATURE_CHANGE = 3.0;
+    // Unchanged syncs double the interval up to this many times
+    static final int MAX_BACKOFF_STEPS = 2;
+
+    private SyncPolicy() {
+    }
+
+    /**
+     * What the decision is based on.  Also written to the decision log.
+     */
+    public static final class Inputs {
+        // Syncs in a row, including this one, that changed nothing
+        public int unchangedSyncs;
+        // Whether any day shared with the last forecast got a different condition
+        public boolean conditionChanged;
+        // The biggest change in a shared day's high, in degrees C
+        public double maxTemperatureChange;
+        public boolean severe;
+        public boolean metered;
+        public boolean batteryLow;
+        public boolean charging;
+        public boolean pushActive;
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d,%b,%.1f,%b,%b,%b,%b,%b", unchangedSyncs,
+                    conditionChanged, maxTemperatureChange, severe, metered, batteryLow,
+                    charging, pushActive);
+        }
+    }
+
+    /**
+     * When to sync next, and whether to skip the optional work now.
+     */
+    public static final class Decision {
+        public final int interval;
+        public final int flex;
+        public final boolean deferOptionalWork;
+        public final String reason;
+
+        Decision(int interval, int flex, boolean deferOptionalWork, String reason) {
+            this.interval = interval;
+            this.flex = flex;
+            this.deferOptionalWork = deferOptionalWork;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return interval + "," + flex + "," + deferOptionalWork + "," + reason;
+        }
+    }
+
+    /**
+     * Forecasts count as pushed while the last one arrived within a {@link #PUSH_INTERVAL}, so
+     * a server that stops pushing gets the device back to polling at the next safety sync.
+     *
+     * @param lastPushMillis when a pushed forecast was last applied, or 0 if never
+     */
+    public static boolean isPushActive(long lastPushMillis, long now) {
+        return lastPushMillis > 0 && now >= lastPushMillis
+                && now - lastPushMillis < PUSH_INTERVAL * 1000L;
+    }
+
+    public static Decision decide(Inputs inputs) {
+        int interval;
+        String reason;
+        if (inputs.severe) {
+            interval = MIN_INTERVAL;
+            reason = "severe";
+        } else if (inputs.pushActive) {
+            interval = PUSH_INTERVAL;
+            reason = "push";
+        } else if (inputs.conditionChanged
+                || inputs.maxTemperatureChange >= VOLATILE_TEMPERATURE_CHANGE) {
+            interval = BASE_INTERVAL / 2;
+            reason = "volatile";
+        } else {
+            interval = BASE_INTERVAL << Math.min(Math.max(inputs.unchangedSyncs, 0),
+                    MAX_BACKOFF_STEPS);
+            reason = inputs.unchangedSyncs > 0 ? "stable" : "base";
+        }
+
+        boolean lowPower = inputs.batteryLow && !inputs.charging;
+        if (lowPower && !inputs.severe) {
+            interval = Math.max(Math.min(interval * 2, MAX_INTERVAL), interval);
+            reason += "+battery";
+        }
+        boolean defer = lowPower || inputs.metered;
+        if (inputs.metered) {
+            reason += "+metered";
+        }
+
+        // Give the system a wider window the less the timing matters
+        int flex = interval > BASE_INTERVAL ? interval / 2 : interval / 3;
+        return new Decision(interval, flex, defer, reason);
+    }
+
+    /**
+     * @return the forecast in the form {@link #compare} reads: date:weatherId:high per day.
+     */
+    public static String fingerprint(long[] dates, int[] weatherIds, double[] highs) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (int i = 0; i < dates.length; i++) {
+            if (i > 0) {
+                fingerprint.append(',');
+            }
+            fingerprint.append(dates[i]).append(':').append(weatherIds[i]).append(':')
+                    .append(CompactUnits.toTenths(highs[i]));
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Fills in the forecast half of the inputs by comparing the days the two forecasts share.
+     *
+     * @param previous the last fingerprint, or null if there isn't one
+     * @param previousUnchangedSyncs the unchangedSyncs of the last decision
+     */
+    public static void compare(Inputs inputs, String previous, String current,
+                               int previousUnchangedSyncs) {
+        inputs.conditionChanged = false;
+        inputs.maxTemperatureChange = 0;
+        if (previous == null || previous.isEmpty()) {
+            inputs.unchangedSyncs = 0;
+            return;
+        }
+
+        Map<String, String[]> previousDays = new HashMap<>();
+        for (String day : previous.split(",")) {
+            String[] fields = day.split(":");
+            if (fields.length == 3) {
+                previousDays.put(fields[0], fields);
+            }
+        }
+        boolean changed = false;
+        if (!current.isEmpty()) {
+            for (String day : current.split(",")) {
+                String[] fields = day.split(":");
+                String[] old = previousDays.get(fields[0]);
+                if (fields.length != 3 || old == null) {
+                    // A new day at the end of the forecast is just the calendar moving on
+                    continue;
+                }
+                if (!old[1].equals(fields[1])) {
+                    inputs.conditionChanged = true;
+                    changed = true;
+                }
+                double change = CompactUnits.fromTenths(
+                        Math.abs(Integer.parseInt(fields[2]) - Integer.parseInt(old[2])));
+                if (change > 0) {
+                    changed = true;
+                }
+                inputs.maxTemperatureChange = Math.max(inputs.maxTemperatureChange, change);
+            }
+        }
+        inputs.unchangedSyncs = changed ? 0 : previousUnchangedSyncs + 1;
+    }
+}
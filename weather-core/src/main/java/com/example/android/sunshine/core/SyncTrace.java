@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where the time of one sync went: an ordered list of stages, each with its duration and the
+ * bytes and rows it handled, and how the sync ended.
+ *
+ * Stages may be recorded from any thread.  A trace is written out as a single line by
+ * {@link #toLine()} and read back by {@link #fromLine(String)}, which keeps the last few syncs
+ * cheap to store; {@link #summarize(List)} turns a set of them into per-stage statistics.
+ */
+public final class SyncTrace {
+
+    public static final class Stage {
+        public final String name;
+        public final long micros;
+        public final long bytes;
+        public final int rows;
+
+        Stage(String name, long micros, long bytes, int rows) {
+            this.name = name;
+            this.micros = micros;
+            this.bytes = bytes;
+            this.rows = rows;
+        }
+    }
+
+    // Separate the stages of a line, and the fields of a stage
+    private static final char STAGE_SEPARATOR = '|';
+    private static final char FIELD_SEPARATOR = ',';
+
+    public final long startedAt;
+    private final long mStartNanos;
+    private final List<Stage> mStages = new ArrayList<>();
+    private String mResult;
+    private long mTotalMicros = -1;
+
+    /**
+     * @param startedAt wall clock time, for the reader of the trace
+     */
+    public SyncTrace(long startedAt) {
+        this.startedAt = startedAt;
+        mStartNanos = System.nanoTime();
+    }
+
+    private SyncTrace(long startedAt, String result, long totalMicros) {
+        this.startedAt = startedAt;
+        mStartNanos = 0;
+        mResult = result;
+        mTotalMicros = totalMicros;
+    }
+
+    /**
+     * Records a stage that started at startNanos, a System.nanoTime() reading, and ends now.
+     */
+    public void record(String name, long startNanos, long bytes, int rows) {
+        recordDuration(name, System.nanoTime() - startNanos, bytes, rows);
+    }
+
+    public synchronized void recordDuration(String name, long nanos, long bytes, int rows) {
+        mStages.add(new Stage(clean(name), nanos / 1000, bytes, rows));
+    }
+
+    /**
+     * Ends the trace.  Stages recorded after this still show up, but not in the total.
+     */
+    public synchronized void finish(String result) {
+        mResult = clean(result);
+        mTotalMicros = (System.nanoTime() - mStartNanos) / 1000;
+    }
+
+    public synchronized List<Stage> getStages() {
+        return Collections.unmodifiableList(new ArrayList<>(mStages));
+    }
+
+    /**
+     * @return how the sync ended, null while it is running
+     */
+    public synchronized String getResult() {
+        return mResult;
+    }
+
+    /**
+     * @return the duration of the whole sync, -1 while it is running
+     */
+    public synchronized long getTotalMicros() {
+        return mTotalMicros;
+    }
+
+    private static String clean(String name) {
+        return name.replace(STAGE_SEPARATOR, '_').replace(FIELD_SEPARATOR, '_')
+                .replace('\n', '_');
+    }
+
+    public synchronized String toLine() {
+        StringBuilder line = new StringBuilder();
+        line.append(startedAt).append(FIELD_SEPARATOR)
+                .append(mResult).append(FIELD_SEPARATOR)
+                .append(mTotalMicros);
+        for (Stage stage : mStages) {
+            line.append(STAGE_SEPARATOR)
+                    .append(stage.name).append(FIELD_SEPARATOR)
+                    .append(stage.micros).append(FIELD_SEPARATOR)
+                    .append(stage.bytes).append(FIELD_SEPARATOR)
+                    .append(stage.rows);
+        }
+        return line.toString();
+    }
+
+    /**
+     * @return the trace, or null if the line isn't one written by {@link #toLine()}
+     */
+    public static SyncTrace fromLine(String line) {
+        String[] stages = line.split("\\" + STAGE_SEPARATOR);
+        String[] header = stages[0].split(String.valueOf(FIELD_SEPARATOR));
+        if (header.length != 3) {
+            return null;
+        }
+        try {
+            SyncTrace trace = new SyncTrace(Long.parseLong(header[0]),
+                    "null".equals(header[1]) ? null : header[1], Long.parseLong(header[2]));
+            for (int i = 1; i < stages.length; i++) {
+                String[] fields = stages[i].split(String.valueOf(FIELD_SEPARATOR));
+                if (fields.length != 4) {
+                    return null;
+                }
+                trace.mStages.add(new Stage(fields[0], Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]), Integer.parseInt(fields[3])));
+            }
+            return trace;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return one line per stage name, in the order the names first appear, with how many
+     * times it ran and its median and longest duration, followed by the same for whole syncs.
+     */
+    public static String summarize(List<SyncTrace> traces) {
+        Map<String, List<Long>> durations = new LinkedHashMap<>();
+        List<Long> totals = new ArrayList<>();
+        for (SyncTrace trace : traces) {
+            for (Stage stage : trace.getStages()) {
+                List<Long> stageDurations = durations.get(stage.name);
+                if (stageDurations == null) {
+                    stageDurations = new ArrayList<>();
+                    durations.put(stage.name, stageDurations);
+                }
+                stageDurations.add(stage.micros);
+            }
+            if (trace.getTotalMicros() >= 0) {
+                totals.add(trace.getTotalMicros());
+            }
+        }
+
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, List<Long>> entry : durations.entrySet()) {
+            appendStatistics(summary, entry.getKey(), entry.getValue());
+        }
+        appendStatistics(summary, "total", totals);
+        return summary.toString();
+    }
+
+    private static void appendStatistics(StringBuilder summary, String name, List<Long> micros) {
+        if (micros.isEmpty()) {
+            return;
+        }
+        long[] sorted = new long[micros.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = micros.get(i);
+        }
+        Arrays.sort(sorted);
+        summary.append(String.format(Locale.US, "%-32s n=%-3d median=%9.1fms max=%9.1fms%n",
+                name, sorted.length, sorted[sorted.length / 2] / 1000.0,
+                sorted[sorted.length - 1] / 1000.0));
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%tF %<tT %s %.1fms%n", startedAt, mResult,
+                mTotalMicros / 1000.0));
+        for (Stage stage : mStages) {
+            out.append(String.format(Locale.US, "  %-30s %9.1fms %8d bytes %5d rows%n",
+                    stage.name, stage.micros / 1000.0, stage.bytes, stage.rows));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.util.Locale;
+
+/**
+ * Formats temperatures the way the "format_temperature" string does ("%1.0f\u00B0"), but
+ * straight into a char array so that nothing is allocated.
+ *
+ * The rounding matches java.util.Formatter exactly: halves round away from zero, and values
+ * that round to zero keep their sign ("-0\u00B0" rather than "0\u00B0").
+ */
+public final class TemperatureFormatter {
+
+    public static final char DEGREE_SIGN = '\u00B0';
+
+    /**
+     * Room needed for any temperature below {@link #MAX_FAST_VALUE}, NaN or infinity.
+     */
+    public static final int MAX_LENGTH = 20;
+
+    /**
+     * From here on we hand the work to Formatter, which can print hundreds of digits.
+     * No planet has weather that extreme.
+     */
+    public static final double MAX_FAST_VALUE = 1e15;
+
+    private static final ThreadLocal<char[]> sBuffer = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[MAX_LENGTH];
+        }
+    };
+
+    private TemperatureFormatter() {
+    }
+
+    /**
+     * Data is stored in Celsius.  If the user prefers Fahrenheit, convert it here.
+     */
+    public static double toDisplayUnits(double celsius, boolean metric) {
+        return metric ? celsius : (celsius * 1.8) + 32;
+    }
+
+    /**
+     * Writes the temperature, rounded to a whole degree and followed by a degree sign, into dest.
+     *
+     * @param temperature in the units it should be shown in
+     * @param dest        array to write into, needs {@link #MAX_LENGTH} chars of room unless the
+     *                    temperature is at least {@link #MAX_FAST_VALUE} degrees
+     * @param offset      where to start writing
+     * @return the offset just past the last char written
+     */
+    public static int format(double temperature, char[] dest, int offset) {
+        if (!isFast(temperature)) {
+            String slow = formatSlowly(temperature);
+            slow.getChars(0, slow.length(), dest, offset);
+            return offset + slow.length();
+        }
+
+        // The sign bit, rather than "< 0", so that -0.0 keeps its minus like it does in Formatter
+        boolean negative = Double.doubleToRawLongBits(temperature) < 0;
+        double magnitude = Math.abs(temperature);
+        long whole = (long) magnitude;
+        // Exact: both sides are doubles with the same exponent or smaller.  Comparing the binary
+        // fraction to one half gives the same answer as Formatter's HALF_UP on the decimal form.
+        if (magnitude - whole >= 0.5) {
+            whole++;
+        }
+
+        if (negative) {
+            dest[offset++] = '-';
+        }
+        offset = appendDigits(whole, dest, offset);
+        dest[offset++] = DEGREE_SIGN;
+        return offset;
+    }
+
+    /**
+     * Same as {@link #format(double, char[], int)}, returned as a String.  Only the String
+     * itself is allocated.
+     */
+    public static String format(double temperature) {
+        if (!isFast(temperature)) {
+            return formatSlowly(temperature);
+        }
+        char[] buffer = sBuffer.get();
+        return new String(buffer, 0, format(temperature, buffer, 0));
+    }
+
+    private static boolean isFast(double temperature) {
+        // Also false for NaN
+        return Math.abs(temperature) < MAX_FAST_VALUE;
+    }
+
+    private static String formatSlowly(double temperature) {
+        return String.format(Locale.US, "%1.0f", temperature) + DEGREE_SIGN;
+    }
+
+    private static int appendDigits(long value, char[] dest, int offset) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        int end = offset + digits;
+        for (int i = end - 1; i >= offset; i--) {
+            dest[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+}
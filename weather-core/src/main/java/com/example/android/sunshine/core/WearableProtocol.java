@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * The Data Layer paths and keys the phone and the watch face use to talk about the weather.
+ *
+ * The watch face puts a data item on {@link #WEATHER_PATH} to ask for an update, and the phone
+ * answers on {@link #WEATHER_INFO_PATH} with today's high, low and condition id.
+ */
+public final class WearableProtocol {
+
+    // Watch -> phone: "please send me the weather"
+    public static final String WEATHER_PATH = "/weather";
+    // Phone -> watch: today's forecast
+    public static final String WEATHER_INFO_PATH = "/weather-info";
+
+    // A random value, so that every data item counts as changed even if the weather didn't.
+    public static final String KEY_UUID = "uuid";
+    // Already formatted temperatures, e.g. "21\u00B0", in the units the user picked on the phone
+    public static final String KEY_HIGH = "high";
+    public static final String KEY_LOW = "low";
+    // OpenWeatherMap condition id, see WeatherConditions
+    public static final String KEY_WEATHER_ID = "weatherId";
+
+    private WearableProtocol() {
+    }
+}
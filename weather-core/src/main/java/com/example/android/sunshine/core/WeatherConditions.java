@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+/**
+ * Classifies the weather condition ids returned by OpenWeatherMap.
+ *
+ * Based on weather code data found at:
+ * http://bugs.openweathermap.org/projects/api/wiki/Weather_Condition_Codes
+ *
+ * Every id between {@link #MIN_ID} and {@link #MAX_ID} has a slot in a single dense table, so a
+ * lookup is one bounds check and one array read.  The phone app and the watch face turn the
+ * ART_ constants into their own drawables; this class only knows about plain Java types.
+ */
+public final class WeatherConditions {
+
+    public static final int MIN_ID = 200;
+    public static final int MAX_ID = 962;
+
+    // The groups of conditions that share a set of icons and artwork.
+    public static final int ART_NONE = 0;
+    public static final int ART_STORM = 1;
+    public static final int ART_LIGHT_RAIN = 2;
+    public static final int ART_RAIN = 3;
+    public static final int ART_SNOW = 4;
+    public static final int ART_FOG = 5;
+    public static final int ART_CLEAR = 6;
+    public static final int ART_LIGHT_CLOUDS = 7;
+    public static final int ART_CLOUDS = 8;
+    public static final int ART_COUNT = 9;
+
+    // Muzei uses photographs rather than the art pack, and has one extra picture for dust
+    // and squalls.
+    private static final int IMAGE_DUST = ART_COUNT;
+
+    // Names used to build the art pack urls, indexed by ART_ constant
+    private static final String[] ART_NAMES = {
+            null,
+            "storm",
+            "light_rain",
+            "rain",
+            "snow",
+            "fog",
+            "clear",
+            "light_clouds",
+            "clouds"
+    };
+
+    // Muzei wallpapers, indexed by ART_ constant and then IMAGE_DUST
+    private static final String[] IMAGE_URLS = {
+            null,
+            "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg",
+            "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg"
+    };
+
+    // Each slot packs the art group, the Muzei image and whether the id has its own description.
+    private static final int ART_MASK = 0x0F;
+    private static final int IMAGE_SHIFT = 4;
+    private static final int IMAGE_MASK = 0x0F;
+    private static final int FLAG_DESCRIBED = 0x100;
+
+    private static final short[] TABLE = new short[MAX_ID - MIN_ID + 1];
+
+    static {
+        fill(200, 232, ART_STORM);
+        fill(300, 321, ART_LIGHT_RAIN);
+        fill(500, 504, ART_RAIN);
+        fill(511, 511, ART_SNOW);
+        fill(520, 531, ART_RAIN);
+        fill(600, 622, ART_SNOW);
+        fill(701, 761, ART_FOG);
+        fill(781, 781, ART_STORM);
+        fill(800, 800, ART_CLEAR);
+        fill(801, 801, ART_LIGHT_CLOUDS);
+        fill(802, 804, ART_CLOUDS);
+        TABLE[781 - MIN_ID] = (short) (ART_STORM | (IMAGE_DUST << IMAGE_SHIFT));
+
+        // Thunderstorms and drizzle share one description for the whole group.
+        describe(200, 232);
+        describe(300, 321);
+        describe(500, 504);
+        describe(511, 511);
+        describe(520, 520);
+        describe(531, 531);
+        describe(600, 602);
+        describe(611, 612);
+        describe(615, 616);
+        describe(620, 622);
+        for (int id = 701; id <= 781; id += 10) {
+            describe(id, id);
+        }
+        describe(762, 762);
+        describe(800, 804);
+        describe(900, 906);
+        describe(951, 962);
+    }
+
+    private static void fill(int from, int to, int art) {
+        for (int id = from; id <= to; id++) {
+            TABLE[id - MIN_ID] = (short) (art | (art << IMAGE_SHIFT));
+        }
+    }
+
+    private static void describe(int from, int to) {
+        for (int id = from; id <= to; id++) {
+            TABLE[id - MIN_ID] |= FLAG_DESCRIBED;
+        }
+    }
+
+    private WeatherConditions() {
+    }
+
+    private static int entry(int weatherId) {
+        if (weatherId < MIN_ID || weatherId > MAX_ID) {
+            return 0;
+        }
+        return TABLE[weatherId - MIN_ID];
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return one of the ART_ constants, ART_NONE if no relation is found.
+     */
+    public static int getArtType(int weatherId) {
+        return entry(weatherId) & ART_MASK;
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return the art pack name for the condition (e.g. "light_rain"), null if none is found.
+     */
+    public static String getArtName(int weatherId) {
+        return ART_NAMES[getArtType(weatherId)];
+    }
+
+    /**
+     * @param artType one of the ART_ constants
+     * @return the art pack name for the group, null for ART_NONE.
+     */
+    public static String getArtNameForType(int artType) {
+        return ART_NAMES[artType];
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return A string URL to an appropriate photograph or null if no mapping is found
+     */
+    public static String getImageUrl(int weatherId) {
+        return IMAGE_URLS[(entry(weatherId) >> IMAGE_SHIFT) & IMAGE_MASK];
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return true for thunderstorms, heavy rain and snow, freezing rain, tornadoes and the
+     * extreme and high wind conditions.
+     */
+    public static boolean isSevere(int weatherId) {
+        return (weatherId >= 200 && weatherId <= 232)
+                || (weatherId >= 502 && weatherId <= 504)
+                || weatherId == 511
+                || weatherId == 602
+                || weatherId == 622
+                || weatherId == 781
+                || (weatherId >= 900 && weatherId <= 906)
+                || (weatherId >= 957 && weatherId <= 962);
+    }
+
+    /**
+     * @param weatherId from OpenWeatherMap API response
+     * @return true if the condition (or its 2xx/3xx group) has a description of its own.
+     */
+    public static boolean hasDescription(int weatherId) {
+        return (entry(weatherId) & FLAG_DESCRIBED) != 0;
+    }
+}
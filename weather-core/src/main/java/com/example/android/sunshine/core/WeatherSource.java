@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+
+/**
+ * A backend that can answer a {@link ForecastQuery}: OpenWeatherMap, a mirror of it, or
+ * another service whose response is translated into a {@link Forecast}.
+ *
+ * Sources are called from background threads, possibly several at once when they are
+ * combined by {@link HedgedWeatherSource}.  A call that is no longer wanted is cancelled by
+ * interrupting its thread, so a source should give up as soon as it notices the interrupt.
+ */
+public interface WeatherSource {
+
+    /**
+     * The backend answered, but doesn't know the location.
+     */
+    class LocationNotFoundException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public LocationNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The backend answered with something that isn't a forecast.
+     */
+    class BadResponseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public BadResponseException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * @return a short name for the logs, e.g. "openweathermap"
+     */
+    String getName();
+
+    /**
+     * @return the forecast, never null
+     * @throws LocationNotFoundException if the backend doesn't know the location
+     * @throws BadResponseException if the response couldn't be read
+     * @throws IOException if the backend couldn't be reached
+     */
+    Forecast fetch(ForecastQuery query) throws IOException;
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BackoffPolicyTest {
+
+    @Test
+    public void doublesWithinJitterUpToMax() {
+        BackoffPolicy policy = new BackoffPolicy(6, 1000, 5000);
+        Random random = new Random(42);
+        long[] ceilings = {1000, 2000, 4000, 5000, 5000};
+        for (int i = 0; i < 1000; i++) {
+            for (int retry = 1; retry <= ceilings.length; retry++) {
+                long delay = policy.getDelay(retry, random);
+                long ceiling = ceilings[retry - 1];
+                assertTrue("retry " + retry + " waited " + delay,
+                        delay >= ceiling / 2 && delay <= ceiling);
+            }
+        }
+    }
+
+    @Test
+    public void jitterSpreadsDelays() {
+        BackoffPolicy policy = new BackoffPolicy(3, 1000, 1000);
+        Random random = new Random(7);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.getDelay(1, random);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        assertTrue(min < 600);
+        assertTrue(max > 900);
+    }
+
+    @Test
+    public void largeRetryDoesNotOverflow() {
+        BackoffPolicy policy = new BackoffPolicy(3, 1000, 60000);
+        long delay = policy.getDelay(100, new Random(1));
+        assertTrue(delay >= 30000 && delay <= 60000);
+        assertEquals(0, new BackoffPolicy(3, 0, 0).getDelay(5, new Random(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNoAttempts() {
+        new BackoffPolicy(0, 1000, 1000);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void opensAfterThresholdAndHalfOpensAfterPeriod() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000);
+        breaker.recordFailure(100);
+        breaker.recordFailure(200);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(200));
+        assertTrue(breaker.allowRequest(200));
+
+        breaker.recordFailure(300);
+        assertEquals(CircuitBreaker.STATE_OPEN, breaker.getState(300));
+        assertFalse(breaker.allowRequest(1299));
+        assertEquals(1300, breaker.getRetryAt(1299));
+
+        assertEquals(CircuitBreaker.STATE_HALF_OPEN, breaker.getState(1300));
+        assertTrue(breaker.allowRequest(1300));
+        // Only one trial at a time
+        assertFalse(breaker.allowRequest(1301));
+    }
+
+    @Test
+    public void trialResultClosesOrReopens() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.recordFailure(0);
+        assertTrue(breaker.allowRequest(1000));
+        breaker.recordFailure(1100);
+        assertFalse(breaker.allowRequest(2099));
+        assertEquals(2100, breaker.getRetryAt(2000));
+
+        assertTrue(breaker.allowRequest(2100));
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(2100));
+        assertEquals(0, breaker.getRetryAt(2100));
+    }
+
+    @Test
+    public void successResetsCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000);
+        breaker.recordFailure(0);
+        breaker.recordSuccess();
+        breaker.recordFailure(10);
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(10));
+    }
+
+    @Test
+    public void restoresPersistedState() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 1000);
+        breaker.recordFailure(0);
+        breaker.recordFailure(500);
+
+        CircuitBreaker restored = new CircuitBreaker(2, 1000, breaker.getFailures(),
+                breaker.getOpenedAt());
+        assertEquals(CircuitBreaker.STATE_OPEN, restored.getState(600));
+        assertEquals(1500, restored.getRetryAt(600));
+    }
+
+    @Test
+    public void clockSetBackwardsHalfOpens() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000);
+        breaker.recordFailure(5000);
+        assertEquals(CircuitBreaker.STATE_HALF_OPEN, breaker.getState(100));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+public class ClockFormatterTest {
+
+    @Test
+    public void matchesStringFormatForEveryMinute() {
+        char[] dest = new char[ClockFormatter.MAX_TIME_LENGTH];
+        for (int hour = 0; hour < 24; hour++) {
+            for (int minute = 0; minute < 60; minute++) {
+                int end = ClockFormatter.formatTime(hour, minute, true, dest, 0);
+                assertEquals(String.format(Locale.US, "%02d:%02d", hour, minute),
+                        new String(dest, 0, end));
+
+                int hour12 = (hour % 12 == 0) ? 12 : hour % 12;
+                end = ClockFormatter.formatTime(hour12, minute, false, dest, 0);
+                assertEquals(String.format(Locale.US, "%d:%02d", hour12, minute),
+                        new String(dest, 0, end));
+            }
+        }
+    }
+
+    @Test
+    public void appendsTwoDigits() {
+        char[] dest = new char[4];
+        for (int value = 0; value < 100; value++) {
+            int end = ClockFormatter.appendTwoDigits(value, dest, 2);
+            assertEquals(4, end);
+            assertEquals(String.format(Locale.US, "%02d", value), new String(dest, 2, 2));
+        }
+    }
+}
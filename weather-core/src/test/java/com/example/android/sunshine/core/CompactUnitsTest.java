@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class CompactUnitsTest {
+
+    @Test
+    public void roundsToTenths() {
+        assertEquals(215, CompactUnits.toTenths(21.46));
+        assertEquals(214, CompactUnits.toTenths(21.44));
+        assertEquals(-38, CompactUnits.toTenths(-3.82));
+        assertEquals(0, CompactUnits.toTenths(0.04));
+        assertEquals(10132, CompactUnits.toTenths(1013.2));
+    }
+
+    @Test
+    public void tenthsRoundTrip() {
+        for (int tenths = -1000; tenths <= 11000; tenths++) {
+            assertEquals(tenths, CompactUnits.toTenths(CompactUnits.fromTenths(tenths)));
+        }
+    }
+
+    @Test
+    public void epochHoursRoundDown() {
+        long hour = CompactUnits.HOUR_IN_MILLIS;
+        assertEquals(0, CompactUnits.toEpochHour(0));
+        assertEquals(0, CompactUnits.toEpochHour(hour - 1));
+        assertEquals(1, CompactUnits.toEpochHour(hour));
+        assertEquals(-1, CompactUnits.toEpochHour(-1));
+        // 2016-01-21 21:00 UTC, a typical OpenWeatherMap slot
+        assertEquals(403725, CompactUnits.toEpochHour(1453410000000L));
+        assertEquals(1453410000000L, CompactUnits.fromEpochHour(403725));
+    }
+}
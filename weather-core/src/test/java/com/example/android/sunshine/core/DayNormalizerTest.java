@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Calendar;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DayNormalizerTest {
+
+    private static final long HOUR_IN_MILLIS = 1000 * 60 * 60;
+    private static final long DAY_IN_MILLIS = DayNormalizer.DAY_IN_MILLIS;
+
+    private static final long START = 1388534400000L;  // January 1st, 2014 UTC
+    private static final long END = START + 3 * 365 * DAY_IN_MILLIS;
+
+    // Half hour and quarter hour offsets, half hour daylight saving (Lord Howe), zones on
+    // both sides of the date line, and zones whose clocks change at midnight.
+    private static final String[] ZONES = {
+            "UTC", "America/Los_Angeles", "America/New_York", "Europe/London", "Europe/Berlin",
+            "Asia/Kolkata", "Asia/Kathmandu", "Australia/Adelaide", "Australia/Lord_Howe",
+            "Pacific/Chatham", "Pacific/Kiritimati", "Pacific/Pago_Pago", "America/St_Johns",
+            "America/Sao_Paulo", "America/Santiago", "America/Havana", "Asia/Beirut",
+            "Asia/Tehran", "Asia/Amman", "Asia/Gaza", "Africa/Cairo", "Pacific/Apia"
+    };
+
+    // What the Time based normalizeDate did: local midnight of the same day.
+    private static long legacyStartOfDay(TimeZone timeZone, long dateInMillis) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(dateInMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void matchesCalendarEveryFewHours() {
+        for (String zone : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            DayNormalizer normalizer = new DayNormalizer(timeZone);
+            // Five hours, so that every hour of the day comes up
+            for (long date = START; date < END; date += 5 * HOUR_IN_MILLIS) {
+                assertEquals(zone + " at " + date, legacyStartOfDay(timeZone, date),
+                        normalizer.startOfDay(date));
+            }
+        }
+    }
+
+    @Test
+    public void matchesCalendarAroundTransitions() {
+        for (String zone : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            DayNormalizer normalizer = new DayNormalizer(timeZone);
+            for (long date = START; date < END; date += HOUR_IN_MILLIS) {
+                if (timeZone.getOffset(date) == timeZone.getOffset(date + HOUR_IN_MILLIS)) {
+                    continue;
+                }
+                // Every minute of the two days either side of the change
+                for (long near = date - 2 * DAY_IN_MILLIS; near < date + 2 * DAY_IN_MILLIS;
+                     near += 60 * 1000) {
+                    assertEquals(zone + " at " + near, legacyStartOfDay(timeZone, near),
+                            normalizer.startOfDay(near));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void startsTheDayInEveryZone() {
+        for (String zone : TimeZone.getAvailableIDs()) {
+            DayNormalizer normalizer = new DayNormalizer(TimeZone.getTimeZone(zone));
+            for (long date = START; date < END; date += 7 * HOUR_IN_MILLIS) {
+                long start = normalizer.startOfDay(date);
+                long day = normalizer.getLocalDay(date);
+                String message = zone + " at " + date;
+                assertEquals(message, day, normalizer.getLocalDay(start));
+                assertEquals(message, start, normalizer.startOfDay(start));
+                // Before the date, except on days with two midnights
+                assertTrue(message, date - start < DAY_IN_MILLIS + 3 * HOUR_IN_MILLIS);
+                assertTrue(message, start - date < 3 * HOUR_IN_MILLIS);
+            }
+        }
+    }
+
+    @Test
+    public void startsAtTheChangeWhenMidnightIsSkipped() {
+        // The clocks go from 23:30 straight to 00:30, so October 16th starts at 00:30
+        TimeZone timeZone = new SimpleTimeZone((int) (-3 * HOUR_IN_MILLIS), "Test",
+                Calendar.OCTOBER, 15, 0, (int) (23 * HOUR_IN_MILLIS + 30 * 60 * 1000),
+                Calendar.FEBRUARY, 15, 0, 0);
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(2014, Calendar.OCTOBER, 16, 2, 30);
+        long change = utc.getTimeInMillis();
+        assertEquals(-3 * HOUR_IN_MILLIS, timeZone.getOffset(change - 1));
+        assertEquals(-2 * HOUR_IN_MILLIS, timeZone.getOffset(change));
+
+        DayNormalizer normalizer = new DayNormalizer(timeZone);
+        long day = normalizer.getLocalDay(change);
+        assertEquals(day - 1, normalizer.getLocalDay(change - 1));
+        assertEquals(change, normalizer.startOfLocalDay(day));
+        assertEquals(change, normalizer.startOfDay(change + 10 * HOUR_IN_MILLIS));
+    }
+
+    @Test
+    public void localDayMatchesFloorDivision() {
+        DayNormalizer normalizer = new DayNormalizer(TimeZone.getTimeZone("UTC"));
+        assertEquals(0, normalizer.getLocalDay(0));
+        assertEquals(0, normalizer.getLocalDay(DAY_IN_MILLIS - 1));
+        assertEquals(1, normalizer.getLocalDay(DAY_IN_MILLIS));
+        assertEquals(-1, normalizer.getLocalDay(-1));
+        assertEquals(-1, normalizer.getLocalDay(-DAY_IN_MILLIS));
+        assertEquals(-2, normalizer.getLocalDay(-DAY_IN_MILLIS - 1));
+    }
+
+    @Test
+    public void defaultFollowsInvalidate() {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Asia/Kolkata"));
+            DayNormalizer.invalidate();
+            assertEquals("Asia/Kolkata", DayNormalizer.get().getTimeZone().getID());
+            assertTrue(DayNormalizer.get() == DayNormalizer.get());
+
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Los_Angeles"));
+            assertEquals("Asia/Kolkata", DayNormalizer.get().getTimeZone().getID());
+            DayNormalizer.invalidate();
+            assertEquals("America/Los_Angeles", DayNormalizer.get().getTimeZone().getID());
+        } finally {
+            TimeZone.setDefault(original);
+            DayNormalizer.invalidate();
+        }
+    }
+
+    @Test
+    public void doesNotAllocate() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        DayNormalizer normalizer = new DayNormalizer(TimeZone.getTimeZone("Europe/Berlin"));
+
+        long sum = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass warms everything up
+            long before = allocations.getThreadAllocatedBytes(thread);
+            for (long date = START; date < END; date += HOUR_IN_MILLIS) {
+                sum += normalizer.startOfDay(date);
+            }
+            long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+            if (pass == 1) {
+                // Leave a little room for the measurement itself
+                assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+            }
+        }
+        assertTrue(sum != 0);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local backend that answers after a delay, or fails, and remembers being cancelled.
+ */
+class FakeWeatherSource implements WeatherSource {
+
+    private final String mName;
+    private final long mDelayMillis;
+    private final IOException mFailure;
+
+    final AtomicInteger calls = new AtomicInteger();
+    final CountDownLatch cancelled = new CountDownLatch(1);
+
+    static FakeWeatherSource answering(String name, long delayMillis) {
+        return new FakeWeatherSource(name, delayMillis, null);
+    }
+
+    static FakeWeatherSource failing(String name, long delayMillis, IOException failure) {
+        return new FakeWeatherSource(name, delayMillis, failure);
+    }
+
+    private FakeWeatherSource(String name, long delayMillis, IOException failure) {
+        mName = name;
+        mDelayMillis = delayMillis;
+        mFailure = failure;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public Forecast fetch(ForecastQuery query) throws IOException {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(mDelayMillis);
+        } catch (InterruptedException e) {
+            cancelled.countDown();
+            throw new InterruptedIOException();
+        }
+        if (mFailure != null) {
+            throw mFailure;
+        }
+        List<Forecast.Day> days = new ArrayList<>(query.days);
+        for (int i = 0; i < query.days; i++) {
+            days.add(new Forecast.Day(800, "Clear", 20 + i, 10 + i, 50, 1013, 3.5, 180));
+        }
+        return new Forecast(mName, query.location, 51.5, -0.1, days);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgedWeatherSourceTest {
+
+    private static final ForecastQuery QUERY = new ForecastQuery("94043", 14);
+    private static final long HEDGE_DELAY = 100;
+
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    private HedgedWeatherSource hedge(WeatherSource... sources) {
+        return new HedgedWeatherSource(Arrays.asList(sources), HEDGE_DELAY, mExecutor);
+    }
+
+    @Test
+    public void fastPrimaryIsTheOnlyCall() throws IOException {
+        FakeWeatherSource primary = FakeWeatherSource.answering("primary", 0);
+        FakeWeatherSource mirror = FakeWeatherSource.answering("mirror", 0);
+
+        Forecast forecast = hedge(primary, mirror).fetch(QUERY);
+        assertEquals("primary", forecast.source);
+        assertEquals(14, forecast.days.size());
+        assertEquals(0, mirror.calls.get());
+    }
+
+    @Test
+    public void slowPrimaryIsHedgedAndCancelled() throws Exception {
+        FakeWeatherSource primary = FakeWeatherSource.answering("primary", 5000);
+        FakeWeatherSource mirror = FakeWeatherSource.answering("mirror", 0);
+
+        long start = System.nanoTime();
+        Forecast forecast = hedge(primary, mirror).fetch(QUERY);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("mirror", forecast.source);
+        assertTrue("took " + elapsedMillis, elapsedMillis < 2000);
+        assertTrue(primary.cancelled.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledLoserKeepsItsBreakerClosed() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        final CircuitBreaker breaker = new CircuitBreaker(1, 60000);
+        final HttpFetcher fetcher = new HttpFetcher(new BackoffPolicy(3, 1000, 1000),
+                new HttpFetcher.Transport() {
+                    @Override
+                    public <T> T get(URL url, HttpFetcher.BodyReader<T> reader)
+                            throws IOException {
+                        requests.incrementAndGet();
+                        try {
+                            Thread.sleep(5000);
+                        } catch (InterruptedException e) {
+                            // Like okio, which clears the flag
+                            throw new InterruptedIOException("thread interrupted");
+                        }
+                        throw new AssertionError("Not cancelled");
+                    }
+                });
+        final URL url = new URL("http://primary.invalid/forecast");
+        final CountDownLatch finished = new CountDownLatch(1);
+        WeatherSource primary = new WeatherSource() {
+            @Override
+            public String getName() {
+                return "primary";
+            }
+
+            @Override
+            public Forecast fetch(ForecastQuery query) throws IOException {
+                try {
+                    fetcher.fetch(url, breaker);
+                    throw new AssertionError("Not cancelled");
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+
+        assertEquals("mirror", hedge(primary, FakeWeatherSource.answering("mirror", 0))
+                .fetch(QUERY).source);
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertEquals(1, requests.get());
+        assertEquals(0, breaker.getFailures());
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void failureStartsNextSourceWithoutWaiting() throws IOException {
+        FakeWeatherSource primary = FakeWeatherSource.failing("primary", 0,
+                new IOException("down"));
+        FakeWeatherSource mirror = FakeWeatherSource.answering("mirror", 0);
+        HedgedWeatherSource source = new HedgedWeatherSource(Arrays.<WeatherSource>asList(
+                primary, mirror), 60000, mExecutor);
+
+        assertEquals("mirror", source.fetch(QUERY).source);
+    }
+
+    @Test
+    public void allFailingThrowsPrimaryFailure() {
+        IOException down = new IOException("down");
+        try {
+            hedge(FakeWeatherSource.failing("primary", 50, down),
+                    FakeWeatherSource.failing("mirror", 0, new IOException("also down")))
+                    .fetch(QUERY);
+            fail();
+        } catch (IOException e) {
+            assertSame(down, e);
+        }
+    }
+
+    @Test
+    public void unknownLocationWinsOverOutage() {
+        WeatherSource.LocationNotFoundException notFound =
+                new WeatherSource.LocationNotFoundException("nowhere");
+        try {
+            hedge(FakeWeatherSource.failing("primary", 0, new IOException("down")),
+                    FakeWeatherSource.failing("mirror", 0, notFound))
+                    .fetch(QUERY);
+            fail();
+        } catch (IOException e) {
+            assertSame(notFound, e);
+        }
+    }
+
+    @Test
+    public void namesSources() {
+        assertEquals("hedged(a,b)", hedge(FakeWeatherSource.answering("a", 0),
+                FakeWeatherSource.answering("b", 0)).getName());
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistoryPartitionsTest {
+
+    private static final long DAY_IN_MILLIS = DayNormalizer.DAY_IN_MILLIS;
+
+    @Test
+    public void monthMatchesCalendar() {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        // 1950 through 2100, which covers leap centuries either side of 2000
+        for (long day = -7305; day <= 47482; day++) {
+            calendar.setTimeInMillis(day * DAY_IN_MILLIS);
+            int expected = calendar.get(Calendar.YEAR) * 100 + calendar.get(Calendar.MONTH) + 1;
+            assertEquals("day " + day, expected, HistoryPartitions.monthOf(day));
+        }
+    }
+
+    @Test
+    public void firstDayRoundTrips() {
+        assertEquals(0, HistoryPartitions.firstDayOf(197001));
+        assertEquals(16405, HistoryPartitions.firstDayOf(201412));
+        for (int month = 195001; month < 210001; month = HistoryPartitions.nextMonth(month)) {
+            long first = HistoryPartitions.firstDayOf(month);
+            assertEquals(month, HistoryPartitions.monthOf(first));
+            assertEquals(HistoryPartitions.addMonths(month, -1),
+                    HistoryPartitions.monthOf(first - 1));
+        }
+    }
+
+    @Test
+    public void stepsAcrossYears() {
+        assertEquals(201501, HistoryPartitions.nextMonth(201412));
+        assertEquals(201412, HistoryPartitions.nextMonth(201411));
+        assertEquals(201501, HistoryPartitions.addMonths(201412, 1));
+        assertEquals(201312, HistoryPartitions.addMonths(201412, -12));
+        assertEquals(201411, HistoryPartitions.addMonths(201502, -3));
+        assertEquals(201602, HistoryPartitions.addMonths(201412, 14));
+    }
+
+    @Test
+    public void parsesTableNames() {
+        assertEquals("history_201412", HistoryPartitions.tableName(201412));
+        assertEquals(201412, HistoryPartitions.monthOfTable("history_201412"));
+        assertEquals(-1, HistoryPartitions.monthOfTable("history_summary"));
+        assertEquals(-1, HistoryPartitions.monthOfTable("history_201413"));
+        assertEquals(-1, HistoryPartitions.monthOfTable("history_2014120"));
+        assertEquals(-1, HistoryPartitions.monthOfTable("weather"));
+        assertEquals(-1, HistoryPartitions.monthOfTable(null));
+    }
+}
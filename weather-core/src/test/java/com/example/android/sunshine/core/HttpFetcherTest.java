@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the fetcher against a local server that fails the way OpenWeatherMap sometimes does.
+ */
+public class HttpFetcherTest {
+
+    private static final String BODY = "{\"cod\":\"200\"}";
+
+    // Scripted responses: a status code, or HANG to outlast the read timeout
+    private static final int HANG = -1;
+
+    private static final int READ_TIMEOUT_MILLIS = 300;
+
+    private HttpServer mServer;
+    // A hanging request mustn't hold up the retry behind it
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool();
+    private URL mUrl;
+    private final List<Integer> mScript = Collections.synchronizedList(new ArrayList<Integer>());
+    private final AtomicInteger mRequests = new AtomicInteger();
+    // The client port of every request, which stays the same while a connection is reused
+    private final List<Integer> mClientPorts =
+            Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Long> mSleeps = new ArrayList<>();
+
+    private final HttpFetcher.Sleeper mSleeper = new HttpFetcher.Sleeper() {
+        @Override
+        public void sleep(long millis) {
+            mSleeps.add(millis);
+        }
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mRequests.incrementAndGet();
+                mClientPorts.add(exchange.getRemoteAddress().getPort());
+                int status = mScript.isEmpty() ? 200 : mScript.remove(0);
+                if (status == HANG) {
+                    try {
+                        Thread.sleep(READ_TIMEOUT_MILLIS * 3);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    status = 200;
+                }
+                byte[] body = (status == 200 ? BODY : "error").getBytes("UTF-8");
+                exchange.sendResponseHeaders(status, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+        mUrl = new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/forecast");
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    private HttpFetcher newFetcher(int maxAttempts) {
+        return new HttpFetcher(new BackoffPolicy(maxAttempts, 1000, 8000),
+                new HttpFetcher.UrlConnectionTransport(1000, READ_TIMEOUT_MILLIS),
+                new Random(3), mSleeper);
+    }
+
+    @Test
+    public void retriesServerErrorsThenSucceeds() throws IOException {
+        mScript.addAll(Arrays.asList(500, 503, 429));
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+
+        assertEquals(BODY, newFetcher(4).fetch(mUrl, breaker));
+        assertEquals(4, mRequests.get());
+        assertEquals(3, mSleeps.size());
+        for (int i = 0; i < mSleeps.size(); i++) {
+            long ceiling = 1000L << i;
+            assertTrue(mSleeps.get(i) >= ceiling / 2 && mSleeps.get(i) <= ceiling);
+        }
+        assertEquals(0, breaker.getFailures());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        mScript.addAll(Arrays.asList(502, 502, 502, 502));
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        try {
+            newFetcher(3).fetch(mUrl, breaker);
+            fail();
+        } catch (HttpFetcher.HttpStatusException e) {
+            assertEquals(502, e.getStatusCode());
+            assertTrue(e.isRetryable());
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        assertEquals(3, mRequests.get());
+        assertEquals(3, breaker.getFailures());
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() {
+        mScript.add(404);
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        breaker.recordFailure(0);
+        try {
+            newFetcher(3).fetch(mUrl, breaker);
+            fail();
+        } catch (HttpFetcher.HttpStatusException e) {
+            assertEquals(404, e.getStatusCode());
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        assertEquals(1, mRequests.get());
+        assertEquals(0, breaker.getFailures());
+    }
+
+    @Test
+    public void readTimeoutIsRetried() throws IOException {
+        mScript.add(HANG);
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        assertEquals(BODY, newFetcher(2).fetch(mUrl, breaker));
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void readTimeoutOnLastAttemptIsThrown() {
+        mScript.add(HANG);
+        try {
+            newFetcher(1).fetch(mUrl, new CircuitBreaker(5, 60000));
+            fail();
+        } catch (SocketTimeoutException expected) {
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+    }
+
+    @Test
+    public void openBreakerStopsRetriesAndLaterCalls() {
+        mScript.addAll(Arrays.asList(500, 500, 500, 500));
+        CircuitBreaker breaker = new CircuitBreaker(2, 60000);
+        HttpFetcher fetcher = newFetcher(4);
+        try {
+            fetcher.fetch(mUrl, breaker);
+            fail();
+        } catch (HttpFetcher.CircuitOpenException e) {
+            assertTrue(e.getRetryAt() > System.currentTimeMillis());
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        assertEquals(2, mRequests.get());
+
+        // The next sync doesn't touch the server at all
+        try {
+            fetcher.fetch(mUrl, breaker);
+            fail();
+        } catch (HttpFetcher.CircuitOpenException expected) {
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        assertEquals(2, mRequests.get());
+    }
+
+    @Test
+    public void halfOpenBreakerClosesOnSuccess() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.recordFailure(System.currentTimeMillis() - 1);
+        assertEquals(BODY, newFetcher(1).fetch(mUrl, breaker));
+        assertEquals(CircuitBreaker.STATE_CLOSED, breaker.getState(System.currentTimeMillis()));
+    }
+
+    @Test
+    public void connectionRefusedIsRetried() throws IOException {
+        mServer.stop(0);
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        try {
+            newFetcher(3).fetch(mUrl, breaker);
+            fail();
+        } catch (HttpFetcher.HttpStatusException e) {
+            fail(e.toString());
+        } catch (IOException expected) {
+        }
+        assertEquals(2, mSleeps.size());
+        assertEquals(3, breaker.getFailures());
+    }
+
+    @Test
+    public void interruptStopsBackoff() {
+        mScript.add(500);
+        HttpFetcher fetcher = new HttpFetcher(new BackoffPolicy(3, 1000, 1000),
+                new HttpFetcher.UrlConnectionTransport(1000, READ_TIMEOUT_MILLIS),
+                new Random(3), new HttpFetcher.Sleeper() {
+                    @Override
+                    public void sleep(long millis) throws InterruptedException {
+                        throw new InterruptedException();
+                    }
+                });
+        try {
+            fetcher.fetch(mUrl, new CircuitBreaker(5, 60000));
+            fail();
+        } catch (InterruptedIOException expected) {
+            assertTrue(Thread.interrupted());
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void cancelledSyncIsNotRetriedOrCounted() {
+        final AtomicInteger calls = new AtomicInteger();
+        HttpFetcher fetcher = new HttpFetcher(new BackoffPolicy(3, 1000, 1000),
+                new HttpFetcher.Transport() {
+                    @Override
+                    public <T> T get(URL url, HttpFetcher.BodyReader<T> reader)
+                            throws IOException {
+                        // The sync is cancelled mid-request and the socket closed under it
+                        calls.incrementAndGet();
+                        Thread.currentThread().interrupt();
+                        throw new SocketException("Socket closed");
+                    }
+                }, new Random(3), mSleeper);
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        try {
+            fetcher.fetch(mUrl, breaker);
+            fail();
+        } catch (IOException e) {
+            assertTrue(Thread.interrupted());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, mSleeps.size());
+        assertEquals(0, breaker.getFailures());
+    }
+
+    @Test
+    public void interruptedReadIsNotRetriedOrCounted() {
+        final AtomicInteger calls = new AtomicInteger();
+        HttpFetcher fetcher = new HttpFetcher(new BackoffPolicy(3, 1000, 1000),
+                new HttpFetcher.Transport() {
+                    @Override
+                    public <T> T get(URL url, HttpFetcher.BodyReader<T> reader)
+                            throws IOException {
+                        // What okio throws when a hedge cancels the read: the flag is cleared
+                        calls.incrementAndGet();
+                        throw new InterruptedIOException("thread interrupted");
+                    }
+                }, new Random(3), mSleeper);
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        try {
+            fetcher.fetch(mUrl, breaker);
+            fail();
+        } catch (InterruptedIOException expected) {
+            assertTrue(Thread.interrupted());
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, mSleeps.size());
+        assertEquals(0, breaker.getFailures());
+    }
+
+    @Test
+    public void reusesConnection() throws IOException {
+        mScript.addAll(Arrays.asList(200, 503, 200));
+        HttpFetcher fetcher = newFetcher(2);
+        CircuitBreaker breaker = new CircuitBreaker(5, 60000);
+        fetcher.fetch(mUrl, breaker);
+        fetcher.fetch(mUrl, breaker);
+
+        assertEquals(3, mClientPorts.size());
+        assertEquals(mClientPorts.get(0), mClientPorts.get(1));
+        assertEquals(mClientPorts.get(0), mClientPorts.get(2));
+    }
+
+    @Test
+    public void readerSeesBody() throws IOException {
+        int length = newFetcher(1).fetch(mUrl, new CircuitBreaker(5, 60000),
+                new HttpFetcher.BodyReader<Integer>() {
+                    @Override
+                    public Integer read(InputStream in) throws IOException {
+                        return HttpFetcher.STRING.read(in).length();
+                    }
+                });
+        assertEquals(BODY.length(), length);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SortedDiffTest {
+
+    private static final SortedDiff.Contents SAME = new SortedDiff.Contents() {
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return true;
+        }
+    };
+
+    @Test
+    public void sameRowsHaveNoChanges() {
+        long[] keys = {1, 2, 3};
+        assertEquals(Collections.emptyList(), SortedDiff.compute(keys, keys, SAME));
+        assertEquals(Collections.emptyList(), SortedDiff.compute(new long[0], new long[0], SAME));
+    }
+
+    @Test
+    public void dayRollsOver() {
+        // Yesterday drops off the front, a new day arrives at the end, and today's high moved
+        List<SortedDiff.Change> changes = SortedDiff.compute(new long[]{1, 2, 3, 4},
+                new long[]{2, 3, 4, 5}, new SortedDiff.Contents() {
+                    @Override
+                    public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                        return oldPosition != 1;
+                    }
+                });
+        assertEquals(Arrays.asList(
+                new SortedDiff.Change(SortedDiff.Change.REMOVE, 0, 1),
+                new SortedDiff.Change(SortedDiff.Change.CHANGE, 0, 1),
+                new SortedDiff.Change(SortedDiff.Change.INSERT, 3, 1)), changes);
+    }
+
+    @Test
+    public void rangesAreMerged() {
+        assertEquals(Arrays.asList(
+                        new SortedDiff.Change(SortedDiff.Change.INSERT, 0, 3)),
+                SortedDiff.compute(new long[0], new long[]{1, 2, 3}, SAME));
+        assertEquals(Arrays.asList(
+                        new SortedDiff.Change(SortedDiff.Change.REMOVE, 0, 3)),
+                SortedDiff.compute(new long[]{1, 2, 3}, new long[0], SAME));
+        assertEquals(Arrays.asList(
+                        new SortedDiff.Change(SortedDiff.Change.REMOVE, 1, 2),
+                        new SortedDiff.Change(SortedDiff.Change.INSERT, 2, 2)),
+                SortedDiff.compute(new long[]{1, 2, 3, 4}, new long[]{1, 4, 5, 6}, SAME));
+    }
+
+    @Test
+    public void changesTurnOldRowsIntoNewOnes() {
+        Random random = new Random(42);
+        for (int run = 0; run < 1000; run++) {
+            final long[] oldKeys = randomKeys(random);
+            final long[] newKeys = randomKeys(random);
+            final int[] oldValues = randomValues(random, oldKeys.length);
+            final int[] newValues = randomValues(random, newKeys.length);
+            List<SortedDiff.Change> changes = SortedDiff.compute(oldKeys, newKeys,
+                    new SortedDiff.Contents() {
+                        @Override
+                        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                            return oldValues[oldPosition] == newValues[newPosition];
+                        }
+                    });
+
+            // Each row is the old position it came from, or -1 if inserted
+            List<Integer> rows = new ArrayList<>();
+            for (int i = 0; i < oldKeys.length; i++) {
+                rows.add(i);
+            }
+            boolean[] changed = new boolean[oldKeys.length];
+            for (SortedDiff.Change change : changes) {
+                for (int i = 0; i < change.count; i++) {
+                    switch (change.type) {
+                        case SortedDiff.Change.INSERT:
+                            rows.add(change.position + i, -1);
+                            break;
+                        case SortedDiff.Change.REMOVE:
+                            rows.remove(change.position);
+                            break;
+                        default:
+                            int row = rows.get(change.position + i);
+                            assertTrue("changed an inserted row", row != -1);
+                            changed[row] = true;
+                    }
+                }
+            }
+
+            assertEquals(newKeys.length, rows.size());
+            for (int j = 0; j < newKeys.length; j++) {
+                int row = rows.get(j);
+                if (row == -1) {
+                    assertTrue("inserted an old row", Arrays.binarySearch(oldKeys, newKeys[j]) < 0);
+                } else {
+                    assertEquals(oldKeys[row], newKeys[j]);
+                    assertEquals(oldValues[row] != newValues[j], changed[row]);
+                }
+            }
+        }
+    }
+
+    private static long[] randomKeys(Random random) {
+        List<Long> keys = new ArrayList<>();
+        for (long key = 0; key < 20; key++) {
+            if (random.nextBoolean()) {
+                keys.add(key);
+            }
+        }
+        long[] array = new long[keys.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = keys.get(i);
+        }
+        return array;
+    }
+
+    private static int[] randomValues(Random random, int count) {
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(3);
+        }
+        return values;
+    }
+}
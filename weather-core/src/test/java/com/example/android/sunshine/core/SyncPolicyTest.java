@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SyncPolicyTest {
+
+    private static final long[] DATES = {1000, 2000, 3000};
+
+    @Test
+    public void backsOffWhileUnchanged() {
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+        assertEquals(SyncPolicy.BASE_INTERVAL, SyncPolicy.decide(inputs).interval);
+        inputs.unchangedSyncs = 1;
+        assertEquals(SyncPolicy.BASE_INTERVAL * 2, SyncPolicy.decide(inputs).interval);
+        inputs.unchangedSyncs = 2;
+        assertEquals(SyncPolicy.MAX_INTERVAL, SyncPolicy.decide(inputs).interval);
+        inputs.unchangedSyncs = 10;
+        assertEquals(SyncPolicy.MAX_INTERVAL, SyncPolicy.decide(inputs).interval);
+    }
+
+    @Test
+    public void speedsUpForChangeAndSevereWeather() {
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+        inputs.maxTemperatureChange = 4;
+        assertEquals(SyncPolicy.BASE_INTERVAL / 2, SyncPolicy.decide(inputs).interval);
+
+        inputs.pushActive = true;
+        inputs.severe = true;
+        SyncPolicy.Decision decision = SyncPolicy.decide(inputs);
+        assertEquals(SyncPolicy.MIN_INTERVAL, decision.interval);
+        assertEquals("severe", decision.reason);
+    }
+
+    @Test
+    public void pushRelaxesPolling() {
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+        inputs.pushActive = true;
+        inputs.conditionChanged = true;
+        assertEquals(SyncPolicy.PUSH_INTERVAL, SyncPolicy.decide(inputs).interval);
+    }
+
+    @Test
+    public void pushLapsesAfterSafetyInterval() {
+        long push = 1419033600000L;
+        long interval = SyncPolicy.PUSH_INTERVAL * 1000L;
+        assertFalse(SyncPolicy.isPushActive(0, push));
+        assertTrue(SyncPolicy.isPushActive(push, push));
+        assertTrue(SyncPolicy.isPushActive(push, push + interval - 1));
+        assertFalse(SyncPolicy.isPushActive(push, push + interval));
+        // The clock was set back: poll rather than trust the push indefinitely
+        assertFalse(SyncPolicy.isPushActive(push, push - 1));
+    }
+
+    @Test
+    public void defersOnMeteredAndLowBattery() {
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+        inputs.metered = true;
+        SyncPolicy.Decision decision = SyncPolicy.decide(inputs);
+        assertTrue(decision.deferOptionalWork);
+        assertEquals(SyncPolicy.BASE_INTERVAL, decision.interval);
+
+        inputs.metered = false;
+        inputs.batteryLow = true;
+        decision = SyncPolicy.decide(inputs);
+        assertTrue(decision.deferOptionalWork);
+        assertEquals(SyncPolicy.BASE_INTERVAL * 2, decision.interval);
+
+        inputs.charging = true;
+        decision = SyncPolicy.decide(inputs);
+        assertFalse(decision.deferOptionalWork);
+        assertEquals(SyncPolicy.BASE_INTERVAL, decision.interval);
+    }
+
+    @Test
+    public void flexStaysInsideInterval() {
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+        for (int unchanged = 0; unchanged < 4; unchanged++) {
+            inputs.unchangedSyncs = unchanged;
+            SyncPolicy.Decision decision = SyncPolicy.decide(inputs);
+            assertTrue(decision.flex > 0 && decision.flex < decision.interval);
+        }
+    }
+
+    @Test
+    public void comparesSharedDays() {
+        String previous = SyncPolicy.fingerprint(DATES, new int[]{800, 500, 800},
+                new double[]{20.0, 18.5, 21.0});
+        SyncPolicy.Inputs inputs = new SyncPolicy.Inputs();
+
+        SyncPolicy.compare(inputs, previous, previous, 1);
+        assertEquals(2, inputs.unchangedSyncs);
+        assertFalse(inputs.conditionChanged);
+
+        // The calendar moved on a day: the first day dropped off and a new one was added
+        String shifted = SyncPolicy.fingerprint(new long[]{2000, 3000, 4000},
+                new int[]{500, 800, 600}, new double[]{18.5, 21.0, -2.0});
+        SyncPolicy.compare(inputs, previous, shifted, 1);
+        assertEquals(2, inputs.unchangedSyncs);
+
+        String warmer = SyncPolicy.fingerprint(DATES, new int[]{800, 500, 800},
+                new double[]{20.0, 22.0, 21.0});
+        SyncPolicy.compare(inputs, previous, warmer, 3);
+        assertEquals(0, inputs.unchangedSyncs);
+        assertFalse(inputs.conditionChanged);
+        assertEquals(3.5, inputs.maxTemperatureChange, 1e-9);
+
+        String rainier = SyncPolicy.fingerprint(DATES, new int[]{800, 500, 501},
+                new double[]{20.0, 18.5, 21.0});
+        SyncPolicy.compare(inputs, previous, rainier, 3);
+        assertEquals(0, inputs.unchangedSyncs);
+        assertTrue(inputs.conditionChanged);
+
+        SyncPolicy.compare(inputs, null, previous, 3);
+        assertEquals(0, inputs.unchangedSyncs);
+    }
+}
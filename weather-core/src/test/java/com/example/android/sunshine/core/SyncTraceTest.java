@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SyncTraceTest {
+
+    @Test
+    public void recordsStagesInOrder() {
+        SyncTrace trace = new SyncTrace(1000);
+        trace.recordDuration("fetch", 2500000, 4096, 0);
+        trace.recordDuration("parse", 1000000, 0, 14);
+        assertNull(trace.getResult());
+        assertEquals(-1, trace.getTotalMicros());
+        trace.finish("ok");
+
+        List<SyncTrace.Stage> stages = trace.getStages();
+        assertEquals(2, stages.size());
+        assertEquals("fetch", stages.get(0).name);
+        assertEquals(2500, stages.get(0).micros);
+        assertEquals(4096, stages.get(0).bytes);
+        assertEquals(14, stages.get(1).rows);
+        assertEquals("ok", trace.getResult());
+        assertTrue(trace.getTotalMicros() >= 0);
+    }
+
+    @Test
+    public void roundTripsThroughLine() {
+        SyncTrace trace = new SyncTrace(1455000000000L);
+        trace.recordDuration("connect:api.openweathermap.org", 30000000, 0, 0);
+        // Separators in names mustn't break the line
+        trace.recordDuration("odd|name,here", 1000, 1, 2);
+        trace.finish("http_503");
+
+        SyncTrace read = SyncTrace.fromLine(trace.toLine());
+        assertEquals(trace.toLine(), read.toLine());
+        assertEquals(1455000000000L, read.startedAt);
+        assertEquals("http_503", read.getResult());
+        assertEquals("odd_name_here", read.getStages().get(1).name);
+    }
+
+    @Test
+    public void rejectsMalformedLines() {
+        assertNull(SyncTrace.fromLine(""));
+        assertNull(SyncTrace.fromLine("1,ok"));
+        assertNull(SyncTrace.fromLine("1,ok,5|fetch,1,2"));
+        assertNull(SyncTrace.fromLine("1,ok,x"));
+    }
+
+    @Test
+    public void summarizesMedianAndMax() {
+        SyncTrace a = SyncTrace.fromLine("1,ok,10000|fetch,1000,0,0|parse,100,0,14");
+        SyncTrace b = SyncTrace.fromLine("2,ok,20000|fetch,3000,0,0");
+        SyncTrace c = SyncTrace.fromLine("3,ok,30000|fetch,2000,0,0|parse,300,0,14");
+
+        String[] lines = SyncTrace.summarize(Arrays.asList(a, b, c)).split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0], lines[0].startsWith("fetch"));
+        assertTrue(lines[0], lines[0].contains("n=3"));
+        assertTrue(lines[0], lines[0].contains("median=      2.0ms"));
+        assertTrue(lines[0], lines[0].contains("max=      3.0ms"));
+        assertTrue(lines[1], lines[1].startsWith("parse"));
+        assertTrue(lines[2], lines[2].startsWith("total"));
+    }
+}
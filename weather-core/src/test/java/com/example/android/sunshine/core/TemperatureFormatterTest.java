@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TemperatureFormatterTest {
+
+    // What Utility.formatTemperature did with the "format_temperature" string
+    private static String legacyFormat(double temperature) {
+        return String.format(Locale.US, "%1.0f\u00B0", temperature);
+    }
+
+    private static void assertMatchesLegacy(double temperature) {
+        String expected = legacyFormat(temperature);
+        assertEquals("String for " + temperature, expected,
+                TemperatureFormatter.format(temperature));
+
+        char[] dest = new char[TemperatureFormatter.MAX_LENGTH + 3];
+        int end = TemperatureFormatter.format(temperature, dest, 3);
+        assertEquals("chars for " + temperature, expected, new String(dest, 3, end - 3));
+    }
+
+    @Test
+    public void matchesFormatterOnEveryTenthOfADegree() {
+        for (int tenths = -1000; tenths <= 1000; tenths++) {
+            assertMatchesLegacy(tenths / 10.0);
+        }
+    }
+
+    @Test
+    public void matchesFormatterOnHalves() {
+        for (int halves = -401; halves <= 401; halves += 2) {
+            assertMatchesLegacy(halves / 2.0);
+        }
+    }
+
+    @Test
+    public void matchesFormatterNextToHalves() {
+        for (int whole = -40; whole <= 40; whole++) {
+            double half = whole + 0.5;
+            assertMatchesLegacy(Math.nextUp(half));
+            assertMatchesLegacy(Math.nextAfter(half, Double.NEGATIVE_INFINITY));
+        }
+        assertMatchesLegacy(0.49999999999999994);
+        assertMatchesLegacy(-0.49999999999999994);
+    }
+
+    @Test
+    public void keepsTheSignOfZero() {
+        assertMatchesLegacy(0.0);
+        assertMatchesLegacy(-0.0);
+        assertMatchesLegacy(-0.2);
+        assertEquals("-0\u00B0", TemperatureFormatter.format(-0.2));
+    }
+
+    @Test
+    public void matchesFormatterOnRandomTemperatures() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            assertMatchesLegacy((random.nextDouble() - 0.5) * 200);
+        }
+    }
+
+    @Test
+    public void matchesFormatterOnOddValues() {
+        assertMatchesLegacy(Double.NaN);
+        assertMatchesLegacy(Double.POSITIVE_INFINITY);
+        assertMatchesLegacy(Double.NEGATIVE_INFINITY);
+        assertMatchesLegacy(TemperatureFormatter.MAX_FAST_VALUE - 0.5);
+        assertMatchesLegacy(-TemperatureFormatter.MAX_FAST_VALUE + 0.5);
+        assertEquals(legacyFormat(1e300), TemperatureFormatter.format(1e300));
+    }
+
+    @Test
+    public void convertsToFahrenheit() {
+        assertEquals(32.0, TemperatureFormatter.toDisplayUnits(0, false), 0);
+        assertEquals(212.0, TemperatureFormatter.toDisplayUnits(100, false), 1e-9);
+        assertEquals(-40.0, TemperatureFormatter.toDisplayUnits(-40, false), 1e-9);
+        assertEquals(21.5, TemperatureFormatter.toDisplayUnits(21.5, true), 0);
+    }
+}
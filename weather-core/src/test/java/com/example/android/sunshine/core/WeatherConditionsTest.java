@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.example.android.sunshine.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks every condition id against the if/else chains WeatherConditions replaced.
+ */
+public class WeatherConditionsTest {
+
+    // Well past both ends of the table, so the bounds checks are covered too.
+    private static final int FIRST_ID = -10;
+    private static final int LAST_ID = 1100;
+
+    @Test
+    public void artNameMatchesLegacyChain() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            assertEquals("id " + id, legacyArtName(id), WeatherConditions.getArtName(id));
+        }
+    }
+
+    @Test
+    public void artTypeMatchesArtName() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            int artType = WeatherConditions.getArtType(id);
+            assertEquals("id " + id, legacyArtName(id),
+                    WeatherConditions.getArtNameForType(artType));
+        }
+    }
+
+    @Test
+    public void imageUrlMatchesLegacyChain() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            assertEquals("id " + id, legacyImageUrl(id), WeatherConditions.getImageUrl(id));
+        }
+    }
+
+    @Test
+    public void severeConditions() {
+        int[] severe = {200, 211, 232, 502, 504, 511, 602, 622, 781, 900, 906, 957, 962};
+        int[] mild = {300, 500, 501, 520, 600, 621, 701, 771, 800, 804, 951, 956};
+        for (int id : severe) {
+            assertTrue("id " + id, WeatherConditions.isSevere(id));
+        }
+        for (int id : mild) {
+            assertFalse("id " + id, WeatherConditions.isSevere(id));
+        }
+    }
+
+    @Test
+    public void descriptionMatchesLegacySwitch() {
+        for (int id = FIRST_ID; id <= LAST_ID; id++) {
+            assertEquals("id " + id, legacyHasDescription(id),
+                    WeatherConditions.hasDescription(id));
+        }
+    }
+
+    // Copied from Utility.getArtUrlForWeatherCondition before the table was introduced.
+    private static String legacyArtName(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "storm";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "light_rain";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "rain";
+        } else if (weatherId == 511) {
+            return "snow";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "rain";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "snow";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "fog";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "storm";
+        } else if (weatherId == 800) {
+            return "clear";
+        } else if (weatherId == 801) {
+            return "light_clouds";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "clouds";
+        }
+        return null;
+    }
+
+    // Copied from Utility.getImageUrlForWeatherCondition before the table was introduced.
+    private static String legacyImageUrl(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return "http://upload.wikimedia.org/wikipedia/commons/2/28/Thunderstorm_in_Annemasse,_France.jpg";
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return "http://upload.wikimedia.org/wikipedia/commons/a/a0/Rain_on_leaf_504605006.jpg";
+        } else if (weatherId >= 500 && weatherId <= 504) {
+            return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
+        } else if (weatherId == 511) {
+            return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
+        } else if (weatherId >= 520 && weatherId <= 531) {
+            return "http://upload.wikimedia.org/wikipedia/commons/6/6c/Rain-on-Thassos.jpg";
+        } else if (weatherId >= 600 && weatherId <= 622) {
+            return "http://upload.wikimedia.org/wikipedia/commons/b/b8/Fresh_snow.JPG";
+        } else if (weatherId >= 701 && weatherId <= 761) {
+            return "http://upload.wikimedia.org/wikipedia/commons/e/e6/Westminster_fog_-_London_-_UK.jpg";
+        } else if (weatherId == 761 || weatherId == 781) {
+            return "http://upload.wikimedia.org/wikipedia/commons/d/dc/Raised_dust_ahead_of_a_severe_thunderstorm_1.jpg";
+        } else if (weatherId == 800) {
+            return "http://upload.wikimedia.org/wikipedia/commons/7/7e/A_few_trees_and_the_sun_(6009964513).jpg";
+        } else if (weatherId == 801) {
+            return "http://upload.wikimedia.org/wikipedia/commons/e/e7/Cloudy_Blue_Sky_(5031259890).jpg";
+        } else if (weatherId >= 802 && weatherId <= 804) {
+            return "http://upload.wikimedia.org/wikipedia/commons/5/54/Cloudy_hills_in_Elis,_Greece_2.jpg";
+        }
+        return null;
+    }
+
+    // The ids Utility.getStringForWeatherCondition had a case (or a group) for.
+    private static boolean legacyHasDescription(int weatherId) {
+        if (weatherId >= 200 && weatherId <= 232) {
+            return true;
+        } else if (weatherId >= 300 && weatherId <= 321) {
+            return true;
+        }
+        switch (weatherId) {
+            case 500: case 501: case 502: case 503: case 504:
+            case 511: case 520: case 531:
+            case 600: case 601: case 602: case 611: case 612: case 615: case 616:
+            case 620: case 621: case 622:
+            case 701: case 711: case 721: case 731: case 741: case 751: case 761: case 762:
+            case 771: case 781:
+            case 800: case 801: case 802: case 803: case 804:
+            case 900: case 901: case 902: case 903: case 904: case 905: case 906:
+            case 951: case 952: case 953: case 954: case 955: case 956: case 957: case 958:
+            case 959: case 960: case 961: case 962:
+                return true;
+            default:
+                return false;
+        }
+    }
+}